@@ -32,12 +32,16 @@ package aim4;
 
 import aim4.config.Debug;
 import aim4.driver.pilot.V2IPilot;
+import aim4.gui.FrameExporter;
 import aim4.gui.Viewer;
 import aim4.map.BasicMap;
+import aim4.map.CsvDataCollectionLineWriter;
+import aim4.map.DataCollectionLineWriter;
 import aim4.sim.Simulator;
 import aim4.sim.setup.AutoDriverOnlySimSetup;
 import aim4.config.SimConfig;
 import aim4.config.SimConfig.SIGNAL_TYPE;
+import aim4.config.SimulationContext;
 
 /**
  * Alternative class to run a set simulation with no GUI.
@@ -47,6 +51,31 @@ public class Main_HHV_experiments {
   private static boolean GENERATE_BASELINE = false;
   private static boolean SHOW_GUI = true;
 
+  /**
+   * The period of simulated time, in seconds, between two flushes of the
+   * data of the data collection lines to the file.
+   */
+  private static final double DCL_FLUSH_INTERVAL = 60.0;
+  /**
+   * The maximum number of rows in a file of the data of the data collection
+   * lines; zero if all rows go to the same file.
+   */
+  private static final int DCL_MAX_ROWS_PER_FILE = 0;
+
+  /** The width of the exported frames */
+  private static final int FRAME_WIDTH = 800;
+  /** The height of the exported frames */
+  private static final int FRAME_HEIGHT = 800;
+  /** The default number of simulation steps between two exported frames */
+  private static final int FRAME_STRIDE = 10;
+  /** The maximum number of exported frames waiting to be written */
+  private static final int FRAME_QUEUE_CAPACITY = 32;
+  /**
+   * The maximum time, in milliseconds, the simulation waits for an exported
+   * frame to be queued before the frame is dropped
+   */
+  private static final long FRAME_BUDGET = 5L;
+
   /////////////////////////////////
   // THE MAIN FUNCTION
   /////////////////////////////////
@@ -58,7 +87,7 @@ public class Main_HHV_experiments {
    * @param args  the command-line arguments
    *
    *              Arguments ->  OPTIONS PARAMETERS
-   *              OPTIONS ->    [-d] [-o] [-b]
+   *              OPTIONS ->    [-d] [-o] [-b] [-f frameDir] [-k stride]
    *              PARAMETERS -> trafficLevel humanWithHUDpercentage bufferFactor
    *
    */
@@ -73,6 +102,8 @@ public class Main_HHV_experiments {
                         +"OPTIONS    -> -d  generate data file instead of showing GUI\n"
                         +"              -o  one lane version\n"
                         +"              -b  generates baseline (ignores parameters)\n"
+                        +"              -f frameDir  with -d, export frames as PNG files to frameDir\n"
+                        +"              -k stride    simulation steps between two exported frames (default: " + FRAME_STRIDE + ")\n"
                         +"PARAMETERS -> trafficLevel      Amount of traffic (as a proportion of 3600 veh/lane/hr)"
                         +"              humanWithHUDp     proportion of vehicles that are human-driven following a HUD"
                         +"                                (the rest are fully autonomous)"
@@ -82,22 +113,15 @@ public class Main_HHV_experiments {
     }
 
     double trafficLevel = Double.parseDouble(args[args.length - 3]);
-    SimConfig.HUD_HUMAN_PERCENTAGE = Double.parseDouble(args[args.length - 2]);
+    SimConfig.setHudHumanPercentage(Double.parseDouble(args[args.length - 2]));
     double bufferFactor = Double.parseDouble(args[args.length - 1]);
 
-    /*
-      for source files to read
-     */
-    String trafficVolumeFileName;
-    if (SimConfig.DEDICATED_LANES == 0) {
-      trafficVolumeFileName = "src/main/java/6phases/AIM4Volumes.csv";
-    } else {
-      trafficVolumeFileName = "src/main/java/6phases/AIM4BalancedVolumes.csv";
-    }
+    SimConfig.setTotalSimulationTime(1800);
 
-    SimConfig.TOTAL_SIMULATION_TIME = 1800;
+    String frameDir = null;
+    int frameStride = FRAME_STRIDE;
 
-    for (int i = 0; i < args.length - 2; i++) {
+    for (int i = 0; i < args.length - 3; i++) {
       String flag = args[i];
 
       switch (flag) {
@@ -106,38 +130,22 @@ public class Main_HHV_experiments {
           break;
         case "-o":
           // TODO: interpret differently?
-          SimConfig.signalType = SIGNAL_TYPE.ONE_LANE_VERSION;
+          SimConfig.setSignalType(SIGNAL_TYPE.ONE_LANE_VERSION);
           break;
         case "-b":
           GENERATE_BASELINE = true;
           break;
+        case "-f":
+          frameDir = args[++i];
+          break;
+        case "-k":
+          frameStride = Integer.parseInt(args[++i]);
+          break;
       }
     }
 
-    double staticBufferSize = .25; // TODO: make this CL arg?
-
     AutoDriverOnlySimSetup autoDriverOnlySimSetup =
-            new AutoDriverOnlySimSetup(1, // columns
-                                       1, // rows
-                                       4, // lane width
-                                       25.0, // speed limit
-                                       3, // lanes per road
-                                       1, // median size
-                                       150, // distance between
-                                       trafficLevel, // traffic level
-                                       1.0 // stop distance before intersection
-                      );
-    autoDriverOnlySimSetup.setIsBaseLineMode(GENERATE_BASELINE);
-    autoDriverOnlySimSetup.setBuffers(staticBufferSize,
-                                      .1,
-                                      .25,
-                                      true,
-                                      1.0);
-    autoDriverOnlySimSetup.setBufferFactorForHUD(bufferFactor);
-    autoDriverOnlySimSetup.setTrafficVolume(trafficVolumeFileName);
-    autoDriverOnlySimSetup.setTrafficLevel(trafficLevel);
-
-    V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION = 1.0;
+            makeSimSetup(trafficLevel, bufferFactor, GENERATE_BASELINE);
 
 
     /////////////////////////////////
@@ -151,33 +159,113 @@ public class Main_HHV_experiments {
     } else {
       // get the simulator
       Simulator sim = autoDriverOnlySimSetup.getSimulator();
-      // run the simulator
-      double currentTime = 0.0;
-      while (currentTime <= SimConfig.TOTAL_SIMULATION_TIME) {
-        Debug.clearShortTermDebugPoints();
-        sim.step(SimConfig.TIME_STEP);
-        currentTime += SimConfig.TIME_STEP;
-      }
-
-      /////////////////////////////////
-      // Generate data files
-      /////////////////////////////////
-
+      // this program runs a single simulation, so threads that have not
+      // bound a context see it as the default context
+      SimulationContext.setDefault(SimulationContext.current());
       BasicMap map = sim.getMap();
 
-      // output the collected data of DCL
+      // the collected data of DCL are written as the vehicles cross the
+      // lines
 
       String dclOutFileName;
       if (GENERATE_BASELINE) {
         dclOutFileName = "output/ts_hud_baseline.csv";
       } else {
         dclOutFileName =
-                "output/ts_hud_" + trafficLevel + "_" + SimConfig.HUD_HUMAN_PERCENTAGE + "_" +  + bufferFactor + ".csv";
+                "output/ts_hud_" + trafficLevel + "_" + SimConfig.getHudHumanPercentage() + "_" +  + bufferFactor + ".csv";
+      }
+      DataCollectionLineWriter dclWriter =
+        new CsvDataCollectionLineWriter(dclOutFileName, DCL_FLUSH_INTERVAL,
+                                        DCL_MAX_ROWS_PER_FILE);
+      map.setDataCollectionLineWriter(dclWriter);
+
+      // the frames are drawn and written on a separate thread
+      FrameExporter frameExporter = null;
+      if (frameDir != null) {
+        frameExporter =
+          new FrameExporter(map, FRAME_WIDTH, FRAME_HEIGHT, frameDir,
+                            frameStride, FRAME_QUEUE_CAPACITY, FRAME_BUDGET);
+      }
+
+      // run the simulator
+      try {
+        double currentTime = 0.0;
+        while (currentTime <= SimConfig.getTotalSimulationTime()) {
+          Debug.clearShortTermDebugPoints();
+          sim.step(SimConfig.TIME_STEP);
+          currentTime += SimConfig.TIME_STEP;
+          if (frameExporter != null) {
+            frameExporter.stepped(sim);
+          }
+        }
+      } finally {
+        map.setDataCollectionLineWriter(null);
+        dclWriter.close();
+        if (frameExporter != null) {
+          frameExporter.close();
+          if (frameExporter.getNumOfDroppedFrames() > 0) {
+            System.err.printf("%d frames were dropped.\n",
+                              frameExporter.getNumOfDroppedFrames());
+          }
+        }
       }
-      map.printDataCollectionLinesData(dclOutFileName);
 
       System.out.printf("%s: done.\n", Main_HHV_experiments.class);
 
     }
   }
+
+  /////////////////////////////////
+  // PUBLIC STATIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Make the setup of the HHV experiments: a single intersection with three
+   * lanes per road and the traffic volume read from file.
+   *
+   * @param trafficLevel      the traffic level
+   * @param bufferFactor      the factor of the buffers of HUD vehicles
+   * @param generateBaseline  whether to generate the baseline
+   * @return the setup of the simulation
+   */
+  public static AutoDriverOnlySimSetup makeSimSetup(double trafficLevel,
+                                                    double bufferFactor,
+                                                    boolean generateBaseline) {
+    /*
+      for source files to read
+     */
+    String trafficVolumeFileName;
+    if (SimConfig.getDedicatedLanes() == 0) {
+      trafficVolumeFileName = "src/main/java/6phases/AIM4Volumes.csv";
+    } else {
+      trafficVolumeFileName = "src/main/java/6phases/AIM4BalancedVolumes.csv";
+    }
+
+    double staticBufferSize = .25; // TODO: make this CL arg?
+
+    AutoDriverOnlySimSetup autoDriverOnlySimSetup =
+            new AutoDriverOnlySimSetup(1, // columns
+                                       1, // rows
+                                       4, // lane width
+                                       25.0, // speed limit
+                                       3, // lanes per road
+                                       1, // median size
+                                       150, // distance between
+                                       trafficLevel, // traffic level
+                                       1.0 // stop distance before intersection
+                      );
+    autoDriverOnlySimSetup.setIsBaseLineMode(generateBaseline);
+    autoDriverOnlySimSetup.setBuffers(staticBufferSize,
+                                      .1,
+                                      .25,
+                                      true,
+                                      1.0);
+    autoDriverOnlySimSetup.setBufferFactorForHUD(bufferFactor);
+    autoDriverOnlySimSetup.setTrafficVolume(trafficVolumeFileName);
+    autoDriverOnlySimSetup.setTrafficLevel(trafficLevel);
+
+    V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION = 1.0;
+
+    return autoDriverOnlySimSetup;
+  }
 }
\ No newline at end of file
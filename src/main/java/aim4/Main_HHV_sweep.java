@@ -0,0 +1,230 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import aim4.config.Debug;
+import aim4.config.SimConfig;
+import aim4.sim.SweepRunner;
+import aim4.sim.SweepRunner.SweepPoint;
+import aim4.sim.setup.SimSetup;
+import aim4.util.Util;
+
+/**
+ * Run a sweep of the HHV experiments over trafficLevel, the HUD human
+ * percentage and the buffer factor, using all the cores of this machine.
+ * Rerunning the same command resumes an interrupted sweep.
+ */
+public class Main_HHV_sweep {
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * A point of the sweep.
+   */
+  private static class HHVPoint implements SweepPoint {
+
+    /** The traffic level */
+    private double trafficLevel;
+    /** The percentage of human drivers following HUDs */
+    private double hudHumanPercentage;
+    /** The factor of the buffers of HUD vehicles */
+    private double bufferFactor;
+    /** The time the simulation should run */
+    private double totalSimulationTime;
+    /** Whether the simulator checks for collisions */
+    private boolean checkingForCollisions;
+
+    /**
+     * Create a point of the sweep.
+     *
+     * @param trafficLevel         the traffic level
+     * @param hudHumanPercentage   the percentage of human drivers following
+     *                             HUDs
+     * @param bufferFactor         the factor of the buffers of HUD vehicles
+     * @param totalSimulationTime  the time the simulation should run
+     * @param checkingForCollisions whether the simulator checks for
+     *                             collisions
+     */
+    public HHVPoint(double trafficLevel, double hudHumanPercentage,
+                    double bufferFactor, double totalSimulationTime,
+                    boolean checkingForCollisions) {
+      this.trafficLevel = trafficLevel;
+      this.hudHumanPercentage = hudHumanPercentage;
+      this.bufferFactor = bufferFactor;
+      this.totalSimulationTime = totalSimulationTime;
+      this.checkingForCollisions = checkingForCollisions;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+      // the same name Main_HHV_experiments gives its output file
+      return "ts_hud_" + trafficLevel + "_" + hudHumanPercentage + "_" +
+             bufferFactor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getParameterValues() {
+      return trafficLevel + "," + hudHumanPercentage + "," + bufferFactor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SimSetup makeSimSetup() {
+      SimConfig.setHudHumanPercentage(hudHumanPercentage);
+      SimConfig.setTotalSimulationTime(totalSimulationTime);
+      Debug.setCheckingForCollisions(checkingForCollisions);
+      return Main_HHV_experiments.makeSimSetup(trafficLevel, bufferFactor,
+                                               false);
+    }
+  }
+
+  /////////////////////////////////
+  // THE MAIN FUNCTION
+  /////////////////////////////////
+
+  /**
+   * The main function of the sweep.
+   *
+   * @param args  the command-line arguments
+   *
+   *              Arguments ->  OPTIONS PARAMETERS
+   *              OPTIONS ->    [-j threads] [-o outDir] [-t seconds] [-s seed]
+   *                            [-c] [-b]
+   *              PARAMETERS -> trafficLevels humanWithHUDpercentages
+   *                            bufferFactors
+   * @throws IOException if the output files cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 3 || args[0].endsWith("-help")) {
+      System.out.println("Arguments  -> OPTIONS PARAMETERS\n"
+                        +"OPTIONS    -> -j threads  number of simulations run at the same time\n"
+                        +"                          (default: number of cores)\n"
+                        +"              -o outDir   directory of the output files (default: output)\n"
+                        +"              -t seconds  simulated time of each point (default: 1800)\n"
+                        +"              -s seed     random seed of every point (default: random)\n"
+                        +"              -c          stop a point at the first collision of vehicles\n"
+                        +"              -b          write the data of the data collection lines in binary\n"
+                        +"                          (convert with aim4.map.BinaryDataCollectionLineReader)\n"
+                        +"PARAMETERS -> comma-separated lists of the values of\n"
+                        +"              trafficLevel      Amount of traffic (as a proportion of 3600 veh/lane/hr)\n"
+                        +"              humanWithHUDp     proportion of vehicles that are human-driven following a HUD\n"
+                        +"              bufferFactor      Factor to apply to HUD vehicle buffers compared to AVs\n"
+                        +"Rerun the same command to resume an interrupted sweep.");
+      return;
+    }
+
+    int numOfThreads = Runtime.getRuntime().availableProcessors();
+    String outDir = "output";
+    double totalSimulationTime = 1800;
+    long randSeed = Util.randSeed;
+    boolean checkingForCollisions = Debug.CHECK_FOR_COLLISIONS;
+    boolean isBinaryOutput = false;
+
+    for (int i = 0; i < args.length - 3; i++) {
+      String flag = args[i];
+
+      switch (flag) {
+        case "-j":
+          numOfThreads = Integer.parseInt(args[++i]);
+          break;
+        case "-o":
+          outDir = args[++i];
+          break;
+        case "-t":
+          totalSimulationTime = Double.parseDouble(args[++i]);
+          break;
+        case "-s":
+          randSeed = Long.parseLong(args[++i]);
+          break;
+        case "-c":
+          checkingForCollisions = true;
+          break;
+        case "-b":
+          isBinaryOutput = true;
+          break;
+      }
+    }
+
+    List<SweepPoint> points = new ArrayList<SweepPoint>();
+    for (double trafficLevel : parseList(args[args.length - 3])) {
+      for (double hudHumanPercentage : parseList(args[args.length - 2])) {
+        for (double bufferFactor : parseList(args[args.length - 1])) {
+          points.add(new HHVPoint(trafficLevel, hudHumanPercentage,
+                                  bufferFactor, totalSimulationTime,
+                                  checkingForCollisions));
+        }
+      }
+    }
+
+    System.out.printf("Running %d points on %d threads, randSeed = %dL\n",
+                      points.size(), numOfThreads, randSeed);
+    SweepRunner runner =
+      new SweepRunner(points, "trafficLevel,hudHumanPercentage,bufferFactor",
+                      new File(outDir), numOfThreads, randSeed);
+    runner.setBinaryOutput(isBinaryOutput);
+    int numOfFailures = runner.run();
+    System.out.printf("%s: done, %d failed.\n", Main_HHV_sweep.class,
+                      numOfFailures);
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Parse a comma-separated list of values.
+   *
+   * @param str  the list
+   * @return the values
+   */
+  private static List<Double> parseList(String str) {
+    List<Double> values = new ArrayList<Double>();
+    for (String s : str.split(",")) {
+      values.add(Double.parseDouble(s.trim()));
+    }
+    return values;
+  }
+}
@@ -31,10 +31,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.config;
 
 import java.awt.Color;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import aim4.gui.ViewerDebugView;
 import aim4.map.BasicMap;
@@ -45,9 +43,22 @@ import aim4.map.BasicMap;
 public class Debug {
 
   /**
-   * A global variable referring to the global map.
+   * Get the map of the simulation of the calling thread.
+   *
+   * @return the map of the simulation
+   */
+  public static BasicMap getCurrentMap() {
+    return SimulationContext.current().getCurrentMap();
+  }
+
+  /**
+   * Set the map of the simulation of the calling thread.
+   *
+   * @param map  the map of the simulation
    */
-  public static BasicMap currentMap;
+  public static void setCurrentMap(BasicMap map) {
+    SimulationContext.current().setCurrentMap(map);
+  }
 
   /**
    * A global variable referring to the GUI object.
@@ -259,10 +270,32 @@ public class Debug {
   public static boolean SHOW_VEHICLE_COLOR_BY_MSG_STATE = true;
 
   /**
-   * Whether or not the simulator checks for collisions during a simulation.
+   * Whether or not the simulator checks for collisions during a simulation
+   * by default.
    */
   public static final boolean CHECK_FOR_COLLISIONS = false;
 
+  /**
+   * Whether or not the simulator checks for collisions during the current
+   * simulation.
+   *
+   * @return whether or not the simulator checks for collisions
+   */
+  public static boolean isCheckingForCollisions() {
+    return SimulationContext.current().isCheckingForCollisions();
+  }
+
+  /**
+   * Set whether or not the simulator checks for collisions during the
+   * current simulation.  A collision stops the simulation with a
+   * RuntimeException.
+   *
+   * @param b  whether or not the simulator checks for collisions
+   */
+  public static void setCheckingForCollisions(boolean b) {
+    SimulationContext.current().setCheckingForCollisions(b);
+  }
+
 
   /////////////////////////////////
   // Debug Points
@@ -334,12 +367,6 @@ public class Debug {
   // VEHICLE COLORING
   /////////////////////////////////
 
-  /**
-   * A mapping from vehicle's VINs to the color of the vehicles.
-   */
-  private static Map<Integer,Color> vinToVehicleColor =
-    new HashMap<Integer,Color>();
-
   /**
    * Get the color of a vehicle.
    *
@@ -347,7 +374,7 @@ public class Debug {
    * @return the color of the vehicle
    */
   public static Color getVehicleColor(int vin) {
-    return vinToVehicleColor.get(vin);
+    return SimulationContext.current().getVinToVehicleColor().get(vin);
   }
 
   /**
@@ -357,7 +384,7 @@ public class Debug {
    * @param color the color of the vehicle
    */
   public static void setVehicleColor(int vin, Color color) {
-    vinToVehicleColor.put(vin, color);
+    SimulationContext.current().getVinToVehicleColor().put(vin, color);
   }
 
   /**
@@ -366,7 +393,7 @@ public class Debug {
    * @param vin the VIN number of the vehicle
    */
   public static void removeVehicleColor(int vin) {
-    vinToVehicleColor.remove(vin);
+    SimulationContext.current().getVinToVehicleColor().remove(vin);
   }
 
   /////////////////////////////////
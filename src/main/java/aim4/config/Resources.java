@@ -11,6 +11,9 @@ import aim4.vehicle.VehicleSimView;
 /**
  * Make it possible to get the handler of objects in other classes 
  * FIXME This is for implementation convenience, not a good design
+ * <p>
+ * The handlers are kept in the {@link SimulationContext} of the calling
+ * thread, so each simulation sees its own.
  * 
  * @author menie482
  *
@@ -21,31 +24,67 @@ public class Resources {
 	 * 
 	 * TODO only dealing with one im
 	 */
-	public static V2IManager im;
-	
+	public static V2IManager getIm() {
+		return SimulationContext.current().getIm();
+	}
+
+	public static void setIm(V2IManager im) {
+		SimulationContext.current().setIm(im);
+	}
+
 	/**
 	 * The list of vehicles
 	 * This reference is got from AutoDriverOnlySimulator.java
 	 */
-	public static Map<Integer,VehicleSimView> vinToVehicles;
+	public static Map<Integer,VehicleSimView> getVinToVehicles() {
+		return SimulationContext.current().getVinToVehicles();
+	}
+
+	public static void setVinToVehicles(Map<Integer,VehicleSimView> vinToVehicles) {
+		SimulationContext.current().setVinToVehicles(vinToVehicles);
+	}
 
 	/**
 	 * This helps to get which destination a lane would lead to.
 	 */
-	public static DestinationSelector destinationSelector;
+	public static DestinationSelector getDestinationSelector() {
+		return SimulationContext.current().getDestinationSelector();
+	}
+
+	public static void setDestinationSelector(DestinationSelector destinationSelector) {
+		SimulationContext.current().setDestinationSelector(destinationSelector);
+	}
 
 	/**
 	 * This is a GridMap handler
 	 */
-	public static GridMap map;
+	public static GridMap getMap() {
+		return SimulationContext.current().getMap();
+	}
+
+	public static void setMap(GridMap map) {
+		SimulationContext.current().setMap(map);
+	}
 
 	/**
 	 * For updating red signal
 	 */
-	public static Map<Integer, SignalController> signalControllers;
+	public static Map<Integer, SignalController> getSignalControllers() {
+		return SimulationContext.current().getSignalControllers();
+	}
+
+	public static void setSignalControllers(Map<Integer, SignalController> signalControllers) {
+		SimulationContext.current().setSignalControllers(signalControllers);
+	}
 
 	/**
 	 * Traffic phase file
 	 */
-	public static TrafficSignalPhase phase;
+	public static TrafficSignalPhase getPhase() {
+		return SimulationContext.current().getPhase();
+	}
+
+	public static void setPhase(TrafficSignalPhase phase) {
+		SimulationContext.current().setPhase(phase);
+	}
 }
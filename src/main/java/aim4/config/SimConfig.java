@@ -29,12 +29,49 @@ public class SimConfig {
 		HUD
 	}
 
-	public static double RED_PHASE_LENGTH = 0;
+	/**
+	 * How the simulator measures the interval between a vehicle and the
+	 * vehicle in front of it.
+	 */
+	public static enum INTERVAL_SENSING_MODE {
+		/**
+		 * The distance to the edges of the shape of the vehicle in front (the
+		 * default, which reproduces earlier runs)
+		 */
+		SHAPE,
+		/**
+		 * The distance to the rectangle of the vehicle in front; faster, but
+		 * differs from SHAPE by the single-precision rounding of the shape
+		 */
+		BOX,
+		/** The gap between the two vehicles along their lane */
+		LANE
+	}
+
+	// The settings below can differ from one simulation to another, so they
+	// are kept in the SimulationContext of the calling thread.
+
+	/**
+	 * The length of the red phase.
+	 */
+	public static double getRedPhaseLength() {
+		return SimulationContext.current().getRedPhaseLength();
+	}
+
+	public static void setRedPhaseLength(double redPhaseLength) {
+		SimulationContext.current().setRedPhaseLength(redPhaseLength);
+	}
 
 	/**
 	 * The specific type of fcfs_signal, if it's applied
 	 */
-	public static SIGNAL_TYPE signalType;
+	public static SIGNAL_TYPE getSignalType() {
+		return SimulationContext.current().getSignalType();
+	}
+
+	public static void setSignalType(SIGNAL_TYPE signalType) {
+		SimulationContext.current().setSignalType(signalType);
+	}
 
 	/**
 	 * How the traffic volume information is generated.
@@ -42,18 +79,48 @@ public class SimConfig {
 	 * When doing experiments on best green signal length, this might need randomly generated
 	 * to find the best green signal length for different volume.
 	 */
-	public static VOLUME_TYPE volumeType = VOLUME_TYPE.FILE;
+	public static VOLUME_TYPE getVolumeType() {
+		return SimulationContext.current().getVolumeType();
+	}
+
+	public static void setVolumeType(VOLUME_TYPE volumeType) {
+		SimulationContext.current().setVolumeType(volumeType);
+	}
+
+	/**
+	 * How the interval to the vehicle in front is measured.  The default is
+	 * SHAPE; BOX and LANE must be chosen explicitly.
+	 */
+	public static INTERVAL_SENSING_MODE getIntervalSensingMode() {
+		return SimulationContext.current().getIntervalSensingMode();
+	}
+
+	public static void setIntervalSensingMode(INTERVAL_SENSING_MODE mode) {
+		SimulationContext.current().setIntervalSensingMode(mode);
+	}
 
 	/**
 	 * Whether dedicated lanes are enabled.
 	 */
-	public static int DEDICATED_LANES = 0;
+	public static int getDedicatedLanes() {
+		return SimulationContext.current().getDedicatedLanes();
+	}
+
+	public static void setDedicatedLanes(int dedicatedLanes) {
+		SimulationContext.current().setDedicatedLanes(dedicatedLanes);
+	}
 
   /**
    * The time the simulation should run.
    * If it is less than or equal to zero, the simulation will run forever.
    */
-  public static double TOTAL_SIMULATION_TIME = -1.0;
+  public static double getTotalSimulationTime() {
+    return SimulationContext.current().getTotalSimulationTime();
+  }
+
+  public static void setTotalSimulationTime(double totalSimulationTime) {
+    SimulationContext.current().setTotalSimulationTime(totalSimulationTime);
+  }
 
   /**
    * The number of cycles per second ({@value}) at which the simulator runs.
@@ -81,29 +148,59 @@ public class SimConfig {
    * The portion of human drivers
    * This data should be passed through command line for experiment.
    */
-  public static double HUMAN_PERCENTAGE = 0;
+  public static double getHumanPercentage() {
+    return SimulationContext.current().getHumanPercentage();
+  }
+
+  public static void setHumanPercentage(double p) {
+    SimulationContext.current().setHumanPercentage(p);
+  }
 
   /**
    * These percentage of drivers are told by the IM whether they should slow down or speed up.
    * Sure, this info is inquired only when human_percentage > 0.
    */
-  public static double CONSTANT_HUMAN_PERCENTAGE = 0;
+  public static double getConstantHumanPercentage() {
+    return SimulationContext.current().getConstantHumanPercentage();
+  }
+
+  public static void setConstantHumanPercentage(double p) {
+    SimulationContext.current().setConstantHumanPercentage(p);
+  }
 
   /**
    * The percentage of drivers who can strictly follow the vehicles in front of it.
    */
-  public static double ADAPTIVE_HUMAN_PERCENTAGE = 0;
+  public static double getAdaptiveHumanPercentage() {
+    return SimulationContext.current().getAdaptiveHumanPercentage();
+  }
+
+  public static void setAdaptiveHumanPercentage(double p) {
+    SimulationContext.current().setAdaptiveHumanPercentage(p);
+  }
 
 	/**
 	 * The percentage of (human) drivers who are following heads-up display (HUD) trajectory.
 	 */
-	public static double HUD_HUMAN_PERCENTAGE = 0;
+	public static double getHudHumanPercentage() {
+		return SimulationContext.current().getHudHumanPercentage();
+	}
+
+	public static void setHudHumanPercentage(double p) {
+		SimulationContext.current().setHudHumanPercentage(p);
+	}
 
   /**
    * Allowing the assumption that the IM can also have the information of the positions of the
    * human-driven vehicles.
    */
-  public static boolean FULLY_OBSERVING = true;
+  public static boolean isFullyObserving() {
+    return SimulationContext.current().isFullyObserving();
+  }
+
+  public static void setFullyObserving(boolean b) {
+    SimulationContext.current().setFullyObserving(b);
+  }
 
   /**
    * times for human of time buffer
@@ -140,7 +237,13 @@ public class SimConfig {
   /**
    * Whether or not the vehicle must stop before an intersection
    */
-  public static boolean MUST_STOP_BEFORE_INTERSECTION = false;
+  public static boolean isMustStopBeforeIntersection() {
+    return SimulationContext.current().isMustStopBeforeIntersection();
+  }
+
+  public static void setMustStopBeforeIntersection(boolean b) {
+    SimulationContext.current().setMustStopBeforeIntersection(b);
+  }
 
   /**
    * The distance before the stopping distance before an intersection
@@ -153,4 +256,42 @@ public class SimConfig {
    * If an adaptive vehicle find a vehicle in front of it within such distance, it can follow
    */
 	public static final double FOLLOW_DISTANTCE = 15;
+
+  /**
+   * Whether the drivers decide their actions in parallel on the common
+   * fork-join pool.  The results are the same as when they act one by one.
+   */
+  public static boolean isParallelDrivers() {
+    return SimulationContext.current().isParallelDrivers();
+  }
+
+  public static void setParallelDrivers(boolean b) {
+    SimulationContext.current().setParallelDrivers(b);
+  }
+
+  /**
+   * Whether the policies query the reservation grid for all the proposals
+   * of a request in parallel on the common fork-join pool.  The accepted
+   * proposal is the same as when the proposals are tried one by one.
+   */
+  public static boolean isParallelProposals() {
+    return SimulationContext.current().isParallelProposals();
+  }
+
+  public static void setParallelProposals(boolean b) {
+    SimulationContext.current().setParallelProposals(b);
+  }
+
+  /**
+   * Whether the intersection managers created from now on keep their
+   * reservations in a reservation grid that several threads can use at the
+   * same time.
+   */
+  public static boolean isConcurrentReservationGrid() {
+    return SimulationContext.current().isConcurrentReservationGrid();
+  }
+
+  public static void setConcurrentReservationGrid(boolean b) {
+    SimulationContext.current().setConcurrentReservationGrid(b);
+  }
 }
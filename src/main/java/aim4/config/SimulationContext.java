@@ -0,0 +1,625 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.config;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import aim4.config.SimConfig.INTERVAL_SENSING_MODE;
+import aim4.config.SimConfig.SIGNAL_TYPE;
+import aim4.config.SimConfig.VOLUME_TYPE;
+import aim4.im.v2i.V2IManager;
+import aim4.im.v2i.RequestHandler.ApproxNPhasesTrafficSignalRequestHandler.AdaptiveSignalController;
+import aim4.im.v2i.RequestHandler.ApproxNPhasesTrafficSignalRequestHandler.SignalController;
+import aim4.map.BasicMap;
+import aim4.map.GridMap;
+import aim4.map.destination.DestinationSelector;
+import aim4.util.Util;
+import aim4.vehicle.VehicleSimView;
+import aim4.vehicle.VinRegistry;
+
+/**
+ * The state of one simulation.  Everything that used to be kept in the
+ * static fields of {@link Resources}, {@link SimConfig}, {@link Debug},
+ * {@link VinRegistry} and {@link Util} and that differs from one simulation
+ * to another lives here, so that several simulations can run side by side
+ * in the same JVM.
+ * <p>
+ * A context is bound to the thread that is running the simulation.  The
+ * static accessors of the classes above read and write the context that is
+ * bound to the calling thread, or the default context if the thread has
+ * none.  Only programs that run a single simulation at a time (the GUI and
+ * the single-simulation mains) set the default context, with
+ * {@link #setDefault(SimulationContext)}, so that their helper threads
+ * (e.g. the GUI thread) can reach the simulation.  Threads that run one of
+ * several simulations, such as the workers of a sweep, must bind their own
+ * context and must not rely on the default one.
+ */
+public class SimulationContext {
+
+  /////////////////////////////////
+  // PRIVATE STATIC FIELDS
+  /////////////////////////////////
+
+  /** The context bound to each thread */
+  private static final ThreadLocal<SimulationContext> boundContext =
+    new ThreadLocal<SimulationContext>();
+
+  /** The context used by threads that have not bound any context */
+  private static volatile SimulationContext defaultContext =
+    new SimulationContext(Util.randSeed);
+
+
+  /////////////////////////////////
+  // PUBLIC STATIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the context of the calling thread.
+   *
+   * @return the context bound to the calling thread, or the default context
+   *         if there is none
+   */
+  public static SimulationContext current() {
+    SimulationContext context = boundContext.get();
+    if (context == null) {
+      return defaultContext;
+    } else {
+      return context;
+    }
+  }
+
+  /**
+   * Bind a context to the calling thread.
+   *
+   * @param context  the context; null to unbind the current one
+   * @return the context that was bound to the thread before, if any
+   */
+  public static SimulationContext bind(SimulationContext context) {
+    SimulationContext previous = boundContext.get();
+    if (context == null) {
+      boundContext.remove();
+    } else {
+      boundContext.set(context);
+    }
+    return previous;
+  }
+
+  /**
+   * Create a new context with the random seed of the current context and
+   * bind it to the calling thread.  Unless a context with another seed is
+   * bound, this is the global random seed.
+   *
+   * @return the new context
+   * @see #create(long)
+   */
+  public static SimulationContext create() {
+    return create(current().getRandSeed());
+  }
+
+  /**
+   * Create a new context and bind it to the calling thread.  The default
+   * context is left alone.  The settings of the new context (the ones set
+   * through {@link SimConfig}) are copied from the current context; all the
+   * other state starts out empty.
+   *
+   * @param randSeed  the seed of the random number generator of the context
+   * @return the new context
+   */
+  public static SimulationContext create(long randSeed) {
+    SimulationContext context = new SimulationContext(randSeed);
+    context.copySettings(current());
+    bind(context);
+    return context;
+  }
+
+  /**
+   * Make a context the default context, which is used by the threads that
+   * have not bound any context.  Only a program that runs a single
+   * simulation at a time should call this, once it has created the
+   * simulation.
+   *
+   * @param context  the context
+   */
+  public static void setDefault(SimulationContext context) {
+    defaultContext = context;
+  }
+
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  // settings
+
+  /** The length of the red phase */
+  private double redPhaseLength = 0;
+  /** The length of the red phase of the adaptive traffic signals */
+  private double adaptiveRedPhaseLength = 20;
+  /** The length of the green phase of the adaptive traffic signals */
+  private double adaptiveGreenPhaseLength = 15;
+  /**
+   * The time between choosing the road of an adaptive green phase and the
+   * start of the green phase
+   */
+  private double adaptiveGreenPhasePostpone = 5;
+  /** The specific type of fcfs_signal, if it's applied */
+  private SIGNAL_TYPE signalType;
+  /** How the traffic volume information is generated */
+  private VOLUME_TYPE volumeType = VOLUME_TYPE.FILE;
+  /** How the interval to the vehicle in front is measured */
+  private INTERVAL_SENSING_MODE intervalSensingMode =
+    INTERVAL_SENSING_MODE.SHAPE;
+  /** The number of dedicated lanes */
+  private int dedicatedLanes = 0;
+  /** The time the simulation should run */
+  private double totalSimulationTime = -1.0;
+  /** The portion of human drivers */
+  private double humanPercentage = 0;
+  /** The portion of constant (simple cruise control) drivers */
+  private double constantHumanPercentage = 0;
+  /** The portion of adaptive cruise control drivers */
+  private double adaptiveHumanPercentage = 0;
+  /** The portion of drivers following heads-up display trajectories */
+  private double hudHumanPercentage = 0;
+  /** Whether the IM knows the positions of the human-driven vehicles */
+  private boolean fullyObserving = true;
+  /** Whether the vehicles must stop before an intersection */
+  private boolean mustStopBeforeIntersection = false;
+  /** Whether the simulator checks for collisions after moving vehicles */
+  private boolean checkingForCollisions = Debug.CHECK_FOR_COLLISIONS;
+  /** Whether the drivers act in parallel */
+  private boolean parallelDrivers = false;
+  /** Whether the policies query the proposals of a request in parallel */
+  private boolean parallelProposals = false;
+  /** Whether the intersection managers use concurrent reservation grids */
+  private boolean concurrentReservationGrid = false;
+
+  // simulation state
+
+  /** The traffic level of the spawn points */
+  private double trafficLevel;
+  /** The start time of the current cycle of the cyclic signal controllers */
+  private double signalCycleOffset;
+  /** The length of a cycle of the cyclic signal controllers */
+  private double signalCycleDuration;
+  /** The intersection manager */
+  private V2IManager im;
+  /** The active vehicles */
+  private Map<Integer,VehicleSimView> vinToVehicles;
+  /** The destination selector */
+  private DestinationSelector destinationSelector;
+  /** The grid map */
+  private GridMap map;
+  /** The map of the simulation */
+  private BasicMap currentMap;
+  /** The signal controllers */
+  private Map<Integer,SignalController> signalControllers;
+  /** The traffic signal phase */
+  private TrafficSignalPhase phase;
+  /** The adaptive signal controllers, indexed by lane ID */
+  private final Map<Integer,AdaptiveSignalController>
+    adaptiveSignalControllers;
+  /** The vehicle registry */
+  private final VinRegistry vinRegistry;
+  /** The seed of the random number generator */
+  private final long randSeed;
+  /** The random number generator */
+  private final Random random;
+  /** A mapping from vehicle's VINs to the color of the vehicles */
+  private final Map<Integer,Color> vinToVehicleColor;
+
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a simulation context with default settings and an empty state.
+   *
+   * @param randSeed  the seed of the random number generator
+   */
+  public SimulationContext(long randSeed) {
+    vinRegistry = new VinRegistry();
+    this.randSeed = randSeed;
+    random = new Random(randSeed);
+    vinToVehicleColor = new HashMap<Integer,Color>();
+    adaptiveSignalControllers =
+      new HashMap<Integer,AdaptiveSignalController>();
+  }
+
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Copy the settings from another context.
+   *
+   * @param other  the other context
+   */
+  public void copySettings(SimulationContext other) {
+    redPhaseLength = other.redPhaseLength;
+    adaptiveRedPhaseLength = other.adaptiveRedPhaseLength;
+    adaptiveGreenPhaseLength = other.adaptiveGreenPhaseLength;
+    adaptiveGreenPhasePostpone = other.adaptiveGreenPhasePostpone;
+    signalType = other.signalType;
+    volumeType = other.volumeType;
+    intervalSensingMode = other.intervalSensingMode;
+    dedicatedLanes = other.dedicatedLanes;
+    totalSimulationTime = other.totalSimulationTime;
+    humanPercentage = other.humanPercentage;
+    constantHumanPercentage = other.constantHumanPercentage;
+    adaptiveHumanPercentage = other.adaptiveHumanPercentage;
+    hudHumanPercentage = other.hudHumanPercentage;
+    fullyObserving = other.fullyObserving;
+    mustStopBeforeIntersection = other.mustStopBeforeIntersection;
+    checkingForCollisions = other.checkingForCollisions;
+    parallelDrivers = other.parallelDrivers;
+    parallelProposals = other.parallelProposals;
+    concurrentReservationGrid = other.concurrentReservationGrid;
+  }
+
+  // settings
+
+  /** @return the length of the red phase */
+  public double getRedPhaseLength() {
+    return redPhaseLength;
+  }
+
+  /** @param redPhaseLength  the length of the red phase */
+  public void setRedPhaseLength(double redPhaseLength) {
+    this.redPhaseLength = redPhaseLength;
+  }
+
+  /** @return the length of the red phase of the adaptive traffic signals */
+  public double getAdaptiveRedPhaseLength() {
+    return adaptiveRedPhaseLength;
+  }
+
+  /**
+   * @param adaptiveRedPhaseLength  the length of the red phase of the
+   *                                adaptive traffic signals
+   */
+  public void setAdaptiveRedPhaseLength(double adaptiveRedPhaseLength) {
+    this.adaptiveRedPhaseLength = adaptiveRedPhaseLength;
+  }
+
+  /** @return the length of the green phase of the adaptive traffic signals */
+  public double getAdaptiveGreenPhaseLength() {
+    return adaptiveGreenPhaseLength;
+  }
+
+  /**
+   * @param adaptiveGreenPhaseLength  the length of the green phase of the
+   *                                  adaptive traffic signals
+   */
+  public void setAdaptiveGreenPhaseLength(double adaptiveGreenPhaseLength) {
+    this.adaptiveGreenPhaseLength = adaptiveGreenPhaseLength;
+  }
+
+  /**
+   * @return the time between choosing the road of an adaptive green phase
+   *         and the start of the green phase
+   */
+  public double getAdaptiveGreenPhasePostpone() {
+    return adaptiveGreenPhasePostpone;
+  }
+
+  /**
+   * @param adaptiveGreenPhasePostpone  the time between choosing the road of
+   *                                    an adaptive green phase and the start
+   *                                    of the green phase
+   */
+  public void setAdaptiveGreenPhasePostpone(double adaptiveGreenPhasePostpone) {
+    this.adaptiveGreenPhasePostpone = adaptiveGreenPhasePostpone;
+  }
+
+  /** @return the type of the traffic signal */
+  public SIGNAL_TYPE getSignalType() {
+    return signalType;
+  }
+
+  /** @param signalType  the type of the traffic signal */
+  public void setSignalType(SIGNAL_TYPE signalType) {
+    this.signalType = signalType;
+  }
+
+  /** @return how the traffic volume information is generated */
+  public VOLUME_TYPE getVolumeType() {
+    return volumeType;
+  }
+
+  /** @param volumeType  how the traffic volume information is generated */
+  public void setVolumeType(VOLUME_TYPE volumeType) {
+    this.volumeType = volumeType;
+  }
+
+  /** @return how the interval to the vehicle in front is measured */
+  public INTERVAL_SENSING_MODE getIntervalSensingMode() {
+    return intervalSensingMode;
+  }
+
+  /** @param mode  how the interval to the vehicle in front is measured */
+  public void setIntervalSensingMode(INTERVAL_SENSING_MODE mode) {
+    this.intervalSensingMode = mode;
+  }
+
+  /** @return the number of dedicated lanes */
+  public int getDedicatedLanes() {
+    return dedicatedLanes;
+  }
+
+  /** @param dedicatedLanes  the number of dedicated lanes */
+  public void setDedicatedLanes(int dedicatedLanes) {
+    this.dedicatedLanes = dedicatedLanes;
+  }
+
+  /** @return the time the simulation should run */
+  public double getTotalSimulationTime() {
+    return totalSimulationTime;
+  }
+
+  /** @param totalSimulationTime  the time the simulation should run */
+  public void setTotalSimulationTime(double totalSimulationTime) {
+    this.totalSimulationTime = totalSimulationTime;
+  }
+
+  /** @return the portion of human drivers */
+  public double getHumanPercentage() {
+    return humanPercentage;
+  }
+
+  /** @param humanPercentage  the portion of human drivers */
+  public void setHumanPercentage(double humanPercentage) {
+    this.humanPercentage = humanPercentage;
+  }
+
+  /** @return the portion of simple cruise control drivers */
+  public double getConstantHumanPercentage() {
+    return constantHumanPercentage;
+  }
+
+  /** @param p  the portion of simple cruise control drivers */
+  public void setConstantHumanPercentage(double p) {
+    this.constantHumanPercentage = p;
+  }
+
+  /** @return the portion of adaptive cruise control drivers */
+  public double getAdaptiveHumanPercentage() {
+    return adaptiveHumanPercentage;
+  }
+
+  /** @param p  the portion of adaptive cruise control drivers */
+  public void setAdaptiveHumanPercentage(double p) {
+    this.adaptiveHumanPercentage = p;
+  }
+
+  /** @return the portion of drivers following HUD trajectories */
+  public double getHudHumanPercentage() {
+    return hudHumanPercentage;
+  }
+
+  /** @param p  the portion of drivers following HUD trajectories */
+  public void setHudHumanPercentage(double p) {
+    this.hudHumanPercentage = p;
+  }
+
+  /** @return whether the IM knows the positions of human-driven vehicles */
+  public boolean isFullyObserving() {
+    return fullyObserving;
+  }
+
+  /** @param b  whether the IM knows the positions of human-driven vehicles */
+  public void setFullyObserving(boolean b) {
+    this.fullyObserving = b;
+  }
+
+  /** @return whether the vehicles must stop before an intersection */
+  public boolean isMustStopBeforeIntersection() {
+    return mustStopBeforeIntersection;
+  }
+
+  /** @param b  whether the vehicles must stop before an intersection */
+  public void setMustStopBeforeIntersection(boolean b) {
+    this.mustStopBeforeIntersection = b;
+  }
+
+  /** @return whether the simulator checks for collisions */
+  public boolean isCheckingForCollisions() {
+    return checkingForCollisions;
+  }
+
+  /** @param b  whether the simulator checks for collisions */
+  public void setCheckingForCollisions(boolean b) {
+    this.checkingForCollisions = b;
+  }
+
+  /** @return whether the drivers act in parallel */
+  public boolean isParallelDrivers() {
+    return parallelDrivers;
+  }
+
+  /** @param b  whether the drivers act in parallel */
+  public void setParallelDrivers(boolean b) {
+    this.parallelDrivers = b;
+  }
+
+  /** @return whether the policies query the proposals in parallel */
+  public boolean isParallelProposals() {
+    return parallelProposals;
+  }
+
+  /** @param b  whether the policies query the proposals in parallel */
+  public void setParallelProposals(boolean b) {
+    this.parallelProposals = b;
+  }
+
+  /** @return whether the intersection managers use concurrent grids */
+  public boolean isConcurrentReservationGrid() {
+    return concurrentReservationGrid;
+  }
+
+  /** @param b  whether the intersection managers use concurrent grids */
+  public void setConcurrentReservationGrid(boolean b) {
+    this.concurrentReservationGrid = b;
+  }
+
+  // simulation state
+
+  /** @return the traffic level of the spawn points */
+  public double getTrafficLevel() {
+    return trafficLevel;
+  }
+
+  /** @param trafficLevel  the traffic level of the spawn points */
+  public void setTrafficLevel(double trafficLevel) {
+    this.trafficLevel = trafficLevel;
+  }
+
+  /** @return the start time of the current signal cycle */
+  public double getSignalCycleOffset() {
+    return signalCycleOffset;
+  }
+
+  /** @param time  the start time of the current signal cycle */
+  public void setSignalCycleOffset(double time) {
+    this.signalCycleOffset = time;
+  }
+
+  /** @return the length of a signal cycle */
+  public double getSignalCycleDuration() {
+    return signalCycleDuration;
+  }
+
+  /** @param duration  the length of a signal cycle */
+  public void setSignalCycleDuration(double duration) {
+    this.signalCycleDuration = duration;
+  }
+
+  /** @return the intersection manager */
+  public V2IManager getIm() {
+    return im;
+  }
+
+  /** @param im  the intersection manager */
+  public void setIm(V2IManager im) {
+    this.im = im;
+  }
+
+  /** @return the active vehicles */
+  public Map<Integer,VehicleSimView> getVinToVehicles() {
+    return vinToVehicles;
+  }
+
+  /** @param vinToVehicles  the active vehicles */
+  public void setVinToVehicles(Map<Integer,VehicleSimView> vinToVehicles) {
+    this.vinToVehicles = vinToVehicles;
+  }
+
+  /** @return the destination selector */
+  public DestinationSelector getDestinationSelector() {
+    return destinationSelector;
+  }
+
+  /** @param destinationSelector  the destination selector */
+  public void setDestinationSelector(DestinationSelector destinationSelector) {
+    this.destinationSelector = destinationSelector;
+  }
+
+  /** @return the grid map */
+  public GridMap getMap() {
+    return map;
+  }
+
+  /** @param map  the grid map */
+  public void setMap(GridMap map) {
+    this.map = map;
+  }
+
+  /** @return the map of the simulation */
+  public BasicMap getCurrentMap() {
+    return currentMap;
+  }
+
+  /** @param currentMap  the map of the simulation */
+  public void setCurrentMap(BasicMap currentMap) {
+    this.currentMap = currentMap;
+  }
+
+  /** @return the signal controllers */
+  public Map<Integer,SignalController> getSignalControllers() {
+    return signalControllers;
+  }
+
+  /** @param signalControllers  the signal controllers */
+  public void setSignalControllers(
+      Map<Integer,SignalController> signalControllers) {
+    this.signalControllers = signalControllers;
+  }
+
+  /** @return the traffic signal phase */
+  public TrafficSignalPhase getPhase() {
+    return phase;
+  }
+
+  /** @param phase  the traffic signal phase */
+  public void setPhase(TrafficSignalPhase phase) {
+    this.phase = phase;
+  }
+
+  /** @return the adaptive signal controllers, indexed by lane ID */
+  public Map<Integer,AdaptiveSignalController> getAdaptiveSignalControllers() {
+    return adaptiveSignalControllers;
+  }
+
+  /** @return the vehicle registry */
+  public VinRegistry getVinRegistry() {
+    return vinRegistry;
+  }
+
+  /** @return the seed of the random number generator */
+  public long getRandSeed() {
+    return randSeed;
+  }
+
+  /** @return the random number generator */
+  public Random getRandom() {
+    return random;
+  }
+
+  /** @return the mapping from VINs to the color of the vehicles */
+  public Map<Integer,Color> getVinToVehicleColor() {
+    return vinToVehicleColor;
+  }
+}
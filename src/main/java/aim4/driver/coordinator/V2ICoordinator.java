@@ -502,7 +502,7 @@ public class V2ICoordinator implements Coordinator {
     private TurnDirection getTurnDirection(Navigator navigator) {
       IntersectionManager im = driver.nextIntersectionManager();
       Lane currentLane = driver.getCurrentLane();
-      Road currentRoad = Debug.currentMap.getRoad(currentLane);
+      Road currentRoad = Debug.getCurrentMap().getRoad(currentLane);
       Road departureRoad =
         navigator.navigate(currentRoad, im, driver.getDestination());
       Lane departureLane = departureRoad.getIndexLane();
@@ -710,9 +710,9 @@ public class V2ICoordinator implements Coordinator {
      */
     public ReservationParameter(Confirm msg) {
       this.arrivalLane =
-        Debug.currentMap.getLaneRegistry().get(msg.getArrivalLaneID());
+        Debug.getCurrentMap().getLaneRegistry().get(msg.getArrivalLaneID());
       this.departureLane =
-        Debug.currentMap.getLaneRegistry().get(msg.getDepartureLaneID());
+        Debug.getCurrentMap().getLaneRegistry().get(msg.getDepartureLaneID());
 //      this.arrivalLane = LaneRegistry.getLaneFromId(msg.getArrivalLaneID());
 //      this.departureLane = LaneRegistry.getLaneFromId(msg.getDepartureLaneID());
       this.arrivalTime = msg.getArrivalTime();
@@ -1310,7 +1310,7 @@ public class V2ICoordinator implements Coordinator {
         }  // else fall through
       }  // else fall through
       if (vehicle.gaugeTime() >= nextAllowedSendingRequestTime) {
-        if (!SimConfig.MUST_STOP_BEFORE_INTERSECTION ||
+        if (!SimConfig.isMustStopBeforeIntersection() ||
             driver.distanceToNextIntersection() <=
             V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION +
             SimConfig.ADDITIONAL_STOP_DIST_BEFORE_INTERSECTION) {
@@ -1593,7 +1593,7 @@ public class V2ICoordinator implements Coordinator {
       List<Lane> departureLanes =
         new ArrayList<Lane>(MAX_LANES_TO_TRY_PER_ROAD);
       Road departureRoad =
-        navigator.navigate(Debug.currentMap.getRoad(driver.getCurrentLane()),
+        navigator.navigate(Debug.getCurrentMap().getRoad(driver.getCurrentLane()),
                            driver.getCurrentIM(),
                            driver.getDestination());
       // Let's just take the highest priority Lane from each Road
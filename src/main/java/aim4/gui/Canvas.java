@@ -51,14 +51,17 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.imageio.ImageIO;
 import javax.swing.JPanel;
@@ -67,15 +70,9 @@ import javax.swing.SwingUtilities;
 import aim4.config.Debug;
 import aim4.config.DebugPoint;
 import aim4.config.Resources;
-import aim4.config.SimConfig;
-import aim4.config.SimConfig.VEHICLE_TYPE;
-import aim4.driver.AutoDriver;
-import aim4.driver.coordinator.V2ICoordinator;
+import aim4.config.TrafficSignal;
 import aim4.im.IntersectionManager;
 import aim4.im.v2i.V2IManager;
-import aim4.im.v2i.RequestHandler.TrafficSignalRequestHandler;
-import aim4.im.v2i.policy.BasePolicy;
-import aim4.im.v2i.policy.Policy;
 import aim4.map.DataCollectionLine;
 import aim4.map.BasicMap;
 import aim4.map.Road;
@@ -85,12 +82,10 @@ import aim4.map.track.LineTrack;
 import aim4.map.track.PathTrack;
 import aim4.map.track.TrackPosition;
 import aim4.map.track.WayPoint;
-import aim4.msg.v2i.Request;
-import aim4.msg.v2i.V2IMessage;
+import aim4.sim.RenderSnapshot;
 import aim4.sim.Simulator;
+import aim4.util.OrientedRectangle;
 import aim4.util.Util;
-import aim4.vehicle.AutoVehicleSimView;
-import aim4.vehicle.VehicleSimView;
 import java.io.InputStream;
 
 /**
@@ -152,6 +147,16 @@ public class Canvas extends JPanel implements ComponentListener,
   private static final Stroke VEHICLE_STROKE = new BasicStroke(0.1f);
   /** The color of ordinary Vehicles. */
   private static final Color VEHICLE_COLOR = Color.YELLOW;
+  /**
+   * The scale, in pixels per meter, below which the vehicles are drawn in
+   * batches of plain rectangles, without wheels and information strings.
+   */
+  private static final double VEHICLE_DETAIL_SCALE = 2.0;
+  /**
+   * The scale, in pixels per meter, below which the vehicles are drawn as
+   * points of one pixel.
+   */
+  private static final double VEHICLE_POINT_SCALE = 0.5;
   /** The color of vehicles that have reservations. */
   private static final Color VEHICLE_HAS_RESERVATION_COLOR = Color.WHITE;
   /** The color of vehicles that are waiting for a response */
@@ -322,14 +327,33 @@ public class Canvas extends JPanel implements ComponentListener,
    * debugging shapes.
    */
   private boolean isShowIMDebugShapes;
+  /** Whether a redraw requested by update() has not started yet */
+  private final AtomicBoolean isUpdatePending = new AtomicBoolean(false);
+  /** The outline of the vehicle being drawn */
+  private final OrientedRectangle vehicleOutline = new OrientedRectangle();
 
   /////////////////////////////////
   // CLASS CONSTRUCTORS
   /////////////////////////////////
+  /**
+   * Create a canvas that draws off screen, e.g. to export the frames of a
+   * simulation run without a display.  Use drawSnapshot() and
+   * saveScreenShot(RenderSnapshot, String) to draw it.
+   *
+   * @param basicMap  the map the canvas will be visualizing
+   * @param width     the width of the canvas
+   * @param height    the height of the canvas
+   */
+  public Canvas(BasicMap basicMap, int width, int height) {
+    this(null);
+    setSize(width, height);
+    initWithGivenMap(basicMap);
+  }
+
   /**
    * Create a new canvas.
    *
-   * @param viewer the viewer object
+   * @param viewer the viewer object; null if the canvas draws off screen
    */
   public Canvas(Viewer viewer) {
     this.viewer = viewer;
@@ -363,12 +387,15 @@ public class Canvas extends JPanel implements ComponentListener,
     isShowVin = Viewer.IS_SHOW_VIN_BY_DEFAULT;
     isShowIMDebugShapes = Viewer.IS_SHOW_IM_DEBUG_SHAPES_BY_DEFAULT;
 
-    addMouseListener(viewer);
-    addKeyListener(viewer);
-    addComponentListener(this);
-    addMouseListener(this);
-    addMouseWheelListener(this);
-    addMouseMotionListener(this);
+    // a canvas drawing off screen does not respond to the user
+    if (viewer != null) {
+      addMouseListener(viewer);
+      addKeyListener(viewer);
+      addComponentListener(this);
+      addMouseListener(this);
+      addMouseWheelListener(this);
+      addMouseMotionListener(this);
+    }
   }
 
   /**
@@ -427,12 +454,25 @@ public class Canvas extends JPanel implements ComponentListener,
    * Create the display buffer
    */
   private void makeDisplayBuffer() {
-    displayImage = createImage(getWidth(), getHeight());
+    displayImage = createBufferImage(getWidth(), getHeight());
     displayBuffer = (Graphics2D) displayImage.getGraphics();
     displayBuffer.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
         RenderingHints.VALUE_ANTIALIAS_ON);
   }
 
+  /**
+   * Create an image buffer.  The buffer does not depend on the screen, so
+   * that the canvas can draw off screen.
+   *
+   * @param width   the width of the buffer
+   * @param height  the height of the buffer
+   * @return the image buffer
+   */
+  private Image createBufferImage(int width, int height) {
+    return new BufferedImage(Math.max(width, 1), Math.max(height, 1),
+                             BufferedImage.TYPE_INT_RGB);
+  }
+
   /**
    * Paint the entire buffer with the given color
    *
@@ -533,7 +573,7 @@ public class Canvas extends JPanel implements ComponentListener,
   private Image createMapImage(BasicMap map, double scale) {
     Rectangle2D mapRect = basicMap.getDimensions();
     // First, set up an image buffer
-    Image bgImage = createImage((int) (mapRect.getWidth() * scale),
+    Image bgImage = createBufferImage((int) (mapRect.getWidth() * scale),
         (int) (mapRect.getHeight() * scale));
     Graphics2D bgBuffer = (Graphics2D) bgImage.getGraphics();
     // Set the transform
@@ -717,59 +757,97 @@ public class Canvas extends JPanel implements ComponentListener,
   }
 
   /**
-   * Update the canvas to visualize the current state of simulation.
+   * Update the canvas to visualize the current state of simulation.  The
+   * canvas is redrawn from the last render snapshot of the simulator on the
+   * event dispatch thread, so the thread calling this method never waits
+   * for the drawing; the requests made before a redraw starts are served by
+   * that one redraw.
    */
   public void update() {
     if (canUpdateCanvas) {
-      // TODO: think how to avoid multiple calls of update() are queued here
-      // by synchronized when the the canvas is resized, rescaled, or
-      // repositioned.
-      updateCanvas();
+      if (SwingUtilities.isEventDispatchThread()) {
+        updateCanvas();
+      } else if (!isUpdatePending.getAndSet(true)) {
+        SwingUtilities.invokeLater(new Runnable() {
+          @Override
+          public void run() {
+            isUpdatePending.set(false);
+            if (canUpdateCanvas) {
+              updateCanvas();
+            }
+          }
+        });
+      }
     }
   }
 
   /**
-   * Update the canvas to visualize the current state of simulation.
+   * Update the canvas to visualize the last render snapshot of the
+   * simulation.
    */
   private synchronized void updateCanvas() {
+    Simulator sim = viewer.getSimulator();
+    drawSnapshot((sim != null) ? sim.getRenderSnapshot() : null);
+  }
+
+  /**
+   * Draw a render snapshot of the simulation on the canvas.
+   *
+   * @param snapshot  the render snapshot; null if there is no simulation
+   */
+  public synchronized void drawSnapshot(RenderSnapshot snapshot) {
     // reset the affine transform
     resetAffineTransform();
     // Clear the screen
     paintEntireBuffer(displayBuffer, BACKGROUND_COLOR);
     // draw the map
     drawImageOnBuffer(displayBuffer, getMapImageTable(scaleIndex));
-    // Get the simulator
-    Simulator sim = viewer.getSimulator();
-    // if the simulator exists, draw the current view
-    if (sim != null) {
-      Collection<IntersectionManager> ims =
-          sim.getMap().getIntersectionManagers();
+    // if the simulator exists, draw the snapshot of it
+    if (snapshot != null) {
+      List<IntersectionManager> ims = basicMap.getIntersectionManagers();
       // draw the intersection managers' debug shapes
       if (isShowIMDebugShapes) {
         for (IntersectionManager im : ims) {
           drawIMDebugShapes(displayBuffer, im);
         }
       }
-      // draw the vehicles
-      for (VehicleSimView v : sim.getActiveVehicles()) {
-        drawVehicle(displayBuffer, v, sim.getSimulationTime());
+      // draw the vehicles in the view, in detail only if zoomed in enough
+      double scale = scaleTable[scaleIndex];
+      Rectangle2D viewport =
+        new Rectangle2D.Double(-posOfOriginX / scale, -posOfOriginY / scale,
+                               getWidth() / scale, getHeight() / scale);
+      boolean isDetailed = (scale >= VEHICLE_DETAIL_SCALE);
+      if (isDetailed) {
+        for (int i = 0; i < snapshot.getNumOfVehicles(); i++) {
+          snapshot.getOutline(i, vehicleOutline);
+          if (isInView(vehicleOutline, viewport)) {
+            drawVehicle(displayBuffer, snapshot, i);
+          }
+        }
+      } else {
+        drawVehiclesInBatches(displayBuffer, snapshot, viewport,
+                              scale < VEHICLE_POINT_SCALE ? 1 / scale : 0);
       }
       // if we need to guide human, draw the traffic lights
-      for (IntersectionManager im : ims) {
-        drawTrafficLights(displayBuffer, im);
+      for (int i = 0; i < ims.size(); i++) {
+        drawTrafficLights(displayBuffer, ims.get(i), snapshot.getSignals(i));
       }
       // draw simulation time.
       if (isShowSimulationTime) {
-        drawSimulationTime(displayBuffer, sim.getSimulationTime());
+        drawSimulationTime(displayBuffer, snapshot.getTime());
       }
       // draw the debug points
-      drawDebugPoints(displayBuffer, Debug.getLongTermDebugPoints());
-      drawDebugPoints(displayBuffer, Debug.getShortTermDebugPoints());
+      drawDebugPoints(displayBuffer, snapshot.getDebugPoints());
       // draw tracks
       // drawTracks(displayBuffer);
       // lastly, draw the vehicles' information string
-      for (VehicleSimView v : sim.getActiveVehicles()) {
-        drawVehicleInfoString(displayBuffer, v, sim.getSimulationTime());
+      if (isDetailed) {
+        for (int i = 0; i < snapshot.getNumOfVehicles(); i++) {
+          snapshot.getOutline(i, vehicleOutline);
+          if (isInView(vehicleOutline, viewport)) {
+            drawVehicleInfoString(displayBuffer, snapshot, i);
+          }
+        }
       }
       // Finally display the new image
       repaint();
@@ -810,198 +888,204 @@ public class Canvas extends JPanel implements ComponentListener,
    * Draw an individual Vehicle, and any associated debug information, if this
    * Vehicle is a debug Vehicle.
    *
-   * @param buffer       the display buffer
-   * @param vehicle      the Vehicle to draw now
-   * @param currentTime  the current simulated time
+   * @param buffer    the display buffer
+   * @param snapshot  the render snapshot
+   * @param i         the index of the vehicle in the snapshot
    */
-  private void drawVehicle(Graphics2D buffer,
-                           VehicleSimView vehicle,
-                           double currentTime) {
+  private void drawVehicle(Graphics2D buffer, RenderSnapshot snapshot,
+                           int i) {
+    int vin = snapshot.getVin(i);
     // whether the vehicle is selected
-    boolean selectedVehicle = (Debug.getTargetVIN() == vehicle.getVIN());
-    // check to see if we use another color
-
-  	// if it's human-driven vehicle, change color
-  	if (SimConfig.signalType != null && SimConfig.signalType != SimConfig.SIGNAL_TYPE.DEFAULT && vehicle.getVehicleType() != VEHICLE_TYPE.AUTO) {
-  		VEHICLE_TYPE type = vehicle.getVehicleType();
-
-  		if (type == VEHICLE_TYPE.HUMAN) {
-  			buffer.setPaint(HUMAN_DRIVEN_COLOR);
-  		}
-  		else if (type == VEHICLE_TYPE.CRUISE) {
-  			buffer.setPaint(CONSTANT_HUMAN_DRIVEN_COLOR);
-  		}
-  		else if (type == VEHICLE_TYPE.ADAPTIVE_CRUISE) {
-  			buffer.setPaint(ADAPTIVE_HUMAN_DRIVEN_COLOR);
-  		}
-    } else if (vehicle.getVehicleType() == VEHICLE_TYPE.HUD) {
-      buffer.setPaint(HUD_HUMAN_DRIVEN_COLOR);
-  	} else if (selectedVehicle) {
-      buffer.setPaint(VEHICLE_SELECTED_COLOR);
-    } else if (vehicle.getVIN() == MARVIN_VEHICLE_VIN) {
-      buffer.setPaint(MARVIN_VEHICLE_COLOR);
-    } else if (Debug.getVehicleColor(vehicle.getVIN()) != null) {
-      buffer.setPaint(Debug.getVehicleColor(vehicle.getVIN()));
-    } else if (Debug.SHOW_VEHICLE_COLOR_BY_MSG_STATE) {
-      if (vehicle.getDriver() instanceof AutoDriver) {
-        AutoDriver autoDriver = (AutoDriver) vehicle.getDriver();
-        if (autoDriver.getCurrentCoordinator() instanceof V2ICoordinator) {
-          V2ICoordinator coordinator =
-              (V2ICoordinator) autoDriver.getCurrentCoordinator();
-          if (coordinator.isAwaitingResponse()) {
-            buffer.setPaint(VEHICLE_WAITING_FOR_RESPONSE_COLOR);
-          } else if (coordinator.getReservationParameter() != null) {
-            buffer.setPaint(VEHICLE_HAS_RESERVATION_COLOR);
-          } else {
-            buffer.setPaint(VEHICLE_COLOR);  // the default color
-          }
-        } else {
-          buffer.setPaint(VEHICLE_COLOR);  // the default color
-        }
-      } else {
-        buffer.setPaint(VEHICLE_COLOR);  // the default color
-      }
-    } else {
-      buffer.setPaint(VEHICLE_COLOR);  // the default color
-    }
-
+    boolean selectedVehicle = (Debug.getTargetVIN() == vin);
+    buffer.setPaint(getVehicleColor(snapshot, i));
     buffer.setStroke(VEHICLE_STROKE);
     // Now draw the vehicle's shape
-    buffer.fill(vehicle.getShape());
+    snapshot.getOutline(i, vehicleOutline);
+    buffer.fill(vehicleOutline);
     // Draw wheels and stuff if needed
-    if (selectedVehicle) {
+    if (selectedVehicle && snapshot.getSelectedVin() == vin
+        && snapshot.getSelectedWheelShapes() != null) {
       buffer.setPaint(TIRE_COLOR);
       buffer.setStroke(TIRE_STROKE);
-      for (Shape wheel : vehicle.getWheelShapes()) {
+      for (Shape wheel : snapshot.getSelectedWheelShapes()) {
         buffer.fill(wheel);
       }
     }
   }
 
+  /**
+   * Draw the vehicles in a view as plain shapes, with one fill for all the
+   * vehicles of the same color.
+   *
+   * @param buffer     the display buffer
+   * @param snapshot   the render snapshot
+   * @param viewport   the view on the map
+   * @param pointSize  the size of the square drawn at the center of each
+   *                   vehicle; 0 if the outlines of the vehicles are drawn
+   */
+  private void drawVehiclesInBatches(Graphics2D buffer,
+                                     RenderSnapshot snapshot,
+                                     Rectangle2D viewport,
+                                     double pointSize) {
+    Map<Color,Path2D> colorToPath = new HashMap<Color,Path2D>();
+    for (int i = 0; i < snapshot.getNumOfVehicles(); i++) {
+      snapshot.getOutline(i, vehicleOutline);
+      if (!isInView(vehicleOutline, viewport)) {
+        continue;
+      }
+      Color color = getVehicleColor(snapshot, i);
+      Path2D path = colorToPath.get(color);
+      if (path == null) {
+        path = new Path2D.Float();
+        colorToPath.put(color, path);
+      }
+      if (pointSize > 0) {
+        // the center point is the middle of a diagonal of the outline
+        double centerX =
+          (vehicleOutline.getCornerX(0) + vehicleOutline.getCornerX(2)) / 2;
+        double centerY =
+          (vehicleOutline.getCornerY(0) + vehicleOutline.getCornerY(2)) / 2;
+        path.append(new Rectangle2D.Double(centerX - pointSize / 2,
+                                           centerY - pointSize / 2,
+                                           pointSize, pointSize), false);
+      } else {
+        path.append(vehicleOutline, false);
+      }
+    }
+    for (Map.Entry<Color,Path2D> entry : colorToPath.entrySet()) {
+      buffer.setPaint(entry.getKey());
+      buffer.fill(entry.getValue());
+    }
+  }
+
+  /**
+   * Whether the bounding box of an outline of a vehicle intersects a view.
+   *
+   * @param outline   the outline of the vehicle
+   * @param viewport  the view on the map
+   * @return whether the bounding box of the outline intersects the view
+   */
+  private static boolean isInView(OrientedRectangle outline,
+                                  Rectangle2D viewport) {
+    return outline.getMaxX() >= viewport.getMinX()
+        && outline.getMinX() <= viewport.getMaxX()
+        && outline.getMaxY() >= viewport.getMinY()
+        && outline.getMinY() <= viewport.getMaxY();
+  }
+
+  /**
+   * Get the color in which a vehicle is drawn.
+   *
+   * @param snapshot  the render snapshot
+   * @param i         the index of the vehicle in the snapshot
+   * @return the color of the vehicle
+   */
+  private Color getVehicleColor(RenderSnapshot snapshot, int i) {
+    int vin = snapshot.getVin(i);
+    int colorIndex = snapshot.getColorIndex(i);
+    // if it's human-driven vehicle, change color
+    if (colorIndex == RenderSnapshot.COLOR_HUMAN) {
+      return HUMAN_DRIVEN_COLOR;
+    } else if (colorIndex == RenderSnapshot.COLOR_CRUISE) {
+      return CONSTANT_HUMAN_DRIVEN_COLOR;
+    } else if (colorIndex == RenderSnapshot.COLOR_ADAPTIVE_CRUISE) {
+      return ADAPTIVE_HUMAN_DRIVEN_COLOR;
+    } else if (colorIndex == RenderSnapshot.COLOR_HUD) {
+      return HUD_HUMAN_DRIVEN_COLOR;
+    } else if (Debug.getTargetVIN() == vin) {
+      return VEHICLE_SELECTED_COLOR;
+    } else if (vin == MARVIN_VEHICLE_VIN) {
+      return MARVIN_VEHICLE_COLOR;
+    } else if (snapshot.getDebugColor(i) != null) {
+      return snapshot.getDebugColor(i);
+    } else if (colorIndex == RenderSnapshot.COLOR_WAITING_FOR_RESPONSE) {
+      return VEHICLE_WAITING_FOR_RESPONSE_COLOR;
+    } else if (colorIndex == RenderSnapshot.COLOR_HAS_RESERVATION) {
+      return VEHICLE_HAS_RESERVATION_COLOR;
+    } else {
+      return VEHICLE_COLOR;  // the default color
+    }
+  }
+
   /**
    * Draw the information string of the vehicle on screen
    *
-   * @param buffer       the display buffer
-   * @param vehicle      the vehicle
-   * @param currentTime  the current simulated time
+   * @param buffer    the display buffer
+   * @param snapshot  the render snapshot
+   * @param i         the index of the vehicle in the snapshot
    */
   private void drawVehicleInfoString(Graphics2D buffer,
-                                     VehicleSimView vehicle,
-                                     double currentTime) {
+                                     RenderSnapshot snapshot,
+                                     int i) {
     List<String> infos = new LinkedList<String>();
 
     // display the vin
     if (isShowVin) {
-      infos.add(Integer.toString(vehicle.getVIN()));
+      infos.add(Integer.toString(snapshot.getVin(i)));
     }
-
-    if (vehicle instanceof AutoVehicleSimView
-        && vehicle.getDriver() instanceof AutoDriver) {
-      AutoDriver da = (AutoDriver) vehicle.getDriver();
-      if (da.getCurrentCoordinator() instanceof V2ICoordinator) {
-        V2ICoordinator coordinator =
-            (V2ICoordinator) da.getCurrentCoordinator();
-
-        // display the arrival time of the request (if any)
-        if (Debug.SHOW_ARRIVAL_TIME) {
-          if (coordinator.isAwaitingResponse()
-              || coordinator.getReservationParameter() != null) {
-            V2IMessage msg =
-                ((AutoVehicleSimView) vehicle).getLastV2IMessage();
-            if (msg instanceof Request) {
-              Request request = (Request) msg;
-              if (request.getProposals().size() > 0) {
-                // one arrival time is enough.
-                double arrival_time =
-                    request.getProposals().get(0).getArrivalTime();
-                infos.add(String.format("%.2f", arrival_time));
-              } else {
-                infos.add("No Proposals");
-              }
-            } // else ignore other types of messages
-          }
-        }
-
-        if (Debug.SHOW_REMAINING_ARRIVAL_TIME) {
-          if (coordinator.isAwaitingResponse()
-              || coordinator.getReservationParameter() != null) {
-            V2IMessage msg =
-                ((AutoVehicleSimView) vehicle).getLastV2IMessage();
-            if (msg instanceof Request) {
-              Request request = (Request) msg;
-              if (request.getProposals().size() > 0) {
-                // one arrival time is enough.
-                double arrival_time =
-                    request.getProposals().get(0).getArrivalTime();
-                if (coordinator.getReservationParameter() == null
-                    || arrival_time - currentTime >= 0) {
-                  infos.add(String.format("%.2f", arrival_time - currentTime));
-                }
-              } else {
-                infos.add("No Proposals");
-              }
-            } // else ignore other types of messages
-          }
-        }
-      }
+    // display the arrival time of the request (if any)
+    if (snapshot.getInfoString(i) != null) {
+      infos.add(snapshot.getInfoString(i));
     }
 
     if (infos.size() > 0) {
-      Point2D centerPoint = vehicle.getCenterPoint();
+      // the center point is the middle of a diagonal of the outline
+      snapshot.getOutline(i, vehicleOutline);
+      double centerX =
+        (vehicleOutline.getCornerX(0) + vehicleOutline.getCornerX(2)) / 2;
+      double centerY =
+        (vehicleOutline.getCornerY(0) + vehicleOutline.getCornerY(2)) / 2;
       buffer.setColor(VEHICLE_INFO_STRING_COLOR);
       buffer.setFont(VEHICLE_INFO_STRING_FONT);
       buffer.drawString(Util.concatenate(infos, ","),
-          (float) centerPoint.getX(),
-          (float) centerPoint.getY());
+          (float) centerX,
+          (float) centerY);
     }
   }
 
   /**
    * Draw the current state of the lights for all IntersectionManagers.
    *
-   * @param buffer  the display buffer
-   * @param im      the intersection manager whose traffic lights to draw
-   */
-  private void drawTrafficLights(Graphics2D buffer, IntersectionManager im) {
-    if (im instanceof V2IManager) {
-      Policy policy = ((V2IManager) im).getPolicy();
-      if (policy instanceof BasePolicy) {
-        BasePolicy basePolicy = (BasePolicy) policy;
-        if (basePolicy.getRequestHandler() instanceof TrafficSignalRequestHandler) {
-          TrafficSignalRequestHandler requestHandler =
-              (TrafficSignalRequestHandler) basePolicy.getRequestHandler();
-          for (Lane entryLane : im.getIntersection().getEntryLanes()) {
-            switch (requestHandler.getSignal(entryLane.getId())) {
-            case GREEN:
-              buffer.setPaint(Color.GREEN);
-              break;
-            case YELLOW:
-              buffer.setPaint(Color.YELLOW);
-              break;
-            case RED:
-              buffer.setPaint(Color.RED);
-              break;
-            default:
-              throw new RuntimeException("Unknown traffic signals.\n");
-            }
-            // Now create the shape we will use to draw the light
-            // For some reason, Java's angles increase to the right instead of
-            // to the left
-            // TODO: cache it
-            Arc2D lightShape =
-                new Arc2D.Double(im.getIntersection().getEntryPoint(entryLane).getX()
-                - TRAFFIC_LIGHT_RADIUS, // x
-                im.getIntersection().getEntryPoint(entryLane).getY()
-                - TRAFFIC_LIGHT_RADIUS, // y
-                TRAFFIC_LIGHT_RADIUS * 2, // width
-                TRAFFIC_LIGHT_RADIUS * 2, // height
-                90 - // start
-                Math.toDegrees(im.getIntersection().getEntryHeading(entryLane)), 180.0, // extent
-                Arc2D.PIE); // type
-            // Now draw it!
-            buffer.fill(lightShape);
-          }
+   * @param buffer   the display buffer
+   * @param im       the intersection manager whose traffic lights to draw
+   * @param signals  the traffic signals of the entry lanes of the
+   *                 intersection manager; null if it has no traffic signals
+   */
+  private void drawTrafficLights(Graphics2D buffer, IntersectionManager im,
+                                 TrafficSignal[] signals) {
+    if (signals != null) {
+      List<Lane> entryLanes = im.getIntersection().getEntryLanes();
+      for (int i = 0; i < entryLanes.size(); i++) {
+        Lane entryLane = entryLanes.get(i);
+        switch (signals[i]) {
+        case GREEN:
+          buffer.setPaint(Color.GREEN);
+          break;
+        case YELLOW:
+          buffer.setPaint(Color.YELLOW);
+          break;
+        case RED:
+          buffer.setPaint(Color.RED);
+          break;
+        default:
+          throw new RuntimeException("Unknown traffic signals.\n");
         }
+        // Now create the shape we will use to draw the light
+        // For some reason, Java's angles increase to the right instead of
+        // to the left
+        // TODO: cache it
+        Arc2D lightShape =
+            new Arc2D.Double(im.getIntersection().getEntryPoint(entryLane).getX()
+            - TRAFFIC_LIGHT_RADIUS, // x
+            im.getIntersection().getEntryPoint(entryLane).getY()
+            - TRAFFIC_LIGHT_RADIUS, // y
+            TRAFFIC_LIGHT_RADIUS * 2, // width
+            TRAFFIC_LIGHT_RADIUS * 2, // height
+            90 - // start
+            Math.toDegrees(im.getIntersection().getEntryHeading(entryLane)), 180.0, // extent
+            Arc2D.PIE); // type
+        // Now draw it!
+        buffer.fill(lightShape);
       }
     }
   }
@@ -1049,7 +1133,7 @@ public class Canvas extends JPanel implements ComponentListener,
    * @param debugPoints  a set of debug points
    */
   private void drawDebugPoints(Graphics2D buffer,
-                               List<DebugPoint> debugPoints) {
+                               DebugPoint[] debugPoints) {
     for (DebugPoint p : debugPoints) {
       drawDebugPoint(buffer, p);
     }
@@ -1317,7 +1401,30 @@ public class Canvas extends JPanel implements ComponentListener,
    *
    * @param outFileName  the output file name
    */
-  public void saveScreenShot(String outFileName) {
+  public synchronized void saveScreenShot(String outFileName) {
+    // draw the last snapshot first since update() may not have drawn it yet
+    updateCanvas();
+    writeDisplayImage(outFileName);
+  }
+
+  /**
+   * Draw a render snapshot and save the screen to a file in PNG format.
+   *
+   * @param snapshot     the render snapshot
+   * @param outFileName  the output file name
+   */
+  public synchronized void saveScreenShot(RenderSnapshot snapshot,
+                                          String outFileName) {
+    drawSnapshot(snapshot);
+    writeDisplayImage(outFileName);
+  }
+
+  /**
+   * Write the display image to a file in PNG format.
+   *
+   * @param outFileName  the output file name
+   */
+  private void writeDisplayImage(String outFileName) {
     File outfile = new File(outFileName);
     try {
       if (!ImageIO.write((BufferedImage) displayImage, "png", outfile)) {
@@ -1352,15 +1459,18 @@ public class Canvas extends JPanel implements ComponentListener,
    *
    * @param vin  the VIN number of the vehicle
    */
-  public void highlightVehicle(int vin) {
+  public synchronized void highlightVehicle(int vin) {
     Simulator sim = viewer.getSimulator();
-    if (sim != null) {
-      VehicleSimView vehicle = sim.getActiveVehicle(vin);
-      if (vehicle != null) {
-        displayBuffer.setPaint(HIGHLIGHTED_VEHICLE_COLOR);
-        displayBuffer.setStroke(HIGHLIGHTED_VEHICLE_STROKE);
-        displayBuffer.fill(vehicle.getShape());
-        repaint();
+    RenderSnapshot snapshot = (sim != null) ? sim.getRenderSnapshot() : null;
+    if (snapshot != null) {
+      for (int i = 0; i < snapshot.getNumOfVehicles(); i++) {
+        if (snapshot.getVin(i) == vin) {
+          snapshot.getOutline(i, vehicleOutline);
+          displayBuffer.setPaint(HIGHLIGHTED_VEHICLE_COLOR);
+          displayBuffer.setStroke(HIGHLIGHTED_VEHICLE_STROKE);
+          displayBuffer.fill(vehicleOutline);
+          repaint();
+        }
       }
     }
   }
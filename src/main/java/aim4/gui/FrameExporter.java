@@ -0,0 +1,212 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.gui;
+
+import java.io.File;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import aim4.config.Constants;
+import aim4.map.BasicMap;
+import aim4.sim.RenderSnapshot;
+import aim4.sim.Simulator;
+
+/**
+ * An exporter that writes frames of a simulation run to PNG files without a
+ * display.  The simulation thread takes a render snapshot every few steps
+ * and hands it to an encoder thread through a bounded queue; the encoder
+ * thread draws the snapshot on an off-screen canvas and writes the file.
+ * If the encoder thread falls behind, the simulation thread waits at most
+ * a fixed time for room in the queue and then drops the frame.
+ */
+public class FrameExporter {
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The encoder thread.
+   */
+  private class EncoderThread implements Runnable {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+      while (!isFinished || !queue.isEmpty()) {
+        RenderSnapshot snapshot;
+        try {
+          snapshot = queue.poll(POLL_PERIOD, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          break;
+        }
+        if (snapshot != null) {
+          String outFileName =
+            imageDir + "/" + Constants.LEADING_ZEROES.format(numOfFrames++)
+            + ".png";
+          canvas.saveScreenShot(snapshot, outFileName);
+        }
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The period, in milliseconds, at which the encoder thread checks whether
+   * the exporter has been closed.
+   */
+  private static final long POLL_PERIOD = 100L;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The directory of the frames */
+  private final String imageDir;
+  /** The number of simulation steps between two frames */
+  private final int stride;
+  /**
+   * The maximum time, in milliseconds, the simulation thread waits for room
+   * in the queue
+   */
+  private final long budget;
+  /** The off-screen canvas; only the encoder thread draws on it */
+  private final Canvas canvas;
+  /** The queue of the snapshots to be drawn */
+  private final BlockingQueue<RenderSnapshot> queue;
+  /** The encoder thread */
+  private final Thread encoderThread;
+  /** Whether no more snapshots will be added to the queue */
+  private volatile boolean isFinished;
+  /** The number of steps since the last frame */
+  private int numOfStepsSinceLastFrame;
+  /** The number of frames written; only the encoder thread changes it */
+  private int numOfFrames;
+  /** The number of frames dropped */
+  private int numOfDroppedFrames;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a frame exporter and start its encoder thread.
+   *
+   * @param basicMap       the map of the simulation
+   * @param width          the width of the frames
+   * @param height         the height of the frames
+   * @param imageDir       the directory of the frames
+   * @param stride         the number of simulation steps between two frames
+   * @param queueCapacity  the maximum number of frames waiting to be written
+   * @param budget         the maximum time, in milliseconds, the simulation
+   *                       thread waits for room in the queue before it drops
+   *                       a frame
+   */
+  public FrameExporter(BasicMap basicMap, int width, int height,
+                       String imageDir, int stride, int queueCapacity,
+                       long budget) {
+    assert stride > 0 && queueCapacity > 0;
+    File dir = new File(imageDir);
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new RuntimeException("Cannot create directory " + imageDir);
+    }
+    this.imageDir = imageDir;
+    this.stride = stride;
+    this.budget = budget;
+    this.canvas = new Canvas(basicMap, width, height);
+    this.queue = new ArrayBlockingQueue<RenderSnapshot>(queueCapacity);
+    this.isFinished = false;
+    this.numOfStepsSinceLastFrame = 0;
+    this.numOfFrames = 0;
+    this.numOfDroppedFrames = 0;
+    this.encoderThread = new Thread(new EncoderThread(), "FrameExporter");
+    // the simulation comes first when they share a core
+    encoderThread.setPriority(Thread.MIN_PRIORITY);
+    encoderThread.start();
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Tell the exporter that the simulation has made a step.  Every stride
+   * steps, a render snapshot of the simulation is queued to be written.
+   * This must be called by the thread that steps the simulation.
+   *
+   * @param sim  the simulator
+   */
+  public void stepped(Simulator sim) {
+    if (++numOfStepsSinceLastFrame >= stride) {
+      numOfStepsSinceLastFrame = 0;
+      RenderSnapshot snapshot = sim.takeRenderSnapshot();
+      boolean isQueued;
+      try {
+        isQueued = queue.offer(snapshot, budget, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        isQueued = false;
+      }
+      if (!isQueued) {
+        numOfDroppedFrames++;
+      }
+    }
+  }
+
+  /**
+   * Get the number of frames dropped because the encoder thread fell
+   * behind.
+   *
+   * @return the number of frames dropped
+   */
+  public int getNumOfDroppedFrames() {
+    return numOfDroppedFrames;
+  }
+
+  /**
+   * Write the queued frames and stop the encoder thread.
+   */
+  public void close() {
+    isFinished = true;
+    try {
+      encoderThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
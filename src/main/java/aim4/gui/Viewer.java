@@ -60,10 +60,12 @@ import javax.swing.JPanel;
 import aim4.config.Constants;
 import aim4.config.Debug;
 import aim4.config.SimConfig;
+import aim4.config.SimulationContext;
 import aim4.gui.frame.VehicleInfoFrame;
 import aim4.im.IntersectionManager;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
+import aim4.sim.RenderSnapshot;
 import aim4.sim.Simulator;
 import aim4.sim.UdpListener;
 import aim4.sim.AutoDriverOnlySimulator.AutoDriverOnlySimStepResult;
@@ -71,8 +73,8 @@ import aim4.sim.Simulator.SimStepResult;
 import aim4.sim.setup.BasicSimSetup;
 import aim4.sim.setup.SimFactory;
 import aim4.sim.setup.SimSetup;
+import aim4.util.OrientedRectangle;
 import aim4.util.Util;
-import aim4.vehicle.VehicleSimView;
 
 /**
  * The viewer is a Graphical User Interface (GUI) that allows a user to run the
@@ -416,6 +418,8 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
   private JButton stepButton;
   /** The frame for showing a vehicle information */
   private VehicleInfoFrame vehicleInfoFrame;
+  /** The outline of a vehicle being hit-tested against a mouse click */
+  private final OrientedRectangle clickOutline = new OrientedRectangle();
   // Menu Items
   /** Menu item "Autonomous Vehicles Only" */
   // private JCheckBoxMenuItem autoOnlySimTypeMenuItem;
@@ -880,6 +884,12 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
 
     // create the simulator
     sim = SimFactory.makeSimulator(initSimSetup);
+    // the GUI runs one simulation at a time; its threads that have not bound
+    // a context, such as the UDP listener, reach the simulation through the
+    // default context
+    SimulationContext.setDefault(SimulationContext.current());
+    // the canvas draws from the snapshots the simulator takes after each step
+    sim.setRenderSnapshotEnabled(true);
     // create the simulation thread
     createSimThread();
     // initialize the GUI
@@ -1276,11 +1286,18 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
     if (e.getButton() == MouseEvent.BUTTON1) {
       if (sim != null) {
         Point2D leftClickPoint = canvas.getMapPosition(e.getX(), e.getY());
-        // See if we hit any vehicles
-        for (VehicleSimView vehicle : sim.getActiveVehicles()) {
-          if (vehicle.getShape().contains(leftClickPoint)) {
-            if (Debug.getTargetVIN() != vehicle.getVIN()) {
-              Debug.setTargetVIN(vehicle.getVIN());
+        // See if we hit any vehicles.  The outlines of the vehicles are
+        // updated in place by the simulation thread, so hit-test the
+        // outlines in the latest render snapshot instead.
+        RenderSnapshot snapshot = sim.getRenderSnapshot();
+        int numOfVehicles =
+          (snapshot != null) ? snapshot.getNumOfVehicles() : 0;
+        for (int i = 0; i < numOfVehicles; i++) {
+          snapshot.getOutline(i, clickOutline);
+          if (clickOutline.contains(leftClickPoint)) {
+            int vin = snapshot.getVin(i);
+            if (Debug.getTargetVIN() != vin) {
+              Debug.setTargetVIN(vin);
               if (vehicleInfoFrame == null) {
                 vehicleInfoFrame = new VehicleInfoFrame(this);
               }
@@ -1289,7 +1306,8 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
                 this.requestFocusInWindow();
                 this.requestFocus();
               }
-              vehicleInfoFrame.setVehicle(vehicle);
+              // the vehicle may have left the simulation since the snapshot
+              vehicleInfoFrame.setVehicle(sim.getActiveVehicle(vin));
             } else {
               Debug.removeTargetVIN();
               vehicleInfoFrame.setVehicle(null);
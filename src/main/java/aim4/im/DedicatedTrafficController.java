@@ -25,7 +25,7 @@ public class DedicatedTrafficController extends LaneTrafficController {
 			double humanPercentage, double ihdPercentage) {
 		super();
 		
-		int humanOccupation = SimConfig.DEDICATED_LANES;
+		int humanOccupation = SimConfig.getDedicatedLanes();
 		
 		double humanLaneLevel = trafficLevel * humanPercentage * (1 - ihdPercentage)
 				* 12 / (4 * humanOccupation);
@@ -33,7 +33,7 @@ public class DedicatedTrafficController extends LaneTrafficController {
 				* 12 / (4 * (laneNum / 4 - humanOccupation));
 		
 		for (int laneId = 0; laneId < laneNum; laneId++) {
-			if (laneId % 3 < SimConfig.DEDICATED_LANES) {
+			if (laneId % 3 < SimConfig.getDedicatedLanes()) {
 				trafficSpawnInfoList.put(laneId, new LaneInfo(humanLaneLevel, 1, 0, 0, 0));
 			}
 			else {
@@ -37,6 +37,7 @@ import java.util.Collections;
 import java.util.List;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
+import aim4.util.OrientedRectangle;
 import aim4.util.Registry;
 import aim4.util.Util;
 import aim4.vehicle.VehicleSimView;
@@ -189,8 +190,10 @@ public class IntersectionManager {
   public boolean contains(VehicleSimView vehicle) {
     // Get all corners of the vehicle and make sure they are inside the
     // intersection.
-    for(Point2D corner : vehicle.getCornerPoints()) {
-      if (!intersection.getArea().contains(corner)) {
+    OrientedRectangle outline = vehicle.getOutline();
+    for(int i = 0; i < 4; i++) {
+      if (!intersection.getArea().contains(outline.getCornerX(i),
+                                           outline.getCornerY(i))) {
         return false;
       }
     }
@@ -69,7 +69,7 @@ public abstract class LaneTrafficController {
 		 * @return a SpawnCase object. empty if nothing generated.
 		 */
 		public SpawnCase getSpawnVehicle() {
-			double rand = Util.random.nextDouble();
+			double rand = Util.getRandom().nextDouble();
 			
 			if (rand < autoPercent) {
 				return new SpawnCase(VEHICLE_TYPE.AUTO);
@@ -95,7 +95,7 @@ public abstract class LaneTrafficController {
 	public LaneTrafficController() {
 		trafficSpawnInfoList = new HashMap<Integer, LaneInfo>();
 		
-		laneNum = Resources.map.getLaneRegistry().getValues().size();
+		laneNum = Resources.getMap().getLaneRegistry().getValues().size();
 	}
 	
 	public LaneInfo getLaneInfo(int laneId) {
@@ -37,10 +37,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import aim4.config.Debug;
 import aim4.map.Road;
@@ -141,15 +140,38 @@ public class RoadBasedTrackModel implements TrackModel {
    * departure)}.
    */
   private Map<List<Integer>, Double> memoTraversalDistance =
-    new HashMap<List<Integer>, Double>();
+    new ConcurrentHashMap<List<Integer>, Double>();
 
-  // TODO: remove this variable
   /**
-   * A set of 4-tuples of lanes IDs such that if the tuple
-   * <i>(l1, l2, l3, l4)</i> is in the set, the track from lane <i>l1</i> to
-   * lane </i>l2</i> conflicts with the track from lane <i>l3</i> to <i>l4</i>.
+   * A mapping from lane IDs to the indices of the entry lanes of the
+   * intersection; -1 if the lane does not enter the intersection.
    */
-  private Set<List<Integer>> laneConflicts = new HashSet<List<Integer>>();
+  private int[] entryLaneIndices;
+
+  /**
+   * A mapping from lane IDs to the indices of the exit lanes of the
+   * intersection; -1 if the lane does not exit the intersection.
+   */
+  private int[] exitLaneIndices;
+
+  /**
+   * The number of exit lanes of the intersection.
+   */
+  private int numOfExitLanes;
+
+  /**
+   * The number of words in a row of <code>laneConflicts</code>.
+   */
+  private int conflictRowLength;
+
+  /**
+   * The conflict matrix of the tracks through the intersection, as a dense
+   * bitset.  The track from the entry lane with index <i>i</i> to the exit
+   * lane with index <i>j</i> has the index <i>i * numOfExitLanes + j</i>, and
+   * the track with index <i>t1</i> conflicts with the track with index
+   * <i>t2</i> if the bit <i>t2</i> of the row <i>t1</i> is set.
+   */
+  private long[] laneConflicts;
 
 
   /////////////////////////////////
@@ -166,7 +188,7 @@ public class RoadBasedTrackModel implements TrackModel {
     this.intersection = intersection ;
     // Determine the priorities for exit lanes
     calculateLanePriorities();
-    calculateLaneConflicts(); // TODO remove this function
+    calculateLaneConflicts();
   }
 
   /////////////////////////////////
@@ -264,51 +286,107 @@ public class RoadBasedTrackModel implements TrackModel {
   }
 
 
-  //TODO remove this function
   /**
    * For all pairs of trajectories (4-tuples of Lanes), find the ones
-   * that conflict and add them to <code>laneConflicts</code>. Assumes
+   * that conflict and set them in <code>laneConflicts</code>. Assumes
    * that Lanes are linear within the intersection.
    */
   private void calculateLaneConflicts() {
+    List<Lane> entryLanes = intersection.getEntryLanes();
+    List<Lane> exitLanes = intersection.getExitLanes();
+    entryLaneIndices = calcLaneIndices(entryLanes);
+    exitLaneIndices = calcLaneIndices(exitLanes);
+    numOfExitLanes = exitLanes.size();
+    int numOfTracks = entryLanes.size() * numOfExitLanes;
+    conflictRowLength = (numOfTracks + 63) / 64;
+    laneConflicts = new long[numOfTracks * conflictRowLength];
+
+    // Find the line segments that represent the tracks
+    List<List<Line2D>> trackSegments = new ArrayList<List<Line2D>>(numOfTracks);
+    for(Lane entryLane : entryLanes) {
+      for(Lane exitLane : exitLanes) {
+        trackSegments.add(inIntersectionSegments(entryLane, exitLane));
+      }
+    }
+
     // N^4: blech!
-    for(Lane l11: intersection.getEntryLanes()) {
-      for(Lane l12: intersection.getExitLanes()) {
-        // Find the line segments that represent the track
-        List<Line2D> l1Segments = inIntersectionSegments(l11, l12);
-        for(Lane l21: intersection.getEntryLanes()) {
-          for(Lane l22: intersection.getExitLanes()) {
-            // If the start or end lanes are the same, that's an automatic
-            // conflict
-            if(l11 == l21 || l12 == l22) {
-              // Construct the key from the IDs of the various lanes
-              List<Integer> key = Arrays.asList(l11.getId(), l12.getId(),
-                                                l21.getId(), l22.getId());
-              laneConflicts.add(key);
-            } else {
-              // Find the line segments that represent the track
-              List<Line2D> l2Segments = inIntersectionSegments(l21, l22);
-              // Now, if any of the l1 segments intersect any of the l2
-              // segments, there is a conflict.
-              findConflict: for(Line2D l1Seg: l1Segments) {
-                for(Line2D l2Seg: l2Segments) {
-                  if(l1Seg.intersectsLine(l2Seg)) {
-                    // Construct the key from the IDs of the various lanes
-                    List<Integer> key = Arrays.asList(l11.getId(),
-                                                      l12.getId(),
-                                                      l21.getId(),
-                                                      l22.getId());
-                    laneConflicts.add(key);
-                    break findConflict;  // No need to keep calculating
-                  }
-                }
-              }
-            }
-
-          }
+    for(int t1 = 0; t1 < numOfTracks; t1++) {
+      Lane l11 = entryLanes.get(t1 / numOfExitLanes);
+      Lane l12 = exitLanes.get(t1 % numOfExitLanes);
+      for(int t2 = 0; t2 < numOfTracks; t2++) {
+        Lane l21 = entryLanes.get(t2 / numOfExitLanes);
+        Lane l22 = exitLanes.get(t2 % numOfExitLanes);
+        // If the start or end lanes are the same, that's an automatic
+        // conflict; otherwise, if any of the l1 segments intersect any of
+        // the l2 segments, there is a conflict.
+        if(l11 == l21 || l12 == l22
+           || segmentsIntersect(trackSegments.get(t1),
+                                trackSegments.get(t2))) {
+          laneConflicts[t1 * conflictRowLength + (t2 >>> 6)] |= 1L << t2;
+        }
+      }
+    }
+  }
+
+  /**
+   * Map the IDs of a list of lanes to their indices in the list.
+   *
+   * @param lanes  the list of lanes
+   * @return the array whose element at the ID of a lane is the index of the
+   *         lane in the list, or -1 if the lane is not in the list
+   */
+  private static int[] calcLaneIndices(List<Lane> lanes) {
+    int maxId = -1;
+    for(Lane lane : lanes) {
+      maxId = Math.max(maxId, lane.getId());
+    }
+    int[] indices = new int[maxId + 1];
+    Arrays.fill(indices, -1);
+    for(int i = 0; i < lanes.size(); i++) {
+      indices[lanes.get(i).getId()] = i;
+    }
+    return indices;
+  }
+
+  /**
+   * Whether any of the line segments in a list intersects any of the line
+   * segments in another list.
+   *
+   * @param segments1  the first list of line segments
+   * @param segments2  the second list of line segments
+   * @return whether any pair of the line segments intersect
+   */
+  private static boolean segmentsIntersect(List<Line2D> segments1,
+                                           List<Line2D> segments2) {
+    for(Line2D l1Seg: segments1) {
+      for(Line2D l2Seg: segments2) {
+        if(l1Seg.intersectsLine(l2Seg)) {
+          return true;
         }
       }
     }
+    return false;
+  }
+
+  /**
+   * Get the index of the track between two lanes.
+   *
+   * @param entryLaneId  the ID of the entry lane
+   * @param exitLaneId   the ID of the exit lane
+   * @return the index of the track; -1 if the lanes do not enter or exit
+   *         the intersection
+   */
+  private int getTrackIndex(int entryLaneId, int exitLaneId) {
+    if (entryLaneId < 0 || entryLaneId >= entryLaneIndices.length
+        || exitLaneId < 0 || exitLaneId >= exitLaneIndices.length) {
+      return -1;
+    }
+    int i = entryLaneIndices[entryLaneId];
+    int j = exitLaneIndices[exitLaneId];
+    if (i < 0 || j < 0) {
+      return -1;
+    }
+    return i * numOfExitLanes + j;
   }
 
   /////////////////////////////////
@@ -342,9 +420,10 @@ public class RoadBasedTrackModel implements TrackModel {
   }
 
 
-  // TODO: remove this function
   /**
    * Determine whether two trajectories overlap.  Errs on the side of caution.
+   * The answer is looked up in the conflict matrix computed when the track
+   * model was created.
    *
    * @param l11 the ID number of the entry lane for the first trajectory
    * @param l12 the ID number of the exit lane for the first trajectory
@@ -354,8 +433,13 @@ public class RoadBasedTrackModel implements TrackModel {
    */
   @Override
   public boolean trajectoriesConflict(int l11, int l12, int l21, int l22) {
-    List<Integer> lookupKey = Arrays.asList(l11, l12, l21, l22);
-    return laneConflicts.contains(lookupKey);
+    int t1 = getTrackIndex(l11, l12);
+    int t2 = getTrackIndex(l21, l22);
+    if (t1 < 0 || t2 < 0) {
+      return false;
+    }
+    return (laneConflicts[t1 * conflictRowLength + (t2 >>> 6)]
+            & (1L << t2)) != 0;
   }
 
 
@@ -388,7 +472,8 @@ public class RoadBasedTrackModel implements TrackModel {
   public double traversalDistance(Lane arrival, Lane departure) {
     List<Integer> key = Arrays.asList(arrival.getId(),
                                       departure.getId());
-    if(!memoTraversalDistance.containsKey(key)) {
+    Double memo = memoTraversalDistance.get(key);
+    if(memo == null) {
       double totalDistance = 0;
       List<Line2D> segments =
         inIntersectionSegments(arrival, departure);
@@ -396,9 +481,10 @@ public class RoadBasedTrackModel implements TrackModel {
       for(Line2D line : segments) {
         totalDistance += line.getP1().distance(line.getP2());
       }
-      memoTraversalDistance.put(key, totalDistance);
+      memo = totalDistance;
+      memoTraversalDistance.put(key, memo);
     }
-    return memoTraversalDistance.get(key);
+    return memo;
   }
 
   /**
@@ -414,8 +500,8 @@ public class RoadBasedTrackModel implements TrackModel {
   @Override
   public double traversalDistance(int arrivalID, int departureID) {
     List<Integer> key = Arrays.asList(arrivalID, departureID);
-    Lane arrival = Debug.currentMap.getLaneRegistry().get(arrivalID);
-    Lane departure = Debug.currentMap.getLaneRegistry().get(departureID);
+    Lane arrival = Debug.getCurrentMap().getLaneRegistry().get(arrivalID);
+    Lane departure = Debug.getCurrentMap().getLaneRegistry().get(departureID);
     return traversalDistance(arrival, departure);
   }
 
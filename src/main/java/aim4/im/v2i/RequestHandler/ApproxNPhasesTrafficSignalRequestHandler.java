@@ -32,6 +32,7 @@ package aim4.im.v2i.RequestHandler;
 
 import aim4.config.Resources;
 import aim4.config.SimConfig;
+import aim4.config.SimulationContext;
 import aim4.config.TrafficSignal;
 import aim4.config.SimConfig.SIGNAL_TYPE;
 import aim4.driver.Driver;
@@ -54,6 +55,7 @@ import aim4.vehicle.VehicleSimView;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -62,6 +64,17 @@ import java.util.Map;
 public class ApproxNPhasesTrafficSignalRequestHandler implements
     TrafficSignalRequestHandler {
 
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The largest number of representable times by which a green time
+   * computed in closed form is moved forward to a time at which the signal
+   * is green.
+   */
+  private static final int MAX_GREEN_TIME_STEPS = 64;
+
   /////////////////////////////////
   // NESTED CLASSES
   /////////////////////////////////
@@ -79,6 +92,18 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
      */
     TrafficSignal getSignal(double time);
 
+    /**
+     * Get the earliest time, no earlier than the given time, at which the
+     * signal is green, i.e., at which {@link #getSignal(double)} returns
+     * GREEN.  If a green window is open at its start, this is the first
+     * representable time after the start.
+     *
+     * @param time  the given time
+     * @return the earliest time at which the signal is green; positive
+     *         infinity if the signal never turns green
+     */
+    double getNextGreenTime(double time);
+
     /**
      * Set the offset
      * @param time
@@ -95,10 +120,18 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
     private double[] durations;
     /** The list of signals */
     private TrafficSignal[] signals;
-    /** The duration offset */
-    private static double durationOffset;
-    /** The total duration */
-    private static double totalDuration;
+    /**
+     * The times, relative to the start of a cycle, at which the signals end;
+     * the schedule of the signals compiled from the durations.
+     */
+    private double[] signalEnds;
+    /**
+     * The index of the first green signal at or after each signal in the
+     * cycle, wrapping around the end of the cycle; -1 if there is none.
+     */
+    private int[] nextGreenSignals;
+    // The duration offset and the total duration are shared by all the
+    // cyclic controllers of a simulation and kept in its SimulationContext.
 
     public CyclicSignalController(double[] durations, TrafficSignal[] signals) {
       this(durations, signals, 0.0);
@@ -115,12 +148,28 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
                                  double durationOffset) {
       this.durations = durations.clone();
       this.signals = signals.clone();
-      this.durationOffset = durationOffset;
 
-      totalDuration = 0.0;
-      for (double d : durations) {
-        totalDuration += d;
+      double totalDuration = 0.0;
+      signalEnds = new double[durations.length];
+      for(int i=0; i<durations.length; i++) {
+        totalDuration += durations[i];
+        signalEnds[i] = totalDuration;
       }
+      nextGreenSignals = new int[signals.length];
+      for(int i=0; i<signals.length; i++) {
+        nextGreenSignals[i] = -1;
+        for(int k=0; k<signals.length; k++) {
+          int j = (i + k) % signals.length;
+          // signals of no duration are never shown
+          if (signals[j] == TrafficSignal.GREEN && durations[j] > 0.0) {
+            nextGreenSignals[i] = j;
+            break;
+          }
+        }
+      }
+      SimulationContext context = SimulationContext.current();
+      context.setSignalCycleOffset(durationOffset);
+      context.setSignalCycleDuration(totalDuration);
     }
 
     /**
@@ -128,20 +177,66 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
      */
     @Override
     public TrafficSignal getSignal(double time) {
-    	time -= durationOffset;
+      SimulationContext context = SimulationContext.current();
+      double totalDuration = context.getSignalCycleDuration();
+    	time -= context.getSignalCycleOffset();
       double d = time % totalDuration;
       assert 0.0 <= d && d < totalDuration;
-      double maxd = 0.0;
-      for(int i=0; i<durations.length; i++) {
-        maxd += durations[i];
-        if (d < maxd) {
-          return signals[i];
-        }
+      int i = findSignalIndex(d);
+      if (i < signals.length) {
+        return signals[i];
       }
       assert false:("Error in CyclicLightController()");
       return null;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getNextGreenTime(double time) {
+      SimulationContext context = SimulationContext.current();
+      double totalDuration = context.getSignalCycleDuration();
+      double d = (time - context.getSignalCycleOffset()) % totalDuration;
+      int i = findSignalIndex(d);
+      if (i == signals.length || nextGreenSignals[i] < 0) {
+        return Double.POSITIVE_INFINITY;
+      }
+      int j = nextGreenSignals[i];
+      if (j == i) {
+        return time;
+      }
+      double start = (j == 0) ? 0.0 : signalEnds[j - 1];
+      if (j < i) {
+        // the next green signal is in the next cycle
+        start += totalDuration;
+      }
+      double greenTime = time + (start - d);
+      return firstGreenTime(this, greenTime, greenTime + durations[j]);
+    }
+
+    /**
+     * Find the signal at a time in the cycle by a binary search of the
+     * times at which the signals end.
+     *
+     * @param d  the time relative to the start of the cycle
+     * @return the index of the first signal that ends after the time; the
+     *         number of signals if there is none
+     */
+    private int findSignalIndex(double d) {
+      int low = 0;
+      int high = signalEnds.length;
+      while(low < high) {
+        int mid = (low + high) >>> 1;
+        if (d < signalEnds[mid]) {
+          high = mid;
+        } else {
+          low = mid + 1;
+        }
+      }
+      return low;
+    }
+
     /**
      * Return whether the current time exceeds this total duration.
      * If so, it needs to re-calculate the red phase time.
@@ -150,7 +245,7 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
      * @return
      */
     public static boolean needRecalculate(double currentTime) {
-    	if (currentTime > durationOffset + totalDuration) {
+    	if (currentTime > getEndTime()) {
     		return true;
     	}
     	else {
@@ -164,12 +259,13 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
      * @return the time of end of this round
      */
     public static double getEndTime() {
-    	return durationOffset + totalDuration;
+      SimulationContext context = SimulationContext.current();
+    	return context.getSignalCycleOffset() + context.getSignalCycleDuration();
     }
 
 		@Override
 		public void setOffset(double time) {
-			durationOffset = time;
+			SimulationContext.current().setSignalCycleOffset(time);
 		}
   }
   
@@ -196,7 +292,7 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
   		this.redTime = redTime;
   		this.totalTime = greenTime + redTime;
   		
-  		this.laneNum = Resources.map.getLaneRegistry().getValues().size();
+  		this.laneNum = Resources.getMap().getLaneRegistry().getValues().size();
   	}
   	
 		@Override
@@ -210,6 +306,32 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
 			else return TrafficSignal.RED;
 		}
 
+		@Override
+		public double getNextGreenTime(double time) {
+			if (getSignal(time) == TrafficSignal.GREEN) {
+				return time;
+			}
+			if (id < 0 || id >= laneNum) {
+				return Double.POSITIVE_INFINITY;
+			}
+			long round = (long) Math.ceil(time / totalTime);
+			// the time at which round k ends belongs to round k, so it is green
+			// if round k is the round of this lane
+			if (Math.floorMod(round, (long) laneNum) == id) {
+				double end = round * totalTime;
+				if (end >= time && getSignal(end) == TrafficSignal.GREEN) {
+					return end;
+				}
+			}
+			// the green window of round k is open at its start, (k-1) * totalTime
+			long nextRound = round + Math.floorMod(id - round, (long) laneNum);
+			if (nextRound == round) {
+				nextRound += laneNum;
+			}
+			double start = (nextRound - 1) * totalTime;
+			return firstGreenTime(this, start, start + greenTime);
+		}
+
 		@Override
 		public void setOffset(double time) {
 			// TODO Auto-generated method stub
@@ -251,6 +373,27 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
 			}
 		}
 
+		@Override
+		public double getNextGreenTime(double time) {
+			double localTime = time % totalTime;
+
+			double start;
+			if (greenDuration[0] >= greenDuration[1]) {
+				return Double.POSITIVE_INFINITY;
+			}
+			else if (localTime < greenDuration[0]) {
+				start = time + (greenDuration[0] - localTime);
+			}
+			else if (localTime < greenDuration[1]) {
+				return time;
+			}
+			else {
+				start = time + (totalTime - localTime) + greenDuration[0];
+			}
+			return firstGreenTime(this, start,
+			                      start + (greenDuration[1] - greenDuration[0]));
+		}
+
 		@Override
 		public void setOffset(double time) {
 			// TODO Auto-generated method stub
@@ -260,27 +403,107 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
   }
   
   public static class AdaptiveSignalController implements SignalController {
-  	
-  	private ArrayList<ArrayList<Double>> greenPhaseDuration = new ArrayList<ArrayList<Double>>(); 
-  	
+
+  	/**
+  	 * The green windows, (start, end], sorted by their start times.  The
+  	 * schedule is replaced as a whole whenever a green window is added.
+  	 */
+  	private volatile GreenWindows greenWindows = new GreenWindows(new double[0], new double[0]);
+
+  	/**
+  	 * An immutable list of green windows, sorted by their start times.
+  	 */
+  	private static class GreenWindows {
+  		/** The start times of the windows */
+  		private final double[] starts;
+  		/** The end times of the windows */
+  		private final double[] ends;
+  		/** The latest end time of the windows up to each window */
+  		private final double[] maxEnds;
+
+  		/**
+  		 * Create a list of green windows.
+  		 *
+  		 * @param starts  the start times, in increasing order
+  		 * @param ends    the end times
+  		 */
+  		private GreenWindows(double[] starts, double[] ends) {
+  			this.starts = starts;
+  			this.ends = ends;
+  			this.maxEnds = new double[ends.length];
+  			for (int i = 0; i < ends.length; i++) {
+  				maxEnds[i] = (i == 0) ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+  			}
+  		}
+
+  		/**
+  		 * Get the number of windows that start before or at a time.
+  		 *
+  		 * @param time  the time
+  		 * @param inclusive  whether to count the windows that start at the time
+  		 * @return the number of windows
+  		 */
+  		private int countStartsBefore(double time, boolean inclusive) {
+  			int low = 0;
+  			int high = starts.length;
+  			while (low < high) {
+  				int mid = (low + high) >>> 1;
+  				if (starts[mid] < time || (inclusive && starts[mid] == time)) {
+  					low = mid + 1;
+  				} else {
+  					high = mid;
+  				}
+  			}
+  			return low;
+  		}
+  	}
+
 		@Override
 		public TrafficSignal getSignal(double time) {
-			for (ArrayList<Double> duration: greenPhaseDuration) {
-				if (duration.get(0) < time && time <= duration.get(1)) {
-					return TrafficSignal.GREEN;
-				}
+			GreenWindows windows = greenWindows;
+			// some window that starts before the time must end at or after it
+			int n = windows.countStartsBefore(time, false);
+			if (n > 0 && time <= windows.maxEnds[n - 1]) {
+				return TrafficSignal.GREEN;
 			}
-			
+
 			// otherwise, it's not a green phase
 			return TrafficSignal.RED;
 		}
 
+		@Override
+		public double getNextGreenTime(double time) {
+			if (getSignal(time) == TrafficSignal.GREEN) {
+				return time;
+			}
+			GreenWindows windows = greenWindows;
+			// the windows are open at their starts and closed at their ends
+			for (int i = windows.countStartsBefore(time, false);
+			     i < windows.starts.length; i++) {
+				double greenTime = firstGreenTime(this, windows.starts[i],
+				                                  Math.nextUp(windows.ends[i]));
+				if (greenTime < Double.POSITIVE_INFINITY) {
+					return greenTime;
+				}
+			}
+			return Double.POSITIVE_INFINITY;
+		}
+
 		public void prepareGreenPhase(double start, double end) {
-			ArrayList<Double> duration = new ArrayList<Double>();
-			duration.add(start);
-			duration.add(end);
-			
-			greenPhaseDuration.add(duration);
+			GreenWindows windows = greenWindows;
+			int n = windows.starts.length;
+			// keep the windows sorted by their start times
+			int i = windows.countStartsBefore(start, true);
+			double[] starts = new double[n + 1];
+			double[] ends = new double[n + 1];
+			System.arraycopy(windows.starts, 0, starts, 0, i);
+			System.arraycopy(windows.ends, 0, ends, 0, i);
+			starts[i] = start;
+			ends[i] = end;
+			System.arraycopy(windows.starts, i, starts, i + 1, n - i);
+			System.arraycopy(windows.ends, i, ends, i + 1, n - i);
+
+			greenWindows = new GreenWindows(starts, ends);
 		}
 		
 		@Override
@@ -300,9 +523,9 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
   	private boolean forHuman;
   	
   	public DedicatedLanesSignalController(int lane) {
-  		int laneNum = Resources.map.getLaneRegistry().getValues().size();
+  		int laneNum = Resources.getMap().getLaneRegistry().getValues().size();
   		rank = lane / (laneNum / 4);
-  		forHuman = (lane % (laneNum / 4)) < SimConfig.DEDICATED_LANES;
+  		forHuman = (lane % (laneNum / 4)) < SimConfig.getDedicatedLanes();
   		
   		totalTime = greenTime * 8 + redIntervalTime * 3 + redTime;
   	}
@@ -311,16 +534,29 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
 		public TrafficSignal getSignal(double time) {
 			double timeInPeriod = time % totalTime;
 			
-			if (SimConfig.DEDICATED_LANES > 0) {
+			if (SimConfig.getDedicatedLanes() > 0) {
 				// check whether need to change signal time
 				if (timeInPeriod < greenTime * 8 + redIntervalTime * 3) {
-					SimConfig.signalType = SIGNAL_TYPE.DEFAULT;
+					SimConfig.setSignalType(SIGNAL_TYPE.DEFAULT);
 				}
 				else {
-					SimConfig.signalType = SIGNAL_TYPE.TRADITIONAL;
+					SimConfig.setSignalType(SIGNAL_TYPE.TRADITIONAL);
 				}
 			}
 			
+			return calcSignal(time);
+		}
+
+		/**
+		 * Get the signal at the given time without changing the signal type
+		 * of the simulation as getSignal() does.
+		 *
+		 * @param time  the given time
+		 * @return the signal
+		 */
+		private TrafficSignal calcSignal(double time) {
+			double timeInPeriod = time % totalTime;
+
 			// after 4 green phases, or it's not a human lane, return red phase
 			if (timeInPeriod > greenTime * 8 + redIntervalTime * 3) {
 				return TrafficSignal.RED;
@@ -346,6 +582,41 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
 			}
 		}
 
+		@Override
+		public double getNextGreenTime(double time) {
+			double timeInPeriod = time % totalTime;
+			// the green window of this lane in the period
+			double start = rank * (greenTime * 2 + redIntervalTime) + (forHuman ? 0 : greenTime);
+			double end = start + greenTime;
+
+			double next;
+			if (rank < 0 || rank > 3) {
+				return Double.POSITIVE_INFINITY;
+			}
+			else if (calcSignal(time) == TrafficSignal.GREEN) {
+				return time;
+			}
+			else if (timeInPeriod < start) {
+				next = time + (start - timeInPeriod);
+			}
+			else if (timeInPeriod < end) {
+				next = time;
+			}
+			else {
+				next = time + (totalTime - timeInPeriod) + start;
+			}
+			// the window of a non-human lane is open at its start; getSignal()
+			// is not used since it changes the signal type of the simulation
+			double limit = next + greenTime;
+			for (int k = 0; k < MAX_GREEN_TIME_STEPS && next < limit; k++) {
+				if (calcSignal(next) == TrafficSignal.GREEN) {
+					return next;
+				}
+				next = Math.nextUp(next);
+			}
+			return Double.POSITIVE_INFINITY;
+		}
+
 		@Override
 		public void setOffset(double time) {
 			// TODO Auto-generated method stub
@@ -353,6 +624,37 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
 		}
   	
   }
+
+  /////////////////////////////////
+  // PRIVATE STATIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the earliest time, from the opening bound of a green window up to
+   * its end, at which a controller shows the green signal.  The bound is
+   * computed in closed form, so it can be a rounding error before the
+   * window, and the window can be open at its start; the time is moved
+   * forward one representable time at a time until the signal is green.
+   *
+   * @param controller  the signal controller
+   * @param start       the opening bound of the window
+   * @param end         the end of the window (exclusive)
+   * @return the earliest time at which the signal is green; positive
+   *         infinity if the signal is not green within a few representable
+   *         times after the bound
+   */
+  private static double firstGreenTime(SignalController controller,
+                                       double start, double end) {
+    double time = start;
+    for (int k = 0; k < MAX_GREEN_TIME_STEPS && time < end; k++) {
+      if (controller.getSignal(time) == TrafficSignal.GREEN) {
+        return time;
+      }
+      time = Math.nextUp(time);
+    }
+    return Double.POSITIVE_INFINITY;
+  }
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
@@ -363,6 +665,22 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
   private Map<Integer,SignalController> signalControllers;
   /** The base policy */
   private BasePolicyCallback basePolicy;
+  /**
+   * The human-driven vehicles, including those with (adaptive) cruise
+   * control, grouped by their current lanes.  It is rebuilt at the first
+   * request after every time step, since the vehicles only move and change
+   * their states between the time steps of the intersection manager.
+   */
+  private Map<Lane,List<VehicleSimView>> humanVehiclesByLane =
+    new LinkedHashMap<Lane,List<VehicleSimView>>();
+  /** Whether humanVehiclesByLane needs to be rebuilt */
+  private boolean isHumanVehiclesByLaneStale = true;
+  /**
+   * Whether the paths are checked on the hard-coded board of
+   * {@link GridMapUtil#laneIntersect(int, int, int, int)} rather than by the
+   * track model of the intersection; null if not decided yet.
+   */
+  private Boolean isUsingStandardIntersectionBoard = null;
 
 
   /////////////////////////////////
@@ -374,7 +692,7 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
    */
   public ApproxNPhasesTrafficSignalRequestHandler() {
     signalControllers = new HashMap<Integer,SignalController>();
-    Resources.signalControllers = signalControllers;
+    Resources.setSignalControllers(signalControllers);
   }
 
   /////////////////////////////////
@@ -386,7 +704,8 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
    */
   @Override
   public void act(double timeStep) {
-    // do nothing
+    // the vehicles will have moved by the next request
+    isHumanVehiclesByLaneStale = true;
   }
 
   /**
@@ -440,7 +759,7 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
     if (proposals == null) {
        return;
     }
-    else if (SimConfig.signalType == SimConfig.SIGNAL_TYPE.DEFAULT) {
+    else if (SimConfig.getSignalType() == SimConfig.SIGNAL_TYPE.DEFAULT) {
       // if this is SIGNAL and FCFS is not applied, check whether the light allows it to go across
     	if (!canEnterFromLane(proposals.get(0).getArrivalLaneID(),
 	                          proposals.get(0).getDepartureLaneID())) {
@@ -459,18 +778,18 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
 	    				proposals.get(0).getArrivalTime())) {
 
     		// it's now red light. it's human => wait here!
-    		if (Resources.vinToVehicles.get(vin).isHuman()){
+    		if (Resources.getVinToVehicles().get(vin).isHuman()){
 		    	basePolicy.sendRejectMsg(vin, msg.getRequestId(),
 		          Reject.Reason.NO_CLEAR_PATH);
 		    	return;
     		}
 
-    		if (SimConfig.signalType == SimConfig.SIGNAL_TYPE.TRADITIONAL ||
-    				SimConfig.signalType == SimConfig.SIGNAL_TYPE.ONE_LANE_VERSION ||
-    				SimConfig.signalType == SimConfig.SIGNAL_TYPE.REVISED_PHASE ||
-    				SimConfig.signalType == SimConfig.SIGNAL_TYPE.RED_PHASE_ADAPTIVE) {
+    		if (SimConfig.getSignalType() == SimConfig.SIGNAL_TYPE.TRADITIONAL ||
+    				SimConfig.getSignalType() == SimConfig.SIGNAL_TYPE.ONE_LANE_VERSION ||
+    				SimConfig.getSignalType() == SimConfig.SIGNAL_TYPE.REVISED_PHASE ||
+    				SimConfig.getSignalType() == SimConfig.SIGNAL_TYPE.RED_PHASE_ADAPTIVE) {
 
-    			if (SimConfig.FULLY_OBSERVING) {
+    			if (SimConfig.isFullyObserving()) {
     				// in this case, just check whether human drivers appear
     				if (!notHinderingHumanVehicles(proposals.get(0).getArrivalLaneID(),
   	    				proposals.get(0).getDepartureLaneID(),
@@ -494,7 +813,7 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
     		}
 
     		// for informed human vehicles in fully observing policy
-    		if (Resources.vinToVehicles.get(vin).withCruiseControll()) {
+    		if (Resources.getVinToVehicles().get(vin).withCruiseControll()) {
 
   				if (
   						// if he's turning left.. Don't do it!
@@ -503,7 +822,7 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
 
   						// if he has been told to stop,
   	      		// he can no longer enter the intersection in the same red phase.
-  								Resources.vinToVehicles.get(vin).hasStopped()) {
+  								Resources.getVinToVehicles().get(vin).hasStopped()) {
 
   					// reject
   					basePolicy.sendRejectMsg(vin, msg.getRequestId(),
@@ -512,11 +831,11 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
   				}
     		}
 
-    		else if (Resources.vinToVehicles.get(vin).withAdaptiveCruiseControll()) {
+    		else if (Resources.getVinToVehicles().get(vin).withAdaptiveCruiseControll()) {
 
     			if (
     					// Make sure there is some vehicle in front of it for it to follow
-  						!canFollowFrontVehicle(Resources.vinToVehicles.get(vin))
+  						!canFollowFrontVehicle(Resources.getVinToVehicles().get(vin))
 
     					||
 
@@ -524,7 +843,7 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
     					// when the vehicle in front of it is a human-driven vehicle.
   						inRightLane(proposals.get(0).getArrivalLaneID(),
   								proposals.get(0).getDepartureLaneID()) &&
-  						Resources.vinToVehicles.get(vin).getFrontVehicle().isHuman())
+  						Resources.getVinToVehicles().get(vin).getFrontVehicle().isHuman())
   					{
 	  					// reject
 	  					basePolicy.sendRejectMsg(vin, msg.getRequestId(),
@@ -548,11 +867,11 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
     if (reserveParam != null && insertingTraffic) {
     	double exitTime = reserveParam.getExitTime();
 
-    	if (SimConfig.signalType == SimConfig.SIGNAL_TYPE.TRADITIONAL ||
-  				SimConfig.signalType == SimConfig.SIGNAL_TYPE.ONE_LANE_VERSION ||
-  				SimConfig.signalType == SimConfig.SIGNAL_TYPE.REVISED_PHASE) {
+    	if (SimConfig.getSignalType() == SimConfig.SIGNAL_TYPE.TRADITIONAL ||
+  				SimConfig.getSignalType() == SimConfig.SIGNAL_TYPE.ONE_LANE_VERSION ||
+  				SimConfig.getSignalType() == SimConfig.SIGNAL_TYPE.REVISED_PHASE) {
 
-    		if (SimConfig.FULLY_OBSERVING) {
+    		if (SimConfig.isFullyObserving()) {
     			if (!notHinderingHumanVehicles(proposals.get(0).getArrivalLaneID(),
       				proposals.get(0).getDepartureLaneID(),
       				exitTime)) {
@@ -612,6 +931,19 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
   	return signalControllers.get(laneId).getSignal(time);
   }
 
+  /**
+   * Get the earliest time, no earlier than the given time, at which the
+   * signal of a lane is green.
+   *
+   * @param laneId  the lane ID
+   * @param time    the given time
+   * @return the earliest time at which the signal of the lane is green;
+   *         positive infinity if the signal never turns green
+   */
+  public double getNextGreenTime(int laneId, double time) {
+  	return signalControllers.get(laneId).getNextGreenTime(time);
+  }
+
   /////////////////////////////////
   // PRIVATE METHODS
   /////////////////////////////////
@@ -717,7 +1049,7 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
    * @return
    */
   private boolean notHinderingPotentialHumanDrivers(int arrivalLaneID, int departureLaneID, double arrivalTime) {
-  	Registry<Lane> laneRegistry = Resources.map.getLaneRegistry();
+  	Registry<Lane> laneRegistry = Resources.getMap().getLaneRegistry();
 
   	for (Lane lane : laneRegistry.getValues()) {
   		// only consider green lanes
@@ -725,7 +1057,7 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
   			continue;
   		}
 
-  		List<Road> destinationRoad = Resources.destinationSelector.getPossibleDestination(lane);
+  		List<Road> destinationRoad = Resources.getDestinationSelector().getPossibleDestination(lane);
 
 	  	if (destinationRoad.size() == 0) {
 	  		System.err.println("Possible destination empty in notHinderingHumanVehicles! This cannot be true.");
@@ -736,9 +1068,9 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
 	  		for (Lane destinationLane: road.getLanes()) {
 	  			// Check whether it's going into the right lane.
 	  			// Actually, the vehicle must go into its corresponding lane the in destination road
-	  			if (lane.getId() % 3 == destinationLane.getId() % 3 &&
+	  			if (lanesCorrespond(lane, destinationLane) &&
 	  					canEnterFromLaneAtTimepoint(lane.getId(), destinationLane.getId(), arrivalTime)) {
-	  				if (GridMapUtil.laneIntersect(arrivalLaneID, departureLaneID,
+	  				if (pathsIntersect(arrivalLaneID, departureLaneID,
 	  																		lane.getId(), destinationLane.getId())) {
 	  					// There's a chance that this vehicle would collide into the human vehicle
 	  					return false;
@@ -760,56 +1092,27 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
    * @return whether it would collides into a human driver
    */
   private boolean notHinderingHumanVehicles(int arrivalLaneID, int departureLaneID, double arrivalTime) {
-	  Map<Integer,VehicleSimView> vinToVehicles = Resources.vinToVehicles;
-
-	  for(VehicleSimView vehicle : vinToVehicles.values()) {
-		  Driver driver = vehicle.getDriver();
-
-		  // if this vehicle has already left the intersection, forget it.
-		  if (driver.getState() == State.V2I_CLEARING) {
+	  for(Map.Entry<Lane,List<VehicleSimView>> entry :
+	        getHumanVehiclesByLane().entrySet()) {
+		  Lane humanArrivalLane = entry.getKey();
+
+		  // only the lanes whose paths intersect with the path of this vehicle
+		  // matter
+		  if (!mayHinderHumanVehicleInLane(arrivalLaneID, departureLaneID,
+		                                   humanArrivalLane)) {
 		  	continue;
 		  }
 
-		  List<Lane> destinationLanes = driver.getDestination().getLanes();
-
-		  // we only consider the vehicles that are going into the intersection
-		  boolean canGetInto = false;
-		  for (Lane lane: destinationLanes) {
-			  if (canEnterFromLaneAtTimepoint(driver.getCurrentLane().getId(), lane.getId(), arrivalTime)) {
-				  canGetInto = true;
-				  break;
+		  for(VehicleSimView vehicle : entry.getValue()) {
+			  // if this vehicle has already left the intersection, forget it.
+			  if (vehicle.getDriver().getState() == State.V2I_CLEARING) {
+			  	continue;
 			  }
-		  }
 
-		  // if it's in green light, and it's human,
-		  // then the path of this vehicle must not intersect with the human
-		  if (canGetInto) {
-			  if (vehicle.isHuman() || vehicle.withCruiseControll() || vehicle.withAdaptiveCruiseControll()) {
-			  	Lane humanArrivalLane = driver.getCurrentLane();
-
-			  	// In this simulator, we DO know where the human vehicle is going.
-			  	// This is not a realistic assumption -
-			  	// we don't know the exact destination lane in the real world.
-			  	// So, we can only determine by the current lane of human driver
-			  	List<Road> destinationRoad = Resources.destinationSelector.getPossibleDestination(humanArrivalLane);
-
-			  	if (destinationRoad.size() == 0) {
-			  		System.err.println("Possible destination empty in notHinderingHumanVehicles! This cannot be true.");
-			  	}
-
-			  	for (Road road: destinationRoad) {
-			  		for (Lane lane: road.getLanes()) {
-			  			// Check whether it's going into the right lane.
-			  			// Actually, the vehicle must go into its corresponding lane the in destination road
-			  			if (lane.getId() % 3 == humanArrivalLane.getId() % 3) {
-			  				if (GridMapUtil.laneIntersect(arrivalLaneID, departureLaneID,
-			  																		humanArrivalLane.getId(), lane.getId())) {
-			  					// There's a chance that this vehicle would collide into the human vehicle
-			  					return false;
-			  				}
-			  			}
-			  		}
-			  	}
+			  // if it's in green light, and it's human,
+			  // then the path of this vehicle must not intersect with the human
+			  if (canGetIntoAtTimepoint(vehicle, arrivalTime)) {
+			  	return false;
 			  }
 		  }
 	  }
@@ -818,35 +1121,163 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
   }
 
   /**
-   * Check whether all the vehicles in the green lanes have get reservation.
-   * If so, the vehicles in red lanes can feel free to send request
+   * Check whether the path of a certain autonomous vehicle intersects with
+   * the possible paths of a human driver in a lane.
    *
-   * THIS IS NOT A GOOD WAY TO DETERMINE WHETHER A AUTO VEHICLE CAN GO ACCROSS
+   * @param arrivalLaneID of a certain auto vehicle
+   * @param departureLaneID of a certain auto vehicle
+   * @param humanArrivalLane the current lane of the human driver
+   * @return whether the paths intersect
+   */
+  private boolean mayHinderHumanVehicleInLane(int arrivalLaneID,
+                                              int departureLaneID,
+                                              Lane humanArrivalLane) {
+  	// In this simulator, we DO know where the human vehicle is going.
+  	// This is not a realistic assumption -
+  	// we don't know the exact destination lane in the real world.
+  	// So, we can only determine by the current lane of human driver
+  	List<Road> destinationRoad = Resources.getDestinationSelector().getPossibleDestination(humanArrivalLane);
+
+  	if (destinationRoad.size() == 0) {
+  		System.err.println("Possible destination empty in notHinderingHumanVehicles! This cannot be true.");
+  	}
+
+  	for (Road road: destinationRoad) {
+  		for (Lane lane: road.getLanes()) {
+  			// Check whether it's going into the right lane.
+  			// Actually, the vehicle must go into its corresponding lane the in destination road
+  			if (lanesCorrespond(humanArrivalLane, lane)) {
+  				if (pathsIntersect(arrivalLaneID, departureLaneID,
+  																		humanArrivalLane.getId(), lane.getId())) {
+  					// There's a chance that this vehicle would collide into the human vehicle
+  					return true;
+  				}
+  			}
+  		}
+  	}
+  	return false;
+  }
+
+  /**
+   * Check whether a departure lane is the lane that corresponds to an
+   * arrival lane, i.e., the lane a vehicle in the arrival lane keeps to
+   * when it crosses the intersection.  On the standard three-lane
+   * intersection this is read off the lane IDs; otherwise the lanes must
+   * have the same position in their roads.
    *
-   * @return whether all get reservation or not
+   * @param arrivalLane    the arrival lane
+   * @param departureLane  the departure lane
+   * @return whether the departure lane corresponds to the arrival lane
+   */
+  private boolean lanesCorrespond(Lane arrivalLane, Lane departureLane) {
+    if (usesStandardIntersectionBoard()) {
+      return arrivalLane.getId() % 3 == departureLane.getId() % 3;
+    } else {
+      Road arrivalRoad = Resources.getMap().getRoad(arrivalLane);
+      Road departureRoad = Resources.getMap().getRoad(departureLane);
+      return arrivalRoad.getLanes().indexOf(arrivalLane)
+             == departureRoad.getLanes().indexOf(departureLane);
+    }
+  }
+
+  /**
+   * Check whether the path from one lane to another intersects the path
+   * from a second lane to another.  The hard-coded board of the standard
+   * three-lane intersection is used if it describes the map; otherwise the
+   * conflict matrix of the track model of the intersection is used.
    *
+   * @param firstLaneIn    the arrival lane of the first path
+   * @param firstLaneOut   the departure lane of the first path
+   * @param secondLaneIn   the arrival lane of the second path
+   * @param secondLaneOut  the departure lane of the second path
+   * @return whether the paths intersect
    */
-  private boolean allHumanVehicleInGreenLaneGetReservation(double arrivalTime) {
-	  Map<Integer,VehicleSimView> vinToVehicles = Resources.vinToVehicles;
+  private boolean pathsIntersect(int firstLaneIn, int firstLaneOut,
+                                 int secondLaneIn, int secondLaneOut) {
+    if (usesStandardIntersectionBoard()) {
+      return GridMapUtil.laneIntersect(firstLaneIn, firstLaneOut,
+                                       secondLaneIn, secondLaneOut);
+    } else {
+      return basePolicy.getTrackMode().trajectoriesConflict(
+               firstLaneIn, firstLaneOut, secondLaneIn, secondLaneOut);
+    }
+  }
 
-	  for(VehicleSimView vehicle : vinToVehicles.values()) {
-		  Driver driver = vehicle.getDriver();
+  /**
+   * Check whether the map is the standard three-lane intersection described
+   * by the hard-coded intersection board.
+   *
+   * @return whether the standard intersection board describes the map
+   */
+  private boolean usesStandardIntersectionBoard() {
+    if (isUsingStandardIntersectionBoard == null) {
+      isUsingStandardIntersectionBoard =
+        GridMapUtil.isStandardIntersection(Resources.getMap());
+    }
+    return isUsingStandardIntersectionBoard;
+  }
 
-		  List<Lane> destinationLanes = driver.getDestination().getLanes();
+  /**
+   * Check whether a vehicle would go into the intersection at a time point,
+   * i.e., whether it can enter from its current lane to its destination.
+   *
+   * @param vehicle  the vehicle
+   * @param time     the time point
+   * @return whether the vehicle would go into the intersection
+   */
+  private boolean canGetIntoAtTimepoint(VehicleSimView vehicle, double time) {
+	  Driver driver = vehicle.getDriver();
+	  for (Lane lane: driver.getDestination().getLanes()) {
+		  if (canEnterFromLaneAtTimepoint(driver.getCurrentLane().getId(), lane.getId(), time)) {
+			  return true;
+		  }
+	  }
+	  return false;
+  }
 
-		  boolean canGetInto = false;
-		  for (Lane lane: destinationLanes) {
-			  if (canEnterFromLaneAtTimepoint(driver.getCurrentLane().getId(), lane.getId(), arrivalTime)) {
-				  // in this case, this vehicle should go into intersection, if it's driven by human
-				  canGetInto = true;
-				  break;
+  /**
+   * Get the human-driven vehicles, including those with (adaptive) cruise
+   * control, grouped by their current lanes, rebuilding the grouping if the
+   * vehicles have moved since it was last built.
+   *
+   * @return the human-driven vehicles grouped by their current lanes
+   */
+  private Map<Lane,List<VehicleSimView>> getHumanVehiclesByLane() {
+	  if (isHumanVehiclesByLaneStale) {
+		  for(List<VehicleSimView> vehicles : humanVehiclesByLane.values()) {
+			  vehicles.clear();
+		  }
+		  for(VehicleSimView vehicle : Resources.getVinToVehicles().values()) {
+			  if (vehicle.isHuman() || vehicle.withCruiseControll() || vehicle.withAdaptiveCruiseControll()) {
+				  Lane lane = vehicle.getDriver().getCurrentLane();
+				  List<VehicleSimView> vehicles = humanVehiclesByLane.get(lane);
+				  if (vehicles == null) {
+					  vehicles = new ArrayList<VehicleSimView>();
+					  humanVehiclesByLane.put(lane, vehicles);
+				  }
+				  vehicles.add(vehicle);
 			  }
 		  }
+		  isHumanVehiclesByLaneStale = false;
+	  }
+	  return humanVehiclesByLane;
+  }
 
-		  // if it's in green light, and it's human, then it must have reservation
-		  // of course, it cannot be a human driver
-		  if (canGetInto) {
-			  if (vehicle.isHuman()) {
+  /**
+   * Check whether all the vehicles in the green lanes have get reservation.
+   * If so, the vehicles in red lanes can feel free to send request
+   *
+   * THIS IS NOT A GOOD WAY TO DETERMINE WHETHER A AUTO VEHICLE CAN GO ACCROSS
+   *
+   * @return whether all get reservation or not
+   *
+   */
+  private boolean allHumanVehicleInGreenLaneGetReservation(double arrivalTime) {
+	  for(List<VehicleSimView> vehicles : getHumanVehiclesByLane().values()) {
+		  for(VehicleSimView vehicle : vehicles) {
+			  // if it's in green light, and it's human, then it must have reservation
+			  // of course, it cannot be a human driver
+			  if (vehicle.isHuman() && canGetIntoAtTimepoint(vehicle, arrivalTime)) {
 				  int vin = vehicle.getVIN();
 				  if (!basePolicy.hasReservation(vin)) {
 				  	// a human driver has not got a reservation here
@@ -33,11 +33,13 @@ package aim4.im.v2i.RequestHandler;
 import java.awt.Color;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Set;
 import java.util.TreeSet;
@@ -327,6 +329,12 @@ public class BatchModeRequestHandler implements RequestHandler {
    */
   private NavigableSet<IndexedProposal> queue;
 
+  /**
+   * The proposal group in the queue of each vehicle, indexed by VIN.  A
+   * vehicle has at most one proposal group in the queue.
+   */
+  private Map<Integer,List<IndexedProposal>> proposalGroupsByVin;
+
   /**
    * The time at which the proposals in the next batch will be processed.
    */
@@ -377,6 +385,7 @@ public class BatchModeRequestHandler implements RequestHandler {
                                  RequestStatCollector requestSC) {
     this.reorderingStrategy = reorderingStrategy;
     this.queue = new TreeSet<IndexedProposal>();
+    this.proposalGroupsByVin = new HashMap<Integer,List<IndexedProposal>>();
     this.requestSC = requestSC;
     nextIndexedProposalId = 0;
   }
@@ -543,10 +552,11 @@ public class BatchModeRequestHandler implements RequestHandler {
    * @param iProposal  the indexed proposal
    */
   private void tryReserve(IndexedProposal iProposal){
-    List<Proposal> l = new ArrayList<Proposal>(1);
-    l.add(iProposal.getProposal());
     Request msg = iProposal.getRequest();
-    ReserveParam reserveParam = basePolicy.findReserveParam(msg, l);
+    ReserveParam reserveParam =
+      basePolicy.findReserveParam(msg,
+                                  Collections.singletonList(
+                                    iProposal.getProposal()));
     if (reserveParam != null) {
       basePolicy.sendComfirmMsg(msg.getRequestId(), reserveParam);
       // Remove a set of indexed proposals (including the given one)
@@ -554,6 +564,7 @@ public class BatchModeRequestHandler implements RequestHandler {
       for(IndexedProposal iProposal2 : iProposal.getProposalGroup()) {
         queue.remove(iProposal2); // efficient enough since queue is a TreeSet.
       }
+      removeProposalGroupIndex(msg.getVin(), iProposal.getProposalGroup());
     } else {
       // remove the indexed proposal from the queue.
       queue.remove(iProposal);
@@ -563,6 +574,7 @@ public class BatchModeRequestHandler implements RequestHandler {
         // if the proposal group is empty, no proposal left for the request
         // message and need to send the reject message.
         if (ipGroup.isEmpty()) {
+          removeProposalGroupIndex(msg.getVin(), ipGroup);
           basePolicy.sendRejectMsg(msg.getVin(),
                                    msg.getRequestId(),
                                    Reason.NO_CLEAR_PATH);
@@ -610,23 +622,29 @@ public class BatchModeRequestHandler implements RequestHandler {
    * @param vin  the vehicle ID
    */
   private void removeProposalsByVIN(int vin) {
-    // search for the first indexed proposal with the given vin.
-    // TODO: maybe able to make it runs faster
-    IndexedProposal selectedIndexedProposal = null;
-    for(IndexedProposal iProposal : queue) {
-      if (iProposal.getRequest().getVin() == vin) {
-        selectedIndexedProposal = iProposal;
-      }
-    }
-
+    List<IndexedProposal> proposalGroup = proposalGroupsByVin.remove(vin);
     // remove the indexed proposal in the indexed proposal group.
-    if (selectedIndexedProposal != null) {
-      for(IndexedProposal ip : selectedIndexedProposal.getProposalGroup()) {
+    if (proposalGroup != null) {
+      for(IndexedProposal ip : proposalGroup) {
         queue.remove(ip); // efficient enough since queue is a TreeSet.
       }
     }
   }
 
+  /**
+   * Remove the proposal group of a vehicle from the VIN index, if it is
+   * the group indexed for the vehicle.
+   *
+   * @param vin            the vehicle ID
+   * @param proposalGroup  the proposal group
+   */
+  private void removeProposalGroupIndex(int vin,
+                                        List<IndexedProposal> proposalGroup) {
+    if (proposalGroupsByVin.get(vin) == proposalGroup) {
+      proposalGroupsByVin.remove(vin);
+    }
+  }
+
   /**
    * Check to see if all proposals has an arrival time that are larger than
    * or equal to the last processing time.
@@ -653,8 +671,7 @@ public class BatchModeRequestHandler implements RequestHandler {
    */
   private void putProposalsIntoQueue(Request msg, double currentTime) {
     List<IndexedProposal> proposalGroup =
-      new LinkedList<IndexedProposal>(); // use LinkedList such that elements
-                                         // can be removed efficiently.
+      new ArrayList<IndexedProposal>(msg.getProposals().size());
     for(Proposal proposal: msg.getProposals()) {
       // Put only the proposal whose arrival time is on or after the
       // next proposal deadline. Ignore the late proposals
@@ -670,6 +687,9 @@ public class BatchModeRequestHandler implements RequestHandler {
         queue.add(iProposal); // TreeSet will sort the IP automatically.
       }
     }
+    if (!proposalGroup.isEmpty()) {
+      proposalGroupsByVin.put(msg.getVin(), proposalGroup);
+    }
   }
 
 
@@ -40,12 +40,14 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import aim4.config.Debug;
+import aim4.config.SimConfig;
 import aim4.im.Intersection;
 import aim4.im.IntersectionManager;
 import aim4.im.TrackModel;
 import aim4.im.v2i.policy.Policy;
 import aim4.im.v2i.reservation.AczManager;
 import aim4.im.v2i.reservation.AdmissionControlZone;
+import aim4.im.v2i.reservation.ConcurrentReservationGrid;
 import aim4.im.v2i.reservation.ReservationGrid;
 import aim4.im.v2i.reservation.ReservationGridManager;
 import aim4.map.lane.Lane;
@@ -173,9 +175,16 @@ public class V2IManager extends IntersectionManager
     // Set up the reservation grid
     this.tiledArea = new TiledArea(intersection.getArea(),
                                    config.getGranularity());
-    this.reservationGrid = new ReservationGrid(tiledArea.getXNum(),
-                                               tiledArea.getYNum(),
-                                               config.getGridTimeStep());
+    if (SimConfig.isConcurrentReservationGrid()) {
+      this.reservationGrid =
+        new ConcurrentReservationGrid(tiledArea.getXNum(),
+                                      tiledArea.getYNum(),
+                                      config.getGridTimeStep());
+    } else {
+      this.reservationGrid = new ReservationGrid(tiledArea.getXNum(),
+                                                 tiledArea.getYNum(),
+                                                 config.getGridTimeStep());
+    }
     this.reservationGridManager = new ReservationGridManager(config,
                                                              intersection,
                                                              tiledArea,
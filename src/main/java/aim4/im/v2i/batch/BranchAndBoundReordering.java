@@ -0,0 +1,710 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.im.v2i.batch;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import aim4.im.TrackModel;
+import aim4.im.v2i.RequestHandler.BatchModeRequestHandler.IndexedProposal;
+import aim4.msg.v2i.Request.Proposal;
+
+/**
+ * A reordering strategy that searches the orderings of a batch by branch and
+ * bound.  The proposals in the batch are placed on a conflict model of the
+ * intersection built from the track model: a proposal occupies the
+ * trajectory between its arrival and departure lanes for the time it takes
+ * to cross, and two proposals of different vehicles conflict if their
+ * trajectories conflict and their occupancy times overlap.  Processing an
+ * order accepts every proposal that does not conflict with an accepted one,
+ * and the order is scored by the total delay of the vehicles in the batch.
+ * The search stops when the wall-clock budget of the batch expires and
+ * returns the best order found so far.
+ * <p>
+ * Orders with the same total delay are ranked by their accepted proposals,
+ * preferring the order that accepts the proposal with the smallest index
+ * where they differ, so a search that finishes within its budget returns
+ * the same order however its subtrees are scheduled.  A search that runs
+ * out of budget returns whatever it has found by then, which depends on the
+ * speed and the load of the machine; such runs cannot be reproduced.
+ */
+public class BranchAndBoundReordering implements ReorderingStrategy {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The default wall-clock time the search of a batch may take.  It is kept
+   * well below the computation and communication delay of the batch
+   * ({@link RoadBasedReordering#COMP_COMM_DELAY}).
+   */
+  public static final double DEFAULT_SEARCH_BUDGET = 0.02;  // seconds
+
+  /**
+   * The lowest velocity assumed when estimating the time a vehicle takes
+   * to cross the intersection.
+   */
+  private static final double MIN_CROSSING_VELOCITY = 1.0;  // meters/second
+
+  /**
+   * The time added to both ends of the occupancy time of a proposal.
+   */
+  private static final double OCCUPANCY_TIME_BUFFER = 0.25;  // seconds
+
+  /**
+   * The amount by which a lower bound must exceed the best total delay for
+   * a node to be pruned.  It absorbs the rounding errors of the bound, so
+   * that no node leading to a best order is pruned.
+   */
+  private static final double DELAY_TOLERANCE = 1e-9;  // seconds
+
+  /**
+   * The number of search nodes between two checks of the deadline.
+   */
+  private static final int DEADLINE_CHECK_PERIOD = 64;
+
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /**
+   * The next processing time for the next batch.
+   */
+  private double nextProcessingTime;
+
+  /**
+   * The next proposal deadline for the next batch.
+   */
+  private double nextProposalDeadline;
+
+  /**
+   * The time period between the processing times.
+   */
+  private double processingInterval;
+
+  /**
+   * The wall-clock time the search of a batch may take.
+   */
+  private double searchBudget;
+
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a branch-and-bound reordering strategy with the default search
+   * budget.
+   *
+   * @param processingInterval  the processing interval
+   */
+  public BranchAndBoundReordering(double processingInterval) {
+    this(processingInterval, DEFAULT_SEARCH_BUDGET);
+  }
+
+  /**
+   * Create a branch-and-bound reordering strategy.
+   *
+   * @param processingInterval  the processing interval
+   * @param searchBudget        the wall-clock time, in seconds, the search
+   *                            of a batch may take
+   */
+  public BranchAndBoundReordering(double processingInterval,
+                                  double searchBudget) {
+    if (searchBudget <= 0.0
+        || searchBudget >= RoadBasedReordering.COMP_COMM_DELAY) {
+      throw new RuntimeException("BranchAndBoundReordering: the search " +
+                                 "budget must be between 0 and " +
+                                 RoadBasedReordering.COMP_COMM_DELAY +
+                                 " seconds.");
+    }
+    this.processingInterval = processingInterval;
+    this.searchBudget = searchBudget;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setInitialTime(double initTime) {
+    nextProcessingTime = initTime + processingInterval;
+    nextProposalDeadline =
+      nextProcessingTime + RoadBasedReordering.COMP_COMM_DELAY;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<IndexedProposal> getBatch(double currentTime,
+                                        NavigableSet<IndexedProposal> queue,
+                                        TrackModel trackModel) {
+    long deadline = System.nanoTime() + (long)(searchBudget * 1e9);
+
+    List<IndexedProposal> proposals1 =
+      RoadBasedReordering.selectProposals(currentTime, queue);
+    List<IndexedProposal> proposals2 =
+      reorderProposals(proposals1, trackModel, deadline);
+
+    nextProcessingTime = currentTime + processingInterval;
+    nextProposalDeadline =
+      nextProcessingTime + RoadBasedReordering.COMP_COMM_DELAY;
+    return proposals2;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getNextProcessingTime() {
+    return nextProcessingTime;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getNextProposalDeadline() {
+    return nextProposalDeadline;
+  }
+
+  /**
+   * Get the wall-clock time the search of a batch may take.
+   *
+   * @return the search budget in seconds
+   */
+  public double getSearchBudget() {
+    return searchBudget;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Reorder a list of indexed proposals.  The accepted proposals of the best
+   * order found go first and the rest follow in their original order.
+   *
+   * @param iProposals  a list of indexed proposals sorted by arrival time
+   * @param trackModel  the track model
+   * @param deadline    the value of <code>System.nanoTime()</code> at which
+   *                    the search must stop
+   * @return a reordered list of indexed proposals
+   */
+  private List<IndexedProposal> reorderProposals(
+                                             List<IndexedProposal> iProposals,
+                                             TrackModel trackModel,
+                                             long deadline) {
+    if (iProposals.size() <= 1) {
+      return iProposals;
+    }
+    ConflictModel model =
+      new ConflictModel(iProposals, trackModel, processingInterval);
+    Search search = new Search(model, deadline);
+    long[] accepted = search.run();
+
+    List<IndexedProposal> result =
+      new ArrayList<IndexedProposal>(iProposals.size());
+    for(int i = 0; i < iProposals.size(); i++) {
+      if (isSet(accepted, i)) {
+        result.add(iProposals.get(i));
+      }
+    }
+    for(int i = 0; i < iProposals.size(); i++) {
+      if (!isSet(accepted, i)) {
+        result.add(iProposals.get(i));
+      }
+    }
+    return result;
+  }
+
+  /////////////////////////////////
+  // PRIVATE STATIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Whether a bit is set in a bit set.
+   *
+   * @param words  the words of the bit set
+   * @param i      the index of the bit
+   * @return whether the bit is set
+   */
+  private static boolean isSet(long[] words, int i) {
+    return (words[i >>> 6] & (1L << i)) != 0;
+  }
+
+  /**
+   * Set a bit in a bit set.
+   *
+   * @param words  the words of the bit set
+   * @param i      the index of the bit
+   */
+  private static void set(long[] words, int i) {
+    words[i >>> 6] |= 1L << i;
+  }
+
+  /**
+   * Add the bits of a bit set to another bit set.
+   *
+   * @param words  the words of the bit set to be changed
+   * @param other  the words of the other bit set
+   */
+  private static void or(long[] words, long[] other) {
+    for(int w = 0; w < words.length; w++) {
+      words[w] |= other[w];
+    }
+  }
+
+  /**
+   * Whether a bit set comes before another bit set, i.e., whether the
+   * smallest index at which they differ is set in the first one.
+   *
+   * @param words  the words of the bit set
+   * @param other  the words of the other bit set
+   * @return whether the bit set comes before the other bit set
+   */
+  private static boolean isBefore(long[] words, long[] other) {
+    for(int w = 0; w < words.length; w++) {
+      long diff = words[w] ^ other[w];
+      if (diff != 0) {
+        return (words[w] & diff & -diff) != 0;
+      }
+    }
+    return false;
+  }
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The conflict structure of the proposals in a batch.  It does not change
+   * once it is built and is shared by all search tasks.
+   */
+  private static class ConflictModel {
+
+    /** The number of proposals */
+    private final int size;
+    /** The number of vehicles */
+    private final int groupNum;
+    /** The vehicle of each proposal */
+    private final int[] group;
+    /** The proposals of each vehicle */
+    private final int[][] groupMembers;
+    /** The delay of each proposal if it is accepted */
+    private final double[] delay;
+    /** The delay of a vehicle none of whose proposals is accepted */
+    private final double rejectionDelay;
+    /** The proposals each proposal conflicts with, as bit sets */
+    private final long[][] conflicts;
+
+    /**
+     * Build the conflict model of a list of proposals.
+     *
+     * @param iProposals      a list of indexed proposals
+     * @param trackModel      the track model
+     * @param rejectionDelay  the delay of a vehicle none of whose proposals
+     *                        is accepted
+     */
+    private ConflictModel(List<IndexedProposal> iProposals,
+                          TrackModel trackModel,
+                          double rejectionDelay) {
+      size = iProposals.size();
+      this.rejectionDelay = rejectionDelay;
+      group = new int[size];
+      delay = new double[size];
+
+      int[] arrivalLane = new int[size];
+      int[] departureLane = new int[size];
+      double[] startTime = new double[size];
+      double[] endTime = new double[size];
+
+      // the proposals of a vehicle are grouped by their proposal group,
+      // which is identified by reference
+      Map<List<IndexedProposal>,Integer> groupIds =
+        new IdentityHashMap<List<IndexedProposal>,Integer>();
+      List<Double> earliestArrival = new ArrayList<Double>();
+      for(int i = 0; i < size; i++) {
+        IndexedProposal iProposal = iProposals.get(i);
+        Proposal proposal = iProposal.getProposal();
+        Integer g = groupIds.get(iProposal.getProposalGroup());
+        if (g == null) {
+          g = groupIds.size();
+          groupIds.put(iProposal.getProposalGroup(), g);
+          earliestArrival.add(proposal.getArrivalTime());
+        }
+        group[i] = g;
+        // the proposals are sorted by arrival time, so the first proposal
+        // of a vehicle is its earliest one.
+        delay[i] = proposal.getArrivalTime() - earliestArrival.get(g);
+
+        arrivalLane[i] = proposal.getArrivalLaneID();
+        departureLane[i] = proposal.getDepartureLaneID();
+        double velocity = Math.max(proposal.getArrivalVelocity(),
+                                   MIN_CROSSING_VELOCITY);
+        double distance =
+          trackModel.traversalDistance(arrivalLane[i], departureLane[i])
+          + iProposal.getRequest().getSpec().getLength();
+        startTime[i] = proposal.getArrivalTime() - OCCUPANCY_TIME_BUFFER;
+        endTime[i] = proposal.getArrivalTime() + distance / velocity
+                     + OCCUPANCY_TIME_BUFFER;
+      }
+
+      groupNum = groupIds.size();
+      int[] memberNum = new int[groupNum];
+      for(int i = 0; i < size; i++) {
+        memberNum[group[i]]++;
+      }
+      groupMembers = new int[groupNum][];
+      for(int g = 0; g < groupNum; g++) {
+        groupMembers[g] = new int[memberNum[g]];
+        memberNum[g] = 0;
+      }
+      for(int i = 0; i < size; i++) {
+        groupMembers[group[i]][memberNum[group[i]]++] = i;
+      }
+
+      int words = (size + 63) >>> 6;
+      conflicts = new long[size][words];
+      for(int i = 0; i < size; i++) {
+        for(int j = i + 1; j < size; j++) {
+          if (group[i] != group[j]
+              && startTime[i] < endTime[j] && startTime[j] < endTime[i]
+              && trackModel.trajectoriesConflict(arrivalLane[i],
+                                                 departureLane[i],
+                                                 arrivalLane[j],
+                                                 departureLane[j])) {
+            set(conflicts[i], j);
+            set(conflicts[j], i);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * A node of the search: the set of proposals accepted so far.  A child
+   * node copies the bit sets of its parent before it adds a proposal, so
+   * nodes can be handed to other threads.
+   */
+  private static class Node {
+
+    /** The accepted proposals */
+    private final long[] accepted;
+    /** The proposals that conflict with an accepted proposal */
+    private final long[] blocked;
+    /** The vehicles with an accepted proposal */
+    private final long[] doneGroups;
+    /** The total delay of the accepted proposals */
+    private final double delay;
+
+    /**
+     * Create the root node.
+     *
+     * @param model  the conflict model
+     */
+    private Node(ConflictModel model) {
+      accepted = new long[(model.size + 63) >>> 6];
+      blocked = new long[accepted.length];
+      doneGroups = new long[(model.groupNum + 63) >>> 6];
+      delay = 0.0;
+    }
+
+    /**
+     * Create a child node.
+     *
+     * @param model   the conflict model
+     * @param parent  the parent node
+     * @param i       the proposal accepted in the child node
+     */
+    private Node(ConflictModel model, Node parent, int i) {
+      accepted = parent.accepted.clone();
+      blocked = parent.blocked.clone();
+      doneGroups = parent.doneGroups.clone();
+      set(accepted, i);
+      or(blocked, model.conflicts[i]);
+      set(doneGroups, model.group[i]);
+      delay = parent.delay + model.delay[i];
+    }
+
+    /**
+     * Whether a proposal can be accepted in this node.
+     *
+     * @param model  the conflict model
+     * @param i      the proposal
+     * @return whether the proposal can be accepted
+     */
+    private boolean isCandidate(ConflictModel model, int i) {
+      return !isSet(doneGroups, model.group[i]) && !isSet(blocked, i);
+    }
+
+    /**
+     * Get a lower bound of the total delay of all orders that extend this
+     * node: every vehicle without an accepted proposal gets at least the
+     * smallest delay of its proposals that can still be accepted.
+     *
+     * @param model  the conflict model
+     * @return the lower bound
+     */
+    private double lowerBound(ConflictModel model) {
+      double bound = delay;
+      for(int g = 0; g < model.groupNum; g++) {
+        if (!isSet(doneGroups, g)) {
+          double best = model.rejectionDelay;
+          for(int i : model.groupMembers[g]) {
+            if (!isSet(blocked, i) && model.delay[i] < best) {
+              best = model.delay[i];
+            }
+          }
+          bound += best;
+        }
+      }
+      return bound;
+    }
+  }
+
+  /**
+   * The branch-and-bound search over the orders of a batch.  Processing an
+   * order accepts the same proposals as processing the accepted ones first,
+   * so the search enumerates the sets of accepted proposals in increasing
+   * index order and completes each set greedily in the original order.
+   */
+  private static class Search {
+
+    /** The conflict model */
+    private final ConflictModel model;
+    /** The value of System.nanoTime() at which the search must stop */
+    private final long deadline;
+    /** Whether the deadline has passed */
+    private volatile boolean isExpired = false;
+    /** The total delay of the best order found so far */
+    private volatile double bestDelay = Double.POSITIVE_INFINITY;
+    /** The accepted proposals of the best order found so far */
+    private long[] bestAccepted;
+
+    /**
+     * Create a search.
+     *
+     * @param model     the conflict model
+     * @param deadline  the value of System.nanoTime() at which the search
+     *                  must stop
+     */
+    private Search(ConflictModel model, long deadline) {
+      this.model = model;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Run the search.  The subtrees of the root are searched in parallel.
+     *
+     * @return the accepted proposals of the best order found
+     */
+    private long[] run() {
+      Node root = new Node(model);
+      complete(root);
+      List<SubtreeTask> tasks = new ArrayList<SubtreeTask>();
+      if (root.lowerBound(model) <= bestDelay + DELAY_TOLERANCE) {
+        for(int i = 0; i < model.size; i++) {
+          tasks.add(new SubtreeTask(this, new Node(model, root, i), i + 1));
+        }
+      }
+      if (tasks.size() > 0) {
+        ForkJoinPool.commonPool().invoke(new RootTask(tasks));
+      }
+      return bestAccepted;
+    }
+
+    /**
+     * Search the subtree of a node depth-first.
+     *
+     * @param node   the node
+     * @param start  the smallest index of the proposals that may be added
+     *               to the node
+     */
+    private void search(Node node, int start) {
+      int nodeCount = 0;
+      List<Node> stack = new ArrayList<Node>();
+      List<Integer> starts = new ArrayList<Integer>();
+      stack.add(node);
+      starts.add(start);
+      while(!stack.isEmpty() && !isExpired) {
+        int last = stack.size() - 1;
+        Node n = stack.remove(last);
+        int s = starts.remove(last);
+        if (++nodeCount % DEADLINE_CHECK_PERIOD == 0
+            && System.nanoTime() - deadline >= 0) {
+          isExpired = true;
+          break;
+        }
+        // keep the nodes whose bound ties the best order, since they may
+        // lead to an order that wins the tie
+        if (n.lowerBound(model) > bestDelay + DELAY_TOLERANCE) {
+          continue;
+        }
+        complete(n);
+        // push in reverse so that the children are visited in index order
+        for(int i = model.size - 1; i >= s; i--) {
+          if (n.isCandidate(model, i)) {
+            stack.add(new Node(model, n, i));
+            starts.add(i + 1);
+          }
+        }
+      }
+    }
+
+    /**
+     * Complete a node by accepting the remaining proposals in the original
+     * order, and record the result if it is better than the best order
+     * found so far.
+     *
+     * @param node  the node
+     */
+    private void complete(Node node) {
+      long[] accepted = node.accepted.clone();
+      long[] blocked = node.blocked.clone();
+      long[] doneGroups = node.doneGroups.clone();
+      for(int i = 0; i < model.size; i++) {
+        if (!isSet(doneGroups, model.group[i]) && !isSet(blocked, i)) {
+          set(accepted, i);
+          or(blocked, model.conflicts[i]);
+          set(doneGroups, model.group[i]);
+        }
+      }
+      // sum in index order so that the same set of accepted proposals
+      // always has exactly the same total delay
+      double delay = 0.0;
+      for(int i = 0; i < model.size; i++) {
+        if (isSet(accepted, i)) {
+          delay += model.delay[i];
+        }
+      }
+      for(int g = 0; g < model.groupNum; g++) {
+        if (!isSet(doneGroups, g)) {
+          delay += model.rejectionDelay;
+        }
+      }
+      record(delay, accepted);
+    }
+
+    /**
+     * Record an order if it is better than the best order found so far.
+     * Ties are broken by the accepted proposals, so the result does not
+     * depend on the order in which the orders are found.
+     *
+     * @param delay     the total delay of the order
+     * @param accepted  the accepted proposals of the order
+     */
+    private synchronized void record(double delay, long[] accepted) {
+      if (delay < bestDelay
+          || (delay == bestDelay && isBefore(accepted, bestAccepted))) {
+        bestDelay = delay;
+        bestAccepted = accepted;
+      }
+    }
+  }
+
+  /**
+   * A task that searches the subtree of a child of the root.
+   */
+  private static class SubtreeTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The search */
+    private final Search search;
+    /** The root of the subtree */
+    private final Node node;
+    /** The smallest index of the proposals that may be added to the node */
+    private final int start;
+
+    /**
+     * Create a task for a subtree.
+     *
+     * @param search  the search
+     * @param node    the root of the subtree
+     * @param start   the smallest index of the proposals that may be added
+     *                to the node
+     */
+    private SubtreeTask(Search search, Node node, int start) {
+      this.search = search;
+      this.node = node;
+      this.start = start;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void compute() {
+      search.search(node, start);
+    }
+  }
+
+  /**
+   * A task that runs the subtree tasks of the root.
+   */
+  private static class RootTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The subtree tasks */
+    private final List<SubtreeTask> tasks;
+
+    /**
+     * Create the task.
+     *
+     * @param tasks  the subtree tasks
+     */
+    private RootTask(List<SubtreeTask> tasks) {
+      this.tasks = tasks;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void compute() {
+      invokeAll(tasks);
+    }
+  }
+
+}
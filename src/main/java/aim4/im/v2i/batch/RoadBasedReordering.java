@@ -30,7 +30,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.im.v2i.batch;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -59,20 +60,21 @@ public class RoadBasedReordering implements ReorderingStrategy {
   /**
    * The estimated time this reordering strategy takes to compute the
    * reordering plus the time the intersection manager takes to send
-   * the confirm and reject messages.
+   * the confirm and reject messages.  It is shared by the reordering
+   * strategies in this package.
    */
-  private static final double COMP_COMM_DELAY = 0.05; // seconds
+  static final double COMP_COMM_DELAY = 0.05; // seconds
 
   /**
    * The amount of lookahead (the period of time between the end time of the
    * last processed batch and the target batch).
    */
-  private static final double LOOKAHEAD_TIME = 3.0;  // seconds
+  static final double LOOKAHEAD_TIME = 3.0;  // seconds
 
   /**
    * The amount of time of a batch.
    */
-  private static final double BATCH_INTERVAL = DEFAULT_PROCESSING_INTERVAL;
+  static final double BATCH_INTERVAL = DEFAULT_PROCESSING_INTERVAL;
 
 
   /////////////////////////////////
@@ -160,20 +162,21 @@ public class RoadBasedReordering implements ReorderingStrategy {
   }
 
   /////////////////////////////////
-  // PRIVATE METHODS
+  // PACKAGE STATIC METHODS
   /////////////////////////////////
 
   /**
-   * Select the set of proposals in a batch.
+   * Select the set of proposals in a batch.  It is shared by the reordering
+   * strategies in this package.
    *
    * @param currentTime  the current time
    * @param queue        the message queue
-   * @return the set of proposals in a batch
+   * @return the set of proposals in a batch, sorted by arrival time
    */
-  private List<IndexedProposal> selectProposals(
-                                  double currentTime,
-                                  NavigableSet<IndexedProposal> queue) {
-    List<IndexedProposal> result = new LinkedList<IndexedProposal>();
+  static List<IndexedProposal> selectProposals(
+                                 double currentTime,
+                                 NavigableSet<IndexedProposal> queue) {
+    List<IndexedProposal> result = new ArrayList<IndexedProposal>();
 
     double startTime = currentTime + LOOKAHEAD_TIME;
     double endTime = startTime + BATCH_INTERVAL;
@@ -192,6 +195,10 @@ public class RoadBasedReordering implements ReorderingStrategy {
     return result;
   }
 
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
   /**
    * Reorder a list of indexed proposals.
    *
@@ -201,12 +208,14 @@ public class RoadBasedReordering implements ReorderingStrategy {
   private List<IndexedProposal> reorderProposals(
                                              List<IndexedProposal> iProposals) {
     // a partition of the proposals according to the road of the arrival lane.
+    // The roads keep the order in which they are first seen, so that the
+    // order of the partitions does not depend on identity hash codes.
     Map<Road,List<IndexedProposal>> partition =
-      new HashMap<Road,List<IndexedProposal>>();
+      new LinkedHashMap<Road,List<IndexedProposal>>();
 
     for(IndexedProposal iProposal : iProposals) {
       int laneId = iProposal.getProposal().getArrivalLaneID();
-      Road road = Debug.currentMap.getRoad(laneId);
+      Road road = Debug.getCurrentMap().getRoad(laneId);
       if (partition.containsKey(road)) {
         partition.get(road).add(iProposal);
       } else {
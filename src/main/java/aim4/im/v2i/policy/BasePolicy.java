@@ -36,9 +36,13 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import aim4.config.Debug;
 import aim4.config.Resources;
+import aim4.config.SimConfig;
+import aim4.config.SimulationContext;
 import aim4.config.SimConfig.VEHICLE_TYPE;
 import aim4.im.TrackModel;
 import aim4.im.v2i.V2IManager;
@@ -254,6 +258,83 @@ public final class BasePolicy implements Policy, ExtendedBasePolicyCallback {
 
   }
 
+  /**
+   * A task that queries the reservation grid for a range of the proposals
+   * of a request, splitting the range in halves until a single proposal is
+   * left.
+   */
+  private class GridQueryTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The simulation context of the thread that makes the queries */
+    private final SimulationContext context;
+    /** The request message */
+    private final Request msg;
+    /** The proposals */
+    private final List<Request.Proposal> proposals;
+    /** The type of the vehicle */
+    private final VEHICLE_TYPE vehicleType;
+    /** The plans of the proposals; null if a query fails */
+    private final ReservationGridManager.Plan[] gridPlans;
+    /** The index of the first proposal of the range */
+    private final int from;
+    /** The index after the last proposal of the range */
+    private final int to;
+
+    /**
+     * Create a task for a range of the proposals of a request.
+     *
+     * @param context      the simulation context of the calling thread
+     * @param msg          the request message
+     * @param proposals    the proposals
+     * @param vehicleType  the type of the vehicle
+     * @param gridPlans    the plans of the proposals to be filled in
+     * @param from         the index of the first proposal of the range
+     * @param to           the index after the last proposal of the range
+     */
+    private GridQueryTask(SimulationContext context,
+                          Request msg,
+                          List<Request.Proposal> proposals,
+                          VEHICLE_TYPE vehicleType,
+                          ReservationGridManager.Plan[] gridPlans,
+                          int from, int to) {
+      this.context = context;
+      this.msg = msg;
+      this.proposals = proposals;
+      this.vehicleType = vehicleType;
+      this.gridPlans = gridPlans;
+      this.from = from;
+      this.to = to;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void compute() {
+      if (to - from <= 1) {
+        // the internal simulation reaches the map and the configuration
+        // through the context of the thread, which may be a worker of the
+        // pool
+        SimulationContext previousContext = SimulationContext.bind(context);
+        try {
+          for(int i = from; i < to; i++) {
+            gridPlans[i] = queryGrid(msg, proposals.get(i), vehicleType);
+          }
+        } finally {
+          SimulationContext.bind(previousContext);
+        }
+      } else {
+        int mid = (from + to) >>> 1;
+        invokeAll(new GridQueryTask(context, msg, proposals, vehicleType,
+                                    gridPlans, from, mid),
+                  new GridQueryTask(context, msg, proposals, vehicleType,
+                                    gridPlans, mid, to));
+      }
+    }
+  }
+
 
   /////////////////////////////////
   // PUBLIC STATIC METHODS
@@ -558,62 +639,168 @@ public final class BasePolicy implements Policy, ExtendedBasePolicyCallback {
   public ReserveParam findReserveParam(Request msg,
                                        List<Request.Proposal> proposals) {
     int vin = msg.getVin();
-    VehicleSimView vehicle = Resources.vinToVehicles.get(vin);
-    double exitTime = -1; // find a initial value; the time it would exit
+    VehicleSimView vehicle = Resources.getVinToVehicles().get(vin);
+    VEHICLE_TYPE vehicleType = vehicle.getVehicleType();
+
+    // The plans of the proposals in the reservation grid; they are all
+    // found in advance if the proposals are queried in parallel
+    ReservationGridManager.Plan[] gridPlans = null;
+    if (SimConfig.isParallelProposals() && proposals.size() > 1) {
+      gridPlans = new ReservationGridManager.Plan[proposals.size()];
+      ForkJoinPool.commonPool().invoke(
+        new GridQueryTask(SimulationContext.current(), msg, proposals,
+                          vehicleType, gridPlans, 0, proposals.size()));
+    }
 
-    // Okay, now let's actually try some of these proposals
-    Request.Proposal successfulProposal = null;
-    ReservationGridManager.Plan gridPlan = null;
-    AczManager aczManager = null;
-    AczManager.Plan aczPlan = null;
+    // Okay, now let's actually try some of these proposals.  The proposals
+    // are tried in order even if their plans are found in parallel, so the
+    // first feasible proposal is accepted either way.
+    for(int i = 0; i < proposals.size(); i++) {
+      Request.Proposal proposal = proposals.get(i);
+      ReservationGridManager.Plan gridPlan;
+      if (gridPlans != null) {
+        gridPlan = gridPlans[i];
+      } else {
+        gridPlan = queryGrid(msg, proposal, vehicleType);
+      }
+      if (gridPlan != null) {
+        AczManager aczManager =
+          im.getAczManager(proposal.getDepartureLaneID());
+        AczManager.Plan aczPlan =
+          queryAcz(msg, proposal, aczManager, gridPlan);
+        if (aczPlan != null) {
+          // reservation succeeds!
+          return new ReserveParam(vin, proposal, gridPlan, aczManager,
+                                  aczPlan, gridPlan.getExitTime());
+        }
+      }
+    }
+    return null;
+  }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ReserveParam findEarliestReserveParam(
+                        Request msg,
+                        List<Request.Proposal> proposals,
+                        double maxDelay) {
+    int vin = msg.getVin();
+    VEHICLE_TYPE vehicleType =
+      Resources.getVinToVehicles().get(vin).getVehicleType();
+    double gridTimeStep = im.getReservationGrid().getGridTimeStep();
+
+    // the best reservation parameter so far; later proposals only need to
+    // be scanned up to its arrival time
+    ReserveParam bestReserveParam = null;
+    double bestArrivalTime = Double.POSITIVE_INFINITY;
     for(Request.Proposal proposal : proposals) {
-      ReservationGridManager.Query gridQuery =
-        new ReservationGridManager.Query(vin,
-                                         proposal.getArrivalTime(),
-                                         proposal.getArrivalVelocity(),
-                                         proposal.getArrivalLaneID(),
-                                         proposal.getDepartureLaneID(),
-                                         msg.getSpec(),
-                                         proposal.getMaximumTurnVelocity(),
-                                         true);
-      VEHICLE_TYPE vehicleType = vehicle.getVehicleType();
-      gridPlan = im.getReservationGridManager().query(gridQuery, vehicleType);
-      if (gridPlan != null) {
-    	exitTime = gridPlan.getExitTime();
-        double stopDist =
-          VehicleUtil.calcDistanceToStop(gridPlan.getExitVelocity(),
-                                         msg.getSpec().getMaxDeceleration());
-
-        aczManager = im.getAczManager(proposal.getDepartureLaneID());
-        if (aczManager == null) {
-          System.err.printf("FCFSPolicy::processRequestMsg(): " +
-                            "aczManager should not be null.\n");
-          System.err.printf("proposal.getDepartureLaneID() = %d\n",
-                            proposal.getDepartureLaneID());
-          aczPlan = null;
-        } else {
-          AczManager.Query aczQuery =
-            new AczManager.Query(vin,
-                                 gridPlan.getExitTime(),
-                                 gridPlan.getExitVelocity(),
-                                 msg.getSpec().getLength(),
-                                 stopDist);
-          aczPlan = aczManager.query(aczQuery);
-          if (aczPlan != null) {
-            successfulProposal = proposal;  // reservation succeeds!
-            break;
-          }
+      AczManager aczManager =
+        im.getAczManager(proposal.getDepartureLaneID());
+      double latestArrivalTime =
+        Math.min(proposal.getArrivalTime() + maxDelay, bestArrivalTime);
+      double arrivalTime = proposal.getArrivalTime();
+      // Scan the reservation grid forward until both the intersection and
+      // the ACZ are available
+      while(arrivalTime <= latestArrivalTime) {
+        ReservationGridManager.Query gridQuery =
+          new ReservationGridManager.Query(vin,
+                                           arrivalTime,
+                                           proposal.getArrivalVelocity(),
+                                           proposal.getArrivalLaneID(),
+                                           proposal.getDepartureLaneID(),
+                                           msg.getSpec(),
+                                           proposal.getMaximumTurnVelocity(),
+                                           true);
+        ReservationGridManager.Plan gridPlan =
+          im.getReservationGridManager().queryEarliest(gridQuery,
+                                                       vehicleType,
+                                                       latestArrivalTime);
+        // ties go to the proposal listed first
+        if (gridPlan == null || gridPlan.getArrivalTime() >= bestArrivalTime) {
+          break;
+        }
+        AczManager.Plan aczPlan =
+          queryAcz(msg, proposal, aczManager, gridPlan);
+        if (aczPlan != null) {
+          Request.Proposal counterProposal =
+            new Request.Proposal(proposal.getArrivalLaneID(),
+                                 proposal.getDepartureLaneID(),
+                                 gridPlan.getArrivalTime(),
+                                 proposal.getArrivalVelocity(),
+                                 proposal.getMaximumTurnVelocity());
+          bestReserveParam =
+            new ReserveParam(vin, counterProposal, gridPlan, aczManager,
+                             aczPlan, gridPlan.getExitTime());
+          bestArrivalTime = gridPlan.getArrivalTime();
+          break;
         }
+        arrivalTime = gridPlan.getArrivalTime() + gridTimeStep;
       }
     }
+    return bestReserveParam;
+  }
 
-    if (successfulProposal != null) {
-      assert exitTime != -1;
-      return new ReserveParam(vin, successfulProposal, gridPlan, aczManager,
-                              aczPlan, exitTime);
-    } else {
+  /**
+   * Query the reservation grid for the traversal of the intersection in a
+   * proposal.
+   *
+   * @param msg          the request message
+   * @param proposal     the proposal
+   * @param vehicleType  the type of the vehicle
+   *
+   * @return the reservation plan in the intersection; null if the
+   *         trajectory hits some reserved tiles
+   */
+  private ReservationGridManager.Plan queryGrid(Request msg,
+                                                Request.Proposal proposal,
+                                                VEHICLE_TYPE vehicleType) {
+    ReservationGridManager.Query gridQuery =
+      new ReservationGridManager.Query(msg.getVin(),
+                                       proposal.getArrivalTime(),
+                                       proposal.getArrivalVelocity(),
+                                       proposal.getArrivalLaneID(),
+                                       proposal.getDepartureLaneID(),
+                                       msg.getSpec(),
+                                       proposal.getMaximumTurnVelocity(),
+                                       true);
+    return im.getReservationGridManager().query(gridQuery, vehicleType);
+  }
+
+  /**
+   * Query the ACZ of the departure lane of a proposal for the exit of a
+   * vehicle from the intersection.
+   *
+   * @param msg         the request message
+   * @param proposal    the proposal
+   * @param aczManager  the ACZ manager of the departure lane
+   * @param gridPlan    the reservation plan in the intersection
+   *
+   * @return the ACZ plan; null if the ACZ cannot accommodate the vehicle
+   */
+  private AczManager.Plan queryAcz(Request msg,
+                                   Request.Proposal proposal,
+                                   AczManager aczManager,
+                                   ReservationGridManager.Plan gridPlan) {
+    double stopDist =
+      VehicleUtil.calcDistanceToStop(gridPlan.getExitVelocity(),
+                                     msg.getSpec().getMaxDeceleration());
+
+    if (aczManager == null) {
+      System.err.printf("FCFSPolicy::processRequestMsg(): " +
+                        "aczManager should not be null.\n");
+      System.err.printf("proposal.getDepartureLaneID() = %d\n",
+                        proposal.getDepartureLaneID());
       return null;
+    } else {
+      AczManager.Query aczQuery =
+        new AczManager.Query(msg.getVin(),
+                             gridPlan.getExitTime(),
+                             gridPlan.getExitVelocity(),
+                             msg.getSpec().getLength(),
+                             stopDist);
+      return aczManager.query(aczQuery);
     }
   }
 
@@ -30,7 +30,11 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.im.v2i.policy;
 
+import java.util.List;
+
+import aim4.im.v2i.policy.BasePolicy.ReserveParam;
 import aim4.im.v2i.reservation.ReservationGrid;
+import aim4.msg.v2i.Request;
 
 /**
  * An extension to the base policy's callback interface.
@@ -44,4 +48,24 @@ public interface ExtendedBasePolicyCallback extends BasePolicyCallback {
    */
   ReservationGrid getReservationGrid();
 
+  /**
+   * Find the reservation parameter of the earliest feasible arrival time of
+   * a list of proposals, instead of only their exact arrival times.  The
+   * arrival time of every proposal is delayed by whole grid time steps
+   * until the reservation succeeds, and the proposal with the earliest
+   * feasible arrival time wins; ties go to the proposal listed first.  This
+   * lets a request handler make a counter-proposal instead of a rejection.
+   *
+   * @param msg        the request message
+   * @param proposals  the list of proposals
+   * @param maxDelay   the maximum delay of the arrival time of a proposal
+   *
+   * @return the reservation parameter whose successful proposal has the
+   *         earliest feasible arrival time; null if no proposal can be
+   *         delayed to a feasible arrival time
+   */
+  ReserveParam findEarliestReserveParam(Request msg,
+                                        List<Request.Proposal> proposals,
+                                        double maxDelay);
+
 }
@@ -0,0 +1,399 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.im.v2i.reservation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A reservation grid that several threads can use at the same time.
+ * <p>
+ * A reservation is made optimistically: the time-tiles are first checked
+ * without any lock, and then claimed one by one with a compare-and-set on
+ * the cells of the grids of their discrete times.  The time-tiles are
+ * claimed in the order of their discrete times and tile IDs, so of two
+ * reservations competing for some time-tiles the one that claims the first
+ * of them wins.  If a time-tile has been claimed by a concurrent
+ * reservation, the claimed time-tiles are released, and the reservation is
+ * tried again if the concurrent reservation has released the time-tile in
+ * the meantime; otherwise the reservation fails.
+ * <p>
+ * Reserving, canceling and checking time-tiles can be done concurrently,
+ * as long as a reservation ID is used by one thread at a time.  Cleaning up
+ * must not run concurrently with reserving.
+ */
+public class ConcurrentReservationGrid extends ReservationGrid {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /**
+   * The grids of the discrete times.  A grid is an array from tile IDs to
+   * the reservation IDs that reserved the tiles, or -1.
+   */
+  private final Map<Integer,AtomicIntegerArray> grids =
+    new ConcurrentHashMap<Integer,AtomicIntegerArray>();
+
+  /**
+   * The grids that have been cleaned up, for reuse.
+   */
+  private final Queue<AtomicIntegerArray> freeGrids =
+    new ConcurrentLinkedQueue<AtomicIntegerArray>();
+
+  /**
+   * The time-tiles reserved by each reservation ID, as pairs of discrete
+   * times and tile IDs.
+   */
+  private final Map<Integer,int[]> reservations =
+    new ConcurrentHashMap<Integer,int[]>();
+
+  /**
+   * The last discrete time that has a grid; -1 if there has been no grid.
+   */
+  private final AtomicInteger lastTime = new AtomicInteger(-1);
+
+  /**
+   * The discrete time before which the grids have been cleaned up.
+   */
+  private volatile int cleanUpTime = 0;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a concurrent reservation grid.
+   *
+   * @param xNum          the number of time tiles in the x direction
+   * @param yNum          the number of time tiles in the y direction
+   * @param gridTimeStep  the time step.
+   */
+  public ConcurrentReservationGrid(int xNum, int yNum, double gridTimeStep) {
+    super(xNum, yNum, gridTimeStep);
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isReserved(int dt, int tid) {
+    AtomicIntegerArray grid = grids.get(dt);
+    return grid != null && grid.get(tid) >= 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getReservationId(int dt, int tid) {
+    AtomicIntegerArray grid = grids.get(dt);
+    if (grid != null) {
+      return grid.get(tid);
+    } else {
+      return -1;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasReservation(int rid) {
+    return reservations.containsKey(rid);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getLastReservedDiscreteTime() {
+    if (!grids.isEmpty()) {
+      return lastTime.get();
+    } else {
+      return -1;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getLastReservedDiscreteTime(int rid) {
+    int[] timeTiles = reservations.get(rid);
+    if (timeTiles != null) {
+      int t = -1;
+      for(int i = 0; i < timeTiles.length; i += 2) {
+        t = Math.max(t, timeTiles[i]);
+      }
+      return t;
+    } else {
+      return -1;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The time-tiles before the discrete time up to which the grid has been
+   * cleaned up are ignored.
+   */
+  @Override
+  public boolean reserve(int rid,
+                         Collection<? extends ReservationArray.TimeTile>
+                           workingList) {
+    // the time-tiles in the order in which they are claimed
+    long[] keys = new long[workingList.size()];
+    int n = 0;
+    int timeBegin = cleanUpTime;
+    for(ReservationArray.TimeTile tt : workingList) {
+      if (isReserved(tt.getDiscreteTime(), tt.getTileId())) {
+        return false; // the time-tile has been reserved.
+      }
+      if (tt.getDiscreteTime() >= timeBegin) {
+        keys[n++] = ((long)tt.getDiscreteTime() << 32) | tt.getTileId();
+      }  // else ignore timetile that is before timeBegin
+    }
+    Arrays.sort(keys, 0, n);
+    // the working list may contain the same time-tile twice
+    int m = 0;
+    for(int i = 0; i < n; i++) {
+      if (m == 0 || keys[i] != keys[m - 1]) {
+        keys[m++] = keys[i];
+      }
+    }
+
+    while(true) {
+      int failed = claim(rid, keys, m);
+      if (failed < 0) {
+        break;
+      }
+      // retry only if the concurrent reservation has released the
+      // time-tile in the meantime
+      if (isReserved((int)(keys[failed] >> 32), (int)keys[failed])) {
+        return false;
+      }
+    }
+
+    if (m > 0) {
+      int[] timeTiles = new int[m * 2];
+      for(int i = 0; i < m; i++) {
+        timeTiles[2 * i] = (int)(keys[i] >> 32);
+        timeTiles[2 * i + 1] = (int)keys[i];
+      }
+      int[] oldTimeTiles = reservations.get(rid);
+      if (oldTimeTiles != null) {
+        int[] merged = Arrays.copyOf(oldTimeTiles,
+                                     oldTimeTiles.length + timeTiles.length);
+        System.arraycopy(timeTiles, 0, merged, oldTimeTiles.length,
+                         timeTiles.length);
+        timeTiles = merged;
+      }
+      reservations.put(rid, timeTiles);
+    }
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean cancel(int rid) {
+    int[] timeTiles = reservations.remove(rid);
+    if (timeTiles != null) {
+      for(int i = 0; i < timeTiles.length; i += 2) {
+        // remove time-tiles in grids, unless they have been cleaned up
+        AtomicIntegerArray grid = grids.get(timeTiles[i]);
+        if (grid != null) {
+          grid.compareAndSet(timeTiles[i + 1], rid, -1);
+        }
+      }
+      return true;
+    } else {
+      return false; // the rid is not found
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void cleanUp(int dt) {
+    cleanUpTime = Math.max(cleanUpTime, dt);
+    for(Iterator<Map.Entry<Integer,AtomicIntegerArray>> iter =
+          grids.entrySet().iterator(); iter.hasNext(); ) {
+      Map.Entry<Integer,AtomicIntegerArray> entry = iter.next();
+      if (entry.getKey() < dt) {
+        AtomicIntegerArray grid = entry.getValue();
+        iter.remove();
+        for(int tid = 0; tid < grid.length(); tid++) {
+          grid.set(tid, -1);
+        }
+        freeGrids.offer(grid);
+      }
+    }
+    // drop the reservations whose time-tiles have all been cleaned up
+    for(Iterator<int[]> iter = reservations.values().iterator();
+        iter.hasNext(); ) {
+      int[] timeTiles = iter.next();
+      boolean isCleanedUp = true;
+      for(int i = 0; i < timeTiles.length; i += 2) {
+        if (timeTiles[i] >= dt) {
+          isCleanedUp = false;
+          break;
+        }
+      }
+      if (isCleanedUp) {
+        iter.remove();
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<Integer> getReservedTilesAtTime(int dt) {
+    List<Integer> tids = new ArrayList<Integer>();
+    AtomicIntegerArray grid = grids.get(dt);
+    if (grid != null) {
+      for(int tid = 0; tid < grid.length(); tid++) {
+        if (grid.get(tid) >= 0) {
+          tids.add(tid);
+        }
+      }
+    }
+    return tids;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Set<Integer> getVinOfReservedTilesAtTime(int dt) {
+    Set<Integer> rids = new HashSet<Integer>();
+    AtomicIntegerArray grid = grids.get(dt);
+    if (grid != null) {
+      for(int tid = 0; tid < grid.length(); tid++) {
+        int rid = grid.get(tid);
+        if (rid >= 0) {
+          rids.add(rid);
+        }
+      }
+    }
+    return Collections.unmodifiableSet(rids);
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Claim the time-tiles of a reservation one by one.  If a time-tile has
+   * been claimed by another reservation, the time-tiles claimed so far are
+   * released.
+   *
+   * @param rid   the reservation ID
+   * @param keys  the sorted time-tiles, as discrete times in the upper half
+   *              and tile IDs in the lower half
+   * @param n     the number of time-tiles
+   *
+   * @return the index of the time-tile that has been claimed by another
+   *         reservation; -1 if all time-tiles are claimed
+   */
+  private int claim(int rid, long[] keys, int n) {
+    for(int i = 0; i < n; i++) {
+      AtomicIntegerArray grid = getOrCreateGrid((int)(keys[i] >> 32));
+      if (!grid.compareAndSet((int)keys[i], -1, rid)) {
+        for(int j = i - 1; j >= 0; j--) {
+          grids.get((int)(keys[j] >> 32)).set((int)keys[j], -1);
+        }
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Raise the last discrete time that has a grid.
+   *
+   * @param dt  the discrete time of a new grid
+   */
+  private void updateLastTime(int dt) {
+    int t = lastTime.get();
+    while(t < dt && !lastTime.compareAndSet(t, dt)) {
+      t = lastTime.get();
+    }
+  }
+
+  /**
+   * Get the grid of a discrete time, creating it if it does not exist.
+   *
+   * @param dt  the discrete time
+   * @return the grid
+   */
+  private AtomicIntegerArray getOrCreateGrid(int dt) {
+    AtomicIntegerArray grid = grids.get(dt);
+    if (grid == null) {
+      AtomicIntegerArray newGrid = freeGrids.poll();
+      if (newGrid == null) {
+        newGrid = new AtomicIntegerArray(getNumberOfTiles());
+        for(int tid = 0; tid < getNumberOfTiles(); tid++) {
+          newGrid.set(tid, -1);
+        }
+      }
+      grid = grids.putIfAbsent(dt, newGrid);
+      if (grid == null) {
+        grid = newGrid;
+        updateLastTime(dt);
+      } else {
+        freeGrids.offer(newGrid);  // another thread has created the grid
+      }
+    }
+    return grid;
+  }
+}
@@ -30,20 +30,26 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.im.v2i.reservation;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.NavigableMap;
-import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeMap;
 
 /**
  * The Reservation Array.
+ * <p>
+ * The grids of the discrete times are kept in a circular buffer indexed by
+ * the discrete time, since time only moves forward.  The time-tiles of each
+ * reservation ID are kept in a list of primitive integers, and the
+ * reservation IDs are found through an open-addressing hash table.  The
+ * buffers of the grids and of the lists are recycled, so that reserving,
+ * canceling and cleaning up do not allocate memory once the array has
+ * grown to the size the intersection needs.
  */
 public class ReservationArray {
 
@@ -53,6 +59,18 @@ public class ReservationArray {
 
   private static final boolean SHOULD_CHECK_CONSISTENCY = false;
 
+  /**
+   * The initial number of discrete times the circular buffer can hold.
+   * Must be a power of two.
+   */
+  private static final int INITIAL_CAPACITY = 256;
+
+  /**
+   * The initial size of the hash table of reservation IDs.  Must be a power
+   * of two.
+   */
+  private static final int INITIAL_RID_TABLE_SIZE = 64;
+
   /////////////////////////////////
   // PUBLIC NESTED CLASSES
   /////////////////////////////////
@@ -131,21 +149,85 @@ public class ReservationArray {
   private final int numOfTiles;
 
   /**
-   * The grid table, a mapping from discrete times to grids.
+   * The circular buffer of grids.  The grid of discrete time dt, if any, is
+   * at index dt modulo the length of the buffer; a grid is an array from
+   * tile IDs to the reservation IDs that reserved the tiles, or -1.
+   */
+  private int[][] grids;
+
+  /**
+   * The number of grids in the circular buffer.
+   */
+  private int numOfGrids;
+
+  /**
+   * The first discrete time that has a grid.  Only valid if there are grids.
+   */
+  private int firstTime;
+
+  /**
+   * The last discrete time that has a grid.  Only valid if there are grids.
+   */
+  private int lastTime;
+
+  /**
+   * The grids that have been cleaned up, for reuse.
+   */
+  private final Deque<int[]> freeGrids;
+
+  /**
+   * The hash table from reservation IDs to their slots.  An entry is the
+   * slot plus one, or 0 if the entry is empty.
+   */
+  private int[] ridTable;
+
+  /**
+   * The number of reservation IDs in the hash table.
+   */
+  private int numOfRids;
+
+  /**
+   * The reservation ID of each slot.
+   */
+  private int[] slotRid;
+
+  /**
+   * The number of time-tiles still reserved by the reservation ID of each
+   * slot.
    */
-  private NavigableMap<Integer, int[]> grids;
+  private int[] slotNumOfTimeTiles;
 
   /**
-   * A mapping from discrete times to mappings from reservation IDs to
-   * the tile IDs that is reserved by the vehicle at the time.
+   * The last discrete time of the reservation of each slot.
    */
-  private NavigableMap<Integer,Map<Integer,Set<Integer>>> timeToRidToTid;
+  private int[] slotLastTime;
 
   /**
-   * A mapping from reservation IDs to mappings from discrete times to
-   * the tile IDs that is reserved by the vehicle at the time.
+   * The time-tiles reserved by the reservation ID of each slot, as pairs of
+   * discrete times and tile IDs.  The time-tiles that have been cleaned up
+   * are only dropped when the whole reservation is gone.
    */
-  private Map<Integer,NavigableMap<Integer,Set<Integer>>> ridToTimeToTid;
+  private int[][] slotTimeTiles;
+
+  /**
+   * The number of integers in use in slotTimeTiles of each slot.
+   */
+  private int[] slotSize;
+
+  /**
+   * The number of slots that have been created.
+   */
+  private int numOfSlots;
+
+  /**
+   * The slots that are not in use.
+   */
+  private int[] freeSlots;
+
+  /**
+   * The number of slots that are not in use.
+   */
+  private int numOfFreeSlots;
 
 
   /////////////////////////////////
@@ -159,9 +241,20 @@ public class ReservationArray {
    */
   public ReservationArray(int numOfTiles) {
     this.numOfTiles = numOfTiles;
-    grids = new TreeMap<Integer, int[]>();
-    timeToRidToTid = new TreeMap<Integer,Map<Integer,Set<Integer>>>();
-    ridToTimeToTid = new HashMap<Integer,NavigableMap<Integer,Set<Integer>>>();
+    grids = new int[INITIAL_CAPACITY][];
+    numOfGrids = 0;
+    freeGrids = new ArrayDeque<int[]>();
+    ridTable = new int[INITIAL_RID_TABLE_SIZE];
+    numOfRids = 0;
+    int n = INITIAL_RID_TABLE_SIZE / 2;
+    slotRid = new int[n];
+    slotNumOfTimeTiles = new int[n];
+    slotLastTime = new int[n];
+    slotTimeTiles = new int[n][];
+    slotSize = new int[n];
+    numOfSlots = 0;
+    freeSlots = new int[n];
+    numOfFreeSlots = 0;
   }
 
 
@@ -183,11 +276,8 @@ public class ReservationArray {
    * @param tid  the tile ID
    */
   public boolean isReserved(int dt, int tid) {
-    if (grids.containsKey(dt)) {
-      return grids.get(dt)[tid] >= 0;
-    } else {
-      return false;
-    }
+    int[] grid = getGrid(dt);
+    return grid != null && grid[tid] >= 0;
   }
 
   /**
@@ -198,8 +288,9 @@ public class ReservationArray {
    * @return the reservation ID; -1 if the reservation ID does not exist
    */
   public int getReservationId(int dt, int tid) {
-    if (grids.containsKey(dt)) {
-      return grids.get(dt)[tid];
+    int[] grid = getGrid(dt);
+    if (grid != null) {
+      return grid[tid];
     } else {
       return -1;
     }
@@ -212,7 +303,7 @@ public class ReservationArray {
    * @return whether the reservation ID exists
    */
   public boolean hasReservation(int rid) {
-    return ridToTimeToTid.containsKey(rid);
+    return findSlot(rid) >= 0;
   }
 
   /**
@@ -222,9 +313,9 @@ public class ReservationArray {
    *         -1 if there is currently no reservation.
    */
   public int getLastReservedDiscreteTime() {
-    try {
-      return grids.lastKey();
-    } catch(NoSuchElementException e) {
+    if (numOfGrids > 0) {
+      return lastTime;
+    } else {
       return -1;
     }
   }
@@ -237,12 +328,9 @@ public class ReservationArray {
    *         less than zero if the reservation id does not exist
    */
   public int getLastReservedDiscreteTime(int rid) {
-    if (ridToTimeToTid.containsKey(rid)) {
-      try {
-        return ridToTimeToTid.get(rid).lastKey();
-      } catch(NoSuchElementException e) {
-        return -1;
-      }
+    int slot = findSlot(rid);
+    if (slot >= 0) {
+      return slotLastTime[slot];
     } else {
       return -1;
     }
@@ -260,62 +348,35 @@ public class ReservationArray {
   public boolean reserve(int rid, Collection<? extends TimeTile> workingList) {
     // check to see if any time-tile is reserved in the past
     for(TimeTile tt : workingList) {
-      int dt = tt.getDiscreteTime();
-      if (grids.containsKey(dt) && grids.get(dt)[tt.getTileId()] >= 0) {
+      if (isReserved(tt.getDiscreteTime(), tt.getTileId())) {
         return false; // the time-tile has been reserved.
       }
     }
 
     // actually make the reservation
     int timeBegin = 0;
-    try {
-      timeBegin = grids.firstKey();
-    } catch(NoSuchElementException e) {
-      // It means the grid is empty. All time-tiles are acceptable.
-    }
+    if (numOfGrids > 0) {
+      timeBegin = firstTime;
+    } // else the grid is empty. All time-tiles are acceptable.
 
+    int slot = -1;
     for(TimeTile tt : workingList) {
       int dt = tt.getDiscreteTime();
       int tid = tt.getTileId();
 
       if (dt >= timeBegin) {
-        // update grids;
-        int[] grid = grids.get(dt);
-        if (grid == null) {
-          grid = new int[numOfTiles];
-          for(int i=0; i<numOfTiles; i++) { // initialize the grid
-            grid[i] = -1;
+        int[] grid = getOrCreateGrid(dt);
+        // the working list may contain the same time-tile twice
+        if (grid[tid] != rid) {
+          grid[tid] = rid;
+          if (slot < 0) {
+            slot = findSlot(rid);
+            if (slot < 0) {
+              slot = addSlot(rid);
+            }
           }
-          grids.put(dt, grid);
-        }
-        grid[tid] = rid;
-
-        // update timeToRidToTid
-        Map<Integer,Set<Integer>> ridToTid = timeToRidToTid.get(dt);
-        if (ridToTid == null) {
-          ridToTid = new HashMap<Integer,Set<Integer>>();
-          timeToRidToTid.put(dt, ridToTid);
+          addTimeTile(slot, dt, tid);
         }
-        Set<Integer> tidSet = ridToTid.get(rid);
-        if (tidSet == null) {
-          tidSet = new HashSet<Integer>();
-          ridToTid.put(rid, tidSet);
-        }
-        tidSet.add(tid);
-
-        // update ridToTimeToTid
-        NavigableMap<Integer,Set<Integer>> timeToTid =
-          ridToTimeToTid.get(rid);
-        if (timeToTid == null) {
-          timeToTid = new TreeMap<Integer,Set<Integer>>();
-          ridToTimeToTid.put(rid, timeToTid);
-        }
-        tidSet = timeToTid.get(dt);
-        if (tidSet == null) {
-          tidSet = new HashSet<Integer>();
-          timeToTid.put(dt, tidSet);
-        }
-        tidSet.add(tid);
       }  // else ignore timetile that is before timeBegin
     }
     assert (!SHOULD_CHECK_CONSISTENCY) || checkConsistency();
@@ -329,22 +390,17 @@ public class ReservationArray {
    * @return whether the cancellation is successful
    */
   public boolean cancel(int rid) {
-    // remove elements in ridToTimeToTid
-    NavigableMap<Integer,Set<Integer>> timeToTid = ridToTimeToTid.remove(rid);
-    if (timeToTid != null) {
-      for(int dt : timeToTid.keySet()) {
-        // remove elements in timeToRidToTid
-        if (timeToRidToTid.containsKey(dt)) {
-          timeToRidToTid.get(dt).remove(rid);
-        }
-        // remove time-tiles in grids
-        if (grids.containsKey(dt)) {
-          int[] grid = grids.get(dt);
-          for(int tid : timeToTid.get(dt)) {
-            grid[tid] = -1;
-          }
+    int slot = findSlot(rid);
+    if (slot >= 0) {
+      int[] timeTiles = slotTimeTiles[slot];
+      for(int i = 0; i < slotSize[slot]; i += 2) {
+        // remove time-tiles in grids, unless they have been cleaned up
+        int[] grid = getGrid(timeTiles[i]);
+        if (grid != null && grid[timeTiles[i + 1]] == rid) {
+          grid[timeTiles[i + 1]] = -1;
         }
       }
+      removeSlot(slot);
       assert (!SHOULD_CHECK_CONSISTENCY) || checkConsistency();
       return true;
     } else {
@@ -358,36 +414,35 @@ public class ReservationArray {
    * @param dt  the discrete time before which the reservations will be removed.
    */
   public void cleanUp(int dt) {
-    // clean up grids and timeToRidToTid
-    try {
-      while(grids.firstKey() < dt) {
-        int dt1 = grids.firstKey();
-        grids.remove(dt1);
-        timeToRidToTid.remove(dt1);
-      }
-    } catch(NoSuchElementException e) {
-      // do nothing
-    }
-
-    List<Integer> removeRid = new LinkedList<Integer>();
-    for(int rid : ridToTimeToTid.keySet()){
-      NavigableMap<Integer,Set<Integer>> timeToTid = ridToTimeToTid.get(rid);
-      try {
-        while(timeToTid.firstKey() < dt) {
-          timeToTid.remove(timeToTid.firstKey());
+    if (numOfGrids > 0) {
+      int mask = grids.length - 1;
+      int end = Math.min(lastTime, dt - 1);
+      for(int t = firstTime; t <= end; t++) {
+        int[] grid = grids[t & mask];
+        if (grid != null) {
+          for(int tid = 0; tid < numOfTiles; tid++) {
+            int rid = grid[tid];
+            if (rid >= 0) {
+              int slot = findSlot(rid);
+              slotNumOfTimeTiles[slot]--;
+              if (slotNumOfTimeTiles[slot] == 0) {
+                removeSlot(slot);
+              }
+              grid[tid] = -1;
+            }
+          }
+          grids[t & mask] = null;
+          freeGrids.push(grid);
+          numOfGrids--;
         }
-      } catch(NoSuchElementException e) {
-        // do nothing
       }
-      if (timeToTid.isEmpty()) {
-        removeRid.add(rid);
+      if (numOfGrids > 0) {
+        firstTime = Math.max(firstTime, dt);
+        while(grids[firstTime & mask] == null) {
+          firstTime++;
+        }
       }
     }
-
-    for(int rid : removeRid) {
-      ridToTimeToTid.remove(rid);
-    }
-
     assert (!SHOULD_CHECK_CONSISTENCY) || checkConsistency();
   }
 
@@ -398,16 +453,16 @@ public class ReservationArray {
    * @return the list of tile IDs that are reserved at the given discrete time.
    */
   public List<Integer> getReservedTilesAtTime(int dt) {
-    Map<Integer,Set<Integer>> ridToTid = timeToRidToTid.get(dt);
-    if (ridToTid != null) {
-      List<Integer> dts = new LinkedList<Integer>();
-      for(int rid : ridToTid.keySet()) {
-        dts.addAll(ridToTid.get(rid));
+    List<Integer> tids = new ArrayList<Integer>();
+    int[] grid = getGrid(dt);
+    if (grid != null) {
+      for(int tid = 0; tid < numOfTiles; tid++) {
+        if (grid[tid] >= 0) {
+          tids.add(tid);
+        }
       }
-      return dts;
-    } else {
-      return new LinkedList<Integer>(); // return an empty list
     }
+    return tids;
   }
 
   /**
@@ -417,70 +472,272 @@ public class ReservationArray {
    * @return a set of reservation IDs.
    */
   public Set<Integer> getVinOfReservedTilesAtTime(int dt) {
-    Map<Integer,Set<Integer>> ridToTid = timeToRidToTid.get(dt);
-    if (ridToTid != null) {
-      return Collections.unmodifiableSet(ridToTid.keySet());
-    } else {
-      return new HashSet<Integer>(); // return an empty list
+    Set<Integer> rids = new HashSet<Integer>();
+    int[] grid = getGrid(dt);
+    if (grid != null) {
+      for(int tid = 0; tid < numOfTiles; tid++) {
+        if (grid[tid] >= 0) {
+          rids.add(grid[tid]);
+        }
+      }
     }
+    return Collections.unmodifiableSet(rids);
   }
 
 
   /////////////////////////////////
-  // DEBUG
+  // PRIVATE METHODS
   /////////////////////////////////
 
+  // grids
+
   /**
-   * Check whether the array are consistent
+   * Get the grid of a discrete time.
+   *
+   * @param dt  the discrete time
+   * @return the grid; null if there is no grid at the discrete time
    */
-  private boolean checkConsistency() {
-    for(int dt : grids.keySet()) {
-      int[] tids = grids.get(dt);
-      for(int tid=0; tid < numOfTiles; tid++) {
-        int rid = tids[tid];
-        if (rid >= 0) {
-          assert timeToRidToTid.get(dt) != null;
-          assert timeToRidToTid.get(dt).get(rid) != null;
-          if (!timeToRidToTid.get(dt).get(rid).contains(tid)) {
-            throw new RuntimeException("ReservationArray::checkConsistency():" +
-                                       "grids > timeToRidToTid");
-          }
-          assert ridToTimeToTid.get(rid) != null;
-          assert ridToTimeToTid.get(rid).get(dt) != null;
-          if (!ridToTimeToTid.get(rid).get(dt).contains(tid)) {
-            throw new RuntimeException("ReservationArray::checkConsistency():" +
-                                       "grids > ridToTimeToTid");
-          }
-        }
+  private int[] getGrid(int dt) {
+    if (numOfGrids > 0 && firstTime <= dt && dt <= lastTime) {
+      return grids[dt & (grids.length - 1)];
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Get the grid of a discrete time, creating it if it does not exist.
+   *
+   * @param dt  the discrete time
+   * @return the grid
+   */
+  private int[] getOrCreateGrid(int dt) {
+    if (numOfGrids == 0) {
+      firstTime = dt;
+      lastTime = dt;
+    } else if (dt < firstTime || dt > lastTime) {
+      int newFirstTime = Math.min(firstTime, dt);
+      int newLastTime = Math.max(lastTime, dt);
+      if (newLastTime - newFirstTime >= grids.length) {
+        resizeGrids(newLastTime - newFirstTime + 1);
+      }
+      firstTime = newFirstTime;
+      lastTime = newLastTime;
+    }
+    int i = dt & (grids.length - 1);
+    int[] grid = grids[i];
+    if (grid == null) {
+      grid = freeGrids.poll();
+      if (grid == null) {
+        grid = new int[numOfTiles];
+        Arrays.fill(grid, -1);
       }
+      grids[i] = grid;
+      numOfGrids++;
+    }
+    return grid;
+  }
+
+  /**
+   * Enlarge the circular buffer so that it can hold a given number of
+   * discrete times.
+   *
+   * @param span  the number of discrete times
+   */
+  private void resizeGrids(int span) {
+    int capacity = grids.length;
+    while(capacity < span) {
+      capacity *= 2;
+    }
+    int[][] newGrids = new int[capacity][];
+    for(int t = firstTime; t <= lastTime; t++) {
+      newGrids[t & (capacity - 1)] = grids[t & (grids.length - 1)];
     }
+    grids = newGrids;
+  }
 
-    for(int dt : timeToRidToTid.keySet()) {
-      Map<Integer,Set<Integer>> ridToTid = timeToRidToTid.get(dt);
-      for(int rid : ridToTid.keySet()) {
-        for(int tid : ridToTid.get(rid)) {
-          if (grids.get(dt)[tid] != rid) {
-            throw new RuntimeException("ReservationArray::checkConsistency():" +
-                                        "timeToRidToTid > grids");
+  // reservation IDs
 
-          }
-        }
+  /**
+   * Get the hash of a reservation ID in the hash table.
+   *
+   * @param rid  the reservation ID
+   * @return the index in the hash table
+   */
+  private int hash(int rid) {
+    int h = rid * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & (ridTable.length - 1);
+  }
+
+  /**
+   * Find the slot of a reservation ID.
+   *
+   * @param rid  the reservation ID
+   * @return the slot; -1 if the reservation ID does not exist
+   */
+  private int findSlot(int rid) {
+    int mask = ridTable.length - 1;
+    for(int i = hash(rid); ridTable[i] != 0; i = (i + 1) & mask) {
+      if (slotRid[ridTable[i] - 1] == rid) {
+        return ridTable[i] - 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Add a reservation ID that does not exist.
+   *
+   * @param rid  the reservation ID
+   * @return the slot of the reservation ID
+   */
+  private int addSlot(int rid) {
+    if ((numOfRids + 1) * 2 > ridTable.length) {
+      resizeRidTable();
+    }
+    int slot;
+    if (numOfFreeSlots > 0) {
+      slot = freeSlots[--numOfFreeSlots];
+    } else {
+      if (numOfSlots == slotRid.length) {
+        int n = numOfSlots * 2;
+        slotRid = Arrays.copyOf(slotRid, n);
+        slotNumOfTimeTiles = Arrays.copyOf(slotNumOfTimeTiles, n);
+        slotLastTime = Arrays.copyOf(slotLastTime, n);
+        slotTimeTiles = Arrays.copyOf(slotTimeTiles, n);
+        slotSize = Arrays.copyOf(slotSize, n);
+        freeSlots = Arrays.copyOf(freeSlots, n);
+      }
+      slot = numOfSlots++;
+      slotTimeTiles[slot] = new int[16];
+    }
+    slotRid[slot] = rid;
+    slotNumOfTimeTiles[slot] = 0;
+    slotLastTime[slot] = -1;
+    slotSize[slot] = 0;
+    insertIntoRidTable(slot);
+    numOfRids++;
+    return slot;
+  }
+
+  /**
+   * Record that a reservation ID has reserved a time-tile.
+   *
+   * @param slot  the slot of the reservation ID
+   * @param dt    the discrete time
+   * @param tid   the tile ID
+   */
+  private void addTimeTile(int slot, int dt, int tid) {
+    int[] timeTiles = slotTimeTiles[slot];
+    if (slotSize[slot] + 2 > timeTiles.length) {
+      timeTiles = Arrays.copyOf(timeTiles, timeTiles.length * 2);
+      slotTimeTiles[slot] = timeTiles;
+    }
+    timeTiles[slotSize[slot]++] = dt;
+    timeTiles[slotSize[slot]++] = tid;
+    slotNumOfTimeTiles[slot]++;
+    slotLastTime[slot] = Math.max(slotLastTime[slot], dt);
+  }
+
+  /**
+   * Remove a reservation ID.  The time-tiles in the grids are not changed.
+   *
+   * @param slot  the slot of the reservation ID
+   */
+  private void removeSlot(int slot) {
+    int mask = ridTable.length - 1;
+    int i = hash(slotRid[slot]);
+    while(ridTable[i] != slot + 1) {
+      i = (i + 1) & mask;
+    }
+    // remove the entry and move the following entries of the cluster back
+    // to where they can be found
+    ridTable[i] = 0;
+    for(int j = (i + 1) & mask; ridTable[j] != 0; j = (j + 1) & mask) {
+      int k = hash(slotRid[ridTable[j] - 1]);
+      if (((j - k) & mask) >= ((j - i) & mask)) {
+        ridTable[i] = ridTable[j];
+        ridTable[j] = 0;
+        i = j;
       }
     }
+    numOfRids--;
+    slotSize[slot] = 0;
+    slotNumOfTimeTiles[slot] = 0;
+    freeSlots[numOfFreeSlots++] = slot;
+  }
 
-    for(int rid : ridToTimeToTid.keySet()) {
-      NavigableMap<Integer,Set<Integer>> timeToTid = ridToTimeToTid.get(rid);
-      for(int dt : timeToTid.keySet()) {
-        for(int tid : timeToTid.get(dt)) {
-          if (grids.get(dt)[tid] != rid) {
-            throw new RuntimeException("ReservationArray::checkConsistency():" +
-                                        "ridToTimeToTid > grids");
+  /**
+   * Put a slot into the hash table of reservation IDs.
+   *
+   * @param slot  the slot
+   */
+  private void insertIntoRidTable(int slot) {
+    int mask = ridTable.length - 1;
+    int i = hash(slotRid[slot]);
+    while(ridTable[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    ridTable[i] = slot + 1;
+  }
 
+  /**
+   * Double the size of the hash table of reservation IDs.
+   */
+  private void resizeRidTable() {
+    int[] oldTable = ridTable;
+    ridTable = new int[oldTable.length * 2];
+    for(int entry : oldTable) {
+      if (entry != 0) {
+        insertIntoRidTable(entry - 1);
+      }
+    }
+  }
+
+
+  /////////////////////////////////
+  // DEBUG
+  /////////////////////////////////
+
+  /**
+   * Check whether the array are consistent
+   */
+  private boolean checkConsistency() {
+    int[] counts = new int[numOfSlots];
+    int n = 0;
+    if (numOfGrids > 0) {
+      for(int t = firstTime; t <= lastTime; t++) {
+        int[] grid = getGrid(t);
+        if (grid != null) {
+          n++;
+          for(int tid = 0; tid < numOfTiles; tid++) {
+            int rid = grid[tid];
+            if (rid >= 0) {
+              int slot = findSlot(rid);
+              if (slot < 0) {
+                throw new RuntimeException("ReservationArray::checkConsistency():" +
+                                           "grids > rids");
+              }
+              counts[slot]++;
+            }
           }
         }
       }
     }
+    if (n != numOfGrids) {
+      throw new RuntimeException("ReservationArray::checkConsistency():" +
+                                 "numOfGrids");
+    }
+    for(int entry : ridTable) {
+      if (entry != 0) {
+        int slot = entry - 1;
+        if (counts[slot] != slotNumOfTimeTiles[slot]
+            || counts[slot] == 0) {
+          throw new RuntimeException("ReservationArray::checkConsistency():" +
+                                     "rids > grids");
+        }
+      }
+    }
     return true;
   }
 }
-
@@ -260,7 +260,7 @@ public class ReservationGrid extends ReservationArray {
    *         -1 if there is currently no reservation.
    */
   public double getLastReservedTime() {
-    return super.getLastReservedDiscreteTime() * gridTimeStep;
+    return getLastReservedDiscreteTime() * gridTimeStep;
   }
 
   /**
@@ -270,7 +270,7 @@ public class ReservationGrid extends ReservationArray {
    * @return the list of tile IDs that are reserved at the given discrete time.
    */
   public List<Integer> getReservedTilesAtTime(double time) {
-    return super.getReservedTilesAtTime(calcDiscreteTime(time));
+    return getReservedTilesAtTime(calcDiscreteTime(time));
   }
 
   /**
@@ -280,7 +280,7 @@ public class ReservationGrid extends ReservationArray {
    * @return a set of reservation IDs.
    */
   public Set<Integer> getVinOfReservedTilesAtTime(double time) {
-    return super.getVinOfReservedTilesAtTime(calcDiscreteTime(time));
+    return getVinOfReservedTilesAtTime(calcDiscreteTime(time));
   }
 
 }
@@ -35,7 +35,9 @@ import java.awt.geom.Area;
 import java.awt.geom.Rectangle2D;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -68,6 +70,24 @@ public class ReservationGridManager implements
                        ReservationGridManager.Plan,
                        Integer> {
 
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The number of footprints kept in the cache of each reservation grid
+   * manager.
+   */
+  private static final int FOOTPRINT_CACHE_SIZE = 512;
+
+  /**
+   * The granularity of the arrival velocities and of the arrival times
+   * within a grid time step in the keys of the footprint cache.  The same
+   * proposal is often sent again with these values differing only by
+   * rounding errors, which this granularity absorbs.
+   */
+  private static final double FOOTPRINT_KEY_GRANULARITY = 1e-9;
+
   /////////////////////////////////
   // NESTED CLASSES
   /////////////////////////////////
@@ -358,6 +378,8 @@ public class ReservationGridManager implements
   public static class Plan {
     /** The VIN of the vehicle */
     private int vin;
+    /** The arrival time */
+    private double arrivalTime;
     /** The exit time */
     private double exitTime;
     /** The exit velocity */
@@ -371,17 +393,20 @@ public class ReservationGridManager implements
      * Create the plan for the reservation.
      *
      * @param vin                  the VIN of the vehicle
+     * @param arrivalTime          the arrival time
      * @param exitTime             the exit time
      * @param exitVelocity         the exit velocity
      * @param workingList          the list of time tiles reserved
      * @param accelerationProfile  the acceleration profile
      */
     public Plan(int vin,
+                double arrivalTime,
                 double exitTime,
                 double exitVelocity,
                 List<TimeTile> workingList,
                 Queue<double[]> accelerationProfile) {
       this.vin = vin;
+      this.arrivalTime = arrivalTime;
       this.exitTime = exitTime;
       this.exitVelocity = exitVelocity;
       this.workingList = workingList;
@@ -397,6 +422,15 @@ public class ReservationGridManager implements
       return vin;
     }
 
+    /**
+     * Get the arrival time.
+     *
+     * @return the arrival time
+     */
+    public double getArrivalTime() {
+      return arrivalTime;
+    }
+
     /**
      * Get the exit time.
      *
@@ -548,6 +582,20 @@ public class ReservationGridManager implements
    * The statistic collector
    */
   private StatCollector<ReservationGridManager> statCollector;
+  /**
+   * The most recently used footprints of the traversals of the
+   * intersection
+   */
+  private Map<FootprintKey,Footprint> footprintCache =
+    new LinkedHashMap<FootprintKey,Footprint>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<FootprintKey,Footprint> eldest) {
+        return size() > FOOTPRINT_CACHE_SIZE;
+      }
+    };
 
 
   /////////////////////////////////
@@ -652,6 +700,10 @@ public class ReservationGridManager implements
    * Find a set of space-time tile for a particular traversal proposal in
    * a request message.  This attempt can be either with attempting to
    * setMaxAccelWithMaxTargetVelocity to maximum velocity or with a constant velocity.
+   * The query only reads the reservation grid, so queries can be made from
+   * several threads at once as long as no reservation is accepted or
+   * cancelled in the meantime.
+   *
    * @param q             the query object
    * @param vehicleType   describes if the vehicle is an AV or some type of human-driven
    *                      vehicle (such as running adaptive cruise control, a HUD, etc.)
@@ -661,51 +713,104 @@ public class ReservationGridManager implements
    *         successful; otherwise return null.
    */
   public Plan query(Query q, VEHICLE_TYPE vehicleType) {
+    Footprint footprint = findFootprint(q, vehicleType);
+    return createPlan(q, footprint, q.getArrivalTime(),
+                      reservationGrid.calcDiscreteTime(q.getArrivalTime()));
+  }
 
-    // Position the Vehicle to be ready to start the simulation
-    Lane arrivalLane =
-      Debug.currentMap.getLaneRegistry().get(q.getArrivalLaneId());
-    Lane departureLane =
-      Debug.currentMap.getLaneRegistry().get(q.getDepartureLaneId());
-
-    // Create a test vehicle to use in the internal simulation
-    BasicAutoVehicle testVehicle =
-      createTestVehicle(q.getSpec(),
-                        q.getArrivalVelocity(),
-                        q.getMaxTurnVelocity(),
-                        arrivalLane,
-                        vehicleType);
-
-    // Create a dummy driver to steer it
-    Driver dummy = new CrashTestDummy(testVehicle, arrivalLane, departureLane);
+  /**
+   * Find the earliest arrival time, no earlier than the arrival time of a
+   * query, at which the vehicle can traverse the intersection without
+   * hitting any reserved tile, and create the plan for it.  The arrival
+   * times considered are the arrival time of the query shifted by whole grid
+   * time steps; they all share the footprint of the query, so the internal
+   * simulation is run at most once and the search only scans the
+   * reservation grid.
+   *
+   * @param q                  the query of the earliest arrival time
+   * @param vehicleType        describes if the vehicle is an AV or some type
+   *                           of human-driven vehicle
+   * @param latestArrivalTime  the latest arrival time to be considered
+   *
+   * @return the plan with the earliest feasible arrival time; null if there
+   *         is no feasible arrival time before the latest arrival time
+   */
+  public Plan queryEarliest(Query q, VEHICLE_TYPE vehicleType,
+                            double latestArrivalTime) {
+    Footprint footprint = findFootprint(q, vehicleType);
+    int arrivalIntTime = reservationGrid.calcDiscreteTime(q.getArrivalTime());
+    double gridTimeStep = reservationGrid.getGridTimeStep();
+    for(int i = 0; q.getArrivalTime() + i * gridTimeStep <= latestArrivalTime;
+        i++) {
+      if (isFootprintFree(footprint, arrivalIntTime + i)) {
+        return createPlan(q, footprint, q.getArrivalTime() + i * gridTimeStep,
+                          arrivalIntTime + i);
+      }
+    }
+    return null;
+  }
 
-    // assign the drive to the vehicle
-    // testVehicle.setDriver(dummy);  // TODO fix this later.
+  /**
+   * Get the footprint of the traversal of a query, from the cache if
+   * possible.
+   *
+   * @param q             the query
+   * @param vehicleType   the type of the vehicle
+   *
+   * @return the footprint of the traversal
+   */
+  private Footprint findFootprint(Query q, VEHICLE_TYPE vehicleType) {
+    // The footprint of the traversal relative to the arrival time does not
+    // depend on the arrival time itself, except for where the arrival falls
+    // within a grid time step
+    FootprintKey key = new FootprintKey(q, vehicleType,
+      reservationGrid.calcRemainingTime(q.getArrivalTime()));
+    // The cache is locked only while it is looked up and updated, so that
+    // concurrent queries simulate their traversals in parallel
+    Footprint footprint;
+    synchronized(footprintCache) {
+      footprint = footprintCache.get(key);
+    }
+    if (footprint == null) {
+      footprint = findFootprintBySimulation(q, vehicleType);
+      synchronized(footprintCache) {
+        footprintCache.put(key, footprint);
+      }
+    }
+    return footprint;
+  }
 
+  /**
+   * Create the plan of a query for a footprint shifted to an arrival time.
+   *
+   * @param q               the query
+   * @param footprint       the footprint of the traversal
+   * @param arrivalTime     the arrival time
+   * @param arrivalIntTime  the discrete arrival time
+   *
+   * @return the plan; null if the footprint hits some reserved tiles
+   */
+  private Plan createPlan(Query q, Footprint footprint, double arrivalTime,
+                          int arrivalIntTime) {
     // Keep track of the TileTimes that will make up this reservation
-    FindTileTimesBySimulationResult fResult = null;
-
-    fResult = findTileTimesBySimulation(testVehicle,
-				                                  dummy,
-				                                  q.getArrivalTime(),
-				                                  q.isAccelerating());
-
-    if (fResult != null) {
-      List<TimeTile> workingList = fResult.getWorkingList();
+    List<TimeTile> workingList = findTileTimes(footprint, arrivalIntTime);
 
+    if (workingList != null) {
       double exitTime = workingList.get(workingList.size()-1).getTime();
 
       Queue<double[]> accelerationProfile =
-        calcAccelerationProfile(q.getArrivalTime(),
+        calcAccelerationProfile(arrivalTime,
                                 q.getArrivalVelocity(),
                                 q.getMaxTurnVelocity(),
                                 q.getSpec().getMaxAcceleration(),
-                                fResult.getExitTime(),
+                                reservationGrid.calcTime(
+                                  arrivalIntTime + footprint.getNumOfSteps()),
                                 q.isAccelerating());
 
       return new Plan(q.getVin(),
+                      arrivalTime,
                       exitTime,
-                      testVehicle.gaugeVelocity(),
+                      footprint.getExitVelocity(),
                       workingList,
                       accelerationProfile);
     } else {
@@ -786,65 +891,169 @@ public class ReservationGridManager implements
   }
 
   /**
-   * The record for holding the result of the time tiles found
-   * by the internal simulation.
+   * The space-time footprint of a traversal of the intersection, relative
+   * to the discrete arrival time: the tiles occupied by the vehicle at each
+   * grid time step after its arrival.
    */
-  private static class FindTileTimesBySimulationResult {
-    /** The time tiles */
-    List<TimeTile> workingList;
-    /** The exit time */
-    double exitTime;
+  private static class Footprint {
+    /** The IDs of the occupied tiles, step by step */
+    private final int[] tileIds;
+    /** The index in tileIds after the last tile of each step */
+    private final int[] stepEnds;
+    /** Whether the vehicle is driven by a human */
+    private final boolean isHuman;
+    /** The velocity of the vehicle when it leaves the intersection */
+    private final double exitVelocity;
 
     /**
-     * Create a record for holding the result of the time tiles found
-     * by the internal simulation.
+     * Create a footprint.
      *
-     * @param workingList  the time tiles
-     * @param exitTime     the exit time
+     * @param tileIds       the IDs of the occupied tiles, step by step
+     * @param stepEnds      the index in tileIds after the last tile of each
+     *                      step
+     * @param isHuman       whether the vehicle is driven by a human
+     * @param exitVelocity  the velocity of the vehicle when it leaves the
+     *                      intersection
      */
-    public FindTileTimesBySimulationResult(List<TimeTile> workingList,
-                                           double exitTime) {
-      this.workingList = workingList;
-      this.exitTime = exitTime;
+    public Footprint(int[] tileIds, int[] stepEnds, boolean isHuman,
+                     double exitVelocity) {
+      this.tileIds = tileIds;
+      this.stepEnds = stepEnds;
+      this.isHuman = isHuman;
+      this.exitVelocity = exitVelocity;
     }
 
     /**
-     * Get the time tiles.
+     * Get the number of grid time steps the traversal takes.
      *
-     * @return the time tiles
+     * @return the number of grid time steps the traversal takes
      */
-    public List<TimeTile> getWorkingList() {
-      return workingList;
+    public int getNumOfSteps() {
+      return stepEnds.length;
     }
 
     /**
-     * Get the exit time.
+     * Get the exit velocity.
      *
-     * @return the exit time
+     * @return the exit velocity
      */
-    public double getExitTime() {
-      return exitTime;
+    public double getExitVelocity() {
+      return exitVelocity;
     }
+  }
+
+  /**
+   * The key of a footprint in the cache: everything about a proposal that
+   * the traversal of the test vehicle depends on.
+   */
+  private static class FootprintKey {
+    /** The ID of the arrival lane */
+    private final int arrivalLaneId;
+    /** The ID of the departure lane */
+    private final int departureLaneId;
+    /** The specification of the vehicle and the maximum turn velocity */
+    private final double[] spec;
+    /** The arrival velocity, in units of FOOTPRINT_KEY_GRANULARITY */
+    private final long arrivalVelocity;
+    /**
+     * The arrival time within its grid time step, in units of
+     * FOOTPRINT_KEY_GRANULARITY
+     */
+    private final long arrivalPhase;
+    /** Whether the vehicle accelerates during the traversal */
+    private final boolean accelerating;
+    /** The type of the vehicle */
+    private final VEHICLE_TYPE vehicleType;
 
+    /**
+     * Create the key of the footprint of a proposal.
+     *
+     * @param q             the query of the proposal
+     * @param vehicleType   the type of the vehicle
+     * @param arrivalPhase  the arrival time within its grid time step
+     */
+    public FootprintKey(Query q, VEHICLE_TYPE vehicleType,
+                        double arrivalPhase) {
+      VehicleSpecForRequestMsg s = q.getSpec();
+      this.arrivalLaneId = q.getArrivalLaneId();
+      this.departureLaneId = q.getDepartureLaneId();
+      this.spec = new double[] {
+        s.getMaxAcceleration(), s.getMaxDeceleration(), s.getMinVelocity(),
+        s.getLength(), s.getWidth(), s.getFrontAxleDisplacement(),
+        s.getRearAxleDisplacement(), s.getMaxSteeringAngle(),
+        s.getMaxTurnPerSecond(), q.getMaxTurnVelocity() };
+      this.arrivalVelocity =
+        Math.round(q.getArrivalVelocity() / FOOTPRINT_KEY_GRANULARITY);
+      this.arrivalPhase =
+        Math.round(arrivalPhase / FOOTPRINT_KEY_GRANULARITY);
+      this.accelerating = q.isAccelerating();
+      this.vehicleType = vehicleType;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof FootprintKey)) {
+        return false;
+      }
+      FootprintKey k = (FootprintKey)obj;
+      return arrivalLaneId == k.arrivalLaneId
+          && departureLaneId == k.departureLaneId
+          && arrivalVelocity == k.arrivalVelocity
+          && arrivalPhase == k.arrivalPhase
+          && accelerating == k.accelerating
+          && vehicleType == k.vehicleType
+          && Arrays.equals(spec, k.spec);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+      int h = arrivalLaneId;
+      h = 31 * h + departureLaneId;
+      h = 31 * h + (int)(arrivalVelocity ^ (arrivalVelocity >>> 32));
+      h = 31 * h + (int)(arrivalPhase ^ (arrivalPhase >>> 32));
+      h = 31 * h + (accelerating ? 1 : 0);
+      h = 31 * h + vehicleType.ordinal();
+      return 31 * h + Arrays.hashCode(spec);
+    }
   }
+
   /**
-   * Find a list of unreserved tiletimes by simulation
+   * Find the footprint of the traversal of a proposal by simulating a test
+   * vehicle driving through the intersection.
    *
-   * @param testVehicle   the test vehicle
-   * @param dummy         the dummy driver
-   * @param arrivalTime   the arrival time of the vehicle
-   * @param accelerating  whether or not to setMaxAccelWithMaxTargetVelocity to maximum velocity
-   *                      during the traversal
+   * @param q             the query of the proposal
+   * @param vehicleType   the type of the vehicle
    *
-   * @return A list of tiles that can be reserved by the vehicle. If returns
-   *         null, the trajectory hits some reserved tiles and the reservation
-   *         fails.
+   * @return the footprint of the traversal
    */
-  private FindTileTimesBySimulationResult
-            findTileTimesBySimulation(BasicAutoVehicle testVehicle,
-                                      Driver dummy,
-                                      double arrivalTime,
-                                      boolean accelerating) {
+  private Footprint findFootprintBySimulation(Query q,
+                                              VEHICLE_TYPE vehicleType) {
+    // Position the Vehicle to be ready to start the simulation
+    Lane arrivalLane =
+      Debug.getCurrentMap().getLaneRegistry().get(q.getArrivalLaneId());
+    Lane departureLane =
+      Debug.getCurrentMap().getLaneRegistry().get(q.getDepartureLaneId());
+
+    // Create a test vehicle to use in the internal simulation
+    BasicAutoVehicle testVehicle =
+      createTestVehicle(q.getSpec(),
+                        q.getArrivalVelocity(),
+                        q.getMaxTurnVelocity(),
+                        arrivalLane,
+                        vehicleType);
+
+    // Create a dummy driver to steer it
+    Driver dummy = new CrashTestDummy(testVehicle, arrivalLane, departureLane);
+
+    // assign the drive to the vehicle
+    // testVehicle.setDriver(dummy);  // TODO fix this later.
+
     // The area of the intersection
     Area areaPlus = intersection.getAreaPlus();
     // The following must be true because the test vehicle
@@ -852,68 +1061,152 @@ public class ReservationGridManager implements
     assert areaPlus.contains(testVehicle.getPointAtMiddleFront(
              Constants.DOUBLE_EQUAL_PRECISION));
 
-    // The list of tile-times that will make up this reservation
-    List<TimeTile> workingList = new ArrayList<TimeTile>();
+    // The occupied tiles step by step
+    List<Integer> tileIds = new ArrayList<Integer>();
+    List<Integer> stepEnds = new ArrayList<Integer>();
     // for occupation estimate
-    List<Tile> occupied = null;
+    int[] occupied = new int[tiledArea.getNumberOfTiles()];
+
+    // The size of the buffer around the vehicle
+    // if it's not human driver, we should simulate its position
+    // otherwise, use the occupied in argument
+    double extra;
+    if (testVehicle.getVehicleType() == VEHICLE_TYPE.HUD) {
+      // SPARTA TODO: reactively increase occupied size
+      extra = staticBufferSize * this.bufferFactorForHUD;
+    } else {
+      extra = staticBufferSize;
+    }
 
-    // A discrete representation of the time throughout the internal simulation
-    // Notice that currentIntTime != arrivalTime
-    int currentIntTime = reservationGrid.calcDiscreteTime(arrivalTime);
     // The duration in the current time interval
-    double currentDuration = reservationGrid.calcRemainingTime(arrivalTime);
+    double currentDuration =
+      reservationGrid.calcRemainingTime(q.getArrivalTime());
 
     // drive the test vehicle until it leaves the intersection
     while(VehicleUtil.intersects(testVehicle, areaPlus)) {
-      moveTestVehicle(testVehicle, dummy, currentDuration, accelerating);
-      // Find out which tiles are occupied by the vehicle
-      currentIntTime++;  // Record that we've moved forward one time step
-
-      // if it's not human driver, we should simulate its position
-      // otherwise, use the occupied in argument
-      if (testVehicle.getVehicleType() == VEHICLE_TYPE.HUD) {
-        // SPARTA TODO: reactively increase occupied size
-        occupied = tiledArea.findOccupiedTiles(testVehicle.getShape(staticBufferSize * this.bufferFactorForHUD));
-        BasicAutoVehicle testAutoVehicle = testVehicle;
-        // BasicHUDVehicle testHUDVehicle = testVehicle;
-        // occupied = tiledArea.findOccupiedTiles(testVehicle.getShape(staticBufferSize * 4));
-      } else {
-        occupied = tiledArea.findOccupiedTiles(testVehicle.getShape(staticBufferSize));
+      moveTestVehicle(testVehicle, dummy, currentDuration,
+                      q.isAccelerating());
+
+      int numOfOccupied =
+        tiledArea.findOccupiedTileIds(
+          testVehicle.getSpec().getCornerPoints(extra,
+                                                testVehicle.getPosition(),
+                                                testVehicle.getHeading()),
+          occupied);
+      for(int i = 0; i < numOfOccupied; i++) {
+        tileIds.add(occupied[i]);
       }
+      stepEnds.add(tileIds.size());
+      currentDuration = reservationGrid.getGridTimeStep();
+    }
 
-      // Make sure none of these tiles are reserved by someone else already
-      for(Tile tile : occupied) {
+    return new Footprint(toIntArray(tileIds),
+                         toIntArray(stepEnds),
+                         testVehicle.isHuman(),
+                         testVehicle.gaugeVelocity());
+  }
 
-        // Figure out how large of a time buffer to use, based on whether or
-        // not this is an edge tile
-        int buffer;
-        double expand = 1;
+  /**
+   * Convert a list of integers to an array.
+   *
+   * @param list  the list
+   * @return the array
+   */
+  private static int[] toIntArray(List<Integer> list) {
+    int[] array = new int[list.size()];
+    for(int i = 0; i < array.length; i++) {
+      array[i] = list.get(i);
+    }
+    return array;
+  }
 
-        if (SimConfig.signalType != null && SimConfig.signalType != SimConfig.SIGNAL_TYPE.DEFAULT && testVehicle.isHuman()) {
-        	expand = SimConfig.HUMAN_TARDINESS;
-        }
+  /**
+   * Find the list of tiletimes of a footprint shifted to an arrival time
+   *
+   * @param footprint        the footprint of the traversal
+   * @param arrivalIntTime   the discrete arrival time of the vehicle
+   *
+   * @return A list of tiles that can be reserved by the vehicle. If returns
+   *         null, the trajectory hits some reserved tiles and the reservation
+   *         fails.
+   */
+  private List<TimeTile> findTileTimes(Footprint footprint,
+                                       int arrivalIntTime) {
+    // The list of tile-times that will make up this reservation
+    List<TimeTile> workingList = new ArrayList<TimeTile>();
 
-        if (isEdgeTileTimeBufferEnabled && tile.isEdgeTile()) {
-          buffer = (int)(edgeTileTimeBufferSteps * expand);
-        } else {
-          buffer = (int)(internalTileTimeBufferSteps * expand);
-        }
-        int tileId = tile.getId();
+    int i = 0;
+    for(int step = 0; step < footprint.stepEnds.length; step++) {
+      // A discrete representation of the time at the end of the step
+      // Notice that currentIntTime != arrivalTime
+      int currentIntTime = arrivalIntTime + step + 1;
+      // Make sure none of these tiles are reserved by someone else already
+      for(; i < footprint.stepEnds[step]; i++) {
+        int tileId = footprint.tileIds[i];
+        int buffer = calcTileTimeBuffer(footprint, tileId);
         for(int t = currentIntTime - buffer; t <= currentIntTime + buffer; t++){
           // If the tile is already reserved and it isn't by us, we've failed
           if (!reservationGrid.isReserved(t, tileId)) {
-            workingList.add(reservationGrid.new TimeTile(t, tile.getId()));
+            workingList.add(reservationGrid.new TimeTile(t, tileId));
           } else {
             return null; // Failure! Just bail!
           }
         }
       }
-      currentDuration = reservationGrid.getGridTimeStep();
     }
+    return workingList;
+  }
 
-    return new FindTileTimesBySimulationResult(workingList,
-                                               reservationGrid
-                                               .calcTime(currentIntTime));
+  /**
+   * Check whether none of the tiletimes of a footprint shifted to an arrival
+   * time is reserved.  This is the same as whether
+   * {@link #findTileTimes(Footprint, int)} succeeds, without building the
+   * list of tiletimes.
+   *
+   * @param footprint        the footprint of the traversal
+   * @param arrivalIntTime   the discrete arrival time of the vehicle
+   *
+   * @return whether none of the tiletimes is reserved
+   */
+  private boolean isFootprintFree(Footprint footprint, int arrivalIntTime) {
+    int i = 0;
+    for(int step = 0; step < footprint.stepEnds.length; step++) {
+      int currentIntTime = arrivalIntTime + step + 1;
+      for(; i < footprint.stepEnds[step]; i++) {
+        int tileId = footprint.tileIds[i];
+        int buffer = calcTileTimeBuffer(footprint, tileId);
+        for(int t = currentIntTime - buffer; t <= currentIntTime + buffer; t++){
+          if (reservationGrid.isReserved(t, tileId)) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Calculate the number of time steps to reserve a tile of a footprint
+   * before and after the vehicle occupies it.
+   *
+   * @param footprint  the footprint of the traversal
+   * @param tileId     the ID of the tile
+   *
+   * @return the number of time steps of the buffer
+   */
+  private int calcTileTimeBuffer(Footprint footprint, int tileId) {
+    // Figure out how large of a time buffer to use
+    double expand = 1;
+    if (SimConfig.getSignalType() != null && SimConfig.getSignalType() != SimConfig.SIGNAL_TYPE.DEFAULT && footprint.isHuman) {
+      expand = SimConfig.HUMAN_TARDINESS;
+    }
+    // based on whether or not this is an edge tile
+    if (isEdgeTileTimeBufferEnabled
+        && tiledArea.getTileById(tileId).isEdgeTile()) {
+      return (int)(edgeTileTimeBufferSteps * expand);
+    } else {
+      return (int)(internalTileTimeBufferSteps * expand);
+    }
   }
 
   /**
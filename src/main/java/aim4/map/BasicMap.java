@@ -133,10 +133,26 @@ public interface BasicMap {
    */
   void setManager(int column, int row, IntersectionManager im);
 
+  /**
+   * Set the writer to which the crossings of the data collection lines are
+   * written as they happen.
+   *
+   * @param writer  the writer; null if the crossings are not written
+   */
+  void setDataCollectionLineWriter(DataCollectionLineWriter writer);
+
   /**
    * Print the data collected in data collection lines to the given file
    *
    * @param outFileName  the name of the file to which the data are outputted.
    */
   void printDataCollectionLinesData(String outFileName);
+
+  /**
+   * Write the data collected in data collection lines to the given writer,
+   * in the same order as printDataCollectionLinesData.
+   *
+   * @param writer  the writer
+   */
+  void writeDataCollectionLinesData(DataCollectionLineWriter writer);
 }
@@ -0,0 +1,291 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.map;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A reader of the binary files of the crossings of data collection lines
+ * written by {@link BinaryDataCollectionLineWriter}.  The file is mapped
+ * into memory and the records are read in place by their indices.
+ * <p>
+ * The main function converts a binary file to the CSV layout of
+ * {@link BasicMap#printDataCollectionLinesData(String)}.
+ */
+public class BinaryDataCollectionLineReader {
+
+  /////////////////////////////////
+  // THE MAIN FUNCTION
+  /////////////////////////////////
+
+  /**
+   * Convert binary files of the crossings of data collection lines to CSV
+   * files.
+   *
+   * @param args  the command-line arguments
+   *
+   *              Arguments -> inFile outFile
+   * @throws IOException if the files cannot be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2 || args[0].endsWith("-help")) {
+      System.out.println("Arguments  -> inFile outFile\n"
+                        +"              inFile   binary file of the data collection lines\n"
+                        +"              outFile  CSV file to write");
+      return;
+    }
+    new BinaryDataCollectionLineReader(args[0]).writeCsv(args[1]);
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The records */
+  private final ByteBuffer records;
+  /** The number of records */
+  private final int numOfRecords;
+  /** The names of the data collection lines */
+  private final String[] lineNames;
+  /** The names of the vehicle specifications */
+  private final String[] vehicleSpecNames;
+  /** The names of the roads */
+  private final String[] roadNames;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Open a binary file of the crossings of data collection lines.
+   *
+   * @param fileName  the name of the file
+   * @throws IOException if the file cannot be read or is not in the format
+   *                     of {@link BinaryDataCollectionLineWriter}
+   */
+  public BinaryDataCollectionLineReader(String fileName) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(fileName, "r");
+    try {
+      FileChannel channel = file.getChannel();
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException(fileName + " is too large.");
+      }
+      MappedByteBuffer map =
+        channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (size < 16
+          || map.getInt(0) != BinaryDataCollectionLineWriter.MAGIC) {
+        throw new IOException(fileName + " is not a binary file of the " +
+                              "data collection lines.");
+      }
+      if (map.getInt(4) != BinaryDataCollectionLineWriter.VERSION
+          || map.getInt(8) != BinaryDataCollectionLineWriter.RECORD_SIZE) {
+        throw new IOException("Unsupported version of " + fileName);
+      }
+      int headerSize = map.getInt(12);
+      if (headerSize < 16 || headerSize > size) {
+        throw new IOException("Corrupted header in " + fileName);
+      }
+      byte[] header = new byte[headerSize - 16];
+      map.position(16);
+      map.get(header);
+      DataInputStream in =
+        new DataInputStream(new ByteArrayInputStream(header));
+      lineNames = readNames(in);
+      vehicleSpecNames = readNames(in);
+      roadNames = readNames(in);
+      // ignore the last record if the file has been cut short
+      numOfRecords = (int)((size - headerSize) /
+                           BinaryDataCollectionLineWriter.RECORD_SIZE);
+      records = map.slice();
+    } finally {
+      file.close();
+    }
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the number of records.
+   *
+   * @return the number of records
+   */
+  public int getNumOfRecords() {
+    return numOfRecords;
+  }
+
+  /**
+   * Get the VIN of the vehicle of a record.
+   *
+   * @param i  the index of the record
+   * @return the VIN of the vehicle
+   */
+  public int getVin(int i) {
+    return records.getInt(offset(i) +
+                          BinaryDataCollectionLineWriter.VIN_OFFSET);
+  }
+
+  /**
+   * Get the time of the crossing of a record.
+   *
+   * @param i  the index of the record
+   * @return the time of the crossing
+   */
+  public double getTime(int i) {
+    return records.getDouble(offset(i) +
+                             BinaryDataCollectionLineWriter.TIME_OFFSET);
+  }
+
+  /**
+   * Get the name of the data collection line of a record.
+   *
+   * @param i  the index of the record
+   * @return the name of the data collection line
+   */
+  public String getLineName(int i) {
+    return lineNames[records.getShort(offset(i) +
+                       BinaryDataCollectionLineWriter.LINE_OFFSET)];
+  }
+
+  /**
+   * Get the name of the vehicle specification of a record.
+   *
+   * @param i  the index of the record
+   * @return the name of the vehicle specification
+   */
+  public String getVehicleSpecName(int i) {
+    return vehicleSpecNames[records.getShort(offset(i) +
+                              BinaryDataCollectionLineWriter
+                                .VEHICLE_SPEC_OFFSET)];
+  }
+
+  /**
+   * Get the ID of the lane of the spawn point of the vehicle of a record.
+   *
+   * @param i  the index of the record
+   * @return the ID of the lane
+   */
+  public int getStartLaneId(int i) {
+    return records.getInt(offset(i) +
+                          BinaryDataCollectionLineWriter.START_LANE_OFFSET);
+  }
+
+  /**
+   * Get the name of the destination road of the vehicle of a record.
+   *
+   * @param i  the index of the record
+   * @return the name of the destination road
+   */
+  public String getDestRoadName(int i) {
+    return roadNames[records.getShort(offset(i) +
+                       BinaryDataCollectionLineWriter.DEST_ROAD_OFFSET)];
+  }
+
+  /**
+   * Whether the vehicle of a record is driven by a human.
+   *
+   * @param i  the index of the record
+   * @return whether the vehicle is driven by a human
+   */
+  public boolean isHuman(int i) {
+    return records.get(offset(i) +
+                       BinaryDataCollectionLineWriter.HUMAN_OFFSET) != 0;
+  }
+
+  /**
+   * Write the records to a CSV file in the layout of
+   * {@link BasicMap#printDataCollectionLinesData(String)}.
+   *
+   * @param outFileName  the name of the CSV file
+   * @throws IOException if the file cannot be written
+   */
+  public void writeCsv(String outFileName) throws IOException {
+    Writer out = new BufferedWriter(new FileWriter(outFileName), 1 << 16);
+    try {
+      out.write(CsvDataCollectionLineWriter.HEADER);
+      for(int i = 0; i < numOfRecords; i++) {
+        out.write(CsvDataCollectionLineWriter.formatRow(getVin(i),
+                                                        getTime(i),
+                                                        isHuman(i),
+                                                        getLineName(i),
+                                                        getVehicleSpecName(i),
+                                                        getStartLaneId(i),
+                                                        getDestRoadName(i)));
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the offset of a record.
+   *
+   * @param i  the index of the record
+   * @return the offset of the record
+   */
+  private int offset(int i) {
+    if (i < 0 || i >= numOfRecords) {
+      throw new IndexOutOfBoundsException("Record " + i);
+    }
+    return i * BinaryDataCollectionLineWriter.RECORD_SIZE;
+  }
+
+  /**
+   * Read a list of names of the header.
+   *
+   * @param in  the input stream of the header
+   * @return the names
+   * @throws IOException if the header is corrupted
+   */
+  private static String[] readNames(DataInputStream in) throws IOException {
+    String[] names = new String[in.readInt()];
+    for(int i = 0; i < names.length; i++) {
+      names[i] = in.readUTF();
+    }
+    return names;
+  }
+
+}
@@ -0,0 +1,264 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.map;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleSpecDatabase;
+import aim4.vehicle.VinRegistry;
+
+/**
+ * A writer that writes the crossings of data collection lines to a binary
+ * file of fixed-size records.
+ * <p>
+ * The file starts with a header: the magic number, the version of the
+ * format, the size of a record, the size of the header, and the names of
+ * the data collection lines, of the vehicle specifications and of the
+ * roads, each as a count followed by the names in modified UTF-8.  The
+ * records follow the header and refer to the names by their indices.  All
+ * numbers are big-endian.  The number of records is given by the size of
+ * the file, so a file cut short by a crash can still be read up to its
+ * last complete record.
+ *
+ * @see BinaryDataCollectionLineReader
+ */
+public class BinaryDataCollectionLineWriter
+  implements DataCollectionLineWriter {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The magic number at the beginning of the files ("AIMD") */
+  public static final int MAGIC = 0x41494D44;
+
+  /** The version of the format */
+  public static final int VERSION = 1;
+
+  /** The offset of the VIN of the vehicle in a record */
+  public static final int VIN_OFFSET = 0;
+  /** The offset of the time of the crossing in a record */
+  public static final int TIME_OFFSET = 4;
+  /** The offset of the index of the data collection line in a record */
+  public static final int LINE_OFFSET = 12;
+  /** The offset of the index of the vehicle specification in a record */
+  public static final int VEHICLE_SPEC_OFFSET = 14;
+  /** The offset of the ID of the lane of the spawn point in a record */
+  public static final int START_LANE_OFFSET = 16;
+  /** The offset of the index of the destination road in a record */
+  public static final int DEST_ROAD_OFFSET = 20;
+  /** The offset of whether the vehicle is driven by a human in a record */
+  public static final int HUMAN_OFFSET = 22;
+  /** The size of a record */
+  public static final int RECORD_SIZE = 24;
+
+  /** The number of records in the buffer of the writer */
+  private static final int BUFFER_RECORDS = 4096;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The name of the file */
+  private final String fileName;
+  /**
+   * The period of simulated time, in seconds, between two flushes of the
+   * buffer to the file
+   */
+  private final double flushInterval;
+  /** The indices of the data collection lines */
+  private final Map<DataCollectionLine,Integer> lineToIndex;
+  /** The indices of the roads */
+  private final Map<Road,Integer> roadToIndex;
+  /** The channel of the file; null if the writer has been closed */
+  private FileChannel channel;
+  /** The buffer of the records */
+  private final ByteBuffer buffer;
+  /** The time of the last flush */
+  private double lastFlushTime;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a writer of the crossings of the data collection lines of a map.
+   * The vehicle specifications must have been registered.
+   *
+   * @param fileName       the name of the file
+   * @param map            the map
+   * @param flushInterval  the period of simulated time, in seconds, between
+   *                       two flushes of the buffer to the file
+   */
+  public BinaryDataCollectionLineWriter(String fileName, BasicMap map,
+                                        double flushInterval) {
+    this.fileName = fileName;
+    this.flushInterval = flushInterval;
+    this.lineToIndex = new IdentityHashMap<DataCollectionLine,Integer>();
+    this.roadToIndex = new IdentityHashMap<Road,Integer>();
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * RECORD_SIZE);
+    this.lastFlushTime = 0.0;
+
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    try {
+      DataOutputStream out = new DataOutputStream(header);
+      List<DataCollectionLine> lines = map.getDataCollectionLines();
+      out.writeInt(lines.size());
+      for (DataCollectionLine line : lines) {
+        lineToIndex.put(line, lineToIndex.size());
+        out.writeUTF(line.getName());
+      }
+      out.writeInt(VehicleSpecDatabase.getNumOfSpec());
+      for (int i = 0; i < VehicleSpecDatabase.getNumOfSpec(); i++) {
+        out.writeUTF(VehicleSpecDatabase.getVehicleSpecById(i).getName());
+      }
+      List<Road> roads = map.getRoads();
+      out.writeInt(roads.size());
+      for (Road road : roads) {
+        roadToIndex.put(road, roadToIndex.size());
+        out.writeUTF(road.getName());
+      }
+      out.close();
+    } catch (IOException e) {
+      throw new RuntimeException("Cannot write the header", e);
+    }
+
+    try {
+      channel = new FileOutputStream(fileName).getChannel();
+      ByteBuffer b = ByteBuffer.allocate(16 + header.size());
+      b.putInt(MAGIC);
+      b.putInt(VERSION);
+      b.putInt(RECORD_SIZE);
+      b.putInt(16 + header.size());
+      b.put(header.toByteArray());
+      b.flip();
+      while (b.hasRemaining()) {
+        channel.write(b);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Cannot open file " + fileName, e);
+    }
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void write(DataCollectionLine line, int vin,
+                                 double time, boolean isHuman) {
+    if (channel == null) {
+      throw new RuntimeException("The writer has been closed.");
+    }
+    Integer lineIndex = lineToIndex.get(line);
+    VehicleSpec spec = VinRegistry.getVehicleSpecFromVIN(vin);
+    int specIndex = VehicleSpecDatabase.getIdOfVehicleSpec(spec);
+    Integer roadIndex = roadToIndex.get(VinRegistry.getDestRoadFromVIN(vin));
+    if (lineIndex == null || specIndex < 0 || roadIndex == null) {
+      throw new RuntimeException("The crossing of vehicle " + vin + " at " +
+                                 line.getName() + " is not in the map.");
+    }
+    if (!buffer.hasRemaining()) {
+      writeBuffer();
+    }
+    buffer.putInt(vin);
+    buffer.putDouble(time);
+    buffer.putShort((short)(int)lineIndex);
+    buffer.putShort((short)specIndex);
+    buffer.putInt(VinRegistry.getSpawnPointFromVIN(vin).getLane().getId());
+    buffer.putShort((short)(int)roadIndex);
+    buffer.put((byte)(isHuman ? 1 : 0));
+    buffer.put((byte)0);
+    if (time >= lastFlushTime + flushInterval) {
+      writeBuffer();
+      lastFlushTime = time;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void flush() {
+    if (channel != null) {
+      writeBuffer();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void close() {
+    if (channel != null) {
+      try {
+        writeBuffer();
+        channel.close();
+      } catch (IOException e) {
+        throw new RuntimeException("Cannot close file " + fileName, e);
+      } finally {
+        channel = null;
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Write the records in the buffer to the file.
+   */
+  private void writeBuffer() {
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Cannot write to file " + fileName, e);
+    }
+    buffer.clear();
+  }
+
+}
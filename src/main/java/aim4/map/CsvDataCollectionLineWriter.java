@@ -0,0 +1,263 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.map;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import aim4.vehicle.VinRegistry;
+
+/**
+ * A writer that writes the crossings of data collection lines to CSV files
+ * as the crossings happen.  The rows are the same as the ones written by
+ * {@link BasicMap#printDataCollectionLinesData(String)}, except that the
+ * rows of all lines are written in the order of time.  The rows are
+ * buffered and flushed to the file periodically, and a new file can be
+ * started whenever a file has a given number of rows.
+ */
+public class CsvDataCollectionLineWriter
+  implements DataCollectionLineWriter {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The header of the CSV files */
+  public static final String HEADER =
+    "VIN,Time,DCLname,vType,startLaneId,destRoad\n";
+
+  /** The size of the buffer of the writer */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /////////////////////////////////
+  // PUBLIC STATIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Format a crossing of a data collection line as a row of the CSV files.
+   *
+   * @param line     the data collection line
+   * @param vin      the VIN of the vehicle
+   * @param time     the time of the crossing
+   * @param isHuman  whether the vehicle is driven by a human
+   * @return the row
+   */
+  public static String formatRow(DataCollectionLine line, int vin,
+                                 double time, boolean isHuman) {
+    return formatRow(vin, time, isHuman, line.getName(),
+                     VinRegistry.getVehicleSpecFromVIN(vin).getName(),
+                     VinRegistry.getSpawnPointFromVIN(vin).getLane().getId(),
+                     VinRegistry.getDestRoadFromVIN(vin).getName());
+  }
+
+  /**
+   * Format a crossing of a data collection line as a row of the CSV files.
+   *
+   * @param vin              the VIN of the vehicle
+   * @param time             the time of the crossing
+   * @param isHuman          whether the vehicle is driven by a human
+   * @param lineName         the name of the data collection line
+   * @param vehicleSpecName  the name of the specification of the vehicle
+   * @param startLaneId      the ID of the lane of the spawn point of the
+   *                         vehicle
+   * @param destRoadName     the name of the destination road of the vehicle
+   * @return the row
+   */
+  public static String formatRow(int vin, double time, boolean isHuman,
+                                 String lineName, String vehicleSpecName,
+                                 int startLaneId, String destRoadName) {
+    int realVin = vin;
+    if (isHuman) {
+      // for identification, add 1 at the begining
+      // FIXME when simulation time is very long
+      realVin += 10000;
+    }
+    return String.format("%d,%.4f,%s,%s,%d,%s\n",
+                         realVin, time, lineName, vehicleSpecName,
+                         startLaneId, destRoadName);
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The name of the first file */
+  private final String fileName;
+  /**
+   * The period of simulated time, in seconds, between two flushes of the
+   * buffer to the file
+   */
+  private final double flushInterval;
+  /**
+   * The maximum number of rows in a file; zero or less if all rows go to
+   * the same file
+   */
+  private final int maxRowsPerFile;
+
+  /** The writer of the current file */
+  private Writer out;
+  /** The index of the current file */
+  private int fileIndex;
+  /** The number of rows in the current file */
+  private int numOfRowsInFile;
+  /** The time of the last flush */
+  private double lastFlushTime;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a writer of the crossings of data collection lines.
+   *
+   * @param fileName        the name of the first file.  The names of the
+   *                        other files have the index of the file inserted
+   *                        before the extension, e.g. <code>dcl.1.csv</code>.
+   * @param flushInterval   the period of simulated time, in seconds,
+   *                        between two flushes of the buffer to the file
+   * @param maxRowsPerFile  the maximum number of rows in a file; zero or
+   *                        less if all rows go to the same file
+   */
+  public CsvDataCollectionLineWriter(String fileName, double flushInterval,
+                                     int maxRowsPerFile) {
+    this.fileName = fileName;
+    this.flushInterval = flushInterval;
+    this.maxRowsPerFile = maxRowsPerFile;
+    this.fileIndex = 0;
+    this.lastFlushTime = 0.0;
+    openFile();
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void write(DataCollectionLine line, int vin,
+                                 double time, boolean isHuman) {
+    if (out == null) {
+      throw new RuntimeException("The writer has been closed.");
+    }
+    try {
+      if (maxRowsPerFile > 0 && numOfRowsInFile >= maxRowsPerFile) {
+        out.close();
+        fileIndex++;
+        openFile();
+      }
+      out.write(formatRow(line, vin, time, isHuman));
+      numOfRowsInFile++;
+      if (time >= lastFlushTime + flushInterval) {
+        out.flush();
+        lastFlushTime = time;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Cannot write to file " + getFileName(), e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void flush() {
+    if (out != null) {
+      try {
+        out.flush();
+      } catch (IOException e) {
+        throw new RuntimeException("Cannot write to file " + getFileName(),
+                                   e);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void close() {
+    if (out != null) {
+      try {
+        out.close();
+      } catch (IOException e) {
+        throw new RuntimeException("Cannot close file " + getFileName(), e);
+      } finally {
+        out = null;
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the name of the current file.
+   *
+   * @return the name of the current file
+   */
+  private String getFileName() {
+    if (fileIndex == 0) {
+      return fileName;
+    }
+    int dot = fileName.lastIndexOf('.');
+    int sep = Math.max(fileName.lastIndexOf('/'),
+                       fileName.lastIndexOf('\\'));
+    if (dot <= sep + 1) {
+      return fileName + "." + fileIndex;
+    } else {
+      return fileName.substring(0, dot) + "." + fileIndex
+        + fileName.substring(dot);
+    }
+  }
+
+  /**
+   * Open the current file and write the header.
+   */
+  private void openFile() {
+    String name = getFileName();
+    try {
+      out = new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(name)), BUFFER_SIZE);
+      out.write(HEADER);
+      out.flush();
+    } catch (IOException e) {
+      throw new RuntimeException("Cannot open file " + name, e);
+    }
+    numOfRowsInFile = 0;
+  }
+
+}
@@ -33,10 +33,10 @@ package aim4.map;
 import java.awt.Shape;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import aim4.config.Resources;
@@ -44,6 +44,11 @@ import aim4.vehicle.VehicleSimView;
 
 /**
  * The data collection line.
+ * <p>
+ * The crossings are kept in the order in which they happen, in columns of
+ * primitive arrays, and the time of the last crossing of each vehicle is
+ * kept in an open-addressing hash table, so that a crossing costs no
+ * objects and checking for repeated crossings takes constant time.
  */
 public class DataCollectionLine {
 
@@ -54,6 +59,15 @@ public class DataCollectionLine {
   /** The no repeat time period */
   private static final double NO_REPEAT_TIME_PERIOD = 1.0; // seconds
 
+  /** The initial number of crossings the columns can hold */
+  private static final int INITIAL_CAPACITY = 64;
+
+  /**
+   * The initial size of the hash table of the last crossing times.  Must be
+   * a power of two.
+   */
+  private static final int INITIAL_VIN_TABLE_SIZE = 64;
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
@@ -64,10 +78,25 @@ public class DataCollectionLine {
   private int id;
   /** The line */
   private Line2D line;
-  /** The record of the times of the vehicle passing through the line */
-  private Map<Integer,List<Double>> vinToTime;
-  /** corresponding to vinToTime, the value is whether it's a human driver */
-  private Map<Integer,List<Boolean>> vinToIfHuman;
+
+  /** The VINs of the vehicles of the crossings */
+  private int[] vins;
+  /** The times of the crossings */
+  private double[] times;
+  /** Whether the vehicles of the crossings are driven by humans */
+  private boolean[] isHumans;
+  /** The number of crossings */
+  private int numOfCrossings;
+
+  /**
+   * The hash table of the VINs of the vehicles that have crossed the line;
+   * -1 if an entry is empty.
+   */
+  private int[] vinTable;
+  /** The time of the last crossing of the vehicle of each entry */
+  private double[] lastTimeTable;
+  /** The number of VINs in the hash table */
+  private int numOfVins;
 
   /**
    * Whether vehicles should not be counted more than once when it passes
@@ -75,6 +104,9 @@ public class DataCollectionLine {
    */
   private boolean isNoRepeat;
 
+  /** The writer to which the crossings are written; null if none */
+  private DataCollectionLineWriter writer;
+
   /////////////////////////////////
   // CONSTRUCTORS
   /////////////////////////////////
@@ -94,10 +126,17 @@ public class DataCollectionLine {
                             boolean isNoRepeat) {
     this.name = name;
     this.id = id;
-    this.vinToTime = new HashMap<Integer,List<Double>>();
-    this.vinToIfHuman = new HashMap<Integer,List<Boolean>>();
+    this.vins = new int[INITIAL_CAPACITY];
+    this.times = new double[INITIAL_CAPACITY];
+    this.isHumans = new boolean[INITIAL_CAPACITY];
+    this.numOfCrossings = 0;
+    this.vinTable = new int[INITIAL_VIN_TABLE_SIZE];
+    Arrays.fill(vinTable, -1);
+    this.lastTimeTable = new double[INITIAL_VIN_TABLE_SIZE];
+    this.numOfVins = 0;
     this.line = new Line2D.Double(p1, p2);
     this.isNoRepeat = isNoRepeat;
+    this.writer = null;
   }
 
   /////////////////////////////////
@@ -125,26 +164,13 @@ public class DataCollectionLine {
   public boolean intersect(VehicleSimView v, double time,
                            Point2D p1, Point2D p2) {
     int vin = v.getVIN();
+    int i = findVinEntry(vin);
     if (!isNoRepeat
-      || !vinToTime.containsKey(vin)
-      || vinToTime.get(vin).get(vinToTime.get(vin).size()-1)
-        + NO_REPEAT_TIME_PERIOD < time) {
+      || vinTable[i] < 0
+      || lastTimeTable[i] + NO_REPEAT_TIME_PERIOD < time) {
       if (line.intersectsLine(p1.getX(), p1.getY(), p2.getX(), p2.getY())) {
-      	VehicleSimView vehicle = Resources.vinToVehicles.get(vin);
-      	
-        if (!vinToTime.containsKey(vin)) {
-          List<Double> times = new LinkedList<Double>();
-          List<Boolean> ifHumans = new LinkedList<Boolean>();
-          
-          times.add(time);
-          ifHumans.add(vehicle.isHuman());
-          
-          vinToTime.put(vin, times);
-          vinToIfHuman.put(vin, ifHumans);
-        } else {
-          vinToTime.get(vin).add(time);
-          vinToIfHuman.get(vin).add(vehicle.isHuman());
-        }
+      	VehicleSimView vehicle = Resources.getVinToVehicles().get(vin);
+        addCrossing(vin, time, vehicle.isHuman());
         return true;
       } else {
         return false;
@@ -155,6 +181,15 @@ public class DataCollectionLine {
     }
   }
 
+  /**
+   * Set the writer to which the crossings are written as they happen.
+   *
+   * @param writer  the writer; null if the crossings are not written
+   */
+  public void setWriter(DataCollectionLineWriter writer) {
+    this.writer = writer;
+  }
+
   /**
    * Get the name of the line.
    *
@@ -174,33 +209,169 @@ public class DataCollectionLine {
   }
 
   /**
-   * Get the VINs of all vehicles.
+   * Get the number of crossings of the line.
+   *
+   * @return the number of crossings
+   */
+  public int getNumOfCrossings() {
+    return numOfCrossings;
+  }
+
+  /**
+   * Get the VIN of the vehicle of a crossing.
+   *
+   * @param i  the index of the crossing, in the order of the crossings
+   * @return the VIN of the vehicle
+   */
+  public int getCrossingVin(int i) {
+    return vins[i];
+  }
+
+  /**
+   * Get the time of a crossing.
+   *
+   * @param i  the index of the crossing, in the order of the crossings
+   * @return the time of the crossing
+   */
+  public double getCrossingTime(int i) {
+    return times[i];
+  }
+
+  /**
+   * Whether the vehicle of a crossing is driven by a human.
+   *
+   * @param i  the index of the crossing, in the order of the crossings
+   * @return whether the vehicle is driven by a human
+   */
+  public boolean isCrossingHuman(int i) {
+    return isHumans[i];
+  }
+
+  /**
+   * Get the VINs of all vehicles, in the order of their first crossings.
    *
    * @return the VINs of all vehicles
    */
   public Set<Integer> getAllVIN() {
-    return vinToTime.keySet();
+    Set<Integer> result = new LinkedHashSet<Integer>();
+    for(int i = 0; i < numOfCrossings; i++) {
+      result.add(vins[i]);
+    }
+    return result;
   }
 
   /**
-   * Get the time a vehicle passing through the line.
+   * Get the time a vehicle passing through the line.  This takes time
+   * linear in the number of crossings; use the crossing accessors to go
+   * through all crossings.
    *
    * @param vin  the VIN of the vehicle
-   * @return the time the vehicle passing through the line
+   * @return the time the vehicle passing through the line; null if the
+   *         vehicle has not passed through the line
    */
   public List<Double> getTimes(int vin) {
-    return vinToTime.get(vin);
+    if (vinTable[findVinEntry(vin)] < 0) {
+      return null;
+    }
+    List<Double> result = new ArrayList<Double>();
+    for(int i = 0; i < numOfCrossings; i++) {
+      if (vins[i] == vin) {
+        result.add(times[i]);
+      }
+    }
+    return result;
   }
 
   /**
    * Similar to getTimes, but return whether it's human.
-   * Well, I apologize for this weird way to implement, but this is the easiset way
-   * to do so. To accommodate what already exists, you know.
    *
-   * @param vin
-   * @return the list of whether the vehicles are human
+   * @param vin  the VIN of the vehicle
+   * @return the list of whether the vehicles are human; null if the vehicle
+   *         has not passed through the line
    */
   public List<Boolean> getIfHumans(int vin) {
-  	return vinToIfHuman.get(vin);
+    if (vinTable[findVinEntry(vin)] < 0) {
+      return null;
+    }
+    List<Boolean> result = new ArrayList<Boolean>();
+    for(int i = 0; i < numOfCrossings; i++) {
+      if (vins[i] == vin) {
+        result.add(isHumans[i]);
+      }
+    }
+    return result;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Record a crossing.
+   *
+   * @param vin      the VIN of the vehicle
+   * @param time     the time of the crossing
+   * @param isHuman  whether the vehicle is driven by a human
+   */
+  private void addCrossing(int vin, double time, boolean isHuman) {
+    if (numOfCrossings == vins.length) {
+      int n = numOfCrossings * 2;
+      vins = Arrays.copyOf(vins, n);
+      times = Arrays.copyOf(times, n);
+      isHumans = Arrays.copyOf(isHumans, n);
+    }
+    vins[numOfCrossings] = vin;
+    times[numOfCrossings] = time;
+    isHumans[numOfCrossings] = isHuman;
+    numOfCrossings++;
+    if (writer != null) {
+      writer.write(this, vin, time, isHuman);
+    }
+
+    int i = findVinEntry(vin);
+    if (vinTable[i] < 0) {
+      if ((numOfVins + 1) * 2 > vinTable.length) {
+        resizeVinTable();
+        i = findVinEntry(vin);
+      }
+      vinTable[i] = vin;
+      numOfVins++;
+    }
+    lastTimeTable[i] = time;
+  }
+
+  /**
+   * Find the entry of a VIN in the hash table.
+   *
+   * @param vin  the VIN
+   * @return the index of the entry of the VIN, or of the empty entry where
+   *         the VIN would be put
+   */
+  private int findVinEntry(int vin) {
+    int mask = vinTable.length - 1;
+    int h = vin * 0x9E3779B9;
+    int i = (h ^ (h >>> 16)) & mask;
+    while(vinTable[i] >= 0 && vinTable[i] != vin) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  /**
+   * Double the size of the hash table of the last crossing times.
+   */
+  private void resizeVinTable() {
+    int[] oldVinTable = vinTable;
+    double[] oldLastTimeTable = lastTimeTable;
+    vinTable = new int[oldVinTable.length * 2];
+    Arrays.fill(vinTable, -1);
+    lastTimeTable = new double[oldVinTable.length * 2];
+    for(int j = 0; j < oldVinTable.length; j++) {
+      if (oldVinTable[j] >= 0) {
+        int i = findVinEntry(oldVinTable[j]);
+        vinTable[i] = oldVinTable[j];
+        lastTimeTable[i] = oldLastTimeTable[j];
+      }
+    }
   }
 }
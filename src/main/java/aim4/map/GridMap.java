@@ -49,7 +49,6 @@ import aim4.util.ArrayListRegistry;
 import aim4.util.GeomMath;
 import aim4.util.Registry;
 import aim4.vehicle.VehicleSimView;
-import aim4.vehicle.VinRegistry;
 
 
 /**
@@ -89,7 +88,7 @@ public class GridMap implements BasicMap {
   /** The array of intersection managers */
   private IntersectionManager[][] intersectionManagerGrid;
   /** The maximum speed limit  */
-  private double memoMaximumSpeedLimit = -1;
+  private volatile double memoMaximumSpeedLimit = -1;
   /** The data collection lines */
   private List<DataCollectionLine> dataCollectionLines;
   /** The spawn points */
@@ -361,7 +360,7 @@ public class GridMap implements BasicMap {
     spawnPoints.addAll(horizontalSpawnPoints);
     spawnPoints.addAll(verticalSpawnPoints);
 
-    Debug.currentMap = this;
+    Debug.setCurrentMap(this);
   }
 
   /**
@@ -421,13 +420,17 @@ public class GridMap implements BasicMap {
   @Override
   public double getMaximumSpeedLimit() {
     if(memoMaximumSpeedLimit < 0) {
+      // find the maximum before publishing it, as drivers may ask for it on
+      // several threads
+      double maximumSpeedLimit = -1;
       for(Road r : getRoads()) {
         for(Lane l : r.getLanes()) {
-          if(l.getSpeedLimit() > memoMaximumSpeedLimit) {
-            memoMaximumSpeedLimit = l.getSpeedLimit();
+          if(l.getSpeedLimit() > maximumSpeedLimit) {
+            maximumSpeedLimit = l.getSpeedLimit();
           }
         }
       }
+      memoMaximumSpeedLimit = maximumSpeedLimit;
     }
     return memoMaximumSpeedLimit;
   }
@@ -609,6 +612,16 @@ public class GridMap implements BasicMap {
     intersectionManagers.clear();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setDataCollectionLineWriter(DataCollectionLineWriter writer) {
+    for (DataCollectionLine line : dataCollectionLines) {
+      line.setWriter(writer);
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -621,31 +634,35 @@ public class GridMap implements BasicMap {
       System.err.printf("Cannot open file %s\n", outFileName);
       return;
     }
+    // The crossings of each line are in the order of time
     // TODO: sort by time and LineId and VIN
-    outfile.printf("VIN,Time,DCLname,vType,startLaneId,destRoad\n");
+    outfile.print(CsvDataCollectionLineWriter.HEADER);
     for (DataCollectionLine line : dataCollectionLines) {
-      for (int vin : line.getAllVIN()) {
-        for(int id = 0; id < line.getTimes(vin).size(); id++) {
-        	double time = line.getTimes(vin).get(id);
-        	boolean isHuman = line.getIfHumans(vin).get(id);
-
-        	int realVin = vin;
-        	if (isHuman) {
-        		// for identification, add 1 at the begining
-        		// FIXME when simulation time is very long
-        		realVin += 10000;
-        	}
-
-          outfile.printf("%d,%.4f,%s,%s,%d,%s\n",
-                         realVin, time, line.getName(),
-                         VinRegistry.getVehicleSpecFromVIN(vin).getName(),
-                         VinRegistry.getSpawnPointFromVIN(vin).getLane().getId(),
-                         VinRegistry.getDestRoadFromVIN(vin).getName());
-        }
+      for(int i = 0; i < line.getNumOfCrossings(); i++) {
+        outfile.print(
+          CsvDataCollectionLineWriter.formatRow(line,
+                                                line.getCrossingVin(i),
+                                                line.getCrossingTime(i),
+                                                line.isCrossingHuman(i)));
       }
     }
 
     outfile.close();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeDataCollectionLinesData(DataCollectionLineWriter writer) {
+    for (DataCollectionLine line : dataCollectionLines) {
+      for(int i = 0; i < line.getNumOfCrossings(); i++) {
+        writer.write(line,
+                     line.getCrossingVin(i),
+                     line.getCrossingTime(i),
+                     line.isCrossingHuman(i));
+      }
+    }
+  }
+
 }
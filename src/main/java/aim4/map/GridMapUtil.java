@@ -47,6 +47,7 @@ import aim4.config.RevisedPhaseConfig;
 import aim4.config.SimConfig;
 import aim4.config.SimConfig.SIGNAL_TYPE;
 import aim4.config.SimConfig.VEHICLE_TYPE;
+import aim4.config.SimulationContext;
 import aim4.config.TrafficSignalPhase;
 import aim4.im.DedicatedTrafficController;
 import aim4.im.LaneTrafficController;
@@ -69,6 +70,8 @@ import aim4.im.v2i.RequestHandler.ApproxNPhasesTrafficSignalRequestHandler.Cycli
 import aim4.im.v2i.RequestHandler.BatchModeRequestHandler;
 import aim4.im.v2i.RequestHandler.FCFSRequestHandler;
 import aim4.im.v2i.RequestHandler.RequestHandler;
+import aim4.im.v2i.batch.BranchAndBoundReordering;
+import aim4.im.v2i.batch.ReorderingStrategy;
 import aim4.im.v2i.batch.RoadBasedReordering;
 import aim4.im.v2i.policy.BasePolicy;
 import aim4.im.v2i.reservation.ReservationGridManager;
@@ -239,7 +242,7 @@ public class GridMapUtil {
         proportion.add(p);
       }
       this.destinationSelector = destinationSelector;
-      Resources.destinationSelector = destinationSelector;
+      Resources.setDestinationSelector(destinationSelector);
 
       prob = trafficLevel * SimConfig.SPAWN_TIME_STEP;
       // Cannot generate more than one vehicle in each spawn time step
@@ -309,7 +312,7 @@ public class GridMapUtil {
               if (Platoon.platooning) {
                 // for example, if we group 5 human vehicles at one time
                 // we divide the spawning possibility by 5.
-                if (Util.random.nextDouble() < 1.0 / Platoon.vehiclesNumExpection) {
+                if (Util.getRandom().nextDouble() < 1.0 / Platoon.vehiclesNumExpection) {
                   // okay, we generate this vehicle here, but we need to generate more vehicles
                   // when it's possible.
                   vehiclesToBeGenerated += Platoon.vehiclesNumExpection - 1;
@@ -325,7 +328,7 @@ public class GridMapUtil {
                     vehicleType));
           }
         } else {
-          if (Util.random.nextDouble() < prob) {
+          if (Util.getRandom().nextDouble() < prob) {
             int i = Util.randomIndex(proportion);
             vehicleSpec = VehicleSpecDatabase.getVehicleSpecById(i);
             destinationRoad = destinationSelector.selectDestination(spawnPoint.getLane());
@@ -394,7 +397,7 @@ public class GridMapUtil {
       double initTime = spawnPoint.getCurrentTime();
       for(double time = initTime; time < initTime + timeStep;
           time += SimConfig.SPAWN_TIME_STEP) {
-        if (Util.random.nextDouble() < prob) {
+        if (Util.getRandom().nextDouble() < prob) {
           Road destinationRoad =
             destinationSelector.selectDestination(spawnPoint.getLane());
 
@@ -492,7 +495,7 @@ public class GridMapUtil {
                                        double spawnPeriod) {
       this.destinationRoads = new ArrayList<Road>(destinationRoads.size());
       for(Road road : destinationRoads) {
-        if (Debug.currentMap.getRoad(spawnPoint.getLane()).getDual() != road) {
+        if (Debug.getCurrentMap().getRoad(spawnPoint.getLane()).getDual() != road) {
           this.destinationRoads.add(road);
         }
       }
@@ -536,14 +539,32 @@ public class GridMapUtil {
 		}
   }
 
-
-  private static double currentTrafficLevel;
-
   /////////////////////////////////
   // PUBLIC STATIC METHODS
   /////////////////////////////////
 
 
+  /**
+   * Whether the hard-coded intersection board of
+   * {@link #laneIntersect(int, int, int, int)} describes a map, i.e., whether
+   * the map is a single intersection of four roads with three lanes each.
+   *
+   * @param layout  the map
+   * @return whether the intersection board describes the map
+   */
+  public static boolean isStandardIntersection(GridMap layout) {
+    if (layout.getColumns() != 1 || layout.getRows() != 1
+        || layout.getRoads().size() != 4) {
+      return false;
+    }
+    for(Road road : layout.getRoads()) {
+      if (road.getLanes().size() != 3) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public static boolean laneIntersect(int firstLaneIn, int firstLaneOut,
 			int secondLaneIn, int secondLaneOut) {
   	if (roadBoard == null) {
@@ -592,6 +613,26 @@ public class GridMapUtil {
                                       double currentTime,
                                       ReservationGridManager.Config config,
                                       double processingInterval) {
+    setBatchManagers(layout, currentTime, config, processingInterval, 0.0);
+  }
+
+  /**
+   * Set the bath managers at all intersections.  If the search budget is
+   * positive, the batches are reordered by a branch-and-bound search;
+   * otherwise they are reordered by road.
+   *
+   * @param layout              the map
+   * @param currentTime         the current time
+   * @param config              the reservation grid manager configuration
+   * @param processingInterval  the processing interval
+   * @param searchBudget        the wall-clock time, in seconds, the search
+   *                            of a batch may take
+   */
+  public static void setBatchManagers(GridMap layout,
+                                      double currentTime,
+                                      ReservationGridManager.Config config,
+                                      double processingInterval,
+                                      double searchBudget) {
     layout.removeAllManagers();
     for(int column = 0; column < layout.getColumns(); column++) {
       for(int row = 0; row < layout.getRows(); row++) {
@@ -602,9 +643,16 @@ public class GridMapUtil {
         V2IManager im =
           new V2IManager(intersection, trajectoryModel, currentTime,
                          config, layout.getImRegistry());
+        ReorderingStrategy reorderingStrategy;
+        if (searchBudget > 0.0) {
+          reorderingStrategy =
+            new BranchAndBoundReordering(processingInterval, searchBudget);
+        } else {
+          reorderingStrategy = new RoadBasedReordering(processingInterval);
+        }
         RequestHandler rh =
           new BatchModeRequestHandler(
-            new RoadBasedReordering(processingInterval),
+            reorderingStrategy,
             new BatchModeRequestHandler.RequestStatCollector());
         im.setPolicy(new BasePolicy(im, rh));
         layout.setManager(column, row, im);
@@ -715,11 +763,11 @@ public class GridMapUtil {
         TrafficSignalPhase phase =
             TrafficSignalPhase.makeFromFile(layout, trafficSignalPhaseFileName);
 
-        Resources.phase = phase;
+        Resources.setPhase(phase);
 
         for(Road road : im.getIntersection().getEntryRoads()) {
           for(Lane lane : road.getLanes()) {
-          	if (SimConfig.signalType == SimConfig.SIGNAL_TYPE.RED_PHASE_ADAPTIVE) {
+          	if (SimConfig.getSignalType() == SimConfig.SIGNAL_TYPE.RED_PHASE_ADAPTIVE) {
           		RedPhaseData.readRedPhaseData();
           		phase.resetRedDurations(RedPhaseData.defaultRedPhaseTime);
 
@@ -727,27 +775,27 @@ public class GridMapUtil {
 	                phase.calcCyclicSignalController(road);
 	            requestHandler.setSignalControllers(lane.getId(), controller);
           	}
-          	else if (SimConfig.signalType == SimConfig.SIGNAL_TYPE.ONE_LANE_VERSION) {
+          	else if (SimConfig.getSignalType() == SimConfig.SIGNAL_TYPE.ONE_LANE_VERSION) {
           		OneLaneSignalController controller =
           				new OneLaneSignalController(lane.getId(), OneLaneTimeConfig.greenTime, OneLaneTimeConfig.redTime);
           		requestHandler.setSignalControllers(lane.getId(), controller);
           	}
-          	else if (SimConfig.signalType == SimConfig.SIGNAL_TYPE.REVISED_PHASE) {
+          	else if (SimConfig.getSignalType() == SimConfig.SIGNAL_TYPE.REVISED_PHASE) {
           		RevisedPhaseSignalController controller =
           				RevisedPhaseConfig.getController(lane.getId());
           		requestHandler.setSignalControllers(lane.getId(), controller);
           	}
-          	else if (SimConfig.signalType == SimConfig.SIGNAL_TYPE.TRADITIONAL) {
-          		phase.resetRedDurations(SimConfig.RED_PHASE_LENGTH);
+          	else if (SimConfig.getSignalType() == SimConfig.SIGNAL_TYPE.TRADITIONAL) {
+          		phase.resetRedDurations(SimConfig.getRedPhaseLength());
 	            CyclicSignalController controller =
 	                phase.calcCyclicSignalController(road);
 	            requestHandler.setSignalControllers(lane.getId(), controller);
           	}
-          	else if (SimConfig.signalType == SIGNAL_TYPE.HUMAN_ADAPTIVE) {
+          	else if (SimConfig.getSignalType() == SIGNAL_TYPE.HUMAN_ADAPTIVE) {
           		SignalController controller = AdaptiveTrafficSignalSuperviser.addTrafficSignalController(lane);
           		requestHandler.setSignalControllers(lane.getId(), controller);
           	}
-          	else if (SimConfig.DEDICATED_LANES > 0) {
+          	else if (SimConfig.getDedicatedLanes() > 0) {
           		DedicatedLanesSignalController controller =
           				new DedicatedLanesSignalController(lane.getId());
           		requestHandler.setSignalControllers(lane.getId(), controller);
@@ -763,7 +811,7 @@ public class GridMapUtil {
         im.setPolicy(new BasePolicy(im, requestHandler));
         layout.setManager(column, row, im);
 
-        Resources.im = im;
+        Resources.setIm(im);
       }
     }
   }
@@ -850,17 +898,17 @@ public class GridMapUtil {
     LaneTrafficController trafficController;
 
     // check the lane spawning setting - dedicated lanes or not
-    if (SimConfig.DEDICATED_LANES > 0) {
+    if (SimConfig.getDedicatedLanes() > 0) {
     	trafficController = new DedicatedTrafficController(
-      		trafficLevel, SimConfig.HUMAN_PERCENTAGE, SimConfig.CONSTANT_HUMAN_PERCENTAGE);
+      		trafficLevel, SimConfig.getHumanPercentage(), SimConfig.getConstantHumanPercentage());
     }
     else {
     	trafficController = new NormalTrafficController(
     			trafficLevel,
-    			SimConfig.HUMAN_PERCENTAGE,
-    			SimConfig.CONSTANT_HUMAN_PERCENTAGE,
-    			SimConfig.ADAPTIVE_HUMAN_PERCENTAGE,
-    			SimConfig.HUD_HUMAN_PERCENTAGE,
+    			SimConfig.getHumanPercentage(),
+    			SimConfig.getConstantHumanPercentage(),
+    			SimConfig.getAdaptiveHumanPercentage(),
+    			SimConfig.getHudHumanPercentage(),
     			trafficVolume);
     }
 
@@ -873,7 +921,7 @@ public class GridMapUtil {
           new UniformSpawnSpecGenerator(trafficController.getLaneInfo(laneId), trafficLevel, selector));
     }
 
-    currentTrafficLevel = trafficLevel;
+    SimulationContext.current().setTrafficLevel(trafficLevel);
   }
 
 	/**
@@ -930,6 +978,6 @@ public class GridMapUtil {
   }
 
   public static double getTrafficLevel() {
-  	return currentTrafficLevel;
+  	return SimulationContext.current().getTrafficLevel();
   }
 }
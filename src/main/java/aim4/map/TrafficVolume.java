@@ -206,10 +206,10 @@ public class TrafficVolume {
                                            String csvFileName) {
     List<String> strs = null;
     try {
-    	if (SimConfig.volumeType == SimConfig.VOLUME_TYPE.FILE) {
+    	if (SimConfig.getVolumeType() == SimConfig.VOLUME_TYPE.FILE) {
     		strs = Util.readFileToStrArray(csvFileName);
     	}
-    	else if (SimConfig.volumeType == SimConfig.VOLUME_TYPE.RANDOM) {
+    	else if (SimConfig.getVolumeType() == SimConfig.VOLUME_TYPE.RANDOM) {
     		strs = randomGenerateStrArray();
     	}
     	else {
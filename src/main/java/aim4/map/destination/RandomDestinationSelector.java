@@ -77,12 +77,12 @@ public class RandomDestinationSelector implements DestinationSelector {
    */
   @Override
   public Road selectDestination(Lane currentLane) {
-    Road currentRoad = Debug.currentMap.getRoad(currentLane);
+    Road currentRoad = Debug.getCurrentMap().getRoad(currentLane);
     Road dest =
-      destinationRoads.get(Util.random.nextInt(destinationRoads.size()));
+      destinationRoads.get(Util.getRandom().nextInt(destinationRoads.size()));
     while(dest.getDual() == currentRoad) {
       dest =
-        destinationRoads.get(Util.random.nextInt(destinationRoads.size()));
+        destinationRoads.get(Util.getRandom().nextInt(destinationRoads.size()));
     }
     return dest;
   }
@@ -106,9 +106,9 @@ public class RatioDestinationSelector implements DestinationSelector {
    */
   @Override
   public Road selectDestination(Lane currentLane) {
-    Road currentRoad = Debug.currentMap.getRoad(currentLane);
+    Road currentRoad = Debug.getCurrentMap().getRoad(currentLane);
     int laneId = currentLane.getId();
-    double prob = Util.random.nextDouble();
+    double prob = Util.getRandom().nextDouble();
     if (prob < leftTurnProb.get(laneId)) {
       return trafficVolume.getLeftTurnRoad(currentRoad);
     } else if (prob >= 1.0 - rightTurnProb.get(laneId)) {
@@ -120,7 +120,7 @@ public class RatioDestinationSelector implements DestinationSelector {
 
 	@Override
 	public List<Road> getPossibleDestination(Lane currentLane) {
-		Road currentRoad = Debug.currentMap.getRoad(currentLane);
+		Road currentRoad = Debug.getCurrentMap().getRoad(currentLane);
 		List<Road> result = new ArrayList<Road>();
 		int laneId = currentLane.getId();
 
@@ -31,22 +31,22 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.sim;
 
 import java.awt.Color;
-import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
 
 import aim4.config.Debug;
 import aim4.config.DebugPoint;
@@ -55,6 +55,7 @@ import aim4.config.Resources;
 import aim4.config.SimConfig;
 import aim4.config.SimConfig.SIGNAL_TYPE;
 import aim4.config.SimConfig.VEHICLE_TYPE;
+import aim4.config.SimulationContext;
 import aim4.config.TrafficSignalPhase;
 import aim4.driver.AutoDriver;
 import aim4.driver.DriverSimView;
@@ -75,7 +76,9 @@ import aim4.map.SpawnPoint.SpawnSpec;
 import aim4.map.lane.Lane;
 import aim4.msg.i2v.I2VMessage;
 import aim4.msg.v2i.V2IMessage;
+import aim4.sim.LaneVehicleIndex.LaneVehicles;
 import aim4.sim.setup.AdaptiveTrafficSignalSuperviser;
+import aim4.util.OrientedRectangle;
 import aim4.vehicle.AutoVehicleSimView;
 import aim4.vehicle.BasicAutoVehicle;
 import aim4.vehicle.HumanDrivenVehicleSimView;
@@ -121,14 +124,82 @@ public class AutoDriverOnlySimulator implements Simulator {
     }
   }
 
+  /**
+   * A task that lets the drivers of a range of vehicles act, splitting the
+   * range in halves until it is small enough.
+   */
+  private class DriverActTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The vehicles */
+    private final VehicleSimView[] vehicles;
+    /** The index of the first vehicle of the range */
+    private final int from;
+    /** The index after the last vehicle of the range */
+    private final int to;
+
+    /**
+     * Create a task for a range of vehicles.
+     *
+     * @param vehicles  the vehicles
+     * @param from      the index of the first vehicle of the range
+     * @param to        the index after the last vehicle of the range
+     */
+    private DriverActTask(VehicleSimView[] vehicles, int from, int to) {
+      this.vehicles = vehicles;
+      this.from = from;
+      this.to = to;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void compute() {
+      if (to - from <= DRIVERS_PER_TASK) {
+        // the drivers reach the simulation through the context of the
+        // thread, which may be a worker of the pool
+        SimulationContext previousContext = SimulationContext.bind(context);
+        try {
+          for(int i = from; i < to; i++) {
+            vehicles[i].getDriver().act();
+          }
+        } finally {
+          SimulationContext.bind(previousContext);
+        }
+      } else {
+        int mid = (from + to) >>> 1;
+        invokeAll(new DriverActTask(vehicles, from, mid),
+                  new DriverActTask(vehicles, mid, to));
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The largest number of drivers that act one after another in a task when
+   * the drivers act in parallel.
+   */
+  private static final int DRIVERS_PER_TASK = 16;
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
 
+  /** The state of this simulation that the other classes share */
+  private SimulationContext context;
   /** The map */
   private BasicMap basicMap;
   /** All active vehicles, in form of a map from VINs to vehicle objects. */
   private Map<Integer,VehicleSimView> vinToVehicles;
+  /** The vehicles on each lane ordered by their distance along the lane */
+  private LaneVehicleIndex laneVehicleIndex;
+  /** The bounding boxes of the vehicles in a uniform grid */
+  private VehicleGridIndex vehicleGridIndex;
   /** The current time */
   private double currentTime;
   /** The number of completed vehicles */
@@ -141,6 +212,14 @@ public class AutoDriverOnlySimulator implements Simulator {
   private int inhibitedVehicles = 0;
   /** The number of vehicles generated */
   private int generatedVehicles = 0;
+  /** Whether a render snapshot is taken after every step */
+  private volatile boolean isRenderSnapshotEnabled = false;
+  /**
+   * The last render snapshot.  The stepping thread is the only writer and
+   * the GUI the only reader, so publishing a snapshot is a single write.
+   */
+  private final AtomicReference<RenderSnapshot> renderSnapshot =
+    new AtomicReference<RenderSnapshot>();
 
 
   /////////////////////////////////
@@ -148,14 +227,31 @@ public class AutoDriverOnlySimulator implements Simulator {
   /////////////////////////////////
 
   /**
-   * Create an instance of the simulator.
+   * Create an instance of the simulator in the context of the calling
+   * thread.
    *
    * @param basicMap             the map of the simulation
    */
   public AutoDriverOnlySimulator(BasicMap basicMap) {
+    this(basicMap, SimulationContext.current());
+  }
+
+  /**
+   * Create an instance of the simulator.
+   *
+   * @param basicMap             the map of the simulation
+   * @param context              the context in which the map, the
+   *                             intersection managers and the spawn points
+   *                             were set up
+   */
+  public AutoDriverOnlySimulator(BasicMap basicMap,
+                                 SimulationContext context) {
+    this.context = context;
     this.basicMap = basicMap;
     this.vinToVehicles = new HashMap<Integer,VehicleSimView>();
-    Resources.vinToVehicles = this.vinToVehicles;
+    context.setVinToVehicles(this.vinToVehicles);
+    this.laneVehicleIndex = new LaneVehicleIndex(basicMap);
+    this.vehicleGridIndex = new VehicleGridIndex(basicMap.getDimensions());
 
     currentTime = 0.0;
     numOfCompletedVehicles = 0;
@@ -174,17 +270,96 @@ public class AutoDriverOnlySimulator implements Simulator {
    */
   @Override
   public synchronized AutoDriverOnlySimStepResult step(double timeStep) {
+    // the drivers, policies and request handlers reach the state of this
+    // simulation through the context bound to the stepping thread
+    SimulationContext previousContext = SimulationContext.bind(context);
+    try {
+      AutoDriverOnlySimStepResult result = doStep(timeStep);
+      if (isRenderSnapshotEnabled) {
+        publishRenderSnapshot();
+      }
+      return result;
+    } finally {
+      SimulationContext.bind(previousContext);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void setRenderSnapshotEnabled(boolean enabled) {
+    isRenderSnapshotEnabled = enabled;
+    if (enabled) {
+      renderSnapshot.set(takeRenderSnapshot());
+    } else {
+      renderSnapshot.set(null);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RenderSnapshot getRenderSnapshot() {
+    return renderSnapshot.get();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized RenderSnapshot takeRenderSnapshot() {
+    SimulationContext previousContext = SimulationContext.bind(context);
+    try {
+      return RenderSnapshot.take(currentTime, vinToVehicles.values(),
+                                 basicMap.getIntersectionManagers());
+    } finally {
+      SimulationContext.bind(previousContext);
+    }
+  }
+
+  /**
+   * Take a render snapshot of the current state and make it the one the
+   * GUI draws next.
+   */
+  private void publishRenderSnapshot() {
+    renderSnapshot.set(
+      RenderSnapshot.take(currentTime, vinToVehicles.values(),
+                          basicMap.getIntersectionManagers()));
+  }
+
+  /**
+   * Get the context of this simulation.
+   *
+   * @return the context of this simulation
+   */
+  public SimulationContext getContext() {
+    return context;
+  }
+
+  /**
+   * Run one step of the simulation.
+   *
+   * @param timeStep  the time step
+   * @return the result of the step
+   */
+  private AutoDriverOnlySimStepResult doStep(double timeStep) {
     if (Debug.PRINT_SIMULATOR_STAGE) {
       System.err.printf("--------------------------------------\n");
       System.err.printf("------SIM:spawnVehicles---------------\n");
     }
 
     // update red signal for dynamic FCFS-SIGNAL
-    if (SimConfig.signalType == SimConfig.SIGNAL_TYPE.RED_PHASE_ADAPTIVE
+    if (SimConfig.getSignalType() == SimConfig.SIGNAL_TYPE.RED_PHASE_ADAPTIVE
     		&& ApproxNPhasesTrafficSignalRequestHandler.CyclicSignalController.needRecalculate(currentTime)) {
     	updateTrafficSignal();
     }
 
+    // bring the lane lists up to date with the last move of the vehicles
+    laneVehicleIndex.update(vinToVehicles.values());
+    vehicleGridIndex.rebuild(vinToVehicles.values());
+
     // spawning vehicles from spawning points according to traffic level
     spawnVehicles(timeStep);
     if (Debug.PRINT_SIMULATOR_STAGE) {
@@ -217,8 +392,10 @@ public class AutoDriverOnlySimulator implements Simulator {
     // move vehicles graphically. DCL information calculated here.
     moveVehicles(timeStep);
 
-    if (Debug.CHECK_FOR_COLLISIONS) {
-      System.err.printf("------SIM:checkForCollisions---------------\n");
+    if (Debug.isCheckingForCollisions()) {
+      if (Debug.PRINT_SIMULATOR_STAGE) {
+        System.err.printf("------SIM:checkForCollisions---------------\n");
+      }
       checkForCollisions();
     }
 
@@ -227,7 +404,7 @@ public class AutoDriverOnlySimulator implements Simulator {
     }
 
     // for human-adaptive traffic signals, run green phases periodically
-    if (SimConfig.signalType == SIGNAL_TYPE.HUMAN_ADAPTIVE) {
+    if (SimConfig.getSignalType() == SIGNAL_TYPE.HUMAN_ADAPTIVE) {
     	if (currentTime % AdaptiveTrafficSignalSuperviser.getPhaseLength() < timeStep) {
     		AdaptiveTrafficSignalSuperviser.runGreenLight(currentTime);
     	}
@@ -242,19 +419,44 @@ public class AutoDriverOnlySimulator implements Simulator {
   }
 
   /**
-   * Detects collisions by checking if any two vehicles overlap.
+   * Detects collisions by checking if any two vehicles overlap.  This is a
+   * sweep and prune over the bounding boxes of the vehicles: the boxes are
+   * sorted by their left edges, and only the vehicles whose boxes overlap
+   * are tested with their exact shapes.
    */
   private void checkForCollisions() {
-    Integer[] keys = vinToVehicles.keySet().toArray(new Integer[]{});
-    for(int i = 0; i < keys.length - 1; i++) { //-1 because we won't compare the last element with anything.
-      Integer[] keysToCompare = Arrays.copyOfRange(keys, i + 1, keys.length);
-      VehicleSimView vehicle1 = vinToVehicles.get(keys[i]);
-      for(int j = 0; j < keysToCompare.length; j++) {
-        VehicleSimView vehicle2 = vinToVehicles.get(keysToCompare[j]);
-        if(VehicleUtil.collision(vehicle1, vehicle2)) {
-          throw new RuntimeException(String.format("There was a collision between vehicles %d and %d",
-                  vehicle1.getVIN(),
-                  vehicle2.getVIN()));
+    int n = vinToVehicles.size();
+    final VehicleSimView[] vehicles = new VehicleSimView[n];
+    final Rectangle2D[] bounds = new Rectangle2D[n];
+    Integer[] order = new Integer[n];
+    int k = 0;
+    for(VehicleSimView vehicle : vinToVehicles.values()) {
+      vehicles[k] = vehicle;
+      bounds[k] = vehicle.getShape().getBounds2D();
+      order[k] = k;
+      k++;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer i, Integer j) {
+        return Double.compare(bounds[i].getMinX(), bounds[j].getMinX());
+      }
+    });
+    for(int i = 0; i < n - 1; i++) {
+      Rectangle2D bounds1 = bounds[order[i]];
+      for(int j = i + 1; j < n; j++) {
+        Rectangle2D bounds2 = bounds[order[j]];
+        if (bounds2.getMinX() >= bounds1.getMaxX()) {
+          break;  // no later box overlaps this one along the x-axis
+        }
+        if (bounds1.intersects(bounds2)) {
+          VehicleSimView vehicle1 = vehicles[order[i]];
+          VehicleSimView vehicle2 = vehicles[order[j]];
+          if(VehicleUtil.collision(vehicle1, vehicle2)) {
+            throw new RuntimeException(String.format("There was a collision between vehicles %d and %d",
+                    Math.min(vehicle1.getVIN(), vehicle2.getVIN()),
+                    Math.max(vehicle1.getVIN(), vehicle2.getVIN())));
+          }
         }
       }
     }
@@ -365,6 +567,8 @@ public class AutoDriverOnlySimulator implements Simulator {
     }
 
     vinToVehicles.put(vehicle.getVIN(), vehicle);
+    laneVehicleIndex.add(vehicle);
+    vehicleGridIndex.add(vehicle);
   }
 
 
@@ -390,14 +594,14 @@ public class AutoDriverOnlySimulator implements Simulator {
 
             // First check if there is enough space to spawn a new vehicle and still have time to stop before reaching it
             Lane lane = spawnPoint.getLane();
-            Map<Lane,SortedMap<Double,VehicleSimView>> vehicleLists = computeVehicleLists();
+            LaneVehicles vehiclesOnLane = laneVehicleIndex.getVehicles(lane);
 
             // If there are some vehicles on this lane
-            if (!vehicleLists.isEmpty() && !vehicleLists.get(lane).isEmpty()){
+            if (!vehiclesOnLane.isEmpty()){
                 // Determine whether there is enough distance to stop if spawned with the speed limit
                 double initVelocity = Math.min(spawnSpec.getVehicleSpec().getMaxVelocity(), lane.getSpeedLimit());
                 // The closest vehicle will be the first one on the list
-                double distanceTillNextVehicle = vehicleLists.get(lane).firstKey();
+                double distanceTillNextVehicle = vehiclesOnLane.getDistance(0);
                 double stoppingDistance = VehicleUtil.calcDistanceToStop(initVelocity,
                                             spawnSpec.getVehicleSpec().getMaxDeceleration());
                 double followingDistance = stoppingDistance + V2IPilot.MINIMUM_FOLLOWING_DISTANCE;
@@ -408,6 +612,8 @@ public class AutoDriverOnlySimulator implements Simulator {
                     VehicleSimView vehicle = makeVehicle(spawnPoint, spawnSpec);
                     VinRegistry.registerVehicle(vehicle); // Get vehicle a VIN number
                     vinToVehicles.put(vehicle.getVIN(), vehicle);
+                    laneVehicleIndex.add(vehicle);
+                    vehicleGridIndex.add(vehicle);
                     spawnPoint.vehicleGenerated(); // so it knows a platooning vehicle is generated.
                     generatedVehicles++; // counter for vehicles generated
                 } // otherwise there is not enough space to slow down so don't spawn this vehicle
@@ -417,6 +623,8 @@ public class AutoDriverOnlySimulator implements Simulator {
               VehicleSimView vehicle = makeVehicle(spawnPoint, spawnSpec);
               VinRegistry.registerVehicle(vehicle); // Get vehicle a VIN number
               vinToVehicles.put(vehicle.getVIN(), vehicle);
+              laneVehicleIndex.add(vehicle);
+              vehicleGridIndex.add(vehicle);
               spawnPoint.vehicleGenerated(); // so it knows a platooning vehicle is generated.
               generatedVehicles++; // counter for vehicles generated
             }
@@ -442,14 +650,8 @@ public class AutoDriverOnlySimulator implements Simulator {
    * @return Whether the spawn point can spawn any vehicle
    */
   private boolean canSpawnVehicle(SpawnPoint spawnPoint) {
-    // TODO: can be made much faster.
     Rectangle2D noVehicleZone = spawnPoint.getNoVehicleZone();
-    for(VehicleSimView vehicle : vinToVehicles.values()) {
-      if (vehicle.getShape().intersects(noVehicleZone)) {
-        return false;
-      }
-    }
-    return true;
+    return !vehicleGridIndex.intersectsAnyVehicle(noVehicleZone);
   }
 
   /**
@@ -493,151 +695,25 @@ public class AutoDriverOnlySimulator implements Simulator {
   // STEP 2
   /////////////////////////////////
 
-  /**
-   * Compute the lists of vehicles of all lanes.
-   *
-   * @return a mapping from lanes to lists of vehicles sorted by their
-   *         distance on their lanes
-   */
-  private Map<Lane,SortedMap<Double,VehicleSimView>> computeVehicleLists() {
-    // Set up the structure that will hold all the Vehicles as they are
-    // currently ordered in the Lanes
-    Map<Lane,SortedMap<Double,VehicleSimView>> vehicleLists =
-      new HashMap<Lane,SortedMap<Double,VehicleSimView>>();
-    for(Road road : basicMap.getRoads()) {
-      for(Lane lane : road.getLanes()) {
-        vehicleLists.put(lane, new TreeMap<Double,VehicleSimView>());
-      }
-    }
-    // Now add each of the Vehicles, but make sure to exclude those that are
-    // already inside (entirely) the intersection
-    for(VehicleSimView vehicle : vinToVehicles.values()) {
-      // Find out what lanes it is in.
-      Set<Lane> lanes = vehicle.getDriver().getCurrentlyOccupiedLanes();
-      for(Lane lane : lanes) {
-        // Find out what IntersectionManager is coming up for this vehicle
-        IntersectionManager im =
-          lane.getLaneIM().nextIntersectionManager(vehicle.getPosition());
-        // Only include this Vehicle if it is not entirely in the intersection.
-        if(im == null ||
-                !(im.intersectsPoint(vehicle.getPosition()) && im.intersectsPoint(vehicle.getPointAtRear()))) {
-          // Now find how far along the lane it is.
-          double dst = lane.distanceAlongLane(vehicle.getPosition());
-          // Now add it to the map.
-          vehicleLists.get(lane).put(dst, vehicle);
-          // Now check if this vehicle intersects any other lanes
-          for (Road road : Debug.currentMap.getRoads()) {
-            for (Lane otherLane : road.getLanes()) {
-              if (otherLane.getId() != lane.getId()) {
-                if (otherLane.getShape().getBounds2D().intersects(vehicle.getShape().getBounds2D())) {
-                  double dstAlongOtherLane = otherLane.distanceAlongLane(vehicle.getPosition());
-                  vehicleLists.get(otherLane).put(dstAlongOtherLane, vehicle);
-                }
-              }
-            }
-          }
-        }
-      }
-    }
-    // Now consolidate the lists based on lanes
-    for(Road road : basicMap.getRoads()) {
-      for(Lane lane : road.getLanes()) {
-        // We may have already removed this Lane from the map
-        if(vehicleLists.containsKey(lane)) {
-          Lane currLane = lane;
-          // Now run through the lanes
-          while(currLane.hasNextLane()) {
-            currLane = currLane.getNextLane();
-            // Put everything from the next lane into the original lane
-            // and remove the mapping for the next lane
-            vehicleLists.get(lane).putAll(vehicleLists.remove(currLane));
-          }
-        }
-      }
-    }
-
-    return vehicleLists;
-  }
-
-  /**
-   * Compute the next vehicles of all vehicles.
-   *
-   * @param vehicleLists  a mapping from lanes to lists of vehicles sorted by
-   *                      their distance on their lanes
-   * @return a mapping from vehicles to next vehicles
-   */
-  private Map<VehicleSimView, VehicleSimView> computeNextVehicle(
-    Map<Lane,SortedMap<Double,VehicleSimView>> vehicleLists) {
-    // At this point we should only have mappings for start Lanes, and they
-    // should include all the Lanes they run into.  Now we need to turn this
-    // into a hash map that maps Vehicles to the next vehicle in the Lane
-    // or any Lane the Lane runs into
-    Map<VehicleSimView, VehicleSimView> nextVehicle =
-      new HashMap<VehicleSimView,VehicleSimView>();
-    // For each of the ordered lists of vehicles
-    for(SortedMap<Double,VehicleSimView> vehicleList : vehicleLists.values()) {
-      VehicleSimView lastVehicle = null;
-      // Go through the Vehicles in order of their position in the Lane
-      for(VehicleSimView currVehicle : vehicleList.values()) {
-        if(lastVehicle != null) {
-          // Create the mapping from the previous Vehicle to the current one
-          nextVehicle.put(lastVehicle,currVehicle);
-
-          lastVehicle.setFrontVehicle(currVehicle);
-        }
-
-        lastVehicle = currVehicle;
-      }
-    }
-
-    return nextVehicle;
-  }
-
   /**
    * Provide each vehicle with sensor information to allow it to make
-   * decisions.  This works first by making an ordered list for each Lane of
-   * all the vehicles in that Lane, in order from the start of the Lane to
-   * the end of the Lane.  We must make sure to leave out all vehicles that
-   * are in the intersection.  We must also concatenate the lists for lanes
-   * that feed into one another.  Then, for each vehicle, depending on the
+   * decisions.  This works on the ordered lists of the vehicles in each
+   * Lane kept by the {@link LaneVehicleIndex}, from which the vehicle in
+   * front of each vehicle is found.  Then, for each vehicle, depending on the
    * state of its sensors, we provide it with the appropriate sensor input.
    */
   private void provideSensorInput() {
-    Map<Lane,SortedMap<Double,VehicleSimView>> vehicleLists =
-      computeVehicleLists();
-    Map<VehicleSimView, VehicleSimView> nextVehicle =
-      computeNextVehicle(vehicleLists);
+    laneVehicleIndex.computeNextVehicles();
 
-    provideIntervalInfo(nextVehicle);
-    provideVehicleTrackingInfo(vehicleLists);
+    provideIntervalInfo();
+    provideVehicleTrackingInfo();
     provideTrafficSignal();
-
-    // for debug
-    /*
-    for(SortedMap<Double,VehicleSimView> vehicleList : vehicleLists.values()) {
-      for(VehicleSimView currVehicle : vehicleList.values()) {
-      	VehicleSimView frontVehicle = currVehicle.getFrontVehicle();
-
-      	System.out.print(currVehicle.getVIN());
-
-      	if (frontVehicle == null) {
-      		System.out.println("Nothing");
-      	}
-      	else {
-      		System.out.println(frontVehicle.getVIN());
-      	}
-      }
-    }
-    */
   }
 
   /**
    * Provide sensing information to the intervalometers of all vehicles.
-   *
-   * @param nextVehicle  a mapping from vehicles to next vehicles
    */
-  private void provideIntervalInfo(
-    Map<VehicleSimView, VehicleSimView> nextVehicle) {
+  private void provideIntervalInfo() {
 
     // Now that we have this list set up, let's provide input to all the
     // Vehicles.
@@ -650,11 +726,13 @@ public class AutoDriverOnlySimulator implements Simulator {
         case DISABLED:
           // Find the interval to the next vehicle
           double interval;
+          VehicleSimView nextVehicle =
+            laneVehicleIndex.getNextVehicle(autoVehicle);
           // If there is a next vehicle, then calculate it
-          if(nextVehicle.containsKey(autoVehicle)) {
+          if(nextVehicle != null) {
             // It's the distance from the front of this Vehicle to the point
             // at the rear of the Vehicle in front of it
-            interval = calcInterval(autoVehicle, nextVehicle.get(autoVehicle));
+            interval = calcInterval(autoVehicle, nextVehicle);
           } else { // Otherwise, just set it to the maximum possible value
             interval = Double.MAX_VALUE;
           }
@@ -681,12 +759,8 @@ public class AutoDriverOnlySimulator implements Simulator {
 
   /**
    * Provide tracking information to vehicles.
-   *
-   * @param vehicleLists  a mapping from lanes to lists of vehicles sorted by
-   *                      their distance on their lanes
    */
-  private void provideVehicleTrackingInfo(
-    Map<Lane, SortedMap<Double, VehicleSimView>> vehicleLists) {
+  private void provideVehicleTrackingInfo() {
     // Vehicle Tracking
     for(VehicleSimView vehicle: vinToVehicles.values()) {
       // If the vehicle is autonomous
@@ -707,25 +781,20 @@ public class AutoDriverOnlySimulator implements Simulator {
           VehicleSimView rearVehicle = null ;
 
           // only consider the vehicles on the target lane
-          SortedMap<Double,VehicleSimView> vehiclesOnTargetLane =
-            vehicleLists.get(targetLane);
+          LaneVehicles vehiclesOnTargetLane =
+            laneVehicleIndex.getVehicles(targetLane);
 
           // compute the distances and the corresponding vehicles
-          try {
-            double d = vehiclesOnTargetLane.tailMap(dst).firstKey();
-            frontVehicle = vehiclesOnTargetLane.get(d);
+          int i = vehiclesOnTargetLane.indexOfFirstAtOrAfter(dst);
+          if (i < vehiclesOnTargetLane.size()) {
+            double d = vehiclesOnTargetLane.getDistance(i);
+            frontVehicle = vehiclesOnTargetLane.getVehicle(i);
             frontDst = (d-dst)-frontVehicle.getSpec().getLength();
-          } catch(NoSuchElementException e) {
-            frontDst = Double.MAX_VALUE;
-            frontVehicle = null;
           }
-          try {
-            double d = vehiclesOnTargetLane.headMap(dst).lastKey();
-            rearVehicle = vehiclesOnTargetLane.get(d);
+          if (i > 0) {
+            double d = vehiclesOnTargetLane.getDistance(i - 1);
+            rearVehicle = vehiclesOnTargetLane.getVehicle(i - 1);
             rearDst = dst-d;
-          } catch(NoSuchElementException e) {
-            rearDst = Double.MAX_VALUE;
-            rearVehicle = null;
           }
 
           // assign the sensor readings
@@ -780,6 +849,8 @@ public class AutoDriverOnlySimulator implements Simulator {
 
   /**
    * Calculate the distance between vehicle and the next vehicle on a lane.
+   * How the distance is measured depends on
+   * {@link SimConfig#getIntervalSensingMode()}.
    *
    * @param vehicle      the vehicle
    * @param nextVehicle  the next vehicle
@@ -790,18 +861,23 @@ public class AutoDriverOnlySimulator implements Simulator {
     // From Chiu: Kurt, if you think this function is not okay, probably
     // we should talk to see what to do.
     Point2D pos = vehicle.getPosition();
-    if(nextVehicle.getShape().contains(pos)) {
-      return 0.0;
-    } else {
-      // TODO: make it more efficient
-      double interval = Double.MAX_VALUE ;
-      for(Line2D edge : nextVehicle.getEdges()) {
-        double dst = edge.ptSegDist(pos);
-        if(dst < interval){
-          interval = dst;
-        }
+    OrientedRectangle outline = nextVehicle.getOutline();
+    switch(SimConfig.getIntervalSensingMode()) {
+    case SHAPE:
+      if(outline.contains(pos)) {
+        return 0.0;
+      } else {
+        return outline.ptEdgeDist(pos.getX(), pos.getY());
       }
-      return interval;
+    case BOX:
+      return outline.distance(pos.getX(), pos.getY());
+    case LANE:
+      // the positions along the lane are those of the fronts of the vehicles
+      return Math.max(0.0, laneVehicleIndex.getNextVehicleDistance(vehicle)
+                             - nextVehicle.getSpec().getLength());
+    default:
+      throw new RuntimeException("Unknown interval sensing mode: " +
+                                 SimConfig.getIntervalSensingMode());
     }
   }
   // Kurt's code:
@@ -850,11 +926,25 @@ public class AutoDriverOnlySimulator implements Simulator {
   /////////////////////////////////
 
   /**
-   * Allow each driver to act.
+   * Allow each driver to act.  A driver only reads the sensors of its own
+   * vehicle and the map, and only changes its own vehicle and puts messages
+   * into its outbox; so if {@link SimConfig#isParallelDrivers()} the drivers
+   * act in parallel on the common fork-join pool, with the same results as
+   * when they act one by one.  The drivers act one by one while a vehicle is
+   * selected for debugging, since the debug points are not thread-safe.
    */
   private void letDriversAct() {
-    for(VehicleSimView vehicle : vinToVehicles.values()) {
-      vehicle.getDriver().act();
+    if (SimConfig.isParallelDrivers()
+        && vinToVehicles.size() > DRIVERS_PER_TASK
+        && Debug.getTargetVIN() < 0) {
+      VehicleSimView[] vehicles =
+        vinToVehicles.values().toArray(new VehicleSimView[0]);
+      ForkJoinPool.commonPool().invoke(
+        new DriverActTask(vehicles, 0, vehicles.length));
+    } else {
+      for(VehicleSimView vehicle : vinToVehicles.values()) {
+        vehicle.getDriver().act();
+      }
     }
   }
 
@@ -887,7 +977,11 @@ public class AutoDriverOnlySimulator implements Simulator {
   }
 
   /**
-   * Deliver the V2I messages.
+   * Deliver the V2I messages.  The outboxes are drained on the simulation
+   * thread, vehicle by vehicle in the iteration order of the vehicle map
+   * (which depends only on the VINs of the vehicles), and each outbox in the
+   * order its messages were sent.  So the intersection managers receive the
+   * messages in the same order whether or not the drivers acted in parallel.
    */
   private void deliverV2IMessages() {
     // Go through each vehicle and deliver each of its messages
@@ -1110,6 +1204,7 @@ public class AutoDriverOnlySimulator implements Simulator {
     // Remove the marked vehicles
     for(int vin : removedVINs) {
       vinToVehicles.remove(vin);
+      laneVehicleIndex.remove(vin);
       completedVINs.add(vin);
       numOfCompletedVehicles++;
     }
@@ -1148,18 +1243,18 @@ public class AutoDriverOnlySimulator implements Simulator {
   private void updateTrafficSignal() {
   	// get the list of signal controllers
   	double tl = GridMapUtil.getTrafficLevel(); // traffic level
-  	double hp = SimConfig.HUMAN_PERCENTAGE; // human percentage
+  	double hp = SimConfig.getHumanPercentage(); // human percentage
 
   	double rp = RedPhaseData.getRedPhase(hp, tl); // red phase
   	double offset = ApproxNPhasesTrafficSignalRequestHandler.CyclicSignalController.getEndTime();
 
-  	TrafficSignalPhase phase = Resources.phase;
-  	Map<Integer, SignalController> signalControllers = Resources.signalControllers;
+  	TrafficSignalPhase phase = Resources.getPhase();
+  	Map<Integer, SignalController> signalControllers = Resources.getSignalControllers();
 
   	phase.resetRedDurations(rp);
   	System.out.printf("Appropriate Red Phase Length: %f\n", rp);
 
-  	for(Road road : Resources.im.getIntersection().getEntryRoads()) {
+  	for(Road road : Resources.getIm().getIntersection().getEntryRoads()) {
       for(Lane lane : road.getLanes()) {
     		CyclicSignalController controller =
             phase.calcCyclicSignalController(road);
@@ -0,0 +1,665 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import aim4.im.IntersectionManager;
+import aim4.map.BasicMap;
+import aim4.map.Road;
+import aim4.map.lane.Lane;
+import aim4.vehicle.VehicleSimView;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleSpecDatabase;
+
+/**
+ * The vehicles on each lane ordered by their distance along the lane.
+ * <p>
+ * A vehicle is listed on every lane it occupies, unless it is entirely
+ * inside an intersection, and on every other lane whose bounding box
+ * overlaps its own.  Lanes that run into one another share a list.  The
+ * lists are kept from one step to the next: {@link #update(Iterable)}
+ * recomputes the lists and distances of only the vehicles that have moved
+ * since the last update, rebuilds only the lists these vehicles were or are
+ * on, and restores the order of those lists with an insertion sort, which
+ * takes linear time since vehicles rarely overtake each other.  Vehicles
+ * that are standing still, such as the ones queued at a red light, are
+ * skipped after a comparison of their poses.  The lanes a vehicle may
+ * overlap are looked up in a table computed once from the bounding boxes of
+ * the lanes.
+ */
+public class LaneVehicleIndex {
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The vehicles on a lane, ordered by their distance along the lane.
+   */
+  public static class LaneVehicles {
+
+    /** The vehicles */
+    private VehicleSimView[] vehicles = new VehicleSimView[8];
+    /** The distances of the vehicles along their lanes */
+    private double[] distances = new double[8];
+    /** The number of vehicles */
+    private int size = 0;
+    /** Whether the list must be rebuilt by the current update */
+    private boolean isDirty = false;
+
+    /**
+     * Get the number of vehicles on the lane.
+     *
+     * @return the number of vehicles on the lane
+     */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Whether there is no vehicle on the lane.
+     *
+     * @return whether there is no vehicle on the lane
+     */
+    public boolean isEmpty() {
+      return size == 0;
+    }
+
+    /**
+     * Get the i-th vehicle from the start of the lane.
+     *
+     * @param i  the index of the vehicle
+     * @return the vehicle
+     */
+    public VehicleSimView getVehicle(int i) {
+      assert i < size;
+      return vehicles[i];
+    }
+
+    /**
+     * Get the distance along the lane of the i-th vehicle from the start of
+     * the lane.
+     *
+     * @param i  the index of the vehicle
+     * @return the distance along the lane
+     */
+    public double getDistance(int i) {
+      assert i < size;
+      return distances[i];
+    }
+
+    /**
+     * Get the index of the first vehicle whose distance along the lane is
+     * larger than or equal to a given distance.
+     *
+     * @param dst  the distance along the lane
+     * @return the index of the vehicle; {@link #size()} if there is none
+     */
+    public int indexOfFirstAtOrAfter(double dst) {
+      int lo = 0;
+      int hi = size;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (distances[mid] < dst) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      return lo;
+    }
+
+    /**
+     * Append a vehicle at the end of the list.
+     *
+     * @param vehicle  the vehicle
+     * @param dst      the distance of the vehicle along the lane
+     */
+    private void append(VehicleSimView vehicle, double dst) {
+      if (size == vehicles.length) {
+        VehicleSimView[] newVehicles = new VehicleSimView[size * 2];
+        System.arraycopy(vehicles, 0, newVehicles, 0, size);
+        vehicles = newVehicles;
+        double[] newDistances = new double[size * 2];
+        System.arraycopy(distances, 0, newDistances, 0, size);
+        distances = newDistances;
+      }
+      vehicles[size] = vehicle;
+      distances[size] = dst;
+      size++;
+    }
+
+    /**
+     * Restore the order of the vehicles by an insertion sort.
+     */
+    private void sort() {
+      for (int i = 1; i < size; i++) {
+        double d = distances[i];
+        if (d < distances[i - 1]) {
+          VehicleSimView v = vehicles[i];
+          int j = i - 1;
+          while (j >= 0 && distances[j] > d) {
+            distances[j + 1] = distances[j];
+            vehicles[j + 1] = vehicles[j];
+            j--;
+          }
+          distances[j + 1] = d;
+          vehicles[j + 1] = v;
+        }
+      }
+    }
+  }
+
+  /**
+   * The lanes a vehicle is listed on.
+   */
+  private static class Entry {
+    /** The vehicle */
+    private VehicleSimView vehicle;
+    /** The lists the vehicle is on */
+    private LaneVehicles[] lists = new LaneVehicles[4];
+    /** The distances of the vehicle along the lanes of the lists */
+    private double[] distances = new double[4];
+    /** The number of lists the vehicle is on */
+    private int numOfLists = 0;
+    /** The lists the vehicle was on before the current update */
+    private LaneVehicles[] prevLists = new LaneVehicles[4];
+    /** The number of lists the vehicle was on before the current update */
+    private int numOfPrevLists = 0;
+    /** The x-coordinate of the vehicle when its lists were computed */
+    private double lastX;
+    /** The y-coordinate of the vehicle when its lists were computed */
+    private double lastY;
+    /** The heading of the vehicle when its lists were computed */
+    private double lastHeading;
+    /** The lanes the vehicle occupied when its lists were computed */
+    private Lane[] lastOccupiedLanes;
+    /** The vehicle in front of this vehicle */
+    private VehicleSimView nextVehicle;
+    /**
+     * The distance along the lane from this vehicle to the vehicle in front
+     */
+    private double nextVehicleDistance;
+
+    /**
+     * Create an entry for a vehicle.
+     *
+     * @param vehicle  the vehicle
+     */
+    private Entry(VehicleSimView vehicle) {
+      this.vehicle = vehicle;
+    }
+
+    /**
+     * Get the index of a list in this entry.
+     *
+     * @param list  the list
+     * @return the index; -1 if the vehicle is not on the list
+     */
+    private int indexOf(LaneVehicles list) {
+      for (int i = 0; i < numOfLists; i++) {
+        if (lists[i] == list) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Whether the vehicle was on a list before the current update.
+     *
+     * @param list  the list
+     * @return whether the vehicle was on the list
+     */
+    private boolean wasOn(LaneVehicles list) {
+      for (int i = 0; i < numOfPrevLists; i++) {
+        if (prevLists[i] == list) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Whether the vehicle has not moved, turned or changed the lanes it
+     * occupies since its lists were computed.
+     *
+     * @return whether the lists of the vehicle are still up to date
+     */
+    private boolean isUnchanged() {
+      Point2D pos = vehicle.getPosition();
+      if (lastOccupiedLanes == null
+          || lastX != pos.getX() || lastY != pos.getY()
+          || lastHeading != vehicle.getHeading()) {
+        return false;
+      }
+      Set<Lane> occupiedLanes =
+        vehicle.getDriver().getCurrentlyOccupiedLanes();
+      if (occupiedLanes.size() != lastOccupiedLanes.length) {
+        return false;
+      }
+      for (Lane lane : lastOccupiedLanes) {
+        if (!occupiedLanes.contains(lane)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Record the pose and the occupied lanes of the vehicle for which its
+     * lists are computed, and keep its current lists as the previous ones.
+     */
+    private void startRecompute() {
+      if (prevLists.length < numOfLists) {
+        prevLists = new LaneVehicles[lists.length];
+      }
+      System.arraycopy(lists, 0, prevLists, 0, numOfLists);
+      numOfPrevLists = numOfLists;
+      numOfLists = 0;
+      Point2D pos = vehicle.getPosition();
+      lastX = pos.getX();
+      lastY = pos.getY();
+      lastHeading = vehicle.getHeading();
+      Set<Lane> occupiedLanes =
+        vehicle.getDriver().getCurrentlyOccupiedLanes();
+      lastOccupiedLanes = occupiedLanes.toArray(new Lane[occupiedLanes.size()]);
+    }
+
+    /**
+     * Record that the vehicle is on a list.  A vehicle is listed at most
+     * once on each list.
+     *
+     * @param list  the list
+     * @param dst   the distance of the vehicle along the lane
+     */
+    private void put(LaneVehicles list, double dst) {
+      if (indexOf(list) >= 0) {
+        return;
+      }
+      if (numOfLists == lists.length) {
+        LaneVehicles[] newLists = new LaneVehicles[numOfLists * 2];
+        System.arraycopy(lists, 0, newLists, 0, numOfLists);
+        lists = newLists;
+        double[] newDistances = new double[numOfLists * 2];
+        System.arraycopy(distances, 0, newDistances, 0, numOfLists);
+        distances = newDistances;
+      }
+      lists[numOfLists] = list;
+      distances[numOfLists] = dst;
+      numOfLists++;
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The lanes in the order of the roads of the map */
+  private List<Lane> lanes;
+  /** A mapping from lanes to the lists of the vehicles on them */
+  private Map<Lane,LaneVehicles> laneToList;
+  /** The lists of vehicles, one for each chain of lanes */
+  private List<LaneVehicles> lists;
+  /** A mapping from lanes to their bounding boxes */
+  private Map<Lane,Rectangle2D> laneToBounds;
+  /**
+   * A mapping from lanes to their bounding boxes enlarged by the size of the
+   * largest vehicle
+   */
+  private Map<Lane,Rectangle2D> laneToNearbyBounds;
+  /**
+   * A mapping from lanes to the other lanes whose bounding boxes overlap the
+   * enlarged bounding box of the lane
+   */
+  private Map<Lane,Lane[]> laneToOverlappingLanes;
+  /** A mapping from VINs to the entries of the vehicles */
+  private Map<Integer,Entry> vinToEntry;
+  /** The entries of the vehicles that moved, used by the current update */
+  private List<Entry> movedEntries = new ArrayList<Entry>();
+  /** The lists that must be rebuilt by the current update */
+  private List<LaneVehicles> dirtyLists = new ArrayList<LaneVehicles>();
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create an index for the lanes of a map.
+   *
+   * @param basicMap  the map
+   */
+  public LaneVehicleIndex(BasicMap basicMap) {
+    lanes = new ArrayList<Lane>();
+    for (Road road : basicMap.getRoads()) {
+      lanes.addAll(road.getLanes());
+    }
+
+    // lanes that run into one another share the list of the first lane
+    laneToList = new HashMap<Lane,LaneVehicles>();
+    lists = new ArrayList<LaneVehicles>();
+    for (Lane lane : lanes) {
+      if (!lane.hasPrevLane()) {
+        LaneVehicles list = new LaneVehicles();
+        lists.add(list);
+        for (Lane l = lane; l != null; l = l.hasNextLane() ? l.getNextLane()
+                                                            : null) {
+          laneToList.put(l, list);
+        }
+      }
+    }
+    for (Lane lane : lanes) {
+      if (!laneToList.containsKey(lane)) {  // a lane in a cycle
+        LaneVehicles list = new LaneVehicles();
+        lists.add(list);
+        laneToList.put(lane, list);
+      }
+    }
+
+    double margin = 0.0;
+    for (int i = 0; i < VehicleSpecDatabase.getNumOfSpec(); i++) {
+      VehicleSpec spec = VehicleSpecDatabase.getVehicleSpecById(i);
+      margin = Math.max(margin, spec.getLength() + spec.getWidth());
+    }
+
+    laneToBounds = new HashMap<Lane,Rectangle2D>();
+    laneToNearbyBounds = new HashMap<Lane,Rectangle2D>();
+    for (Lane lane : lanes) {
+      Rectangle2D bounds = lane.getShape().getBounds2D();
+      laneToBounds.put(lane, bounds);
+      laneToNearbyBounds.put(lane,
+        new Rectangle2D.Double(bounds.getMinX() - margin,
+                               bounds.getMinY() - margin,
+                               bounds.getWidth() + 2 * margin,
+                               bounds.getHeight() + 2 * margin));
+    }
+    laneToOverlappingLanes = new HashMap<Lane,Lane[]>();
+    for (Lane lane : lanes) {
+      List<Lane> overlappingLanes = new ArrayList<Lane>();
+      for (Lane otherLane : lanes) {
+        if (otherLane.getId() != lane.getId()
+            && laneToBounds.get(otherLane).intersects(
+                 laneToNearbyBounds.get(lane))) {
+          overlappingLanes.add(otherLane);
+        }
+      }
+      laneToOverlappingLanes.put(lane,
+        overlappingLanes.toArray(new Lane[overlappingLanes.size()]));
+    }
+
+    vinToEntry = new HashMap<Integer,Entry>();
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the vehicles on a lane.
+   *
+   * @param lane  the lane
+   * @return the vehicles on the lane, ordered by their distance along the
+   *         lane
+   */
+  public LaneVehicles getVehicles(Lane lane) {
+    return laneToList.get(lane);
+  }
+
+  /**
+   * Get the vehicle in front of a vehicle, as computed by the last call of
+   * {@link #computeNextVehicles()}.
+   *
+   * @param vehicle  the vehicle
+   * @return the vehicle in front; null if there is none
+   */
+  public VehicleSimView getNextVehicle(VehicleSimView vehicle) {
+    Entry entry = vinToEntry.get(vehicle.getVIN());
+    return (entry == null) ? null : entry.nextVehicle;
+  }
+
+  /**
+   * Get the distance along the lane from the position of a vehicle to the
+   * position of the vehicle in front of it, as computed by the last call of
+   * {@link #computeNextVehicles()}.
+   *
+   * @param vehicle  the vehicle
+   * @return the distance to the vehicle in front; Double.MAX_VALUE if there
+   *         is none
+   */
+  public double getNextVehicleDistance(VehicleSimView vehicle) {
+    Entry entry = vinToEntry.get(vehicle.getVIN());
+    if (entry == null || entry.nextVehicle == null) {
+      return Double.MAX_VALUE;
+    } else {
+      return entry.nextVehicleDistance;
+    }
+  }
+
+  /**
+   * Add a vehicle that has just entered the simulation.
+   *
+   * @param vehicle  the vehicle
+   */
+  public void add(VehicleSimView vehicle) {
+    Entry entry = new Entry(vehicle);
+    vinToEntry.put(vehicle.getVIN(), entry);
+    computeLists(entry);
+    for (int i = 0; i < entry.numOfLists; i++) {
+      LaneVehicles list = entry.lists[i];
+      list.append(vehicle, entry.distances[i]);
+      list.sort();
+    }
+  }
+
+  /**
+   * Remove a vehicle that has left the simulation.
+   *
+   * @param vin  the VIN of the vehicle
+   */
+  public void remove(int vin) {
+    Entry entry = vinToEntry.remove(vin);
+    if (entry != null) {
+      for (int i = 0; i < entry.numOfLists; i++) {
+        LaneVehicles list = entry.lists[i];
+        int k = 0;
+        for (int j = 0; j < list.size; j++) {
+          if (list.vehicles[j] != entry.vehicle) {
+            list.vehicles[k] = list.vehicles[j];
+            list.distances[k] = list.distances[j];
+            k++;
+          }
+        }
+        for (int j = k; j < list.size; j++) {
+          list.vehicles[j] = null;
+        }
+        list.size = k;
+      }
+    }
+  }
+
+  /**
+   * Recompute the positions of the vehicles on the lanes after they moved.
+   * Only the vehicles that moved are projected onto the lanes again, and
+   * only the lists they leave or join are rebuilt.
+   *
+   * @param vehicles  all the vehicles in the simulation
+   */
+  public void update(Iterable<VehicleSimView> vehicles) {
+    for (VehicleSimView vehicle : vehicles) {
+      Entry entry = vinToEntry.get(vehicle.getVIN());
+      if (entry == null) {
+        entry = new Entry(vehicle);
+        vinToEntry.put(vehicle.getVIN(), entry);
+      } else if (entry.isUnchanged()) {
+        continue;
+      }
+      entry.startRecompute();
+      computeLists(entry);
+      for (int i = 0; i < entry.numOfPrevLists; i++) {
+        markDirty(entry.prevLists[i]);
+      }
+      for (int i = 0; i < entry.numOfLists; i++) {
+        markDirty(entry.lists[i]);
+      }
+      movedEntries.add(entry);
+    }
+
+    for (LaneVehicles list : dirtyLists) {
+      // keep the vehicles that are still on the list, with their current
+      // distances, in their old order
+      int k = 0;
+      for (int j = 0; j < list.size; j++) {
+        Entry entry = vinToEntry.get(list.vehicles[j].getVIN());
+        int i = entry.indexOf(list);
+        if (i >= 0) {
+          list.vehicles[k] = entry.vehicle;
+          list.distances[k] = entry.distances[i];
+          k++;
+        }
+      }
+      for (int j = k; j < list.size; j++) {
+        list.vehicles[j] = null;
+      }
+      list.size = k;
+    }
+    // append the vehicles that are new on a list
+    for (Entry entry : movedEntries) {
+      for (int i = 0; i < entry.numOfLists; i++) {
+        if (!entry.wasOn(entry.lists[i])) {
+          entry.lists[i].append(entry.vehicle, entry.distances[i]);
+        }
+      }
+    }
+
+    for (LaneVehicles list : dirtyLists) {
+      list.sort();
+      list.isDirty = false;
+    }
+    movedEntries.clear();
+    dirtyLists.clear();
+  }
+
+  /**
+   * Compute the vehicle in front of each vehicle and let each vehicle know
+   * about it.
+   */
+  public void computeNextVehicles() {
+    for (Entry entry : vinToEntry.values()) {
+      entry.nextVehicle = null;
+    }
+    for (LaneVehicles list : lists) {
+      for (int j = 1; j < list.size; j++) {
+        VehicleSimView lastVehicle = list.vehicles[j - 1];
+        VehicleSimView currVehicle = list.vehicles[j];
+        Entry lastEntry = vinToEntry.get(lastVehicle.getVIN());
+        lastEntry.nextVehicle = currVehicle;
+        lastEntry.nextVehicleDistance =
+          list.distances[j] - list.distances[j - 1];
+        lastVehicle.setFrontVehicle(currVehicle);
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Compute the lists a vehicle should be on and its distances along their
+   * lanes.
+   *
+   * @param entry  the entry of the vehicle
+   */
+  private void computeLists(Entry entry) {
+    VehicleSimView vehicle = entry.vehicle;
+    Point2D pos = vehicle.getPosition();
+    Rectangle2D vehicleBounds = null;
+    for (Lane lane : vehicle.getDriver().getCurrentlyOccupiedLanes()) {
+      // Find out what IntersectionManager is coming up for this vehicle
+      IntersectionManager im = lane.getLaneIM().nextIntersectionManager(pos);
+      // Only include this Vehicle if it is not entirely in the intersection.
+      if (im == null || !(im.intersectsPoint(pos)
+                          && im.intersectsPoint(vehicle.getPointAtRear()))) {
+        entry.put(laneToList.get(lane), lane.distanceAlongLane(pos));
+        // Now check if this vehicle intersects any other lanes
+        if (vehicleBounds == null) {
+          vehicleBounds = vehicle.getShape().getBounds2D();
+        }
+        if (laneToNearbyBounds.get(lane).contains(vehicleBounds)) {
+          for (Lane otherLane : laneToOverlappingLanes.get(lane)) {
+            putIfOverlapping(entry, vehicleBounds, otherLane);
+          }
+        } else {  // the vehicle is far from the lane; check all lanes
+          for (Lane otherLane : lanes) {
+            if (otherLane.getId() != lane.getId()) {
+              putIfOverlapping(entry, vehicleBounds, otherLane);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Mark a list to be rebuilt by the current update.
+   *
+   * @param list  the list
+   */
+  private void markDirty(LaneVehicles list) {
+    if (!list.isDirty) {
+      list.isDirty = true;
+      dirtyLists.add(list);
+    }
+  }
+
+  /**
+   * Put a vehicle on the list of a lane if the bounding boxes of the vehicle
+   * and the lane overlap.
+   *
+   * @param entry          the entry of the vehicle
+   * @param vehicleBounds  the bounding box of the vehicle
+   * @param lane           the lane
+   */
+  private void putIfOverlapping(Entry entry, Rectangle2D vehicleBounds,
+                                Lane lane) {
+    if (laneToBounds.get(lane).intersects(vehicleBounds)) {
+      entry.put(laneToList.get(lane),
+                lane.distanceAlongLane(entry.vehicle.getPosition()));
+    }
+  }
+}
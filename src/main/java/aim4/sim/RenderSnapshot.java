@@ -0,0 +1,443 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.awt.Color;
+import java.awt.Shape;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import aim4.config.Debug;
+import aim4.config.DebugPoint;
+import aim4.config.SimConfig;
+import aim4.config.SimConfig.VEHICLE_TYPE;
+import aim4.config.TrafficSignal;
+import aim4.driver.AutoDriver;
+import aim4.driver.coordinator.V2ICoordinator;
+import aim4.im.IntersectionManager;
+import aim4.im.v2i.V2IManager;
+import aim4.im.v2i.RequestHandler.TrafficSignalRequestHandler;
+import aim4.im.v2i.policy.BasePolicy;
+import aim4.im.v2i.policy.Policy;
+import aim4.map.lane.Lane;
+import aim4.msg.v2i.Request;
+import aim4.msg.v2i.V2IMessage;
+import aim4.util.OrientedRectangle;
+import aim4.util.Util;
+import aim4.vehicle.AutoVehicleSimView;
+import aim4.vehicle.VehicleSimView;
+
+/**
+ * An immutable picture of the state of a simulation that is needed to draw
+ * it on screen.  The simulator takes a snapshot at the end of a step, so
+ * that the GUI can draw from the snapshot without reading the vehicles
+ * while the simulator moves them.
+ */
+public class RenderSnapshot {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The color index of a vehicle with no particular state */
+  public static final int COLOR_DEFAULT = 0;
+  /** The color index of a vehicle waiting for a response from an IM */
+  public static final int COLOR_WAITING_FOR_RESPONSE = 1;
+  /** The color index of a vehicle that has a reservation */
+  public static final int COLOR_HAS_RESERVATION = 2;
+  /** The color index of a human-driven vehicle */
+  public static final int COLOR_HUMAN = 3;
+  /** The color index of a human-driven vehicle in cruise control */
+  public static final int COLOR_CRUISE = 4;
+  /** The color index of a human-driven vehicle in adaptive cruise control */
+  public static final int COLOR_ADAPTIVE_CRUISE = 5;
+  /** The color index of a human-driven vehicle following a HUD */
+  public static final int COLOR_HUD = 6;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The simulation time */
+  private final double time;
+  /** The number of vehicles */
+  private final int numOfVehicles;
+  /** The VINs of the vehicles */
+  private final int[] vins;
+  /** The x-coordinates of the front of the vehicles */
+  private final double[] xs;
+  /** The y-coordinates of the front of the vehicles */
+  private final double[] ys;
+  /** The headings of the vehicles */
+  private final double[] headings;
+  /** The lengths of the vehicles */
+  private final double[] lengths;
+  /** The half of the widths of the vehicles */
+  private final double[] halfWidths;
+  /** The color indices of the vehicles */
+  private final byte[] colorIndices;
+  /** The debug colors of the vehicles; null if a vehicle has none */
+  private final Color[] debugColors;
+  /**
+   * The information strings of the vehicles other than the VINs; null if a
+   * vehicle has none
+   */
+  private final String[] infoStrings;
+  /** The VIN of the selected vehicle */
+  private final int selectedVin;
+  /** The shapes of the wheels of the selected vehicle; null if none */
+  private final Shape[] selectedWheelShapes;
+  /**
+   * The traffic signals of the entry lanes of the intersection managers, in
+   * the order of the intersection managers and of their entry lanes; null
+   * for an intersection manager without traffic signals
+   */
+  private final TrafficSignal[][] signals;
+  /** The long term debug points followed by the short term ones */
+  private final DebugPoint[] debugPoints;
+
+  /////////////////////////////////
+  // PUBLIC STATIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Take a snapshot of a simulation.  This must run on the thread that
+   * steps the simulation, between two steps.
+   *
+   * @param time      the simulation time
+   * @param vehicles  the active vehicles
+   * @param ims       the intersection managers
+   * @return the snapshot
+   */
+  public static RenderSnapshot take(double time,
+                                    Collection<VehicleSimView> vehicles,
+                                    Collection<IntersectionManager> ims) {
+    return new RenderSnapshot(time, vehicles, ims);
+  }
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a snapshot of a simulation.
+   *
+   * @param time      the simulation time
+   * @param vehicles  the active vehicles
+   * @param ims       the intersection managers
+   */
+  private RenderSnapshot(double time, Collection<VehicleSimView> vehicles,
+                         Collection<IntersectionManager> ims) {
+    this.time = time;
+    this.numOfVehicles = vehicles.size();
+    this.vins = new int[numOfVehicles];
+    this.xs = new double[numOfVehicles];
+    this.ys = new double[numOfVehicles];
+    this.headings = new double[numOfVehicles];
+    this.lengths = new double[numOfVehicles];
+    this.halfWidths = new double[numOfVehicles];
+    this.colorIndices = new byte[numOfVehicles];
+    this.debugColors = new Color[numOfVehicles];
+    this.infoStrings = new String[numOfVehicles];
+    this.selectedVin = Debug.getTargetVIN();
+    Shape[] wheelShapes = null;
+    int i = 0;
+    for (VehicleSimView vehicle : vehicles) {
+      OrientedRectangle outline = vehicle.getOutline();
+      vins[i] = vehicle.getVIN();
+      xs[i] = outline.getX();
+      ys[i] = outline.getY();
+      headings[i] = outline.getHeading();
+      lengths[i] = outline.getLength();
+      halfWidths[i] = outline.getHalfWidth();
+      colorIndices[i] = (byte)calcColorIndex(vehicle);
+      debugColors[i] = Debug.getVehicleColor(vins[i]);
+      infoStrings[i] = calcInfoString(vehicle, time);
+      if (vins[i] == selectedVin) {
+        wheelShapes = vehicle.getWheelShapes();
+      }
+      i++;
+    }
+    this.selectedWheelShapes = wheelShapes;
+
+    this.signals = new TrafficSignal[ims.size()][];
+    i = 0;
+    for (IntersectionManager im : ims) {
+      TrafficSignalRequestHandler requestHandler =
+        getTrafficSignalRequestHandler(im);
+      if (requestHandler != null) {
+        List<Lane> entryLanes = im.getIntersection().getEntryLanes();
+        signals[i] = new TrafficSignal[entryLanes.size()];
+        for (int j = 0; j < entryLanes.size(); j++) {
+          signals[i][j] = requestHandler.getSignal(entryLanes.get(j).getId());
+        }
+      }
+      i++;
+    }
+
+    List<DebugPoint> points = new ArrayList<DebugPoint>();
+    points.addAll(Debug.getLongTermDebugPoints());
+    points.addAll(Debug.getShortTermDebugPoints());
+    this.debugPoints = points.toArray(new DebugPoint[points.size()]);
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the simulation time.
+   *
+   * @return the simulation time
+   */
+  public double getTime() {
+    return time;
+  }
+
+  /**
+   * Get the number of vehicles.
+   *
+   * @return the number of vehicles
+   */
+  public int getNumOfVehicles() {
+    return numOfVehicles;
+  }
+
+  /**
+   * Get the VIN of a vehicle.
+   *
+   * @param i  the index of the vehicle
+   * @return the VIN of the vehicle
+   */
+  public int getVin(int i) {
+    return vins[i];
+  }
+
+  /**
+   * Set a rectangle to the outline of a vehicle.
+   *
+   * @param i        the index of the vehicle
+   * @param outline  the rectangle
+   */
+  public void getOutline(int i, OrientedRectangle outline) {
+    outline.set(xs[i], ys[i], headings[i], lengths[i], halfWidths[i]);
+  }
+
+  /**
+   * Get the color index of a vehicle.
+   *
+   * @param i  the index of the vehicle
+   * @return the color index of the vehicle
+   */
+  public int getColorIndex(int i) {
+    return colorIndices[i];
+  }
+
+  /**
+   * Get the debug color of a vehicle.
+   *
+   * @param i  the index of the vehicle
+   * @return the debug color of the vehicle; null if the vehicle has none
+   */
+  public Color getDebugColor(int i) {
+    return debugColors[i];
+  }
+
+  /**
+   * Get the information string of a vehicle, other than its VIN.
+   *
+   * @param i  the index of the vehicle
+   * @return the information string of the vehicle; null if the vehicle has
+   *         none
+   */
+  public String getInfoString(int i) {
+    return infoStrings[i];
+  }
+
+  /**
+   * Get the VIN of the vehicle that was selected when the snapshot was
+   * taken.
+   *
+   * @return the VIN of the selected vehicle
+   */
+  public int getSelectedVin() {
+    return selectedVin;
+  }
+
+  /**
+   * Get the shapes of the wheels of the selected vehicle.
+   *
+   * @return the shapes of the wheels of the selected vehicle; null if the
+   *         selected vehicle is not active
+   */
+  public Shape[] getSelectedWheelShapes() {
+    return selectedWheelShapes;
+  }
+
+  /**
+   * Get the traffic signals of the entry lanes of an intersection manager.
+   *
+   * @param i  the index of the intersection manager
+   * @return the traffic signals in the order of the entry lanes; null if
+   *         the intersection manager has no traffic signals
+   */
+  public TrafficSignal[] getSignals(int i) {
+    return signals[i];
+  }
+
+  /**
+   * Get the debug points, the long term ones followed by the short term
+   * ones.
+   *
+   * @return the debug points
+   */
+  public DebugPoint[] getDebugPoints() {
+    return debugPoints;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the color index of a vehicle.
+   *
+   * @param vehicle  the vehicle
+   * @return the color index of the vehicle
+   */
+  private static int calcColorIndex(VehicleSimView vehicle) {
+    VEHICLE_TYPE type = vehicle.getVehicleType();
+    // if it's human-driven vehicle, change color
+    if (SimConfig.getSignalType() != null
+        && SimConfig.getSignalType() != SimConfig.SIGNAL_TYPE.DEFAULT
+        && type != VEHICLE_TYPE.AUTO) {
+      if (type == VEHICLE_TYPE.HUMAN) {
+        return COLOR_HUMAN;
+      } else if (type == VEHICLE_TYPE.CRUISE) {
+        return COLOR_CRUISE;
+      } else if (type == VEHICLE_TYPE.ADAPTIVE_CRUISE) {
+        return COLOR_ADAPTIVE_CRUISE;
+      }
+    }
+    if (type == VEHICLE_TYPE.HUD) {
+      return COLOR_HUD;
+    } else if (Debug.SHOW_VEHICLE_COLOR_BY_MSG_STATE
+               && vehicle.getDriver() instanceof AutoDriver) {
+      AutoDriver autoDriver = (AutoDriver) vehicle.getDriver();
+      if (autoDriver.getCurrentCoordinator() instanceof V2ICoordinator) {
+        V2ICoordinator coordinator =
+          (V2ICoordinator) autoDriver.getCurrentCoordinator();
+        if (coordinator.isAwaitingResponse()) {
+          return COLOR_WAITING_FOR_RESPONSE;
+        } else if (coordinator.getReservationParameter() != null) {
+          return COLOR_HAS_RESERVATION;
+        }
+      }
+    }
+    return COLOR_DEFAULT;
+  }
+
+  /**
+   * Get the information string of a vehicle, other than its VIN.
+   *
+   * @param vehicle      the vehicle
+   * @param currentTime  the current simulated time
+   * @return the information string; null if there is none
+   */
+  private static String calcInfoString(VehicleSimView vehicle,
+                                       double currentTime) {
+    if (!Debug.SHOW_ARRIVAL_TIME && !Debug.SHOW_REMAINING_ARRIVAL_TIME) {
+      return null;
+    }
+    List<String> infos = new ArrayList<String>();
+    if (vehicle instanceof AutoVehicleSimView
+        && vehicle.getDriver() instanceof AutoDriver) {
+      AutoDriver da = (AutoDriver) vehicle.getDriver();
+      if (da.getCurrentCoordinator() instanceof V2ICoordinator) {
+        V2ICoordinator coordinator =
+            (V2ICoordinator) da.getCurrentCoordinator();
+        if (coordinator.isAwaitingResponse()
+            || coordinator.getReservationParameter() != null) {
+          V2IMessage msg = ((AutoVehicleSimView) vehicle).getLastV2IMessage();
+          if (msg instanceof Request) {
+            Request request = (Request) msg;
+            if (request.getProposals().size() > 0) {
+              // one arrival time is enough.
+              double arrivalTime =
+                request.getProposals().get(0).getArrivalTime();
+              // display the arrival time of the request
+              if (Debug.SHOW_ARRIVAL_TIME) {
+                infos.add(String.format("%.2f", arrivalTime));
+              }
+              if (Debug.SHOW_REMAINING_ARRIVAL_TIME
+                  && (coordinator.getReservationParameter() == null
+                      || arrivalTime - currentTime >= 0)) {
+                infos.add(String.format("%.2f", arrivalTime - currentTime));
+              }
+            } else {
+              if (Debug.SHOW_ARRIVAL_TIME) {
+                infos.add("No Proposals");
+              }
+              if (Debug.SHOW_REMAINING_ARRIVAL_TIME) {
+                infos.add("No Proposals");
+              }
+            }
+          } // else ignore other types of messages
+        }
+      }
+    }
+    return infos.isEmpty() ? null : Util.concatenate(infos, ",");
+  }
+
+  /**
+   * Get the traffic signal request handler of an intersection manager.
+   *
+   * @param im  the intersection manager
+   * @return the traffic signal request handler; null if the intersection
+   *         manager does not use one
+   */
+  private static TrafficSignalRequestHandler getTrafficSignalRequestHandler(
+      IntersectionManager im) {
+    if (im instanceof V2IManager) {
+      Policy policy = ((V2IManager) im).getPolicy();
+      if (policy instanceof BasePolicy) {
+        BasePolicy basePolicy = (BasePolicy) policy;
+        if (basePolicy.getRequestHandler()
+            instanceof TrafficSignalRequestHandler) {
+          return (TrafficSignalRequestHandler) basePolicy.getRequestHandler();
+        }
+      }
+    }
+    return null;
+  }
+
+}
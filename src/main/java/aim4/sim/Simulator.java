@@ -96,6 +96,31 @@ public interface Simulator {
    */
   Set<VehicleSimView> getActiveVehicles();
 
+  /**
+   * Set whether a render snapshot is taken after every step.  When it is
+   * enabled, a snapshot of the current state is taken at once.
+   *
+   * @param enabled  whether a render snapshot is taken after every step
+   */
+  void setRenderSnapshotEnabled(boolean enabled);
+
+  /**
+   * Get the render snapshot taken after the last step.  The snapshot can be
+   * read by any thread without blocking the simulation.
+   *
+   * @return the last render snapshot; null if render snapshots are not
+   *         enabled
+   */
+  RenderSnapshot getRenderSnapshot();
+
+  /**
+   * Take a render snapshot of the current state, whether or not render
+   * snapshots are taken after every step.
+   *
+   * @return the render snapshot
+   */
+  RenderSnapshot takeRenderSnapshot();
+
   /**
    * Get a particular active vehicle via a given VIN.
    *
@@ -0,0 +1,362 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import aim4.config.SimConfig;
+import aim4.config.SimulationContext;
+import aim4.map.BasicMap;
+import aim4.map.BinaryDataCollectionLineWriter;
+import aim4.map.DataCollectionLine;
+import aim4.map.DataCollectionLineWriter;
+import aim4.sim.setup.SimSetup;
+import aim4.util.Util;
+
+/**
+ * Run the points of a parameter sweep as simulations on a fixed-size pool of
+ * threads in this JVM.
+ * <p>
+ * Each point writes the data of the data collection lines to
+ * <code>&lt;name&gt;.csv</code> and a one-line summary to
+ * <code>&lt;name&gt;.summary</code> in the output directory.  The CSV file is
+ * written under a temporary name and renamed when it is complete, so a point
+ * whose CSV file exists has finished and is skipped when the sweep is run
+ * again.  After all points have run, the summaries of the finished points are
+ * merged, in the order of the points, into <code>summary.csv</code>.
+ */
+public class SweepRunner {
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * A point of a parameter sweep.
+   */
+  public static interface SweepPoint {
+
+    /**
+     * Get the name of the point.  It must be unique within a sweep since it
+     * is used as the name of the output files.
+     *
+     * @return the name of the point
+     */
+    String getName();
+
+    /**
+     * Get the values of the parameters of the point as comma-separated
+     * values, in the order of the summary header of the sweep.
+     *
+     * @return the values of the parameters
+     */
+    String getParameterValues();
+
+    /**
+     * Make the setup of the simulation of this point.  This is called on the
+     * worker thread with a fresh {@link SimulationContext} bound, so it can
+     * change the settings in {@link SimConfig} without affecting the other
+     * points.
+     *
+     * @return the setup of the simulation
+     */
+    SimSetup makeSimSetup();
+  }
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The name of the merged summary file */
+  public static final String SUMMARY_FILE_NAME = "summary.csv";
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The points of the sweep */
+  private List<SweepPoint> points;
+  /** The names of the parameters, separated by commas */
+  private String parameterNames;
+  /** The directory of the output files */
+  private File outDir;
+  /** The number of worker threads */
+  private int numOfThreads;
+  /** The seed of the random number generator of every point */
+  private long randSeed;
+  /**
+   * Whether the data of the data collection lines are written in the binary
+   * format of BinaryDataCollectionLineWriter instead of CSV
+   */
+  private boolean isBinaryOutput;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a runner of a parameter sweep.
+   *
+   * @param points          the points of the sweep
+   * @param parameterNames  the names of the parameters, separated by commas
+   * @param outDir          the directory of the output files
+   * @param numOfThreads    the number of worker threads
+   * @param randSeed        the seed of the random number generator of every
+   *                        point
+   */
+  public SweepRunner(List<SweepPoint> points, String parameterNames,
+                     File outDir, int numOfThreads, long randSeed) {
+    assert numOfThreads > 0;
+    this.points = new ArrayList<SweepPoint>(points);
+    this.parameterNames = parameterNames;
+    this.outDir = outDir;
+    this.numOfThreads = numOfThreads;
+    this.randSeed = randSeed;
+    this.isBinaryOutput = false;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Set whether the data of the data collection lines are written in the
+   * binary format of BinaryDataCollectionLineWriter instead of CSV.
+   *
+   * @param isBinaryOutput  whether the data are written in the binary
+   *                        format
+   */
+  public void setBinaryOutput(boolean isBinaryOutput) {
+    this.isBinaryOutput = isBinaryOutput;
+  }
+
+  /**
+   * Run all the points that have not finished in an earlier run, then write
+   * the merged summary.
+   *
+   * @return the number of points that failed
+   * @throws IOException if the output directory cannot be created or the
+   *                     summary cannot be written
+   */
+  public int run() throws IOException {
+    if (!outDir.isDirectory() && !outDir.mkdirs()) {
+      throw new IOException("Cannot create directory " + outDir);
+    }
+
+    List<SweepPoint> remaining = new ArrayList<SweepPoint>();
+    for (SweepPoint point : points) {
+      if (isDone(point)) {
+        System.out.printf("%s: already done, skipped.\n", point.getName());
+      } else {
+        remaining.add(point);
+      }
+    }
+
+    int numOfFailures = 0;
+    if (!remaining.isEmpty()) {
+      ExecutorService executor = Executors.newFixedThreadPool(
+          Math.min(numOfThreads, remaining.size()));
+      CompletionService<SweepPoint> completionService =
+        new ExecutorCompletionService<SweepPoint>(executor);
+      for (final SweepPoint point : remaining) {
+        completionService.submit(new Runnable() {
+          @Override
+          public void run() {
+            runPoint(point);
+          }
+        }, point);
+      }
+      executor.shutdown();
+
+      for (int i = 0; i < remaining.size(); i++) {
+        try {
+          SweepPoint point = completionService.take().get();
+          System.out.printf("%s: done (%d/%d).\n",
+                            point.getName(), i + 1, remaining.size());
+        } catch (ExecutionException e) {
+          numOfFailures++;
+          System.err.printf("A sweep point failed: %s\n", e.getCause());
+          e.getCause().printStackTrace();
+        } catch (InterruptedException e) {
+          executor.shutdownNow();
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+
+    writeSummary();
+    return numOfFailures;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Whether a point has finished in an earlier run.
+   *
+   * @param point  the point
+   * @return whether the point has finished
+   */
+  private boolean isDone(SweepPoint point) {
+    return dclFile(point).exists() && summaryFile(point).exists();
+  }
+
+  /**
+   * Get the file of the data collection lines of a point.
+   *
+   * @param point  the point
+   * @return the file
+   */
+  private File dclFile(SweepPoint point) {
+    return new File(outDir,
+                    point.getName() + (isBinaryOutput ? ".dcl" : ".csv"));
+  }
+
+  /**
+   * Get the summary file of a point.
+   *
+   * @param point  the point
+   * @return the file
+   */
+  private File summaryFile(SweepPoint point) {
+    return new File(outDir, point.getName() + ".summary");
+  }
+
+  /**
+   * Run the simulation of a point and write its output files.  This runs on
+   * a worker thread.
+   *
+   * @param point  the point
+   */
+  private void runPoint(SweepPoint point) {
+    SimulationContext previousContext =
+      SimulationContext.bind(new SimulationContext(randSeed));
+    try {
+      long startTime = System.currentTimeMillis();
+      Simulator sim = point.makeSimSetup().getSimulator();
+      double totalSimulationTime = SimConfig.getTotalSimulationTime();
+      double currentTime = 0.0;
+      while (currentTime <= totalSimulationTime) {
+        sim.step(SimConfig.TIME_STEP);
+        currentTime += SimConfig.TIME_STEP;
+      }
+      double wallTime = (System.currentTimeMillis() - startTime) / 1000.0;
+
+      BasicMap map = sim.getMap();
+      int numOfCrossings = 0;
+      for (DataCollectionLine line : map.getDataCollectionLines()) {
+        numOfCrossings += line.getNumOfCrossings();
+      }
+      writeLine(summaryFile(point),
+                String.format("%s,%.2f,%d,%d,%.3f",
+                              point.getParameterValues(),
+                              sim.getSimulationTime(),
+                              sim.getNumCompletedVehicles(),
+                              numOfCrossings,
+                              wallTime));
+
+      // write the data under a temporary name so that an interrupted
+      // point is never mistaken for a finished one
+      File tmpFile = new File(dclFile(point).getPath() + ".tmp");
+      if (isBinaryOutput) {
+        DataCollectionLineWriter writer =
+          new BinaryDataCollectionLineWriter(tmpFile.getPath(), map,
+                                             Double.MAX_VALUE);
+        try {
+          map.writeDataCollectionLinesData(writer);
+        } finally {
+          writer.close();
+        }
+      } else {
+        map.printDataCollectionLinesData(tmpFile.getPath());
+      }
+      if (!tmpFile.renameTo(dclFile(point))) {
+        throw new RuntimeException("Cannot rename " + tmpFile + " to " +
+                                   dclFile(point));
+      }
+    } finally {
+      SimulationContext.bind(previousContext);
+    }
+  }
+
+  /**
+   * Merge the summaries of the finished points into the summary file.
+   *
+   * @throws IOException if the summary file cannot be written
+   */
+  private void writeSummary() throws IOException {
+    PrintStream outfile = new PrintStream(new File(outDir, SUMMARY_FILE_NAME));
+    try {
+      outfile.printf("%s,simTime,completed,dclCrossings,wallTime\n",
+                     parameterNames);
+      for (SweepPoint point : points) {
+        if (isDone(point)) {
+          List<String> lines =
+            Util.readFileToStrArray(summaryFile(point).getPath());
+          for (String line : lines) {
+            outfile.println(line);
+          }
+        }
+      }
+    } finally {
+      outfile.close();
+    }
+  }
+
+  /**
+   * Write a line to a file.
+   *
+   * @param file  the file
+   * @param line  the line
+   */
+  private static void writeLine(File file, String line) {
+    PrintStream outfile;
+    try {
+      outfile = new PrintStream(file);
+    } catch (FileNotFoundException e) {
+      throw new RuntimeException("Cannot open file " + file, e);
+    }
+    outfile.println(line);
+    outfile.close();
+  }
+}
@@ -0,0 +1,254 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import aim4.vehicle.VehicleSimView;
+
+/**
+ * A uniform grid of the bounding boxes of the vehicles, for finding the
+ * vehicles in a region without going through all the vehicles.  The grid
+ * covers the map; vehicles that are partly outside of the map are put in the
+ * cells at the border.  The vehicles move at every step, so the grid is
+ * rebuilt by {@link #rebuild(Iterable)} at the beginning of each step and
+ * vehicles that appear during the step are added by
+ * {@link #add(VehicleSimView)}.
+ */
+public class VehicleGridIndex {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The default length of the sides of the cells, in meters.  It is a few
+   * times the length of a vehicle, so that a vehicle is usually in at most
+   * four cells.
+   */
+  public static final double DEFAULT_CELL_SIZE = 10.0;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The minimum x-coordinate of the grid */
+  private final double minX;
+  /** The minimum y-coordinate of the grid */
+  private final double minY;
+  /** The length of the sides of the cells */
+  private final double cellSize;
+  /** The number of columns */
+  private final int numOfColumns;
+  /** The number of rows */
+  private final int numOfRows;
+  /** The vehicles in each cell, indexed by row * numOfColumns + column */
+  private final List<List<VehicleSimView>> cells;
+  /** The bounding boxes of the vehicles in each cell */
+  private final List<List<Rectangle2D>> cellBounds;
+  /** The indices of the cells that are not empty */
+  private final List<Integer> usedCells;
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a grid with cells of the default size.
+   *
+   * @param dimensions  the dimensions of the map
+   */
+  public VehicleGridIndex(Rectangle2D dimensions) {
+    this(dimensions, DEFAULT_CELL_SIZE);
+  }
+
+  /**
+   * Create a grid.
+   *
+   * @param dimensions  the dimensions of the map
+   * @param cellSize    the length of the sides of the cells
+   */
+  public VehicleGridIndex(Rectangle2D dimensions, double cellSize) {
+    if (cellSize <= 0.0) {
+      throw new IllegalArgumentException("The cell size must be positive.");
+    }
+    this.minX = dimensions.getMinX();
+    this.minY = dimensions.getMinY();
+    this.cellSize = cellSize;
+    this.numOfColumns =
+      Math.max(1, (int)Math.ceil(dimensions.getWidth() / cellSize));
+    this.numOfRows =
+      Math.max(1, (int)Math.ceil(dimensions.getHeight() / cellSize));
+    int n = numOfColumns * numOfRows;
+    cells = new ArrayList<List<VehicleSimView>>(n);
+    cellBounds = new ArrayList<List<Rectangle2D>>(n);
+    for (int i = 0; i < n; i++) {
+      cells.add(new ArrayList<VehicleSimView>(2));
+      cellBounds.add(new ArrayList<Rectangle2D>(2));
+    }
+    usedCells = new ArrayList<Integer>();
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Remove all vehicles and put the given vehicles in the grid.
+   *
+   * @param vehicles  the vehicles
+   */
+  public void rebuild(Iterable<? extends VehicleSimView> vehicles) {
+    for (int i : usedCells) {
+      cells.get(i).clear();
+      cellBounds.get(i).clear();
+    }
+    usedCells.clear();
+    for (VehicleSimView vehicle : vehicles) {
+      add(vehicle);
+    }
+  }
+
+  /**
+   * Put a vehicle in the grid.
+   *
+   * @param vehicle  the vehicle
+   */
+  public void add(VehicleSimView vehicle) {
+    Rectangle2D bounds = vehicle.getShape().getBounds2D();
+    int c1 = column(bounds.getMinX());
+    int c2 = column(bounds.getMaxX());
+    int r1 = row(bounds.getMinY());
+    int r2 = row(bounds.getMaxY());
+    for (int r = r1; r <= r2; r++) {
+      for (int c = c1; c <= c2; c++) {
+        int i = r * numOfColumns + c;
+        List<VehicleSimView> cell = cells.get(i);
+        if (cell.isEmpty()) {
+          usedCells.add(i);
+        }
+        cell.add(vehicle);
+        cellBounds.get(i).add(bounds);
+      }
+    }
+  }
+
+  /**
+   * Find the vehicles whose bounding boxes intersect a region.  Each vehicle
+   * is listed once.
+   *
+   * @param region  the region
+   * @return the vehicles whose bounding boxes intersect the region
+   */
+  public List<VehicleSimView> findVehicles(Rectangle2D region) {
+    List<VehicleSimView> result = new ArrayList<VehicleSimView>();
+    int c1 = column(region.getMinX());
+    int c2 = column(region.getMaxX());
+    int r1 = row(region.getMinY());
+    int r2 = row(region.getMaxY());
+    for (int r = r1; r <= r2; r++) {
+      for (int c = c1; c <= c2; c++) {
+        int i = r * numOfColumns + c;
+        List<VehicleSimView> cell = cells.get(i);
+        List<Rectangle2D> bounds = cellBounds.get(i);
+        for (int j = 0; j < cell.size(); j++) {
+          Rectangle2D b = bounds.get(j);
+          // report a vehicle only in the first cell that both the vehicle
+          // and the region are in
+          if (b.intersects(region)
+              && c == Math.max(c1, column(b.getMinX()))
+              && r == Math.max(r1, row(b.getMinY()))) {
+            result.add(cell.get(j));
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Whether the shape of any vehicle intersects a region.
+   *
+   * @param region  the region
+   * @return whether the shape of any vehicle intersects the region
+   */
+  public boolean intersectsAnyVehicle(Rectangle2D region) {
+    int c1 = column(region.getMinX());
+    int c2 = column(region.getMaxX());
+    int r1 = row(region.getMinY());
+    int r2 = row(region.getMaxY());
+    for (int r = r1; r <= r2; r++) {
+      for (int c = c1; c <= c2; c++) {
+        int i = r * numOfColumns + c;
+        List<VehicleSimView> cell = cells.get(i);
+        List<Rectangle2D> bounds = cellBounds.get(i);
+        for (int j = 0; j < cell.size(); j++) {
+          if (bounds.get(j).intersects(region)) {
+            Shape shape = cell.get(j).getShape();
+            if (shape.intersects(region)) {
+              return true;
+            }
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the column of the cells containing an x-coordinate.
+   *
+   * @param x  the x-coordinate
+   * @return the column, clamped to the grid
+   */
+  private int column(double x) {
+    int c = (int)Math.floor((x - minX) / cellSize);
+    return Math.min(Math.max(c, 0), numOfColumns - 1);
+  }
+
+  /**
+   * Get the row of the cells containing a y-coordinate.
+   *
+   * @param y  the y-coordinate
+   * @return the row, clamped to the grid
+   */
+  private int row(double y) {
+    int r = (int)Math.floor((y - minY) / cellSize);
+    return Math.min(Math.max(r, 0), numOfRows - 1);
+  }
+}
@@ -1,11 +1,12 @@
 package aim4.sim.setup;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import aim4.config.Resources;
+import aim4.config.SimulationContext;
 import aim4.driver.Driver;
 import aim4.driver.coordinator.V2ICoordinator.State;
 import aim4.im.v2i.RequestHandler.ApproxNPhasesTrafficSignalRequestHandler.SignalController;
@@ -21,28 +22,27 @@ import aim4.im.v2i.RequestHandler.ApproxNPhasesTrafficSignalRequestHandler.Adapt
  *
  */
 public class AdaptiveTrafficSignalSuperviser {
-	private static Map<Integer, AdaptiveSignalController> signalControllers = new HashMap<Integer, AdaptiveSignalController>();
-	private static double redPhaseLength = 20;
-	private static double postpone = 5;
-	private static double greenPhaseLength = 15;
+	// The controllers and the phase lengths live in the simulation context
+	// of the calling thread, so that simulations stepping side by side do
+	// not share them.
 	
 	public static SignalController addTrafficSignalController(Lane lane) {
 		AdaptiveSignalController signalController = new AdaptiveSignalController();
-		signalControllers.put(lane.getId(), signalController);
+		SimulationContext.current().getAdaptiveSignalControllers().put(lane.getId(), signalController);
 		
 		return signalController;
 	}
 	
 	public static double getRedPhaseLength() {
-		return redPhaseLength;
+		return SimulationContext.current().getAdaptiveRedPhaseLength();
 	}
 	
 	public static double getGreenPhaseLength() {
-		return greenPhaseLength;
+		return SimulationContext.current().getAdaptiveGreenPhaseLength();
 	}
 	
 	public static double getPhaseLength() {
-		return redPhaseLength + greenPhaseLength;
+		return getRedPhaseLength() + getGreenPhaseLength();
 	}
 	
 	/**
@@ -50,8 +50,10 @@ public class AdaptiveTrafficSignalSuperviser {
 	 * and turn on corresponding traffic light. 
 	 */
 	public static void runGreenLight(double currentTime) {
-		Map<Road, Integer> numDriversWaiting = new HashMap<Road, Integer>();
-		Map<Integer,VehicleSimView> vinToVehicles = Resources.vinToVehicles;
+		// roads are kept in the order they are first seen, so that ties are
+		// broken the same way in every run rather than by identity hash codes
+		Map<Road, Integer> numDriversWaiting = new LinkedHashMap<Road, Integer>();
+		Map<Integer,VehicleSimView> vinToVehicles = Resources.getVinToVehicles();
 		
 		// find out the number of human vehicles waiting in each ROAD
 		for (VehicleSimView vehicle: vinToVehicles.values()) {
@@ -60,7 +62,7 @@ public class AdaptiveTrafficSignalSuperviser {
 			// if the human is not approaching intersection
 		  if (driver.getState() != State.V2I_CLEARING && vehicle.isHuman()) {
 		  	Lane lane = driver.getCurrentLane();
-		  	Road road = Resources.map.getRoad(lane);
+		  	Road road = Resources.getMap().getRoad(lane);
 		  	
 		  	// number of vehicles waiting +1
 		  	if (numDriversWaiting.keySet().contains(road)) {
@@ -82,6 +84,10 @@ public class AdaptiveTrafficSignalSuperviser {
 		
 		if (maxEntry != null) {
 			// only apply when there are human vehicles appearing
+			SimulationContext context = SimulationContext.current();
+			Map<Integer, AdaptiveSignalController> signalControllers = context.getAdaptiveSignalControllers();
+			double postpone = context.getAdaptiveGreenPhasePostpone();
+			double greenPhaseLength = context.getAdaptiveGreenPhaseLength();
 			for (Lane lane : maxEntry.getKey().getLanes()) {
 				double startTime = currentTime + postpone;
 				double endTime = currentTime + postpone + greenPhaseLength;
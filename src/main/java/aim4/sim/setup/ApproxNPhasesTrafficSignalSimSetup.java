@@ -33,6 +33,7 @@ package aim4.sim.setup;
 import aim4.config.Debug;
 import aim4.config.Resources;
 import aim4.config.SimConfig;
+import aim4.config.SimulationContext;
 import aim4.driver.pilot.V2IPilot;
 import aim4.im.v2i.reservation.ReservationGridManager;
 import aim4.map.GridMap;
@@ -103,6 +104,8 @@ public class ApproxNPhasesTrafficSignalSimSetup extends BasicSimSetup
    */
   @Override
   public Simulator getSimulator() {
+    // all the state set up below belongs to this new simulation
+    SimulationContext context = SimulationContext.create();
     double currentTime = 0.0;
     GridMap layout = new GridMap(currentTime,
                                        numOfColumns,
@@ -113,7 +116,7 @@ public class ApproxNPhasesTrafficSignalSimSetup extends BasicSimSetup
                                        medianSize,
                                        distanceBetween);
 
-    Resources.map = layout;
+    Resources.setMap(layout);
 
     ReservationGridManager.Config gridConfig =
       new ReservationGridManager.Config(SimConfig.TIME_STEP,
@@ -140,6 +143,6 @@ public class ApproxNPhasesTrafficSignalSimSetup extends BasicSimSetup
     V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION =
       stopDistBeforeIntersection;
 
-    return new AutoDriverOnlySimulator(layout);
+    return new AutoDriverOnlySimulator(layout, context);
   }
 }
@@ -32,6 +32,7 @@ package aim4.sim.setup;
 
 import aim4.config.Debug;
 import aim4.config.SimConfig;
+import aim4.config.SimulationContext;
 import aim4.driver.pilot.V2IPilot;
 import aim4.im.v2i.reservation.ReservationGridManager;
 import aim4.map.GridMap;
@@ -120,6 +121,8 @@ public class ApproxSimpleTrafficSignalSimSetup extends BasicSimSetup
    */
   @Override
   public Simulator getSimulator() {
+    // all the state set up below belongs to this new simulation
+    SimulationContext context = SimulationContext.create();
     double currentTime = 0.0;
     GridMap layout = new GridMap(currentTime,
                                        numOfColumns,
@@ -156,6 +159,6 @@ public class ApproxSimpleTrafficSignalSimSetup extends BasicSimSetup
     V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION =
       stopDistBeforeIntersection;
 
-    return new AutoDriverOnlySimulator(layout);
+    return new AutoDriverOnlySimulator(layout, context);
   }
 }
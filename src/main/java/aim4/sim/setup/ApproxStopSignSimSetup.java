@@ -32,6 +32,7 @@ package aim4.sim.setup;
 
 import aim4.config.Debug;
 import aim4.config.SimConfig;
+import aim4.config.SimulationContext;
 import aim4.driver.pilot.V2IPilot;
 import aim4.im.v2i.reservation.ReservationGridManager;
 import aim4.map.GridMap;
@@ -108,6 +109,8 @@ public class ApproxStopSignSimSetup extends BasicSimSetup
    */
   @Override
   public Simulator getSimulator() {
+    // all the state set up below belongs to this new simulation
+    SimulationContext context = SimulationContext.create();
     double currentTime = 0.0;
     GridMap layout = new GridMap(currentTime,
                                        numOfColumns,
@@ -127,7 +130,7 @@ public class ApproxStopSignSimSetup extends BasicSimSetup
                                         true,
                                         1.0);
 
-    SimConfig.MUST_STOP_BEFORE_INTERSECTION = true;
+    SimConfig.setMustStopBeforeIntersection(true);
     Debug.SHOW_VEHICLE_COLOR_BY_MSG_STATE = false;
 
     GridMapUtil.setApproxStopSignManagers(layout, currentTime,
@@ -146,6 +149,6 @@ public class ApproxStopSignSimSetup extends BasicSimSetup
     V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION =
       stopDistBeforeIntersection;
 
-    return new AutoDriverOnlySimulator(layout);
+    return new AutoDriverOnlySimulator(layout, context);
   }
 }
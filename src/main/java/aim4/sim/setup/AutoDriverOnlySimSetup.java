@@ -34,6 +34,7 @@ import aim4.config.Constants;
 import aim4.config.Debug;
 import aim4.config.Resources;
 import aim4.config.SimConfig;
+import aim4.config.SimulationContext;
 import aim4.driver.pilot.V2IPilot;
 import aim4.im.v2i.batch.RoadBasedReordering;
 import aim4.im.v2i.reservation.ReservationGridManager;
@@ -87,6 +88,11 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
   private double granularity = 1.0;
   /** The processing interval for the batch mode */
   private double processingInterval = RoadBasedReordering.DEFAULT_PROCESSING_INTERVAL;
+  /**
+   * The wall-clock time the search of a batch may take; 0 to reorder the
+   * batches by road
+   */
+  private double reorderingSearchBudget = 0.0;
   /** The name of the file about the traffic volume */
   private String trafficVolumeFileName = null;
   /** The buffer size factor for HUD-trajectory-following vehicles */
@@ -165,6 +171,16 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
     this.processingInterval = processingInterval;
   }
 
+  /**
+   * Set the wall-clock time the branch-and-bound search of a batch may take
+   * in the batch mode.  A budget of 0 reorders the batches by road.
+   *
+   * @param searchBudget  the search budget in seconds
+   */
+  public void setBatchModeSearchBudget(double searchBudget) {
+    this.reorderingSearchBudget = searchBudget;
+  }
+
   /**
    * Set the uniform random traffic.
    *
@@ -244,6 +260,8 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
    */
   @Override
   public Simulator getSimulator() {
+    // all the state set up below belongs to this new simulation
+    SimulationContext context = SimulationContext.create();
     double currentTime = 0.0;
     GridMap layout = new GridMap(currentTime,
                                        numOfColumns,
@@ -253,7 +271,7 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
                                        lanesPerRoad,
                                        medianSize,
                                        distanceBetween);
-    Resources.map = layout;
+    Resources.setMap(layout);
     // Set the edge tile time buffer based on the maximum speed limit
     try {
       edgeTileTimeBufferSize = Constants.getEdgeTileTimeBufferBasedOnVelocity(speedLimit);
@@ -308,7 +326,8 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
     if (!isBaseLineMode) {
       if (isBatchMode) {
         GridMapUtil.setBatchManagers(layout, currentTime, gridConfig,
-                                        processingInterval);
+                                        processingInterval,
+                                        reorderingSearchBudget);
       } else {
         GridMapUtil.setFCFSManagers(layout, currentTime, gridConfig);
       }
@@ -337,6 +356,6 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
 
     V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION =
       stopDistBeforeIntersection;
-    return new AutoDriverOnlySimulator(layout);
+    return new AutoDriverOnlySimulator(layout, context);
   }
 }
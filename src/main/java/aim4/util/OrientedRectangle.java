@@ -0,0 +1,660 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.util;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.NoSuchElementException;
+
+/**
+ * A mutable rectangle with an arbitrary heading, such as the body of a
+ * vehicle.  The rectangle is given by the middle point of its front edge, its
+ * heading, its length and half of its width, and can be moved in place, so
+ * that a vehicle can keep one rectangle for its whole life.
+ * <p>
+ * The corners are counterclockwise from the front left corner.  As a
+ * {@link Shape}, the rectangle is the closed path through the corners
+ * rounded to single precision, and it behaves exactly as a
+ * {@link java.awt.geom.GeneralPath} built from the corners would; the
+ * geometric queries do not allocate any memory.
+ */
+public class OrientedRectangle implements Shape {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The result of the crossings of the edges with a rectangle when an edge
+   * intersects the rectangle.
+   */
+  private static final int RECT_INTERSECTS = 0x80000000;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The x-coordinates of the corners */
+  private final double[] xs = new double[4];
+  /** The y-coordinates of the corners */
+  private final double[] ys = new double[4];
+  /**
+   * The coordinates of the corners rounded to single precision, as pairs of
+   * x- and y-coordinates
+   */
+  private final float[] coords = new float[8];
+  /** The x-coordinate of the middle point of the front edge */
+  private double x;
+  /** The y-coordinate of the middle point of the front edge */
+  private double y;
+  /** The heading */
+  private double heading;
+  /** The length */
+  private double length;
+  /** Half of the width */
+  private double halfWidth;
+  /** Whether cosHeading and sinHeading are up to date */
+  private boolean isDirectionValid = false;
+  /** The cosine of the heading, if isDirectionValid */
+  private double cosHeading;
+  /** The sine of the heading, if isDirectionValid */
+  private double sinHeading;
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a rectangle with all the corners at the origin.
+   */
+  public OrientedRectangle() {
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Move the rectangle.
+   *
+   * @param x          the x-coordinate of the middle point of the front edge
+   * @param y          the y-coordinate of the middle point of the front edge
+   * @param heading    the heading
+   * @param length     the length
+   * @param halfWidth  half of the width
+   */
+  public void set(double x, double y, double heading, double length,
+                  double halfWidth) {
+    this.x = x;
+    this.y = y;
+    this.heading = heading;
+    this.length = length;
+    this.halfWidth = halfWidth;
+    this.isDirectionValid = false;
+    // First point, counterclockwise
+    xs[0] = x + halfWidth * Math.cos(heading + Math.PI/2);
+    ys[0] = y + halfWidth * Math.sin(heading + Math.PI/2);
+    // Second point
+    xs[1] = xs[0] + length * Math.cos(heading + Math.PI);
+    ys[1] = ys[0] + length * Math.sin(heading + Math.PI);
+    // Fourth point
+    xs[3] = x + halfWidth * Math.cos(heading - Math.PI/2);
+    ys[3] = y + halfWidth * Math.sin(heading - Math.PI/2);
+    // Third point
+    xs[2] = xs[3] + length * Math.cos(heading - Math.PI);
+    ys[2] = ys[3] + length * Math.sin(heading - Math.PI);
+    for(int i = 0; i < 4; i++) {
+      coords[2 * i] = (float)xs[i];
+      coords[2 * i + 1] = (float)ys[i];
+    }
+  }
+
+  /**
+   * Get the x-coordinate of the middle point of the front edge.
+   *
+   * @return the x-coordinate of the middle point of the front edge
+   */
+  public double getX() {
+    return x;
+  }
+
+  /**
+   * Get the y-coordinate of the middle point of the front edge.
+   *
+   * @return the y-coordinate of the middle point of the front edge
+   */
+  public double getY() {
+    return y;
+  }
+
+  /**
+   * Get the heading.
+   *
+   * @return the heading
+   */
+  public double getHeading() {
+    return heading;
+  }
+
+  /**
+   * Get the length.
+   *
+   * @return the length
+   */
+  public double getLength() {
+    return length;
+  }
+
+  /**
+   * Get half of the width.
+   *
+   * @return half of the width
+   */
+  public double getHalfWidth() {
+    return halfWidth;
+  }
+
+  /**
+   * Get the x-coordinate of a corner.
+   *
+   * @param i  the index of the corner, counterclockwise from the front left
+   *           corner
+   * @return the x-coordinate of the corner
+   */
+  public double getCornerX(int i) {
+    return xs[i];
+  }
+
+  /**
+   * Get the y-coordinate of a corner.
+   *
+   * @param i  the index of the corner, counterclockwise from the front left
+   *           corner
+   * @return the y-coordinate of the corner
+   */
+  public double getCornerY(int i) {
+    return ys[i];
+  }
+
+  /**
+   * Get the distance from a point to the rectangle, computed in closed form
+   * in the frame of the rectangle.  Unlike the other queries, the distance
+   * is to the exact rectangle rather than to its rounded corners.
+   *
+   * @param px  the x-coordinate of the point
+   * @param py  the y-coordinate of the point
+   * @return the distance from the point to the rectangle; zero if the point
+   *         is inside the rectangle
+   */
+  public double distance(double px, double py) {
+    // the direction is only needed by this query, so it is computed on
+    // demand rather than whenever the rectangle moves
+    if (!isDirectionValid) {
+      cosHeading = Math.cos(heading);
+      sinHeading = Math.sin(heading);
+      isDirectionValid = true;
+    }
+    double dx = px - x;
+    double dy = py - y;
+    // the coordinates of the point along and across the heading; the
+    // rectangle spans [-length, 0] along and [-halfWidth, halfWidth] across
+    double along = dx * cosHeading + dy * sinHeading;
+    double across = Math.abs(dy * cosHeading - dx * sinHeading);
+    double dAlong = Math.max(0.0, Math.max(along, -length - along));
+    double dAcross = Math.max(0.0, across - halfWidth);
+    return Math.sqrt(dAlong * dAlong + dAcross * dAcross);
+  }
+
+  /**
+   * Get the distance from a point to the boundary of the shape.
+   *
+   * @param px  the x-coordinate of the point
+   * @param py  the y-coordinate of the point
+   * @return the distance from the point to the nearest edge of the shape
+   */
+  public double ptEdgeDist(double px, double py) {
+    double dist = Double.MAX_VALUE;
+    for(int i = 0; i < 4; i++) {
+      int j = (i + 1) & 3;
+      double d = Line2D.ptSegDist(coords[2 * i], coords[2 * i + 1],
+                                  coords[2 * j], coords[2 * j + 1],
+                                  px, py);
+      if (d < dist) {
+        dist = d;
+      }
+    }
+    return dist;
+  }
+
+  /**
+   * Whether the shape overlaps the shape of another rectangle, in an area
+   * greater than zero.
+   *
+   * @param other  the other rectangle
+   * @return whether the two shapes overlap
+   */
+  public boolean overlaps(OrientedRectangle other) {
+    // the shapes are convex, so they do not overlap if and only if the line
+    // through one of their edges separates them
+    return !hasSeparatingEdge(other) && !other.hasSeparatingEdge(this);
+  }
+
+  /**
+   * Get the smallest x-coordinate of the bounding box of the shape.
+   *
+   * @return the smallest x-coordinate of the bounding box
+   */
+  public double getMinX() {
+    return Math.min(Math.min(coords[0], coords[2]),
+                    Math.min(coords[4], coords[6]));
+  }
+
+  /**
+   * Get the smallest y-coordinate of the bounding box of the shape.
+   *
+   * @return the smallest y-coordinate of the bounding box
+   */
+  public double getMinY() {
+    return Math.min(Math.min(coords[1], coords[3]),
+                    Math.min(coords[5], coords[7]));
+  }
+
+  /**
+   * Get the largest x-coordinate of the bounding box of the shape, the same
+   * as the one of {@link #getBounds2D()}.
+   *
+   * @return the largest x-coordinate of the bounding box
+   */
+  public double getMaxX() {
+    float minX = (float)getMinX();
+    float maxX = Math.max(Math.max(coords[0], coords[2]),
+                          Math.max(coords[4], coords[6]));
+    return (double)minX + (double)(maxX - minX);
+  }
+
+  /**
+   * Get the largest y-coordinate of the bounding box of the shape, the same
+   * as the one of {@link #getBounds2D()}.
+   *
+   * @return the largest y-coordinate of the bounding box
+   */
+  public double getMaxY() {
+    float minY = (float)getMinY();
+    float maxY = Math.max(Math.max(coords[1], coords[3]),
+                          Math.max(coords[5], coords[7]));
+    return (double)minY + (double)(maxY - minY);
+  }
+
+  // Shape
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Rectangle getBounds() {
+    return getBounds2D().getBounds();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Rectangle2D getBounds2D() {
+    float minX = (float)getMinX();
+    float minY = (float)getMinY();
+    float maxX = Math.max(Math.max(coords[0], coords[2]),
+                          Math.max(coords[4], coords[6]));
+    float maxY = Math.max(Math.max(coords[1], coords[3]),
+                          Math.max(coords[5], coords[7]));
+    return new Rectangle2D.Float(minX, minY, maxX - minX, maxY - minY);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean contains(double px, double py) {
+    if (px * 0.0 + py * 0.0 == 0.0) {
+      // count the crossings of the edges with the ray to the right
+      int crossings = 0;
+      for(int i = 0; i < 4; i++) {
+        int j = (i + 1) & 3;
+        crossings += pointCrossingsForEdge(px, py,
+                                           coords[2 * i], coords[2 * i + 1],
+                                           coords[2 * j], coords[2 * j + 1]);
+      }
+      return crossings != 0;
+    } else {
+      return false;  // px or py is infinite or NaN
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean contains(Point2D p) {
+    return contains(p.getX(), p.getY());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean intersects(double rx, double ry, double w, double h) {
+    if (Double.isNaN(rx + w) || Double.isNaN(ry + h) || w <= 0 || h <= 0) {
+      return false;
+    }
+    int crossings = rectCrossings(rx, ry, rx + w, ry + h);
+    return crossings == RECT_INTERSECTS || crossings != 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean intersects(Rectangle2D r) {
+    return intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean contains(double rx, double ry, double w, double h) {
+    if (Double.isNaN(rx + w) || Double.isNaN(ry + h) || w <= 0 || h <= 0) {
+      return false;
+    }
+    int crossings = rectCrossings(rx, ry, rx + w, ry + h);
+    return crossings != RECT_INTERSECTS && crossings != 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean contains(Rectangle2D r) {
+    return contains(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public PathIterator getPathIterator(AffineTransform at) {
+    return new CornerIterator(at);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public PathIterator getPathIterator(AffineTransform at, double flatness) {
+    return new CornerIterator(at);
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Whether the line through an edge of this rectangle separates the shapes
+   * of this rectangle and another rectangle.
+   *
+   * @param other  the other rectangle
+   * @return whether an edge of this rectangle separates the two shapes
+   */
+  private boolean hasSeparatingEdge(OrientedRectangle other) {
+    // the side of the edges on which the inside of this shape lies
+    double orientation =
+      Math.signum(cross(coords[0], coords[1], coords[2], coords[3],
+                        coords[4], coords[5]));
+    for(int i = 0; i < 4; i++) {
+      int j = (i + 1) & 3;
+      boolean isSeparating = true;
+      for(int k = 0; k < 4 && isSeparating; k++) {
+        // a corner on the edge itself gives exactly zero
+        if (orientation * cross(coords[2 * i], coords[2 * i + 1],
+                                coords[2 * j], coords[2 * j + 1],
+                                other.coords[2 * k],
+                                other.coords[2 * k + 1]) > 0) {
+          isSeparating = false;
+        }
+      }
+      if (isSeparating) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Calculate the cross product of the vector from a point to a second point
+   * and the vector from the point to a third point.
+   *
+   * @return the cross product
+   */
+  private static double cross(double x0, double y0, double x1, double y1,
+                              double x2, double y2) {
+    return (x1 - x0) * (y2 - y0) - (y1 - y0) * (x2 - x0);
+  }
+
+  /**
+   * Calculate the number of times an edge crosses the ray extending to the
+   * right from a point, with the sign of the direction of the edge.
+   *
+   * @return the number of crossings
+   */
+  private static int pointCrossingsForEdge(double px, double py,
+                                           double x0, double y0,
+                                           double x1, double y1) {
+    if (py <  y0 && py <  y1) return 0;
+    if (py >= y0 && py >= y1) return 0;
+    if (px >= x0 && px >= x1) return 0;
+    if (px <  x0 && px <  x1) return (y0 < y1) ? 1 : -1;
+    double xintercept = x0 + (py - y0) * (x1 - x0) / (y1 - y0);
+    if (px >= xintercept) return 0;
+    return (y0 < y1) ? 1 : -1;
+  }
+
+  /**
+   * Calculate the number of times the edges cross the area extending to the
+   * right of a rectangle.
+   *
+   * @return the number of crossings; RECT_INTERSECTS if an edge intersects
+   *         the rectangle
+   */
+  private int rectCrossings(double rxmin, double rymin,
+                            double rxmax, double rymax) {
+    int crossings = 0;
+    for(int i = 0; i < 4 && crossings != RECT_INTERSECTS; i++) {
+      int j = (i + 1) & 3;
+      crossings = rectCrossingsForEdge(crossings, rxmin, rymin, rxmax, rymax,
+                                       coords[2 * i], coords[2 * i + 1],
+                                       coords[2 * j], coords[2 * j + 1]);
+    }
+    return crossings;
+  }
+
+  /**
+   * Accumulate the number of times an edge crosses the area extending to the
+   * right of a rectangle.
+   *
+   * @return the number of crossings; RECT_INTERSECTS if the edge intersects
+   *         the rectangle
+   */
+  private static int rectCrossingsForEdge(int crossings,
+                                          double rxmin, double rymin,
+                                          double rxmax, double rymax,
+                                          double x0, double y0,
+                                          double x1, double y1) {
+    if (y0 >= rymax && y1 >= rymax) return crossings;
+    if (y0 <= rymin && y1 <= rymin) return crossings;
+    if (x0 <= rxmin && x1 <= rxmin) return crossings;
+    if (x0 >= rxmax && x1 >= rxmax) {
+      // the edge is entirely to the right of the rectangle
+      return rightShadowCrossings(crossings, rymin, rymax, y0, y1);
+    }
+    if ((x0 > rxmin && x0 < rxmax && y0 > rymin && y0 < rymax) ||
+        (x1 > rxmin && x1 < rxmax && y1 > rymin && y1 < rymax)) {
+      return RECT_INTERSECTS;
+    }
+    double xi0 = x0;
+    if (y0 < rymin) {
+      xi0 += ((rymin - y0) * (x1 - x0) / (y1 - y0));
+    } else if (y0 > rymax) {
+      xi0 += ((rymax - y0) * (x1 - x0) / (y1 - y0));
+    }
+    double xi1 = x1;
+    if (y1 < rymin) {
+      xi1 += ((rymin - y1) * (x0 - x1) / (y0 - y1));
+    } else if (y1 > rymax) {
+      xi1 += ((rymax - y1) * (x0 - x1) / (y0 - y1));
+    }
+    if (xi0 <= rxmin && xi1 <= rxmin) return crossings;
+    if (xi0 >= rxmax && xi1 >= rxmax) {
+      return rightShadowCrossings(crossings, rymin, rymax, y0, y1);
+    }
+    return RECT_INTERSECTS;
+  }
+
+  /**
+   * Accumulate the number of times an edge to the right of a rectangle
+   * enters or leaves the area extending to the right of the rectangle.
+   *
+   * @return the number of crossings
+   */
+  private static int rightShadowCrossings(int crossings,
+                                          double rymin, double rymax,
+                                          double y0, double y1) {
+    if (y0 < y1) {
+      if (y0 <= rymin) crossings++;
+      if (y1 >= rymax) crossings++;
+    } else if (y1 < y0) {
+      if (y1 <= rymin) crossings--;
+      if (y0 >= rymax) crossings--;
+    }
+    return crossings;
+  }
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The path iterator over the corners.
+   */
+  private class CornerIterator implements PathIterator {
+
+    /** The transformation of the coordinates; null if none */
+    private final AffineTransform at;
+    /** The index of the current segment */
+    private int index = 0;
+
+    /**
+     * Create a path iterator.
+     *
+     * @param at  the transformation of the coordinates; null if none
+     */
+    private CornerIterator(AffineTransform at) {
+      this.at = at;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getWindingRule() {
+      return WIND_NON_ZERO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isDone() {
+      return index > 4;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void next() {
+      index++;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int currentSegment(float[] segment) {
+      if (isDone()) {
+        throw new NoSuchElementException("corner iterator out of bounds");
+      }
+      if (index == 4) {
+        return SEG_CLOSE;
+      }
+      if (at == null) {
+        segment[0] = coords[2 * index];
+        segment[1] = coords[2 * index + 1];
+      } else {
+        at.transform(coords, 2 * index, segment, 0, 1);
+      }
+      return (index == 0) ? SEG_MOVETO : SEG_LINETO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int currentSegment(double[] segment) {
+      if (isDone()) {
+        throw new NoSuchElementException("corner iterator out of bounds");
+      }
+      if (index == 4) {
+        return SEG_CLOSE;
+      }
+      if (at == null) {
+        segment[0] = coords[2 * index];
+        segment[1] = coords[2 * index + 1];
+      } else {
+        at.transform(coords, 2 * index, segment, 0, 1);
+      }
+      return (index == 0) ? SEG_MOVETO : SEG_LINETO;
+    }
+  }
+}
@@ -32,6 +32,7 @@ package aim4.util;
 
 import java.awt.Shape;
 import java.awt.geom.Area;
+import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.List;
@@ -376,4 +377,117 @@ public class TiledArea {
     return occupiedTiles;
   }
 
+  /**
+   * Find the IDs of the tiles that are occupied by a convex quadrilateral,
+   * such as the one given by the corner points of a vehicle.  The result is
+   * the same as that of {@link #findOccupiedTiles(Shape)} on the shape
+   * created by {@link GeomUtil#convertPointsToShape(Point2D[])}, in the same
+   * order, but no shape is created: each column of tiles is clipped against
+   * the quadrilateral to find the range of rows it covers.
+   *
+   * @param corners  the four corner points of the quadrilateral, in order
+   * @param tileIds  the buffer to which the IDs of the occupied tiles are
+   *                 written; it must be able to hold
+   *                 {@link #getNumberOfTiles()} IDs
+   * @return the number of IDs written to the buffer
+   */
+  public int findOccupiedTileIds(Point2D[] corners, int[] tileIds) {
+    // The shape of the corners has single precision coordinates
+    double x0 = (float)corners[0].getX();
+    double y0 = (float)corners[0].getY();
+    double x1 = (float)corners[1].getX();
+    double y1 = (float)corners[1].getY();
+    double x2 = (float)corners[2].getX();
+    double y2 = (float)corners[2].getY();
+    double x3 = (float)corners[3].getX();
+    double y3 = (float)corners[3].getY();
+    double minX = Math.min(Math.min(x0, x1), Math.min(x2, x3));
+    double maxX = Math.max(Math.max(x0, x1), Math.max(x2, x3));
+    double minY = Math.min(Math.min(y0, y1), Math.min(y2, y3));
+    double maxY = Math.max(Math.max(y0, y1), Math.max(y2, y3));
+    // The same range of columns as findOccupiedTiles()
+    int firstColumn =
+      Math.max(0, (int)((minX - rectangle.getMinX()) / xLength));
+    int lastColumn =
+      Math.min(xNum - 1, (int)((maxX - rectangle.getMinX()) / xLength));
+    int n = 0;
+    for(int c = firstColumn; c <= lastColumn; c++) {
+      // The boundaries of the column, computed as in createTiles()
+      double xOffset = c * xLength;
+      double left = rectangle.getMinX() + xOffset;
+      double right =
+        left + Math.min(xLength, rectangle.getWidth() - xOffset);
+      // The interior of the column must overlap with the quadrilateral
+      if (right <= left || right <= minX || left >= maxX) {
+        continue;
+      }
+      // The vertical extent of the part of the quadrilateral in the column
+      double low = Math.min(
+        Math.min(clipEdgeMinY(x0, y0, x1, y1, left, right),
+                 clipEdgeMinY(x1, y1, x2, y2, left, right)),
+        Math.min(clipEdgeMinY(x2, y2, x3, y3, left, right),
+                 clipEdgeMinY(x3, y3, x0, y0, left, right)));
+      // and the highest, as the lowest of the quadrilateral mirrored
+      double high = -Math.min(
+        Math.min(clipEdgeMinY(x0, -y0, x1, -y1, left, right),
+                 clipEdgeMinY(x1, -y1, x2, -y2, left, right)),
+        Math.min(clipEdgeMinY(x2, -y2, x3, -y3, left, right),
+                 clipEdgeMinY(x3, -y3, x0, -y0, left, right)));
+      // Rows that may overlap with the extent, widened by one row on each
+      // side against rounding errors; the exact test is done below
+      int firstRow = Math.max(0,
+        (int)((low - rectangle.getMinY()) / yLength) - 1);
+      int lastRow = Math.min(yNum - 1,
+        (int)((high - rectangle.getMinY()) / yLength) + 1);
+      firstRow = Math.max(firstRow,
+        (int)((minY - rectangle.getMinY()) / yLength));
+      lastRow = Math.min(lastRow,
+        (int)((maxY - rectangle.getMinY()) / yLength));
+      for(int r = firstRow; r <= lastRow; r++) {
+        if (tiles[c][r] != null) {
+          double yOffset = r * yLength;
+          double bottom = rectangle.getMinY() + yOffset;
+          double top =
+            bottom + Math.min(yLength, rectangle.getHeight() - yOffset);
+          if (bottom < top && bottom < high && top > low) {
+            tileIds[n++] = tiles[c][r].getId();
+          }
+        }
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Get the lowest y-coordinate of the part of an edge of a polygon in a
+   * column.
+   *
+   * @param xa     the x-coordinate of the start of the edge
+   * @param ya     the y-coordinate of the start of the edge
+   * @param xb     the x-coordinate of the end of the edge
+   * @param yb     the y-coordinate of the end of the edge
+   * @param left   the x-coordinate of the left boundary of the column
+   * @param right  the x-coordinate of the right boundary of the column
+   * @return the lowest y-coordinate of the part of the edge in the column;
+   *         positive infinity if the edge is not in the column
+   */
+  private static double clipEdgeMinY(double xa, double ya,
+                                     double xb, double yb,
+                                     double left, double right) {
+    if (xa > xb) {
+      return clipEdgeMinY(xb, yb, xa, ya, left, right);
+    }
+    if (xb < left || xa > right) {
+      return Double.POSITIVE_INFINITY;
+    }
+    if (xa == xb) {
+      return Math.min(ya, yb);
+    }
+    // The edge is linear, so the extremes are at the ends of the clipped part
+    double slope = (yb - ya) / (xb - xa);
+    double ys = (xa < left) ? ya + (left - xa) * slope : ya;
+    double ye = (xb > right) ? ya + (right - xa) * slope : yb;
+    return Math.min(ys, ye);
+  }
+
 }
@@ -36,6 +36,7 @@ import java.util.Random;
 
 import aim4.config.Condor;
 import aim4.config.Constants;
+import aim4.config.SimulationContext;
 import java.io.BufferedReader;
 import java.io.DataInputStream;
 import java.io.FileInputStream;
@@ -58,9 +59,6 @@ public class Util {
   public static long randSeed = (new Random()).nextLong();
   // public static final long randSeed = -6397397808339168785L;
 
-  /** The global random number generator */
-  public static final Random random = new Random(randSeed);
-
   static {
     if (Condor.IS_CONDOR_EXIST) {
       // To make sure different processes on Condor receives different random
@@ -70,8 +68,7 @@ public class Util {
       } catch(InterruptedException e){
         // ignore the interruption by another thread
       }
-      randSeed = Util.random.nextLong() + Condor.CONDOR_ID;
-      Util.random.setSeed(randSeed);
+      randSeed = (new Random(randSeed)).nextLong() + Condor.CONDOR_ID;
     }
 
 //    if (Debug.IS_PRINT_RANDOM_SEED) {
@@ -84,6 +81,17 @@ public class Util {
   // PUBLIC METHODS
   /////////////////////////////////
 
+  /**
+   * Get the random number generator of the simulation of the calling thread.
+   * Each simulation context seeds its own generator with {@link #randSeed}
+   * unless told otherwise.
+   *
+   * @return the random number generator
+   */
+  public static Random getRandom() {
+    return SimulationContext.current().getRandom();
+  }
+
   //see http://floating-point-gui.de/errors/comparison
 
   /**
@@ -284,7 +292,7 @@ public class Util {
    *         to the distribution
    */
   public static int randomIndex(double[] distribution) {
-    double a = Util.random.nextDouble();
+    double a = getRandom().nextDouble();
     for(int i=0; i<distribution.length; i++) {
       a -= distribution[i];
       if (a<0.0) {
@@ -302,7 +310,7 @@ public class Util {
    *         to the distribution
    */
   public static int randomIndex(List<Double> distribution) {
-    double a = Util.random.nextDouble();
+    double a = getRandom().nextDouble();
     for(int i=0; i<distribution.size(); i++) {
       a -= distribution.get(i);
       if (a<0.0) {
@@ -33,6 +33,7 @@ package aim4.vehicle;
 import java.awt.Shape;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -43,6 +44,7 @@ import aim4.map.track.TrackPosition;
 import aim4.noise.DoubleGauge;
 import aim4.util.GeomMath;
 import aim4.util.GeomUtil;
+import aim4.util.OrientedRectangle;
 import aim4.util.Util;
 
 /**
@@ -1141,22 +1143,26 @@ public abstract class BasicVehicle implements VehicleSimView {
 
   // memoization
 
+  // The memos are updated in place whenever the vehicle moves, so that
+  // moving does not allocate memory.
+
   /**
    * Memoization cache for {@link #gaugePosition()}.
    */
-  private Point2D memoGaugePosition;
+  private final Point2D.Double memoGaugePosition = new Point2D.Double();
   /**
    * Memoization cache for {@link #gaugePointBetweenFrontWheels()}.
    */
-  private Point2D memoGaugePointBetweenFrontWheels;
+  private final Point2D.Double memoGaugePointBetweenFrontWheels =
+    new Point2D.Double();
   /**
-   * Memoization cache for {@link #getShape()}.
+   * Memoization cache for {@link #getShape()} and {@link #getOutline()}.
    */
-  private Shape memoGetShape;
+  private final OrientedRectangle memoOutline = new OrientedRectangle();
   /**
    * Memoization cache for {@link #gaugeShape()}.
    */
-  private Shape memoGaugeShape;
+  private final OrientedRectangle memoGaugeOutline = new OrientedRectangle();
 
   /////////////////////////////////
   // CONSTRUCTORS
@@ -1199,23 +1205,6 @@ public abstract class BasicVehicle implements VehicleSimView {
     clock.record(currentTime);
   }
 
-  /////////////////////////////////
-  // FINALIZE
-  /////////////////////////////////
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  protected void finalize() throws Throwable {
-    super.finalize();
-    // Make sure that the vehicle is unregistered from the Vehicle Registry.
-    if (vin >= 0) {
-      VinRegistry.unregisterVehicle(vin);
-      vin = -1;
-    }
-  }
-
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -1378,7 +1367,15 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   @Override
   public Shape getShape() {
-    return memoGetShape;
+    return memoOutline;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public OrientedRectangle getOutline() {
+    return memoOutline;
   }
 
   /**
@@ -1386,7 +1383,7 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   @Override
   public Shape gaugeShape() {
-    return memoGaugeShape;
+    return memoGaugeOutline;
   }
 
   /**
@@ -1405,7 +1402,16 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   @Override
   public List<Line2D> getEdges() {
-    return GeomMath.polygonalShapePerimeterSegments(getShape());
+    List<Line2D> edges = new ArrayList<Line2D>(4);
+    for(int i = 0; i < 4; i++) {
+      int j = (i + 1) % 4;
+      // the same single-precision corners as the shape
+      edges.add(new Line2D.Double((float)memoOutline.getCornerX(i),
+                                  (float)memoOutline.getCornerY(i),
+                                  (float)memoOutline.getCornerX(j),
+                                  (float)memoOutline.getCornerY(j)));
+    }
+    return edges;
   }
 
   /**
@@ -1708,11 +1714,22 @@ public abstract class BasicVehicle implements VehicleSimView {
     compass.record(movement.getHeading());
     speedometer.record(movement.getVelocity());
 
-    memoGaugePosition = new Point2D.Double(xometer.read(), yometer.read());
-    memoGetShape = GeomUtil.convertPointsToShape(getCornerPoints());
-    memoGaugeShape = GeomUtil.convertPointsToShape(gaugeCornerPoints());
-    memoGaugePointBetweenFrontWheels =
-        spec.getPointBetweenFrontWheels(gaugePosition(), gaugeHeading());
+    memoGaugePosition.setLocation(xometer.read(), yometer.read());
+    memoOutline.set(movement.getPosition().getX(),
+                    movement.getPosition().getY(),
+                    movement.getHeading(),
+                    spec.getLength(),
+                    spec.getHalfWidth());
+    memoGaugeOutline.set(memoGaugePosition.getX(),
+                         memoGaugePosition.getY(),
+                         gaugeHeading(),
+                         spec.getLength(),
+                         spec.getHalfWidth());
+    memoGaugePointBetweenFrontWheels.setLocation(
+      memoGaugePosition.getX()
+        - spec.getFrontAxleDisplacement() * Math.cos(gaugeHeading()),
+      memoGaugePosition.getY()
+        - spec.getFrontAxleDisplacement() * Math.sin(gaugeHeading()));
   }
 
   /////////////////////////////////
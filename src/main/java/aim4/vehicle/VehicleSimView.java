@@ -39,6 +39,7 @@ import java.util.Queue;
 import aim4.config.SimConfig.VEHICLE_TYPE;
 import aim4.driver.AutoDriver;
 import aim4.msg.v2i.V2IMessage;
+import aim4.util.OrientedRectangle;
 
 /**
  * The interface of a vehicle from the viewpoint of a simulator.
@@ -108,12 +109,25 @@ public interface VehicleSimView extends VehicleDriverView {
   // derived properties
 
   /**
-   * Get a {@link Shape} describing the Vehicle.
+   * Get a {@link Shape} describing the Vehicle.  The shape is the outline
+   * of the Vehicle, which is updated in place when the Vehicle moves, so it
+   * may only be read from the thread that steps the simulation.  Other
+   * threads, such as the GUI, must use the outlines in the simulator's
+   * render snapshot.
    *
    * @return a Shape describing this Vehicle.
    */
   Shape getShape();
 
+  /**
+   * Get the outline of the Vehicle.  The outline is updated in place when
+   * the Vehicle moves, so it must not be kept across time steps.
+   *
+   * @return the outline of this Vehicle, whose shape is the same as
+   *         {@link #getShape()}
+   */
+  OrientedRectangle getOutline();
+
   /**
    * Get a {link Shape} describing this Vehicle, if it were larger in each
    * dimension.
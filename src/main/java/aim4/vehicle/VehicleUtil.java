@@ -32,9 +32,9 @@ package aim4.vehicle;
 
 import java.awt.geom.Area;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import aim4.config.SimConfig;
 import aim4.config.SimConfig.VEHICLE_TYPE;
@@ -100,7 +100,8 @@ public class VehicleUtil {
    * specification.
    */
   private static Map<String,Map<List<Integer>, Double>>
-    memoMaxTurnVelocity = new HashMap<String,Map<List<Integer>,Double>>();
+    memoMaxTurnVelocity =
+      new ConcurrentHashMap<String,Map<List<Integer>,Double>>();
 
 
   /////////////////////////////////
@@ -129,29 +130,32 @@ public class VehicleUtil {
                                        Lane departureLane,
                                        IntersectionManager im) {
 
-    // check to see if the spec has been seem before.
-    if (!memoMaxTurnVelocity.containsKey(spec.getName())) {
+    // check to see if the spec has been seem before.  The caches are shared
+    // by the simulations and drivers running on different threads.
+    Map<List<Integer>, Double> mmtvs = memoMaxTurnVelocity.get(spec.getName());
+    if (mmtvs == null) {
       // if not, create a map for it
-      memoMaxTurnVelocity.put(spec.getName(),
-                              new HashMap<List<Integer>,Double>());
+      memoMaxTurnVelocity.putIfAbsent(spec.getName(),
+                              new ConcurrentHashMap<List<Integer>,Double>());
+      mmtvs = memoMaxTurnVelocity.get(spec.getName());
     }
 
     // check to see if the max turn velocity has been stored in the cache
-    Map<List<Integer>, Double> mmtvs = memoMaxTurnVelocity.get(spec.getName());
     List<Integer> key = Arrays.asList(arrivalLane.getId(),
                                       departureLane.getId(),
                                       im.getId());
-    if (!mmtvs.containsKey(key)) {
+    Double mtv = mmtvs.get(key);
+    if (mtv == null) {
       // if not, calculate it and store it in the cache
-      double mtv = calculateMaxTurnVelocity(spec,
-                                            arrivalLane,
-                                            departureLane,
-                                            im);
+      mtv = calculateMaxTurnVelocity(spec,
+                                     arrivalLane,
+                                     departureLane,
+                                     im);
       mmtvs.put(key, mtv);
     }
 
     // FIXME try to see why we need this hack
-    return Math.max(mmtvs.get(key), MIN_MAX_TURN_VELOCITY);
+    return Math.max(mtv, MIN_MAX_TURN_VELOCITY);
   }
 
 
@@ -616,11 +620,7 @@ public class VehicleUtil {
    * @return      true if the two vehicles have collided, false otherwise
    */
   public static boolean collision(VehicleSimView v1, VehicleSimView v2) {
-    Area vehicle1Area = new Area(v1.getShape());
-    Area vehicle2Area = new Area(v2.getShape());
-
-    vehicle1Area.intersect(vehicle2Area);
-    return !vehicle1Area.isEmpty();
+    return v1.getOutline().overlaps(v2.getOutline());
   }
 
 
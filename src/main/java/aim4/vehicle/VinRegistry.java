@@ -34,11 +34,15 @@ import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Map;
 
+import aim4.config.SimulationContext;
 import aim4.map.Road;
 import aim4.map.SpawnPoint;
 
 /**
  * The Vehicle Registry, the class that issues VIN to vehicles.
+ * <p>
+ * Each simulation has its own registry in its {@link SimulationContext};
+ * the static methods act on the registry of the calling thread's context.
  */
 public class VinRegistry {
 
@@ -49,18 +53,18 @@ public class VinRegistry {
   /**
    * This generates a unique identifier for each vehicle, starting with 1000.
    */
-  private static int vinGenerator = 1000;
+  private int vinGenerator = 1000;
 
   /**
    * A map from VINs to Vehicles.
    */
-  private static Map<Integer,WeakReference<VehicleSimView>> vinToVehicle =
+  private Map<Integer,WeakReference<VehicleSimView>> vinToVehicle =
     new HashMap<Integer,WeakReference<VehicleSimView>>();
 
   /**
    * A map from VINs to VehicleSpec.
    */
-  private static Map<Integer,VehicleSpec> vinToVehicleSpec =
+  private Map<Integer,VehicleSpec> vinToVehicleSpec =
     new HashMap<Integer,VehicleSpec>();
 
   // TODO: remove the following in the future
@@ -68,13 +72,13 @@ public class VinRegistry {
   /**
    * A map from VINs to spawn points.
    */
-  private static Map<Integer,SpawnPoint> vinToSpawnPoint =
+  private Map<Integer,SpawnPoint> vinToSpawnPoint =
     new HashMap<Integer,SpawnPoint>();
 
   /**
    * A map from VINs to destination roads.
    */
-  private static Map<Integer,Road> vinToDestRoad =
+  private Map<Integer,Road> vinToDestRoad =
     new HashMap<Integer,Road>();
 
 
@@ -86,11 +90,12 @@ public class VinRegistry {
    * Reset the registry.
    */
   public static void reset() {
-    vinGenerator = 1000;
-    vinToVehicle = new HashMap<Integer,WeakReference<VehicleSimView>>();
-    vinToVehicleSpec = new HashMap<Integer,VehicleSpec>();
-    vinToSpawnPoint = new HashMap<Integer,SpawnPoint>();
-    vinToDestRoad = new HashMap<Integer,Road>();
+    VinRegistry r = current();
+    r.vinGenerator = 1000;
+    r.vinToVehicle = new HashMap<Integer,WeakReference<VehicleSimView>>();
+    r.vinToVehicleSpec = new HashMap<Integer,VehicleSpec>();
+    r.vinToSpawnPoint = new HashMap<Integer,SpawnPoint>();
+    r.vinToDestRoad = new HashMap<Integer,Road>();
   }
 
   /**
@@ -100,16 +105,17 @@ public class VinRegistry {
    * @return  a new VIN for the vehicle
    */
   public static int registerVehicle(VehicleSimView vehicle) {
-    assert vinToVehicle.get(vinGenerator) == null;
-    int vin = vinGenerator;
-    vinToVehicle.put(vin, new WeakReference<VehicleSimView>(vehicle));
-    vinToVehicleSpec.put(vin, vehicle.getSpec());
-    vinToSpawnPoint.put(vin, vehicle.getDriver().getSpawnPoint());
-    vinToDestRoad.put(vin, vehicle.getDriver().getDestination());
+    VinRegistry r = current();
+    assert r.vinToVehicle.get(r.vinGenerator) == null;
+    int vin = r.vinGenerator;
+    r.vinToVehicle.put(vin, new WeakReference<VehicleSimView>(vehicle));
+    r.vinToVehicleSpec.put(vin, vehicle.getSpec());
+    r.vinToSpawnPoint.put(vin, vehicle.getDriver().getSpawnPoint());
+    r.vinToDestRoad.put(vin, vehicle.getDriver().getDestination());
 
     vehicle.setVIN(vin);
 
-    vinGenerator++;
+    r.vinGenerator++;
     return vin;
   }
 
@@ -123,27 +129,28 @@ public class VinRegistry {
    */
   public static boolean registerVehicleWithExistingVIN(VehicleSimView vehicle,
                                                        int vin) {
+    VinRegistry r = current();
     assert vin >= 0;
-    if (vinToVehicle.containsKey(vin)) {
+    if (r.vinToVehicle.containsKey(vin)) {
       return false;  // the VIN has been used by some other vehicle
     } else {
       assert vehicle.getVIN() < 0;
 
-      vinToVehicle.put(vin, new WeakReference<VehicleSimView>(vehicle));
-      vinToVehicleSpec.put(vin, vehicle.getSpec());
+      r.vinToVehicle.put(vin, new WeakReference<VehicleSimView>(vehicle));
+      r.vinToVehicleSpec.put(vin, vehicle.getSpec());
       // TODO: think how to resolve the problem.
       if (vehicle.getDriver() != null) {
-        vinToSpawnPoint.put(vin, vehicle.getDriver().getSpawnPoint());
-        vinToDestRoad.put(vin, vehicle.getDriver().getDestination());
+        r.vinToSpawnPoint.put(vin, vehicle.getDriver().getSpawnPoint());
+        r.vinToDestRoad.put(vin, vehicle.getDriver().getDestination());
       } else {
-        vinToSpawnPoint.put(vin, null);
-        vinToDestRoad.put(vin, null);
+        r.vinToSpawnPoint.put(vin, null);
+        r.vinToDestRoad.put(vin, null);
       }
 
       vehicle.setVIN(vin);
-      if (vin >= vinGenerator) {
-        vinGenerator = vin + 1;
-      }  // else vin < vinGenerator and it would not affect the next vehicle
+      if (vin >= r.vinGenerator) {
+        r.vinGenerator = vin + 1;
+      }  // else vin < r.vinGenerator and it would not affect the next vehicle
       return true;
     }
   }
@@ -155,12 +162,13 @@ public class VinRegistry {
    * @param vin  the VIN of the vehicle
    */
   public static void unregisterVehicle(int vin) {
-    if (vinToVehicle.containsKey(vin)) {
-      vinToVehicle.remove(vin);
+    VinRegistry r = current();
+    if (r.vinToVehicle.containsKey(vin)) {
+      r.vinToVehicle.remove(vin);
       // do not remove the following
-//      vinToVehicleSpec.remove(vin);
-//      vinToSpawnPoint.remove(vin);
-//      vinToDestRoad.remove(vin);
+//      r.vinToVehicleSpec.remove(vin);
+//      r.vinToSpawnPoint.remove(vin);
+//      r.vinToDestRoad.remove(vin);
     } else {
       throw new RuntimeException("VehicleRegistry:unregisterVehicle: " +
                                  "Cannot unregister a vehicle twice");
@@ -174,7 +182,8 @@ public class VinRegistry {
    * @return whether of not the VIN has been issued.
    */
   public static boolean isVINexist(int vin) {
-    return vinToVehicleSpec.containsKey(vin);
+    VinRegistry r = current();
+    return r.vinToVehicleSpec.containsKey(vin);
   }
 
   /**
@@ -185,7 +194,8 @@ public class VinRegistry {
    *         has been destroyed.
    */
   public static VehicleSimView getVehicleFromVIN(int vin) {
-    WeakReference<VehicleSimView> wr = vinToVehicle.get(vin);
+    VinRegistry r = current();
+    WeakReference<VehicleSimView> wr = r.vinToVehicle.get(vin);
     if(wr == null) {
       return null;
     }
@@ -193,7 +203,7 @@ public class VinRegistry {
     VehicleSimView v = wr.get();
     // If it's null, then the Vehicle no longer exists
     if(v == null) {
-      vinToVehicle.remove(vin);
+      r.vinToVehicle.remove(vin);
     }
     return v;
   }
@@ -205,7 +215,8 @@ public class VinRegistry {
    * @return the corresponding vehicle specification
    */
   public static VehicleSpec getVehicleSpecFromVIN(int vin) {
-    return vinToVehicleSpec.get(vin);
+    VinRegistry r = current();
+    return r.vinToVehicleSpec.get(vin);
   }
 
   /**
@@ -215,7 +226,8 @@ public class VinRegistry {
    * @return the spawn point
    */
   public static SpawnPoint getSpawnPointFromVIN(int vin) {
-    return vinToSpawnPoint.get(vin);
+    VinRegistry r = current();
+    return r.vinToSpawnPoint.get(vin);
   }
 
   /**
@@ -225,7 +237,8 @@ public class VinRegistry {
    * @return the destination road
    */
   public static Road getDestRoadFromVIN(int vin) {
-    return vinToDestRoad.get(vin);
+    VinRegistry r = current();
+    return r.vinToDestRoad.get(vin);
   }
 
   /////////////////////////////////
@@ -233,8 +246,22 @@ public class VinRegistry {
   /////////////////////////////////
 
   /**
-   * This class should never be instantiated.
+   * Create an empty registry.  Use {@link SimulationContext#getVinRegistry()}
+   * rather than calling it directly.
    */
-  private VinRegistry(){};
+  public VinRegistry(){};
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the registry of the simulation of the calling thread.
+   *
+   * @return the registry
+   */
+  private static VinRegistry current() {
+    return SimulationContext.current().getVinRegistry();
+  }
 
 }
@@ -61,7 +61,7 @@ public class TrafficSignalExpr {
   			"BLUE   : adaptive cruise control vehicles.\n" + 
   			"MAGENTA: human-driven vehicles.");
   	
-  	SimConfig.signalType = SIGNAL_TYPE.TRADITIONAL;
+  	SimConfig.setSignalType(SIGNAL_TYPE.TRADITIONAL);
   	
     String trafficLevelStr = args[args.length - 4];
 		String humanPercentage = args[args.length - 3];
@@ -75,20 +75,20 @@ public class TrafficSignalExpr {
   		String flag = args[i];
   		
   		if (readRedPhase) {
-  			SimConfig.RED_PHASE_LENGTH = Double.parseDouble(flag);
+  			SimConfig.setRedPhaseLength(Double.parseDouble(flag));
   			readRedPhase = false;
   		}
   		else if (flag.equals("-d")) {
   			SHOW_GUI = false;
   		}
   		else if (flag.equals("-o")) {
-  			SimConfig.signalType = SIGNAL_TYPE.ONE_LANE_VERSION;
+  			SimConfig.setSignalType(SIGNAL_TYPE.ONE_LANE_VERSION);
   		}
   		else if (flag.equals("-h")) {
-  			SimConfig.signalType = SIGNAL_TYPE.HUMAN_ADAPTIVE;
+  			SimConfig.setSignalType(SIGNAL_TYPE.HUMAN_ADAPTIVE);
   		}
   		else if (flag.equals("-nf")) {
-  			SimConfig.FULLY_OBSERVING = false;
+  			SimConfig.setFullyObserving(false);
   		}
   		else if (flag.equals("-p")) {
   			Platoon.platooning = true;
@@ -118,14 +118,14 @@ public class TrafficSignalExpr {
     
     SIM_TYPE simType = SIM_TYPE.APPROX_TRAFFIC_SIGNAL;
 
-    if (SimConfig.signalType != null && SimConfig.signalType != SimConfig.SIGNAL_TYPE.DEFAULT) {
-    	SimConfig.HUMAN_PERCENTAGE = Double.parseDouble(args[6]);
-    	SimConfig.CONSTANT_HUMAN_PERCENTAGE = Double.parseDouble(args[7]);
+    if (SimConfig.getSignalType() != null && SimConfig.getSignalType() != SimConfig.SIGNAL_TYPE.DEFAULT) {
+    	SimConfig.setHumanPercentage(Double.parseDouble(args[6]));
+    	SimConfig.setConstantHumanPercentage(Double.parseDouble(args[7]));
     }
     else {
     	// in this case, this parameter is not called.
     	// just make it safe.
-    	SimConfig.HUMAN_PERCENTAGE = 0;
+    	SimConfig.setHumanPercentage(0);
     }
     
 //    double staticBufferSize = 0.25;
@@ -143,7 +143,7 @@ public class TrafficSignalExpr {
     String trafficSignalPhaseFileName = args[1] + "/AIM4Phases.csv";
     
     String trafficVolumeFileName = "";
-    if (SimConfig.DEDICATED_LANES == 0) {
+    if (SimConfig.getDedicatedLanes() == 0) {
     	trafficVolumeFileName = args[1] + "/AIM4Volumes.csv";
     }
     else {
@@ -162,13 +162,13 @@ public class TrafficSignalExpr {
     */
     
     // the number of (simulated) seconds the simulator should run
-    SimConfig.TOTAL_SIMULATION_TIME = Double.parseDouble(args[8]); // seconds
+    SimConfig.setTotalSimulationTime(Double.parseDouble(args[8])); // seconds
     
-    SimConfig.ADAPTIVE_HUMAN_PERCENTAGE = Double.parseDouble(args[9]);
+    SimConfig.setAdaptiveHumanPercentage(Double.parseDouble(args[9]));
     
     /*
      * For dedicated lanes exp
-    SimConfig.DEDICATED_LANES = Integer.parseInt(args[9]);
+    SimConfig.setDedicatedLanes(Integer.parseInt(args[9]));
     */
     
     BasicSimSetup basicSimSetup =
@@ -219,7 +219,7 @@ public class TrafficSignalExpr {
           new ApproxStopSignSimSetup(basicSimSetup);
       //approxStopSignSimSetup.setTrafficVolume(trafficVolumeFileName);
       approxStopSignSimSetup.setTrafficLevel(trafficLevel);
-      SimConfig.MUST_STOP_BEFORE_INTERSECTION = true;
+      SimConfig.setMustStopBeforeIntersection(true);
       Debug.SHOW_VEHICLE_COLOR_BY_MSG_STATE = false;
       basicSimSetup2 = approxStopSignSimSetup;
       break;
@@ -249,7 +249,7 @@ public class TrafficSignalExpr {
       Simulator sim = basicSimSetup2.getSimulator();
       // run the simulator
       double currentTime = 0.0;
-      while (currentTime <= SimConfig.TOTAL_SIMULATION_TIME) {
+      while (currentTime <= SimConfig.getTotalSimulationTime()) {
         Debug.clearShortTermDebugPoints();
         sim.step(SimConfig.TIME_STEP);
         currentTime += SimConfig.TIME_STEP;
@@ -259,9 +259,9 @@ public class TrafficSignalExpr {
       // Print how many vehicles are inhibited
       System.out.println("Prohibited: " + sim.getProhibitedVehiclesNum());
       System.out.println("Generated: " + sim.getGeneratedVehiclesNum());
-      System.out.println("ETL: " + 1.0 * sim.getGeneratedVehiclesNum() / 12 / SimConfig.TOTAL_SIMULATION_TIME);
+      System.out.println("ETL: " + 1.0 * sim.getGeneratedVehiclesNum() / 12 / SimConfig.getTotalSimulationTime());
       System.out.println("TTL: " 
-    		  			+ 1.0 * (sim.getGeneratedVehiclesNum() + sim.getProhibitedVehiclesNum()) / 12 / SimConfig.TOTAL_SIMULATION_TIME);
+    		  			+ 1.0 * (sim.getGeneratedVehiclesNum() + sim.getProhibitedVehiclesNum()) / 12 / SimConfig.getTotalSimulationTime());
       */
       
       /////////////////////////////////